@@ -0,0 +1,129 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.application.filesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import swift.crdt.TxnTester;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.TxnHandle;
+import swift.exceptions.SwiftException;
+
+public class FileChunkedTest {
+    private static final int P = FileChunked.DEFAULT_PAGE_SIZE;
+
+    TxnHandle txn;
+    CRDTIdentifier id;
+
+    @Before
+    public void setUp() {
+        txn = TxnTester.createIsolatedTxnTester();
+        id = new CRDTIdentifier("files", "f");
+    }
+
+    private static byte[] filled(int length, int value) {
+        final byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    private FileChunked reopen(FileChunked f) throws SwiftException {
+        final FileChunked res = new FileChunked(id, f.getInfo());
+        res.load(txn, 0, res.getSize());
+        return res;
+    }
+
+    private static void assertRange(byte[] data, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            assertEquals("byte " + i, (byte) value, data[i]);
+        }
+    }
+
+    @Test
+    public void shrinkThenRegrowTest() throws SwiftException {
+        final FileChunked f = new FileChunked(id, null);
+        f.reset(filled(3 * P, 1));
+        f.store(txn);
+
+        final FileChunked shrunk = reopen(f);
+        shrunk.reset(filled(1, 2));
+        shrunk.store(txn);
+
+        // write the last page only, the middle one is a gap
+        final FileChunked regrown = reopen(shrunk);
+        regrown.update(ByteBuffer.wrap(filled(P, 3)), 2 * P);
+        regrown.store(txn);
+
+        final byte[] data = reopen(regrown).getBytes();
+        assertEquals(3 * P, data.length);
+        assertRange(data, 0, 1, 2);
+        assertRange(data, 1, 2 * P, 0);
+        assertRange(data, 2 * P, 3 * P, 3);
+    }
+
+    @Test
+    public void recreateTest() throws SwiftException {
+        final FileChunked f = new FileChunked(id, null);
+        f.reset(filled(2 * P, 1));
+        f.store(txn);
+
+        final FileChunked recreated = new FileChunked(id, null);
+        recreated.update(ByteBuffer.wrap(filled(P, 3)), P);
+        recreated.store(txn);
+
+        final byte[] data = reopen(recreated).getBytes();
+        assertEquals(2 * P, data.length);
+        assertRange(data, 0, P, 0);
+        assertRange(data, P, 2 * P, 3);
+    }
+
+    @Test
+    public void loadForUpdateTest() throws SwiftException {
+        final FileChunked f = new FileChunked(id, null);
+        f.reset(filled(3 * P, 1));
+        f.store(txn);
+
+        // only the first and last pages are partially overwritten
+        final FileChunked written = new FileChunked(id, f.getInfo());
+        assertFalse(written.isLoadedForUpdate(P / 2, 2 * P));
+        written.loadForUpdate(txn, P / 2, 2 * P);
+        assertTrue(written.isLoadedForUpdate(P / 2, 2 * P));
+        assertFalse(written.isLoaded(P, P));
+        written.update(ByteBuffer.wrap(filled(2 * P, 2)), P / 2);
+        written.store(txn);
+
+        final byte[] data = reopen(written).getBytes();
+        assertEquals(3 * P, data.length);
+        assertRange(data, 0, P / 2, 1);
+        assertRange(data, P / 2, 5 * P / 2, 2);
+        assertRange(data, 5 * P / 2, 3 * P, 1);
+
+        // whole pages, or pages past the end of the file, need no loading
+        final FileChunked appended = new FileChunked(id, written.getInfo());
+        assertTrue(appended.isLoadedForUpdate(P, P));
+        assertTrue(appended.isLoadedForUpdate(3 * P, 10));
+        assertFalse(appended.isLoadedForUpdate(3 * P - 1, 10));
+    }
+}
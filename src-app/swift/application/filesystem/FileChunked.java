@@ -0,0 +1,328 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.application.filesystem;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import swift.crdt.LWWRegisterCRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.TxnHandle;
+import swift.exceptions.NetworkException;
+import swift.exceptions.NoSuchObjectException;
+import swift.exceptions.VersionNotFoundException;
+import swift.exceptions.WrongTypeException;
+
+/**
+ * File stored as a metadata register, holding a {@link FileInfo}, and one
+ * register per page of content, holding a {@link Blob}.
+ * <p>
+ * Pages are loaded on demand, with {@link #load(TxnHandle, long, int)}, and
+ * only the pages written since the file was loaded or last stored are
+ * committed by {@link #store(TxnHandle)}. Pages beyond the end of the file,
+ * or never written, read as zeros. Reading or partially writing a page of the
+ * file that is not loaded fails with an {@link IllegalStateException}.
+ * <p>
+ * The identifiers of the pages include a generation, drawn anew when the file
+ * is created or its content reset, so that the pages left over by a former
+ * content of the file never read back.
+ */
+public class FileChunked implements IFile {
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    private static final Random generations = new Random();
+
+    private final CRDTIdentifier id;
+    private final int pageSize;
+    // size of file (in bytes)
+    private long size;
+    private long mtime;
+    private long generation;
+
+    private final Map<Integer, byte[]> pages = new HashMap<Integer, byte[]>();
+    private final SortedSet<Integer> dirtyPages = new TreeSet<Integer>();
+    private boolean dirtyInfo;
+
+    /**
+     * Creates a view of a file, with no page loaded.
+     * 
+     * @param id
+     *            identifier of the metadata register of the file
+     * @param info
+     *            metadata of the file, or null for an empty file
+     */
+    public FileChunked(CRDTIdentifier id, FileInfo info) {
+        this.id = id;
+        if (info == null) {
+            this.pageSize = DEFAULT_PAGE_SIZE;
+            this.mtime = System.currentTimeMillis();
+            this.generation = newGeneration();
+            this.dirtyInfo = true;
+        } else {
+            this.pageSize = info.getPageSize();
+            this.size = info.getSize();
+            this.mtime = info.getModificationTime();
+            this.generation = info.getGeneration();
+        }
+    }
+
+    /**
+     * @return identifier of the register holding the given page of a file
+     */
+    public static CRDTIdentifier getPageId(CRDTIdentifier fileId, long generation, int index) {
+        // generation 0 is that of the files stored before pages had one
+        final String prefix = generation == 0 ? fileId.getKey() : fileId.getKey() + "#"
+                + Long.toHexString(generation);
+        return new CRDTIdentifier(fileId.getTable(), prefix + "#" + index);
+    }
+
+    /**
+     * @return identifier of the metadata register of the file
+     */
+    public CRDTIdentifier getId() {
+        return id;
+    }
+
+    /**
+     * @return current metadata of the file
+     */
+    public synchronized FileInfo getInfo() {
+        return new FileInfo(size, mtime, pageSize, generation);
+    }
+
+    /**
+     * @return time of the last modification, in milliseconds
+     */
+    public synchronized long getModificationTime() {
+        return mtime;
+    }
+
+    /**
+     * @return true if all the pages of the file that hold the given range of
+     *         bytes are loaded
+     */
+    public synchronized boolean isLoaded(long offset, int length) {
+        final int end = Math.min(pageIndex(offset + length - 1), pageCount() - 1);
+        for (int index = pageIndex(offset); index <= end; index++) {
+            if (!pages.containsKey(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the pages of the file that a write of the given range of
+     *         bytes only partially overwrites are loaded
+     */
+    public synchronized boolean isLoadedForUpdate(long offset, int length) {
+        for (final int index : partialPages(offset, length)) {
+            if (!pages.containsKey(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads the pages of the file that hold the given range of bytes, and are
+     * not loaded yet.
+     */
+    public synchronized void load(TxnHandle txn, long offset, int length) throws WrongTypeException,
+            VersionNotFoundException, NetworkException {
+        final int end = Math.min(pageIndex(offset + length - 1), pageCount() - 1);
+        for (int index = pageIndex(offset); index <= end; index++) {
+            loadPage(txn, index);
+        }
+    }
+
+    /**
+     * Loads the pages of the file that a write of the given range of bytes
+     * only partially overwrites, and are not loaded yet: the first and the
+     * last page of the range, at most. The pages in between are overwritten
+     * whole, and need not be read.
+     */
+    public synchronized void loadForUpdate(TxnHandle txn, long offset, int length) throws WrongTypeException,
+            VersionNotFoundException, NetworkException {
+        for (final int index : partialPages(offset, length)) {
+            loadPage(txn, index);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadPage(TxnHandle txn, int index) throws WrongTypeException, VersionNotFoundException,
+            NetworkException {
+        if (pages.containsKey(index)) {
+            return;
+        }
+        byte[] page = null;
+        try {
+            final LWWRegisterCRDT<Blob> register = txn.get(getPageId(id, generation, index), false,
+                    LWWRegisterCRDT.class);
+            if (register.getValue() != null) {
+                page = register.getValue().get().clone();
+            }
+        } catch (NoSuchObjectException e) {
+            // never written
+        }
+        pages.put(index, page == null || page.length != pageSize ? fit(page) : page);
+    }
+
+    // existing pages that a write of the range does not overwrite whole
+    private SortedSet<Integer> partialPages(long offset, int length) {
+        final SortedSet<Integer> res = new TreeSet<Integer>();
+        if (length <= 0) {
+            return res;
+        }
+        final int first = pageIndex(offset);
+        final int last = pageIndex(offset + length - 1);
+        if (first < pageCount() && (inPageOffset(offset) != 0 || first == last && length < pageSize)) {
+            res.add(first);
+        }
+        if (last < pageCount() && inPageOffset(offset + length) != 0) {
+            res.add(last);
+        }
+        return res;
+    }
+
+    /**
+     * Writes the metadata and the pages of the file changed since it was
+     * loaded or last stored.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void store(TxnHandle txn) throws WrongTypeException, NoSuchObjectException,
+            VersionNotFoundException, NetworkException {
+        if (dirtyInfo) {
+            final LWWRegisterCRDT<FileInfo> info = txn.get(id, true, LWWRegisterCRDT.class);
+            info.set(getInfo());
+        }
+        for (final int index : dirtyPages) {
+            final LWWRegisterCRDT<Blob> register = txn.get(getPageId(id, generation, index), true,
+                    LWWRegisterCRDT.class);
+            // the page keeps changing, registers need their own copy
+            register.set(new Blob(pages.get(index).clone()));
+        }
+        dirtyInfo = false;
+        dirtyPages.clear();
+    }
+
+    @Override
+    public synchronized void update(ByteBuffer buf, long offset) {
+        int index = pageIndex(offset);
+        int delta = inPageOffset(offset);
+        final long newSize = offset + buf.remaining();
+
+        while (buf.remaining() > 0) {
+            final int length = Math.min(buf.remaining(), pageSize - delta);
+            byte[] page = pages.get(index);
+            if (page == null) {
+                if (index < pageCount() && length < pageSize) {
+                    throw new IllegalStateException("page " + index + " of " + id + " is not loaded");
+                }
+                page = new byte[pageSize];
+                pages.put(index, page);
+            }
+            buf.get(page, delta, length);
+            dirtyPages.add(index);
+            index++;
+            delta = 0;
+        }
+        size = Math.max(size, newSize);
+        mtime = System.currentTimeMillis();
+        dirtyInfo = true;
+    }
+
+    @Override
+    public synchronized void reset(byte[] data) {
+        pages.clear();
+        dirtyPages.clear();
+        size = 0;
+        // pages of the former content must not show through on regrowth
+        generation = newGeneration();
+        update(ByteBuffer.wrap(data), 0);
+    }
+
+    @Override
+    public synchronized void read(ByteBuffer buf, long offset) {
+        int index = pageIndex(offset);
+        int delta = inPageOffset(offset);
+        long remaining = Math.min(buf.remaining(), size - offset);
+
+        while (remaining > 0) {
+            final int length = (int) Math.min(remaining, pageSize - delta);
+            final byte[] page = pages.get(index);
+            if (page == null) {
+                throw new IllegalStateException("page " + index + " of " + id + " is not loaded");
+            }
+            buf.put(page, delta, length);
+            remaining -= length;
+            index++;
+            delta = 0;
+        }
+    }
+
+    @Override
+    public byte[] get(int offset, int length) {
+        final ByteBuffer buf = ByteBuffer.allocate(length);
+        read(buf, offset);
+        return buf.array();
+    }
+
+    @Override
+    public synchronized byte[] getBytes() {
+        assert size <= Integer.MAX_VALUE;
+        return get(0, (int) size);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        assert size <= Integer.MAX_VALUE;
+        return (int) size;
+    }
+
+    private int pageIndex(long offset) {
+        return (int) (offset / pageSize);
+    }
+
+    private int inPageOffset(long offset) {
+        return (int) (offset % pageSize);
+    }
+
+    private int pageCount() {
+        return (int) ((size + pageSize - 1) / pageSize);
+    }
+
+    private static long newGeneration() {
+        long generation;
+        do {
+            generation = generations.nextLong();
+        } while (generation == 0);
+        return generation;
+    }
+
+    // pages are stored in full, but be lenient with short or missing ones
+    private byte[] fit(byte[] page) {
+        final byte[] res = new byte[pageSize];
+        if (page != null) {
+            System.arraycopy(page, 0, res, 0, Math.min(page.length, pageSize));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,76 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.application.filesystem;
+
+import swift.crdt.core.Copyable;
+
+/**
+ * Metadata of a file stored in pages: its size, modification time, page size
+ * and the generation of its pages. Instances are immutable.
+ */
+public class FileInfo implements Copyable {
+    private long size;
+    private long mtime;
+    private int pageSize;
+    private long generation;
+
+    /**
+     * Constructor for Kryo serialization.
+     */
+    FileInfo() {
+    }
+
+    public FileInfo(long size, long mtime, int pageSize, long generation) {
+        this.size = size;
+        this.mtime = mtime;
+        this.pageSize = pageSize;
+        this.generation = generation;
+    }
+
+    /**
+     * @return size of the file, in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return time of the last modification, in milliseconds
+     */
+    public long getModificationTime() {
+        return mtime;
+    }
+
+    /**
+     * @return size of the pages of the file, in bytes
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return generation of the pages of the file, part of their identifiers
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public Object copy() {
+        return this;
+    }
+}
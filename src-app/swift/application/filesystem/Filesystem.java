@@ -20,6 +20,7 @@ package swift.application.filesystem;
 import java.io.IOException;
 
 import swift.crdt.DirectoryCRDT;
+import swift.crdt.core.ObjectUpdatesListener;
 import swift.crdt.core.TxnHandle;
 import swift.exceptions.NetworkException;
 import swift.exceptions.NoSuchObjectException;
@@ -48,6 +49,13 @@ public interface Filesystem {
     IFile readFile(TxnHandle txn, String fname, String path) throws WrongTypeException, NoSuchObjectException,
             VersionNotFoundException, NetworkException, IOException;
 
+    /**
+     * Like {@link #readFile}, but reads only the metadata of the file; its
+     * content is loaded on demand, with {@link FileChunked#load}.
+     */
+    FileChunked openFile(TxnHandle txn, String fname, String path) throws WrongTypeException,
+            NoSuchObjectException, VersionNotFoundException, NetworkException;
+
     void copyFile(TxnHandle txn, String fname, String oldpath, String newpath) throws WrongTypeException,
             NoSuchObjectException, VersionNotFoundException, NetworkException, ClassNotFoundException;
 
@@ -56,4 +64,10 @@ public interface Filesystem {
 
     boolean isFile(TxnHandle txn, String fname, String path) throws WrongTypeException, VersionNotFoundException,
             NetworkException;
+
+    /**
+     * Sets the listener for external updates on the directories and file
+     * metadata read from now on, or null for none.
+     */
+    void setUpdatesListener(ObjectUpdatesListener listener);
 }
@@ -18,11 +18,13 @@
 package swift.application.filesystem;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 
 import swift.crdt.DirectoryCRDT;
 import swift.crdt.LWWRegisterCRDT;
 import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.ObjectUpdatesListener;
 import swift.crdt.core.TxnGetterSetter;
 import swift.crdt.core.TxnHandle;
 import swift.exceptions.NetworkException;
@@ -31,11 +33,17 @@ import swift.exceptions.VersionNotFoundException;
 import swift.exceptions.WrongTypeException;
 import swift.utils.Pair;
 
+/**
+ * Filesystem whose directories are {@link DirectoryCRDT}s and whose files are
+ * stored in pages, see {@link FileChunked}.
+ */
 public class FilesystemBasic implements Filesystem {
     // table in DHT that holds all entries for this filesystem
     private String table;
     // root directory
     private CRDTIdentifier root;
+    // notified of external updates on directories and file metadata
+    private ObjectUpdatesListener updatesListener;
 
     public FilesystemBasic(TxnHandle txn, String root, String table) throws WrongTypeException, NoSuchObjectException,
             VersionNotFoundException, NetworkException {
@@ -54,8 +62,8 @@ public class FilesystemBasic implements Filesystem {
     }
 
     @Override
-    public IFile createFile(TxnHandle txn, String fname, String path) throws WrongTypeException, NoSuchObjectException,
-            VersionNotFoundException, NetworkException, ClassNotFoundException {
+    public FileChunked createFile(TxnHandle txn, String fname, String path) throws WrongTypeException,
+            NoSuchObjectException, VersionNotFoundException, NetworkException, ClassNotFoundException {
 
         String pathToParent = DirectoryCRDT.getPathToParent(new CRDTIdentifier(table, path));
         String parent = DirectoryCRDT.getEntryName(new CRDTIdentifier(table, path));
@@ -63,27 +71,40 @@ public class FilesystemBasic implements Filesystem {
         CRDTIdentifier parentId = DirectoryCRDT.getCRDTIdentifier(table, pathToParent, parent, DirectoryCRDT.class);
         DirectoryCRDT parentDir = txn.get(parentId, false, DirectoryCRDT.class);
         CRDTIdentifier fileId = parentDir.createNewEntry(fname, getFileClass(fname));
-        TxnGetterSetter<Blob> fileContent = (TxnGetterSetter<Blob>) txn.get(fileId, true, getFileClass(fname));
-        Blob initialFileContent = new Blob();
-        fileContent.set(initialFileContent);
-        return new FilePaged(initialFileContent);
+        FileChunked f = new FileChunked(fileId, null);
+        f.store(txn);
+        return f;
     }
 
     @Override
-    public IFile readFile(TxnHandle txn, String fname, String path) throws WrongTypeException, NoSuchObjectException,
-            VersionNotFoundException, NetworkException {
+    public FileChunked readFile(TxnHandle txn, String fname, String path) throws WrongTypeException,
+            NoSuchObjectException, VersionNotFoundException, NetworkException {
 
-        CRDTIdentifier fileId = DirectoryCRDT.getCRDTIdentifier(table, path, fname, getFileClass(fname));
-        TxnGetterSetter<Blob> fileContent = (TxnGetterSetter<Blob>) txn.get(fileId, false, getFileClass(fname));
-        return new FilePaged(fileContent.getValue());
+        FileChunked f = openFile(txn, fname, path);
+        f.load(txn, 0, f.getSize());
+        return f;
     }
 
     @Override
-    public void updateFile(TxnHandle txn, String fname, String path, IFile f) throws WrongTypeException,
+    public FileChunked openFile(TxnHandle txn, String fname, String path) throws WrongTypeException,
             NoSuchObjectException, VersionNotFoundException, NetworkException {
         CRDTIdentifier fileId = DirectoryCRDT.getCRDTIdentifier(table, path, fname, getFileClass(fname));
-        TxnGetterSetter<Blob> content = (TxnGetterSetter<Blob>) txn.get(fileId, false, getFileClass(fname));
-        content.set(new Blob(f.getBytes()));
+        TxnGetterSetter<FileInfo> info = (TxnGetterSetter<FileInfo>) txn.get(fileId, false, getFileClass(fname),
+                updatesListener);
+        return new FileChunked(fileId, info.getValue());
+    }
+
+    @Override
+    public void updateFile(TxnHandle txn, String fname, String path, IFile f) throws WrongTypeException,
+            NoSuchObjectException, VersionNotFoundException, NetworkException, IOException {
+        if (f instanceof FileChunked) {
+            ((FileChunked) f).store(txn);
+        } else {
+            CRDTIdentifier fileId = DirectoryCRDT.getCRDTIdentifier(table, path, fname, getFileClass(fname));
+            FileChunked chunked = new FileChunked(fileId, null);
+            chunked.reset(f.getBytes());
+            chunked.store(txn);
+        }
     }
 
     @Override
@@ -124,20 +145,23 @@ public class FilesystemBasic implements Filesystem {
     @Override
     public void copyFile(TxnHandle txn, String fname, String oldpath, String newpath) throws WrongTypeException,
             NoSuchObjectException, VersionNotFoundException, NetworkException, ClassNotFoundException {
-        CRDTIdentifier fileId = DirectoryCRDT.getCRDTIdentifier(table, oldpath, fname, getFileClass(fname));
-        TxnGetterSetter<Blob> fileContent = (TxnGetterSetter<Blob>) txn.get(fileId, false, getFileClass(fname));
+        IFile fileContent = readFile(txn, fname, oldpath);
 
-        createFile(txn, fname, newpath);
-        CRDTIdentifier newFileId = DirectoryCRDT.getCRDTIdentifier(table, newpath, fname, getFileClass(fname));
-        TxnGetterSetter<Blob> fileBasic = (TxnGetterSetter<Blob>) txn.get(newFileId, true, getFileClass(fname));
-        fileBasic.set(fileContent.getValue());
+        FileChunked newFile = createFile(txn, fname, newpath);
+        newFile.reset(fileContent.getBytes());
+        newFile.store(txn);
     }
 
     @Override
     public DirectoryCRDT getDirectory(TxnHandle txn, String path) throws WrongTypeException, NoSuchObjectException,
             VersionNotFoundException, NetworkException {
         CRDTIdentifier dirId = new CRDTIdentifier(table, DirectoryCRDT.getDirEntry(path, DirectoryCRDT.class));
-        return (DirectoryCRDT) txn.get(dirId, false, DirectoryCRDT.class);
+        return (DirectoryCRDT) txn.get(dirId, false, DirectoryCRDT.class, updatesListener);
+    }
+
+    @Override
+    public void setUpdatesListener(ObjectUpdatesListener listener) {
+        this.updatesListener = listener;
     }
 
     @Override
@@ -163,7 +187,7 @@ public class FilesystemBasic implements Filesystem {
                     .getCRDTIdentifier(table, fdummy.getParent(), fdummy.getName(), DirectoryCRDT.class);
         }
         try {
-            DirectoryCRDT parent = txn.get(parentId, false, DirectoryCRDT.class);
+            DirectoryCRDT parent = txn.get(parentId, false, DirectoryCRDT.class, updatesListener);
             Collection<Pair<String, Class<?>>> entries = parent.getValue();
             return entries.contains(new Pair<String, Class<?>>(name, type));
         } catch (NoSuchObjectException e) {
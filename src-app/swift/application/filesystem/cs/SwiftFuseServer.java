@@ -85,7 +85,7 @@ public class SwiftFuseServer extends RemoteFuseOperationHandler {
 
             // create a root directory
             // FIXME make this part of arguments
-            fs = new FilesystemBasic(txn, ROOT, "DIR");
+            setFilesystem(new FilesystemBasic(txn, ROOT, "DIR"));
             txn.commit();
 
             System.out.println("SwiftFuseServer accepting requests...");
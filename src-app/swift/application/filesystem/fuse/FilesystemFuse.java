@@ -28,6 +28,7 @@ import org.apache.commons.logging.LogFactory;
 
 import swift.application.filesystem.Filesystem;
 import swift.application.filesystem.FilesystemBasic;
+import swift.application.filesystem.FileChunked;
 import swift.application.filesystem.IFile;
 import swift.client.SwiftImpl;
 import swift.client.SwiftOptions;
@@ -110,11 +111,21 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
     protected boolean commitAsync = true;
 
     protected Filesystem fs;
+    private final MetadataCache cache = new MetadataCache(MetadataCache.DEFAULT_MAX_ENTRIES);
     private static final int MODE = 0777;
     private static final int BLOCK_SIZE = 512;
     private static final int NAME_LENGTH = 1024;
     protected static final String ROOT = "test";
 
+    /**
+     * Sets the filesystem to mount; the metadata cache listens to external
+     * updates on the objects it reads.
+     */
+    public void setFilesystem(Filesystem fs) {
+        this.fs = fs;
+        fs.setUpdatesListener(cache);
+    }
+
     private void commit(TxnHandle txn) {
         if (commitAsync) {
             txn.commitAsync(null);
@@ -149,6 +160,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 File fstub = new File(remotePath);
                 fs.updateFile(txn, fstub.getName(), fstub.getParent(), f);
                 commit(txn);
+                cache.invalidate(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -183,10 +195,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 File fstub = new File(remotePath);
                 fs.updateFile(txn, fstub.getName(), fstub.getParent(), f);
                 commit(txn);
-                // TODO Shouldn't this be one txn?
-                txn = server.beginTxn(isolationlevel, cachepolicy, false);
-                fileHandle = fs.readFile(txn, fstub.getName(), fstub.getParent());
-                commit(txn);
+                cache.invalidate(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -215,29 +224,34 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
         File fstub = new File(remotePath);
         log.info("getattr for " + remotePath);
         int time = (int) (System.currentTimeMillis() / 1000L);
+        MetadataCache.Attributes attrs = cache.getAttributes(remotePath);
+        if (attrs != null) {
+            setAttributes(getattrSetter, attrs, time);
+            return 0;
+        }
+        if (!"/".equals(path) && cache.isKnownMissing(remotePath)) {
+            return Errno.ENOENT;
+        }
+        final long epoch = cache.currentEpoch();
         synchronized (this) {
             TxnHandle txn = null;
             try {
                 txn = server.beginTxn(isolationlevel, cachepolicy, true);
-                if ("/".equals(path)) {
-                    DirectoryCRDT root = fs.getDirectory(txn, "/" + ROOT);
-                    getattrSetter.set(root.hashCode(), FuseFtypeConstants.TYPE_DIR | MODE, 1, 0, 0, 0, root.getValue()
-                            .size() * NAME_LENGTH,
-                            (root.getValue().size() * NAME_LENGTH + BLOCK_SIZE - 1) / BLOCK_SIZE, time, time, time);
-                } else if (fs.isDirectory(txn, fstub.getName(), fstub.getParent())) {
+                if ("/".equals(path) || fs.isDirectory(txn, fstub.getName(), fstub.getParent())) {
                     DirectoryCRDT dir = fs.getDirectory(txn, remotePath);
-                    getattrSetter.set(dir.hashCode(), FuseFtypeConstants.TYPE_DIR | MODE, 1, 0, 0, 0, dir.getValue()
-                            .size() * NAME_LENGTH, (dir.getValue().size() * NAME_LENGTH + BLOCK_SIZE - 1) / BLOCK_SIZE,
-                            time, time, time);
+                    attrs = new MetadataCache.Attributes(true, dir.hashCode(), dir.getValue().size() * NAME_LENGTH,
+                            time, null, null);
                 } else if (fs.isFile(txn, fstub.getName(), fstub.getParent())) {
-                    IFile f = fs.readFile(txn, fstub.getName(), fstub.getParent());
-                    getattrSetter.set(fstub.hashCode(), FuseFtypeConstants.TYPE_FILE | MODE, 1, 0, 0, 0, f.getSize(),
-                            (f.getSize() + BLOCK_SIZE - 1) / BLOCK_SIZE, time, time, time);
+                    FileChunked f = fs.openFile(txn, fstub.getName(), fstub.getParent());
+                    attrs = new MetadataCache.Attributes(false, fstub.hashCode(), f.getSize(),
+                            (int) (f.getModificationTime() / 1000L), f.getId(), f.getInfo());
                 } else {
                     txn.rollback();
                     return Errno.ENOENT;
                 }
                 commit(txn);
+                cache.putAttributes(remotePath, attrs, epoch);
+                setAttributes(getattrSetter, attrs, time);
                 return 0;
 
             } catch (NetworkException e) {
@@ -251,9 +265,6 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
             } catch (VersionNotFoundException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
             }
 
             txn.rollback();
@@ -262,27 +273,31 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
 
     }
 
+    private void setAttributes(FuseGetattrSetter getattrSetter, MetadataCache.Attributes attrs, int time) {
+        int ftype = attrs.directory ? FuseFtypeConstants.TYPE_DIR : FuseFtypeConstants.TYPE_FILE;
+        getattrSetter.set(attrs.inode, ftype | MODE, 1, 0, 0, 0, attrs.size, (attrs.size + BLOCK_SIZE - 1)
+                / BLOCK_SIZE, time, attrs.mtime, attrs.mtime);
+    }
+
     @Override
     public int getdir(String path, FuseDirFiller filler) throws FuseException {
         String remotePath = getRemotePath(path);
         log.info("getdir for " + remotePath);
+        Collection<Pair<String, Class<?>>> c = cache.getListing(remotePath);
+        if (c != null) {
+            fillDir(filler, c);
+            return 0;
+        }
+        final long epoch = cache.currentEpoch();
         synchronized (this) {
             TxnHandle txn = null;
             try {
                 txn = server.beginTxn(isolationlevel, cachepolicy, true);
                 DirectoryCRDT dir = fs.getDirectory(txn, remotePath);
-                Collection<Pair<String, Class<?>>> c = dir.getValue();
-                for (Pair<String, Class<?>> entry : c) {
-                    String name = entry.getFirst();
-                    // TODO This needs to be adapted for links and permissions
-                    int mode = MODE;
-                    int ftype = FuseFtypeConstants.TYPE_FILE;
-                    if (entry.getSecond().equals(DirectoryCRDT.class)) {
-                        ftype = FuseFtypeConstants.TYPE_DIR;
-                    }
-                    filler.add(name, entry.hashCode(), ftype | mode);
-                }
+                c = dir.getValue();
                 commit(txn);
+                cache.putListing(remotePath, c, epoch);
+                fillDir(filler, c);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -302,6 +317,19 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
         return Errno.EROFS;
     }
 
+    private void fillDir(FuseDirFiller filler, Collection<Pair<String, Class<?>>> c) throws FuseException {
+        for (Pair<String, Class<?>> entry : c) {
+            String name = entry.getFirst();
+            // TODO This needs to be adapted for links and permissions
+            int mode = MODE;
+            int ftype = FuseFtypeConstants.TYPE_FILE;
+            if (entry.getSecond().equals(DirectoryCRDT.class)) {
+                ftype = FuseFtypeConstants.TYPE_DIR;
+            }
+            filler.add(name, entry.hashCode(), ftype | mode);
+        }
+    }
+
     @Override
     public int link(String from, String to) throws FuseException {
         // FIXME Links are future work...
@@ -321,6 +349,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 log.info("creating dir " + f.getName() + " in parentdir " + f.getParent());
                 fs.createDirectory(txn, f.getName(), f.getParent());
                 commit(txn);
+                cache.invalidateWithParent(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -362,6 +391,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 log.info("creating file " + f.getName() + " in parentdir " + f.getParent());
                 fs.createFile(txn, f.getName(), f.getParent());
                 commit(txn);
+                cache.invalidateWithParent(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -391,6 +421,12 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
     public int open(String path, int flags, FuseOpenSetter openSetter) throws FuseException {
         String remotePath = getRemotePath(path);
         log.info("open for " + remotePath);
+        // pages are loaded on demand by read and write
+        MetadataCache.Attributes attrs = cache.getAttributes(remotePath);
+        if (attrs != null && attrs.fileId != null) {
+            openSetter.setFh(new FileChunked(attrs.fileId, attrs.fileInfo));
+            return 0;
+        }
         synchronized (this) {
             TxnHandle txn = null;
             try {
@@ -402,7 +438,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 }
 
                 log.info("opening file " + fstub.getName() + " in parentdir " + fstub.getParent());
-                IFile f = fs.readFile(txn, fstub.getName(), fstub.getParent());
+                IFile f = fs.openFile(txn, fstub.getName(), fstub.getParent());
                 commit(txn);
                 openSetter.setFh(f);
                 return 0;
@@ -418,9 +454,6 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
             } catch (VersionNotFoundException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
             }
             txn.rollback();
         }
@@ -433,12 +466,55 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
         log.info("read for " + remotePath);
         if (fh instanceof IFile) {
             IFile f = (IFile) fh;
+            int res = loadPages(f, offset, buf.remaining(), false);
+            if (res != 0) {
+                return res;
+            }
             f.read(buf, offset);
             return 0;
         }
         return Errno.EBADF;
     }
 
+    /**
+     * Loads the pages of a file that hold a range of bytes about to be read or
+     * written, if they are not loaded yet. A write only needs the pages it
+     * partially overwrites.
+     */
+    private int loadPages(IFile f, long offset, int length, boolean update) {
+        if (!(f instanceof FileChunked)) {
+            return 0;
+        }
+        final FileChunked file = (FileChunked) f;
+        if (update ? file.isLoadedForUpdate(offset, length) : file.isLoaded(offset, length)) {
+            return 0;
+        }
+        synchronized (this) {
+            TxnHandle txn = null;
+            try {
+                txn = server.beginTxn(isolationlevel, cachepolicy, true);
+                if (update) {
+                    file.loadForUpdate(txn, offset, length);
+                } else {
+                    file.load(txn, offset, length);
+                }
+                commit(txn);
+                return 0;
+            } catch (NetworkException e) {
+                // TODO Auto-generated catch block
+                e.printStackTrace();
+            } catch (WrongTypeException e) {
+                // TODO Auto-generated catch block
+                e.printStackTrace();
+            } catch (VersionNotFoundException e) {
+                // TODO Auto-generated catch block
+                e.printStackTrace();
+            }
+            txn.rollback();
+        }
+        return Errno.EIO;
+    }
+
     @Override
     public int readlink(String path, CharBuffer link) throws FuseException {
         // TODO Auto-generated method stub
@@ -471,6 +547,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 File f = new File(remotePath);
                 fs.removeDirectory(txn, f.getName(), f.getParent());
                 commit(txn);
+                cache.invalidateWithParent(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -525,6 +602,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
                 File f = new File(remotePath);
                 fs.removeFile(txn, f.getName(), f.getParent());
                 commit(txn);
+                cache.invalidateWithParent(remotePath);
                 return 0;
             } catch (NetworkException e) {
                 // TODO Auto-generated catch block
@@ -561,6 +639,10 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
 
         if (fh instanceof IFile) {
             IFile f = (IFile) fh;
+            int res = loadPages(f, offset, buf.remaining(), true);
+            if (res != 0) {
+                return res;
+            }
             f.update(buf, offset);
         }
         return 0;
@@ -724,7 +806,7 @@ public class FilesystemFuse implements Filesystem3, XattrSupport {
 
             log.info("mounting filesystem");
             FilesystemFuse fuse = new FilesystemFuse();
-            fuse.fs = fs;
+            fuse.setFilesystem(fs);
             FuseMount.mount(args, fuse, log);
         } catch (Exception e) {
             e.printStackTrace();
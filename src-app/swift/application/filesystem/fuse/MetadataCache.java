@@ -0,0 +1,247 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.application.filesystem.fuse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import swift.application.filesystem.FileInfo;
+import swift.client.AbstractObjectUpdatesListener;
+import swift.crdt.DirectoryCRDT;
+import swift.crdt.core.CRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.TxnHandle;
+import swift.utils.Pair;
+
+/**
+ * Cache of the attributes and directory listings of the paths of a
+ * {@link FilesystemFuse} mount, with LRU eviction.
+ * <p>
+ * Entries are invalidated when the mount changes the path, and when a
+ * notification reports an external update on the directory or file object
+ * they were read from; the filesystem must read those objects with this cache
+ * as their updates listener. A notification may arrive before the entry read
+ * is put: callers take {@link #currentEpoch()} before reading, and puts of
+ * entries invalidated since that epoch are dropped. Eviction bounds the number
+ * of attributes and the total number of names in cached listings.
+ * <p>
+ * Thread-safe: notifications arrive from scout threads.
+ */
+final class MetadataCache extends AbstractObjectUpdatesListener {
+    static final int DEFAULT_MAX_ENTRIES = 65536;
+
+    /**
+     * Attributes of a path, as reported by getattr; for files, also their
+     * identifier and metadata, to open them without reading the store.
+     */
+    static class Attributes {
+        final boolean directory;
+        final int inode;
+        final long size;
+        final int mtime;
+        final CRDTIdentifier fileId;
+        final FileInfo fileInfo;
+
+        Attributes(boolean directory, int inode, long size, int mtime, CRDTIdentifier fileId, FileInfo fileInfo) {
+            this.directory = directory;
+            this.inode = inode;
+            this.size = size;
+            this.mtime = mtime;
+            this.fileId = fileId;
+            this.fileInfo = fileInfo;
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Attributes> attributes = new LinkedHashMap<String, Attributes>(16, 0.75f,
+            true);
+    private final LinkedHashMap<String, Collection<Pair<String, Class<?>>>> listings = new LinkedHashMap<String, Collection<Pair<String, Class<?>>>>(
+            16, 0.75f, true);
+    // total number of names in listings
+    private int listedNames;
+    // paths with cached attributes, by parent path
+    private final Map<String, Set<String>> attributesByParent = new HashMap<String, Set<String>>();
+    // number of invalidations so far
+    private long epoch;
+    // epoch of the last invalidation of the most recently invalidated paths
+    private final LinkedHashMap<String, Long> invalidations = new LinkedHashMap<String, Long>();
+    // latest epoch among the invalidations dropped from invalidations
+    private long forgottenEpoch;
+
+    MetadataCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    synchronized Attributes getAttributes(String path) {
+        return attributes.get(path);
+    }
+
+    /**
+     * @return epoch to pass to the puts of the entries read from now on
+     */
+    synchronized long currentEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Caches the attributes of a path, unless the path or its parent directory
+     * were invalidated since the given epoch.
+     */
+    synchronized void putAttributes(String path, Attributes attrs, long readEpoch) {
+        final String parent = parentOf(path);
+        if (isInvalidatedSince(path, readEpoch) || parent != null && isInvalidatedSince(parent, readEpoch)) {
+            return;
+        }
+        if (attributes.put(path, attrs) == null && parent != null) {
+            Set<String> siblings = attributesByParent.get(parent);
+            if (siblings == null) {
+                siblings = new HashSet<String>();
+                attributesByParent.put(parent, siblings);
+            }
+            siblings.add(path);
+        }
+        if (attributes.size() > maxEntries) {
+            removeAttributes(attributes.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * @return the entries of a directory, or null if not cached
+     */
+    synchronized Collection<Pair<String, Class<?>>> getListing(String path) {
+        return listings.get(path);
+    }
+
+    /**
+     * Caches the entries of a directory, unless it was invalidated since the
+     * given epoch.
+     */
+    synchronized void putListing(String path, Collection<Pair<String, Class<?>>> entries, long readEpoch) {
+        if (isInvalidatedSince(path, readEpoch)) {
+            return;
+        }
+        final Collection<Pair<String, Class<?>>> old = listings.put(path,
+                Collections.unmodifiableCollection(new ArrayList<Pair<String, Class<?>>>(entries)));
+        if (old != null) {
+            listedNames -= old.size();
+        }
+        listedNames += entries.size();
+        final Iterator<Collection<Pair<String, Class<?>>>> it = listings.values().iterator();
+        while (listedNames > maxEntries && listings.size() > 1) {
+            listedNames -= it.next().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * @return true if the listing of the parent directory of a path is cached
+     *         and has no entry with the name of the path
+     */
+    synchronized boolean isKnownMissing(String path) {
+        final File f = new File(path);
+        final Collection<Pair<String, Class<?>>> siblings = f.getParent() == null ? null : listings.get(f
+                .getParent());
+        if (siblings == null) {
+            return false;
+        }
+        for (final Pair<String, Class<?>> entry : siblings) {
+            if (entry.getFirst().equals(f.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the attributes and listing of a path, and the attributes of its
+     * children, which may have been added or removed.
+     */
+    synchronized void invalidate(String path) {
+        epoch++;
+        invalidations.remove(path);
+        invalidations.put(path, epoch);
+        if (invalidations.size() > maxEntries) {
+            final Iterator<Long> it = invalidations.values().iterator();
+            forgottenEpoch = it.next();
+            it.remove();
+        }
+
+        removeAttributes(path);
+        final Collection<Pair<String, Class<?>>> old = listings.remove(path);
+        if (old != null) {
+            listedNames -= old.size();
+        }
+        final Set<String> children = attributesByParent.remove(path);
+        if (children != null) {
+            for (final String child : children) {
+                attributes.remove(child);
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of a path and of its parent directory.
+     */
+    synchronized void invalidateWithParent(String path) {
+        invalidate(path);
+        final String parent = new File(path).getParent();
+        if (parent != null) {
+            invalidate(parent);
+        }
+    }
+
+    private boolean isInvalidatedSince(String path, long readEpoch) {
+        if (readEpoch < forgottenEpoch) {
+            // the path may have been invalidated, we do not know anymore
+            return true;
+        }
+        final Long invalidated = invalidations.get(path);
+        return invalidated != null && invalidated > readEpoch;
+    }
+
+    private void removeAttributes(String path) {
+        if (attributes.remove(path) == null) {
+            return;
+        }
+        final String parent = parentOf(path);
+        final Set<String> siblings = parent == null ? null : attributesByParent.get(parent);
+        if (siblings != null) {
+            siblings.remove(path);
+            if (siblings.isEmpty()) {
+                attributesByParent.remove(parent);
+            }
+        }
+    }
+
+    private static String parentOf(String path) {
+        return new File(path).getParent();
+    }
+
+    @Override
+    public void onObjectUpdate(TxnHandle txn, CRDTIdentifier id, CRDT<?> previousValue) {
+        // keys of directory and file objects start with their path
+        invalidate(DirectoryCRDT.getFullPath(id));
+    }
+}
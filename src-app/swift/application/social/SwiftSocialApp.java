@@ -21,24 +21,25 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import swift.client.BulkLoader;
 import swift.client.SwiftImpl;
 import swift.client.SwiftOptions;
+import swift.crdt.core.CRDT;
 import swift.crdt.core.CachePolicy;
 import swift.crdt.core.IsolationLevel;
 import swift.crdt.core.SwiftSession;
 import swift.crdt.core.TxnHandle;
 import swift.dc.DCConstants;
-import swift.exceptions.NetworkException;
-import swift.exceptions.NoSuchObjectException;
 import swift.exceptions.SwiftException;
-import swift.exceptions.VersionNotFoundException;
-import swift.exceptions.WrongTypeException;
+import swift.utils.LoadGenerator;
 import swift.utils.SafeLog;
 import swift.utils.SafeLog.ReportType;
+import sys.net.api.Networking.TransportProvider;
 import sys.utils.Args;
 import sys.utils.Progress;
 import sys.utils.Props;
@@ -74,6 +75,10 @@ public class SwiftSocialApp {
     private String propFile;
     protected int targetOpsPerSec;
     private boolean bloatedCounters;
+    // overrides the transport of the properties, if set
+    private TransportProvider transportProvider;
+    // overrides the shared scout option of the properties, if set
+    private boolean sharedScout;
 
     public void init(String[] args) {
         System.err.println(Arrays.asList(args));
@@ -103,6 +108,26 @@ public class SwiftSocialApp {
         Workload.generateUsers(numUsers);
     }
 
+    /**
+     * Sets the transport of the scouts of the sessions, e.g., INPROC for a
+     * surrogate running in the same process.
+     */
+    public void setTransportProvider(TransportProvider transportProvider) {
+        this.transportProvider = transportProvider;
+    }
+
+    /**
+     * Makes the sessions share a single scout per process, instead of each
+     * having its own.
+     */
+    public void setSharedScout(boolean sharedScout) {
+        this.sharedScout = sharedScout;
+    }
+
+    protected Properties getProperties() {
+        return props;
+    }
+
     protected void configBloatedCounters(Properties properties) {
         bloatedCounters = Props.boolValue(properties, "swift.bloatedCounters", false);
     }
@@ -115,68 +140,68 @@ public class SwiftSocialApp {
 
     public SwiftSocialOps getSwiftSocial(final String sessionId) {
         final SwiftOptions options = new SwiftOptions(server, DCConstants.SURROGATE_PORT, props);
+        if (transportProvider != null)
+            options.setTransportProvider(transportProvider);
+        if (sharedScout)
+            options.setSharedScout(true);
         SwiftSession swiftClient = SwiftImpl.newSingleSessionInstance(options, sessionId);
         SwiftSocialOps socialClient = new SwiftSocialOps(swiftClient, isolationLevel, cachePolicy, subscribeUpdates,
                 asyncCommit, bloatedCounters);
         return socialClient;
     }
 
-    void runClientSession(final String sessionId, final Workload commands, boolean loop4Ever, double opsPerMsTarget) {
-        final SwiftSocialOps socialClient = getSwiftSocial(sessionId);
-
+    /**
+     * @return a worker that runs the commands of a session, for the
+     *         {@link LoadGenerator}, after the given delay
+     */
+    LoadGenerator.Worker newSessionWorker(final String sessionId, final Workload commands, final int startupDelay) {
         totalCommands.addAndGet(commands.size());
-        final long sessionStartTime = System.currentTimeMillis();
-        int sessionOpsDone = 0;
-        SafeLog.report(ReportType.APP_OP, sessionId, "INIT", 0);
+        return new LoadGenerator.Worker() {
+            final Iterator<String> it = commands.iterator();
+            SwiftSocialOps socialClient;
+            long sessionStartTime;
+            Commands cmd;
+            String cmdLine;
+
+            public String getId() {
+                return sessionId;
+            }
 
-        do
-            for (String cmdLine : commands) {
-                long txnStartTime = System.currentTimeMillis();
-                final Commands cmd = Commands.extract(cmdLine);
-                if (cmd == null) {
+            public String nextOperation() {
+                if (socialClient == null) {
+                    Threading.sleep(startupDelay);
+                    socialClient = getSwiftSocial(sessionId);
+                    sessionStartTime = System.currentTimeMillis();
+                    SafeLog.report(ReportType.APP_OP, sessionId, "INIT", 0);
+                }
+                while (it.hasNext()) {
+                    cmdLine = it.next();
+                    cmd = Commands.extract(cmdLine);
+                    if (cmd != null) {
+                        return cmd.name();
+                    }
                     SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "unsupported_operation");
-                    continue;
                 }
+                return null;
+            }
+
+            public void execute() throws SwiftException {
                 try {
                     runCommandLine(socialClient, cmd, cmdLine);
-                    long txnEndTime = System.currentTimeMillis();
-                    final long txnExecTime = txnEndTime - txnStartTime;
-                    SafeLog.report(ReportType.APP_OP, sessionId, cmd, txnExecTime);
-                } catch (NoSuchObjectException e) {
-                    SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "object_not_found");
-                } catch (NetworkException e) {
-                    SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "network_failure");
-                } catch (VersionNotFoundException e) {
-                    SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "version_pruned");
-                } catch (WrongTypeException e) {
-                    SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "wrong_object_type");
-                } catch (SwiftException e) {
-                    SafeLog.report(ReportType.APP_OP_FAILURE, sessionId, cmd, "unknown");
+                } finally {
+                    commandsDone.incrementAndGet();
                 }
+            }
 
-                commandsDone.incrementAndGet();
-                sessionOpsDone++;
-                // Throttling mechanism borrowed from YCSB's Client.java.
-                if (opsPerMsTarget > 0) {
-                    while (System.currentTimeMillis() - sessionStartTime < ((double) sessionOpsDone) / opsPerMsTarget) {
-                        try {
-                            Thread.sleep(1);
-                        } catch (InterruptedException e) {
-                            // do nothing.
-                        }
-                    }
-                } else {
-                    Threading.sleep(thinkTime);
+            public void finish() {
+                if (socialClient == null) {
+                    return;
                 }
+                socialClient.getSwift().stopScout(true);
+                SafeLog.report(ReportType.APP_OP, sessionId, "TOTAL", System.currentTimeMillis() - sessionStartTime);
+                SafeLog.flush();
             }
-        while (loop4Ever);
-
-        socialClient.getSwift().stopScout(true);
-
-        final long now = System.currentTimeMillis();
-        final long sessionExecTime = now - sessionStartTime;
-        SafeLog.report(ReportType.APP_OP, sessionId, "TOTAL", sessionExecTime);
-        SafeLog.flush();
+        };
     }
 
     public void runCommandLine(SwiftSocialOps socialClient, Commands cmd, String cmdLine) throws SwiftException {
@@ -232,6 +257,16 @@ public class SwiftSocialApp {
             SwiftSocialOps client = new SwiftSocialOps(swiftClient, isolationLevel, cachePolicy, subscribeUpdates,
                     asyncCommit, bloatedCounters);
 
+            // Bulk load the sets associated with the users, so that the
+            // transactions below only write their registers and events
+            BulkLoader loader = new BulkLoader(swiftOptions.getServerHostname() + ":" + swiftOptions.getServerPort());
+            for (String line : users) {
+                for (CRDT<?> i : client.newUserObjects(line.split(";")[1])) {
+                    loader.add(i);
+                }
+            }
+            loader.flush();
+
             TxnHandle txn = swiftClient.beginTxn(IsolationLevel.SNAPSHOT_ISOLATION, CachePolicy.CACHED, false);
             int txnSize = 0;
             // Initialize user data
@@ -254,7 +289,7 @@ public class SwiftSocialApp {
                 } catch (ParseException e) {
                     System.err.println("Could not parse the birthdate: " + toks[4]);
                 }
-                client.registerUser(txn, toks[1], toks[2], toks[3], birthday, System.currentTimeMillis());
+                client.registerPreloadedUser(txn, toks[1], toks[2], toks[3], birthday, System.currentTimeMillis());
                 System.err.printf("Done: %s\n", Progress.percentage(counter.incrementAndGet(), total));
             }
             // Commit the last batch
@@ -19,6 +19,7 @@ package swift.application.social;
 import static java.lang.System.exit;
 import static sys.Sys.Sys;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
@@ -32,6 +33,7 @@ import swift.client.SwiftImpl.CacheUpdateProtocol;
 import swift.dc.DCConstants;
 import swift.dc.DCSequencerServer;
 import swift.dc.DCServer;
+import swift.utils.LoadGenerator;
 import swift.utils.SafeLog;
 import swift.utils.SafeLog.ReportType;
 import sys.ec2.ClosestDomain;
@@ -126,25 +128,22 @@ public class SwiftSocialBenchmark extends SwiftSocialApp {
         if (!shepard.isEmpty())
             Shepard.sheepJoinHerd(shepard);
 
-        // Kick off all sessions, throughput is limited by
-        // concurrentSessions.
-        final ExecutorService threadPool = Executors.newFixedThreadPool(concurrentSessions, Threading.factory("App"));
-
-        final double sessionOpsPerMs = ((double) targetOpsPerSec / (double) concurrentSessions) / 1000.0;
-        System.err.println("Spawning session threads.");
+        // Run all sessions, closed loop, or open loop at the target rate
+        // of this instance.
+        final LoadGenerator generator = new LoadGenerator().setThinkTime(thinkTime).setTargetRate(
+                Math.max(0, targetOpsPerSec));
+        generator.configure(getProperties()).configure(System.getProperties());
+        final List<LoadGenerator.Worker> workers = new ArrayList<LoadGenerator.Worker>();
         for (int i = 0; i < concurrentSessions; i++) {
             final int sessionId = site * concurrentSessions + i;
             final Workload commands = getWorkloadFromConfig(sessionId, numberOfVirtualSites);
-            threadPool.execute(new Runnable() {
-                public void run() {
-                    // Randomize startup to avoid clients running all at the
-                    // same time; causes problems akin to DDOS symptoms.
-                    Threading.sleep(Sys.rg.nextInt(10000));
-                    SwiftSocialBenchmark.super.runClientSession(Integer.toString(sessionId), commands, false,
-                            sessionOpsPerMs);
-                }
-            });
+            // Randomize startup to avoid clients running all at the same
+            // time; causes problems akin to DDOS symptoms. Open loop staggers
+            // the sessions already.
+            final int startupDelay = generator.isOpenLoop() ? 0 : Sys.rg.nextInt(10000);
+            workers.add(newSessionWorker(Integer.toString(sessionId), commands, startupDelay));
         }
+        System.err.println("Spawning session threads.");
 
         // report client progress every 10 seconds...
         final int PERIOD = 10;
@@ -161,11 +160,15 @@ public class SwiftSocialBenchmark extends SwiftSocialApp {
         };
 
         // Wait for all sessions.
-        threadPool.shutdown();
-        Threading.awaitTermination(threadPool, Integer.MAX_VALUE);
+        try {
+            generator.run(workers);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        generator.printSummary(System.err);
 
         System.err.println("Session threads completed.");
-        System.err.println("Throughput: " + totalCommands.get() * 1000 / (System.currentTimeMillis() - startTime)
+        System.err.println("Throughput: " + commandsDone.get() * 1000 / (System.currentTimeMillis() - startTime)
                 + " txns/s");
         System.exit(0);
     }
@@ -16,9 +16,11 @@
  *****************************************************************************/
 package swift.application.social;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -169,9 +171,24 @@ public class SwiftSocialOps {
         }
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     public User registerUser(final TxnHandle txn, final String loginName, final String passwd, final String fullName,
             final long birthday, final long date) throws WrongTypeException, NoSuchObjectException,
             VersionNotFoundException, NetworkException {
+        // Construct the associated sets with messages, friends etc.
+        for (CRDT<?> i : newUserObjects(loginName)) {
+            txn.get(i.getUID(), true, (Class) i.getClass(), null);
+        }
+        return registerPreloadedUser(txn, loginName, passwd, fullName, birthday, date);
+    }
+
+    /**
+     * Registers a user whose associated sets were already created, e.g., bulk
+     * loaded from {@link #newUserObjects(String)}.
+     */
+    public User registerPreloadedUser(final TxnHandle txn, final String loginName, final String passwd,
+            final String fullName, final long birthday, final long date) throws WrongTypeException,
+            NoSuchObjectException, VersionNotFoundException, NetworkException {
         // FIXME How do we guarantee unique login names?
         // WalterSocial suggests using dedicated (non-replicated) login server.
 
@@ -180,18 +197,6 @@ public class SwiftSocialOps {
         User newUser = new User(loginName, passwd, fullName, birthday, true);
         reg.set((User) newUser.copy());
 
-        // Construct the associated sets with messages, friends etc.
-        txn.get(newUser.msgList, true, AddWinsMessageSetCRDT.class, null);
-        txn.get(newUser.eventList, true, AddWinsMessageSetCRDT.class, null);
-        txn.get(newUser.friendList, true, AddWinsIdSetCRDT.class, null);
-        txn.get(newUser.inFriendReq, true, AddWinsIdSetCRDT.class, null);
-        txn.get(newUser.outFriendReq, true, AddWinsIdSetCRDT.class, null);
-        if (bloatedCounters) {
-            txn.get(newUser.viewsCounter, true, BloatedIntegerCRDT.class, null);
-        } else {
-            txn.get(newUser.viewsCounter, true, IntegerCRDT.class, null);
-        }
-
         // Create registration event for user
         Message newEvt = new Message(fullName + " has registered!", loginName, date);
         writeMessage(txn, newEvt, newUser.eventList, null);
@@ -199,6 +204,26 @@ public class SwiftSocialOps {
         return newUser;
     }
 
+    /**
+     * @return the initial states of the sets associated with a new user, with
+     *         messages, friends etc.
+     */
+    public List<CRDT<?>> newUserObjects(final String loginName) {
+        User newUser = new User(loginName, null, null, 0, true);
+        List<CRDT<?>> res = new ArrayList<CRDT<?>>();
+        res.add(new AddWinsMessageSetCRDT(newUser.msgList));
+        res.add(new AddWinsMessageSetCRDT(newUser.eventList));
+        res.add(new AddWinsIdSetCRDT(newUser.friendList));
+        res.add(new AddWinsIdSetCRDT(newUser.inFriendReq));
+        res.add(new AddWinsIdSetCRDT(newUser.outFriendReq));
+        if (bloatedCounters) {
+            res.add(new BloatedIntegerCRDT(newUser.viewsCounter));
+        } else {
+            res.add(new IntegerCRDT(newUser.viewsCounter));
+        }
+        return res;
+    }
+
     @SuppressWarnings("unchecked")
     void updateUser(boolean status, String fullName, long birthday) throws SwiftException {
         logger.info("Update user data for " + this.currentUser.loginName);
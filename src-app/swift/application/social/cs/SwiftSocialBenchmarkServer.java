@@ -18,6 +18,8 @@ package swift.application.social.cs;
 
 import static sys.net.api.Networking.Networking;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -26,6 +28,8 @@ import swift.application.social.Commands;
 import swift.application.social.SwiftSocialApp;
 import swift.application.social.SwiftSocialBenchmark;
 import swift.application.social.SwiftSocialOps;
+import swift.dc.DCConstants;
+import swift.dc.DCServer;
 import sys.ec2.ClosestDomain;
 import sys.net.api.Networking.TransportProvider;
 import sys.net.api.rpc.RpcHandle;
@@ -45,17 +49,34 @@ public class SwiftSocialBenchmarkServer extends SwiftSocialBenchmark {
     public static void main(String[] args) {
         sys.Sys.init();
 
-        String partitions = Args.valueOf(args, "-partitions", "1/1");
-        int site = Integer.valueOf(partitions.split("/")[0]);
+        final String server;
+        final boolean colocated = Args.contains(args, "-colocated");
+        if (colocated) {
+            // Runs the DC in this process, with the arguments of DCServer; the
+            // sessions share a scout, which reaches its surrogate without the
+            // network.
+            List<String> dcArgs = new ArrayList<String>(Arrays.asList(args));
+            dcArgs.add("-inProcClients");
+            DCServer.main(dcArgs.toArray(new String[dcArgs.size()]));
+            server = "localhost:" + Args.valueOf(args, "-portSurrogate", DCConstants.SURROGATE_PORT);
+            System.err.println(IP.localHostAddress() + " co-located with: " + server);
+        } else {
+            String partitions = Args.valueOf(args, "-partitions", "1/1");
+            int site = Integer.valueOf(partitions.split("/")[0]);
 
-        List<String> servers = Args.subList(args, "-servers", "localhost");
+            List<String> servers = Args.subList(args, "-servers", "localhost");
 
-        String server = ClosestDomain.closest2Domain(servers, site);
+            server = ClosestDomain.closest2Domain(servers, site);
 
-        System.err.println(IP.localHostAddress() + " connecting to: " + server);
+            System.err.println(IP.localHostAddress() + " connecting to: " + server);
+        }
 
         final SwiftSocialApp app = new SwiftSocialApp();
         app.init(new String[] { "-servers", server });
+        if (colocated) {
+            app.setTransportProvider(TransportProvider.INPROC);
+            app.setSharedScout(true);
+        }
 
         app.populateWorkloadFromConfig(); // Populate properties...
 
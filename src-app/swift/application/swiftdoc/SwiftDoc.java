@@ -17,9 +17,11 @@
 package swift.application.swiftdoc;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -44,6 +46,7 @@ import swift.exceptions.NetworkException;
 import swift.exceptions.NoSuchObjectException;
 import swift.exceptions.VersionNotFoundException;
 import swift.exceptions.WrongTypeException;
+import swift.utils.LoadGenerator;
 import sys.Sys;
 import sys.utils.Threading;
 
@@ -137,9 +140,7 @@ public class SwiftDoc {
                 }
             }).start();
 
-            SwiftDocPatchReplay<TextLine> player = new SwiftDocPatchReplay<TextLine>();
-
-            player.parseFiles(new SwiftDocOps<TextLine>() {
+            final SwiftDocOps<TextLine> ops = new SwiftDocOps<TextLine>() {
                 TxnHandle handle = null;
                 SequenceCRDT<TextLine> doc = null;
                 int cm = 0;
@@ -159,6 +160,16 @@ public class SwiftDoc {
                     return doc.removeAt(pos);
                 }
 
+                @Override
+                public void addAll(int pos, List<TextLine> atoms) {
+                    doc.insertAllAt(pos, atoms);
+                }
+
+                @Override
+                public List<TextLine> removeRange(int from, int to) {
+                    return doc.removeRange(from, to);
+                }
+
                 @Override
                 public TextLine get(int pos) {
                     return doc.getValue().get(pos);
@@ -184,7 +195,43 @@ public class SwiftDoc {
                 public TextLine gen(String s) {
                     return new TextLine(s, cm);
                 }
-            });
+            };
+
+            SwiftDocPatchReplay<TextLine> player = new SwiftDocPatchReplay<TextLine>();
+            for (String i : player.initialLines()) {
+                ops.begin();
+                ops.add(ops.size(), ops.gen(i));
+                ops.commit();
+            }
+
+            // replays a patch per operation, closed loop, unless a load.rate
+            // system property sets an arrival rate
+            final Iterator<String> patches = player.patchNames().iterator();
+            final LoadGenerator generator = new LoadGenerator().configure(System.getProperties());
+            generator.run(Collections.singletonList(new LoadGenerator.Worker() {
+                String patch;
+
+                public String getId() {
+                    return "client1";
+                }
+
+                public String nextOperation() {
+                    if (!patches.hasNext())
+                        return null;
+                    patch = patches.next();
+                    return "PATCH";
+                }
+
+                public void execute() {
+                    ops.begin();
+                    ops.add(0, ops.gen(patch));
+                    ops.commit();
+                }
+
+                public void finish() {
+                }
+            }));
+            generator.printSummary(System.err);
             done.set(true);
             Threading.sleep(5000);
 
@@ -217,7 +264,7 @@ public class SwiftDoc {
                 executor.execute(new Runnable() {
                     public void run() {
                         try {
-                            Collection<TextLine> newAtoms = new ArrayList<TextLine>();
+                            List<TextLine> newAtoms = new ArrayList<TextLine>();
                             synchronized (serials) {
                                 for (TextLine i : doc2.getValue()) {
                                     if (serials.add(i.serial())) {
@@ -228,8 +275,7 @@ public class SwiftDoc {
                             System.err.println("------->" + newAtoms.size());
                             TxnHandle handle = swift2.beginTxn(isolationLevel, CachePolicy.CACHED, false);
                             SequenceCRDT<TextLine> doc3 = getDoc(handle, j2, true, null);
-                            for (TextLine i : newAtoms)
-                                doc3.insertAt(doc3.size(), i);
+                            doc3.insertAllAt(doc3.size(), newAtoms);
                             handle.commit();
                         } catch (Exception x) {
                             x.printStackTrace();
@@ -16,19 +16,21 @@
  *****************************************************************************/
 package swift.application.swiftdoc;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class SwiftDocLineNumberGenerator<V> {
 
     public void parseFiles(SwiftDocOps<V> seq) throws Exception {
 
-        if (seq != null)
-            seq.begin();
-
-        for (int i = 0; i < 1000000; i++)
-            if (seq != null) {
-                seq.add(seq.size(), seq.gen(String.format("%10d", i)));
-            }
+        if (seq != null) {
+            List<V> lines = new ArrayList<V>();
+            for (int i = 0; i < 1000000; i++)
+                lines.add(seq.gen(String.format("%10d", i)));
 
-        if (seq != null)
+            seq.begin();
+            seq.addAll(seq.size(), lines);
             seq.commit();
+        }
     }
 }
@@ -16,6 +16,8 @@
  *****************************************************************************/
 package swift.application.swiftdoc;
 
+import java.util.List;
+
 public interface SwiftDocOps<V> {
 
     V gen(String s);
@@ -28,6 +30,17 @@ public interface SwiftDocOps<V> {
 
     public V remove(int v);
 
+    /**
+     * Inserts a block of atoms, starting at position i, as a single edit.
+     */
+    void addAll(int i, List<V> v);
+
+    /**
+     * Deletes the atoms at positions from (inclusive) to to (exclusive), as a
+     * single edit.
+     */
+    List<V> removeRange(int from, int to);
+
     int size();
 
     void commit();
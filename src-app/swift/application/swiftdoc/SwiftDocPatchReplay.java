@@ -35,36 +35,31 @@ import java.util.zip.ZipFile;
 public class SwiftDocPatchReplay<V> {
 
     ZipFile zipFile;
+    SortedSet<ZipEntry> patchFiles;
 
     public void parseFiles(SwiftDocOps<V> seq) throws Exception {
 
-        SortedSet<ZipEntry> patches = getPatchFiles();
-
-        ZipEntry initial = patches.first();
-
         // Populate initial doc with
-        List<Object> doc = new ArrayList<Object>();
-        for (String i : fileToLines(initial)) {
-            if (seq != null) {
-                seq.begin();
-                seq.add(seq.size(), seq.gen(i));
-                seq.commit();
-            }
-            doc.add(i);
+        List<Object> doc = new ArrayList<Object>(initialLines());
+        if (seq != null) {
+            List<V> lines = new ArrayList<V>();
+            for (Object i : doc)
+                lines.add(seq.gen(i.toString()));
+            seq.begin();
+            seq.addAll(seq.size(), lines);
+            seq.commit();
         }
 
+        List<String> patches = patchNames();
         int k = 0;
-        for (ZipEntry i : patches) {
-            if (i == initial)
-                continue;
-
+        for (String i : patches) {
             System.err.printf("\r%s -> %d %% done...", i, 100 * k++ / patches.size());
 
             if (seq != null)
                 seq.begin();
 
-            doc.add(i.getName());
-            seq.add(0, seq.gen(i.getName()));
+            doc.add(i);
+            seq.add(0, seq.gen(i));
             // Patch patch = DiffUtils.parseUnifiedDiff(fileToLines(i));
             //
             // List<Object> result = new HelperList<Object>(doc, seq);
@@ -78,14 +73,36 @@ public class SwiftDocPatchReplay<V> {
             // doc = result;
             if (seq != null)
                 seq.commit();
+        }
+        System.err.println("All Done");
+    }
+
+    /**
+     * @return the lines of the initial version of the document
+     */
+    public List<String> initialLines() throws IOException {
+        return fileToLines(getPatchFiles().first());
+    }
 
+    /**
+     * @return the names of the patches to replay, in order
+     */
+    public List<String> patchNames() throws IOException {
+        List<String> res = new ArrayList<String>();
+        SortedSet<ZipEntry> patches = getPatchFiles();
+        for (ZipEntry i : patches) {
+            if (i == patches.first())
+                continue;
+            res.add(i.getName());
             if (i.getName().startsWith("500-"))
-                return;
+                break;
         }
-        System.err.println("All Done");
+        return res;
     }
 
     SortedSet<ZipEntry> getPatchFiles() throws IOException {
+        if (patchFiles != null)
+            return patchFiles;
 
         SortedSet<ZipEntry> sortedEntries = new TreeSet<ZipEntry>(new Comparator<ZipEntry>() {
             @Override
@@ -107,7 +124,7 @@ public class SwiftDocPatchReplay<V> {
             ZipEntry i = e.nextElement();
             sortedEntries.add(i);
         }
-        return sortedEntries;
+        return patchFiles = sortedEntries;
     }
 
     public List<String> fileToLines(ZipEntry e) throws IOException {
@@ -142,6 +159,17 @@ public class SwiftDocPatchReplay<V> {
             super.add(i, v);
         }
 
+        @Override
+        public boolean addAll(int i, Collection<? extends T> c) {
+            if (mirror != null) {
+                List<V> atoms = new ArrayList<V>();
+                for (T v : c)
+                    atoms.add(mirror.gen(v.toString()));
+                mirror.addAll(i, atoms);
+            }
+            return super.addAll(i, c);
+        }
+
         @Override
         public T get(int v) {
             T res = super.get(v);
@@ -166,5 +194,16 @@ public class SwiftDocPatchReplay<V> {
             }
             return res;
         }
+
+        @Override
+        protected void removeRange(int from, int to) {
+            if (mirror != null) {
+                List<V> res0 = mirror.removeRange(from, to);
+                if (!res0.equals(subList(from, to))) {
+                    System.err.printf("%s  got-> %s\n", subList(from, to), res0);
+                }
+            }
+            super.removeRange(from, to);
+        }
     }
 }
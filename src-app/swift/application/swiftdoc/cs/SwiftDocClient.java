@@ -130,6 +130,20 @@ public class SwiftDocClient {
                     return mirror.remove(pos);
                 }
 
+                @Override
+                public void addAll(int pos, List<TextLine> atoms) {
+                    for (TextLine atom : atoms)
+                        add(pos++, atom);
+                }
+
+                @Override
+                public List<TextLine> removeRange(int from, int to) {
+                    List<TextLine> res = new ArrayList<TextLine>();
+                    for (int i = from; i < to; i++)
+                        res.add(remove(from));
+                    return res;
+                }
+
                 @Override
                 public void commit() {
                     endpoint.send(server, new CommitTransaction(), ackHandler);
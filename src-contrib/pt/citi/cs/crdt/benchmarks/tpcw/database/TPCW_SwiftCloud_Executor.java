@@ -92,6 +92,7 @@ import pt.citi.cs.crdt.benchmarks.tpcw.entities.crdt.SetBestSellersCRDT;
 import pt.citi.cs.crdt.benchmarks.tpcw.entities.crdt.SetIndexByDateCRDT;
 import pt.citi.cs.crdt.benchmarks.tpcw.entities.crdt.ShoppingCart;
 import pt.citi.cs.crdt.benchmarks.tpcw.synchronization.TPCWRpc;
+import swift.client.BulkLoader;
 import swift.client.CommitListener;
 import swift.client.SwiftImpl;
 import swift.client.SwiftOptions;
@@ -149,6 +150,12 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
     TPCWCommitListener commitListener = new TPCWCommitListener();
     /* ObjectUpdatesListener updateListener = new TPCWUpdateListener(); */
     ThreadLocal<TxnHandle> threadTransaction = new ThreadLocal<TxnHandle>();
+    ThreadLocal<BulkLoader> threadLoader = new ThreadLocal<BulkLoader>() {
+        @Override
+        protected BulkLoader initialValue() {
+            return new BulkLoader(server);
+        }
+    };
 
     Map<String, Integer> partialBought = new TreeMap<String, Integer>();
     ArrayList<String> operations = new ArrayList<String>();
@@ -167,6 +174,7 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
     private Queue<Pair<RpcHandle, TPCWRpc>> requestsQueue;
     private boolean finished;
     private SwiftSession localSession;
+    private String server;
     private static BufferedWriter bufferedOutput;
 
     public TPCW_SwiftCloud_Executor(String keyspace, Map<String, Integer> connections, Map<String, String> key_paths,
@@ -183,6 +191,11 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
 
         simulatedDelay = think_time;
 
+        for (String rand_host : connections.keySet()) {
+            server = rand_host.split(":")[0] + ":" + connections.get(rand_host);
+            break;
+        }
+
         if (scout == null || stopped) {
 
             Sys.init();
@@ -442,6 +455,26 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
         return value;
     }
 
+    /**
+     * Insert method for populator. The register of the entity is bulk loaded,
+     * only the index is updated in the ongoing transaction of the thread.
+     */
+    public void bulkInsert(String key, String bucketName, Entity value) throws NetworkException {
+        TxnHandle txh = threadTransaction.get();
+        try {
+            threadLoader.get().add(new LWWRegisterCRDT<Entity>(new CRDTIdentifier(bucketName, key), value));
+            AddWinsSetCRDT<String> index = (AddWinsSetCRDT<String>) txh.get(TPCWNamingScheme.forIndex(bucketName),
+                    true, AddWinsSetCRDT.class);
+            index.add(key);
+        } catch (WrongTypeException e) {
+            e.printStackTrace();
+        } catch (NoSuchObjectException e) {
+            e.printStackTrace();
+        } catch (VersionNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void remove(String key, String bucketName, String column) throws Exception {
         TxnHandle handler = localSession.beginTxn(ISOLATION_LEVEL, CACHE_POLICY, false);
@@ -541,7 +574,6 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
             TxnHandle handler) {
 
         Map<String, Entity> results = new HashMap<String, Entity>();
-        int count = 0;
         boolean createdHandler = false;
 
         try {
@@ -551,41 +583,18 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
                 createdHandler = true;
             }
 
-            AddWinsSetCRDT<String> keyIndexesCRDT = (AddWinsSetCRDT<String>) handler.get(
-                    TPCWNamingScheme.forIndex(bucketName), false, AddWinsSetCRDT.class);
-
-            Set<String> stringIDs = keyIndexesCRDT.getValue();
-            // if (BULK_GET) {
-            // Set<CRDTIdentifier> crdtIDs = new HashSet<CRDTIdentifier>();
-            // for (String s : stringIDs) {
-            // if (count == limit)
-            // break;
-            // crdtIDs.add(new CRDTIdentifier(bucketName, s));
-            // count++;
-            // }
-            //
-            // handler.bulkGet(crdtIDs, false, TIMEOUT_BULK_OP, null);
-            // }
-            count = 0;
-            for (String key : stringIDs) {
-                if (count == limit)
-                    break;
-                LWWRegisterCRDT<Entity> entity = (LWWRegisterCRDT<Entity>) handler.get(new CRDTIdentifier(bucketName,
-                        key), false, LWWRegisterCRDT.class);
-                results.put(key, entity.getValue());
-                count++;
+            // Lists the keys of the table and fetches their objects at once.
+            Map<CRDTIdentifier, CRDT<?>> entities = handler.scan(bucketName, "", limit < 0 ? Integer.MAX_VALUE
+                    : limit, false);
+            for (Entry<CRDTIdentifier, CRDT<?>> entry : entities.entrySet()) {
+                LWWRegisterCRDT<Entity> entity = (LWWRegisterCRDT<Entity>) entry.getValue();
+                results.put(entry.getKey().getKey(), entity.getValue());
             }
             if (createdHandler)
                 handler.commitAsync(commitListener);
             return results;
         } catch (NetworkException e) {
             e.printStackTrace();
-        } catch (WrongTypeException e) {
-            e.printStackTrace();
-        } catch (NoSuchObjectException e) {
-            e.printStackTrace();
-        } catch (VersionNotFoundException e) {
-            e.printStackTrace();
         }
         return null;
     }
@@ -1874,6 +1883,8 @@ public class TPCW_SwiftCloud_Executor implements DatabaseExecutorInterface {
     }
 
     public void endTransactionForThread() throws NetworkException {
+        // the entities must be stored before they are indexed
+        threadLoader.get().flush();
         TxnHandle ongoing = threadTransaction.get();
         ongoing.commit();
         threadTransaction.remove();
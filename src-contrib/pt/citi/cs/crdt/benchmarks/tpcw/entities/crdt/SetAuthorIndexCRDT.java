@@ -96,7 +96,7 @@ public class SetAuthorIndexCRDT extends AbstractAddWinsSetCRDT<AuthorIndex, SetA
     @Override
     public SetAuthorIndexCRDT copy() {
         SetAuthorIndexCRDT copy = new SetAuthorIndexCRDT(id, txn, clock);
-        AddWinsUtils.deepCopy(elems, copy.getElementsInstances());
+        copy.getElementsInstances().putAll(elems);
         return copy;
     }
 
@@ -25,7 +25,6 @@ import pt.citi.cs.crdt.benchmarks.tpcw.entities.BestSellerEntry;
 import swift.clocks.CausalityClock;
 import swift.clocks.TripleTimestamp;
 import swift.crdt.AbstractAddWinsSetCRDT;
-import swift.crdt.AddWinsUtils;
 import swift.crdt.core.CRDTIdentifier;
 import swift.crdt.core.TxnHandle;
 import swift.exceptions.NetworkException;
@@ -86,7 +85,7 @@ public class SetBestSellersCRDT extends AbstractAddWinsSetCRDT<BestSellerEntry,
     @Override
     public SetBestSellersCRDT copy() {
         SetBestSellersCRDT copy = new SetBestSellersCRDT(id, txn, clock);
-        AddWinsUtils.deepCopy(elems, copy.getElementsInstances());
+        copy.getElementsInstances().putAll(elems);
         return copy;
     }
 
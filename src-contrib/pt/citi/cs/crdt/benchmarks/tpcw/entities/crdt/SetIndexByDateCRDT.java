@@ -26,7 +26,6 @@ import pt.citi.cs.crdt.benchmarks.tpcw.database.TPCW_SwiftCloud_Executor;
 import swift.clocks.CausalityClock;
 import swift.clocks.TripleTimestamp;
 import swift.crdt.AbstractAddWinsSetCRDT;
-import swift.crdt.AddWinsUtils;
 import swift.crdt.core.CRDTIdentifier;
 import swift.crdt.core.TxnHandle;
 import swift.exceptions.NetworkException;
@@ -86,7 +85,7 @@ public class SetIndexByDateCRDT extends AbstractAddWinsSetCRDT<OrderInfo, SetInd
     @Override
     public SetIndexByDateCRDT copy() {
         SetIndexByDateCRDT copy = new SetIndexByDateCRDT(id, txn, clock);
-        AddWinsUtils.deepCopy(elems, copy.getElementsInstances());
+        copy.getElementsInstances().putAll(elems);
         return copy;
     }
 
@@ -310,7 +310,7 @@ public class SwiftCloudPopulator extends AbstractBenchmarkPopulator {
             Entity value, ResultHandler results) throws Exception {
 
         long time1 = System.currentTimeMillis();
-        client.insert(key, path, value);
+        ((TPCW_SwiftCloud_Executor) client).bulkInsert(key, path, value);
         long time2 = System.currentTimeMillis();
         results.logResult(Operation, time2 - time1);
 
@@ -400,7 +400,7 @@ public class SwiftCloudPopulator extends AbstractBenchmarkPopulator {
                 throws Exception {
 
             long time1 = System.currentTimeMillis();
-            client.insert(key, path, value);
+            ((TPCW_SwiftCloud_Executor) client).bulkInsert(key, path, value);
             long time2 = System.currentTimeMillis();
             results.logResult(Operation, time2 - time1);
         }
@@ -680,7 +680,7 @@ public class SwiftCloudPopulator extends AbstractBenchmarkPopulator {
                 throws Exception {
 
             long time1 = System.currentTimeMillis();
-            client.insert(key, path, value);
+            ((TPCW_SwiftCloud_Executor) client).bulkInsert(key, path, value);
             long time2 = System.currentTimeMillis();
             results.logResult(Operation, time2 - time1);
 
@@ -925,7 +925,7 @@ public class SwiftCloudPopulator extends AbstractBenchmarkPopulator {
                 throws Exception {
 
             long time1 = System.currentTimeMillis();
-            client.insert(key, path, value);
+            ((TPCW_SwiftCloud_Executor) client).bulkInsert(key, path, value);
             long time2 = System.currentTimeMillis();
             results.logResult(Operation, time2 - time1);
 
@@ -1021,7 +1021,7 @@ public class SwiftCloudPopulator extends AbstractBenchmarkPopulator {
                 throws Exception {
 
             long time1 = System.currentTimeMillis();
-            client.insert(key, path, value);
+            ((TPCW_SwiftCloud_Executor) client).bulkInsert(key, path, value);
             long time2 = System.currentTimeMillis();
             results.logResult(Operation, time2 - time1);
 
@@ -1,6 +1,7 @@
 package swift.application.ycsb;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
@@ -9,6 +10,8 @@ import java.util.Vector;
 
 import swift.client.SwiftImpl;
 import swift.client.SwiftOptions;
+import swift.crdt.core.CRDT;
+import swift.crdt.core.CRDTIdentifier;
 import swift.crdt.core.CachePolicy;
 import swift.crdt.core.IsolationLevel;
 import swift.crdt.core.ObjectUpdatesListener;
@@ -151,7 +154,27 @@ public abstract class AbstractSwiftClient extends DB {
     @Override
     public int scan(String table, String startkey, int recordcount, Set<String> fields,
             Vector<HashMap<String, ByteIterator>> result) {
-        return ERROR_UNSUPPORTED;
+        TxnHandle txn = null;
+        try {
+            txn = session.beginTxn(isolationLevel, cachePolicy, true);
+            // Fetch the page at once, then read each record from the txn.
+            final Map<CRDTIdentifier, CRDT<?>> objects = txn.scan(table, startkey, recordcount,
+                    notificationsSubscriber != null);
+            for (final CRDTIdentifier id : objects.keySet()) {
+                final HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+                int res = readImpl(txn, table, id.getKey(), fields, record);
+                if (res != 0) {
+                    return res;
+                }
+                result.add(record);
+            }
+            txnCommit(txn);
+            return 0;
+        } catch (SwiftException x) {
+            return handleException(x);
+        } finally {
+            cleanUpTxn(txn);
+        }
     }
 
     @Override
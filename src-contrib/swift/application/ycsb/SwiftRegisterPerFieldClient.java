@@ -3,6 +3,7 @@ package swift.application.ycsb;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.Vector;
 
 import swift.crdt.AddOnlyStringSetCRDT;
 import swift.crdt.LWWStringRegisterCRDT;
@@ -84,6 +85,13 @@ public class SwiftRegisterPerFieldClient extends AbstractSwiftClient {
         return 0;
     }
 
+    @Override
+    public int scan(String table, String startkey, int recordcount, Set<String> fields,
+            Vector<HashMap<String, ByteIterator>> result) {
+        // field registers share the table with the keys
+        return ERROR_UNSUPPORTED;
+    }
+
     protected HashMap<CRDTIdentifier, String> getFieldIds(TxnHandle txn, String table, String key, Set<String> fields,
             boolean create) throws WrongTypeException, NoSuchObjectException, VersionNotFoundException,
             NetworkException {
@@ -0,0 +1,147 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.clocks.Timestamp;
+import swift.clocks.TimestampMapping;
+import swift.crdt.AddWinsSetCRDT;
+import swift.crdt.IntegerCRDT;
+import swift.crdt.IntegerUpdate;
+import swift.crdt.SequenceCRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import swift.crdt.core.CRDTOperationDependencyPolicy;
+import swift.crdt.core.ManagedCRDT;
+
+/**
+ * Generators of the data used by the microbenchmarks, shaped after a running
+ * system: updates of a few scouts, committed by a few DCs, with some
+ * timestamps still missing from the clocks.
+ */
+public final class BenchData {
+    static final int SCOUTS = 4;
+    static final String DC = "DC0";
+
+    private BenchData() {
+    }
+
+    /**
+     * @return a clock with a random prefix of each site, with a number of
+     *         holes
+     */
+    public static CausalityClock randomClock(Random rg, int sites, int maxCounter, int holes) {
+        final CausalityClock clock = ClockFactory.newClock();
+        for (int i = 0; i < sites; i++) {
+            final String site = (i % 2 == 0 ? "DC" : "scout") + i;
+            final int latest = rg.nextInt(maxCounter) + 1;
+            clock.recordAllUntil(new Timestamp(site, latest));
+            for (int j = 0; j < holes; j++) {
+                clock.drop(new Timestamp(site, rg.nextInt(latest) + 1));
+            }
+        }
+        return clock;
+    }
+
+    /**
+     * @return a clock with the updates committed by the DC up to counter
+     */
+    public static CausalityClock dcClock(long counter) {
+        final CausalityClock clock = ClockFactory.newClock();
+        clock.recordAllUntil(new Timestamp(DC, counter));
+        return clock;
+    }
+
+    /**
+     * @return the k-th increment of an integer, issued by one of the scouts
+     *         and committed by the DC with timestamp k + 1
+     */
+    public static CRDTObjectUpdatesGroup<IntegerCRDT> increment(CRDTIdentifier id, int k) {
+        final CRDTObjectUpdatesGroup<IntegerCRDT> group = new CRDTObjectUpdatesGroup<IntegerCRDT>(id,
+                new TimestampMapping(new Timestamp("scout" + k % SCOUTS, k / SCOUTS + 1)), null,
+                ClockFactory.newClock());
+        group.append(new IntegerUpdate(1));
+        group.addSystemTimestamp(new Timestamp(DC, k + 1));
+        return group;
+    }
+
+    /**
+     * @return an integer with a log of the given number of increments
+     */
+    public static ManagedCRDT<IntegerCRDT> integer(CRDTIdentifier id, int logSize) {
+        final ManagedCRDT<IntegerCRDT> crdt = new ManagedCRDT<IntegerCRDT>(id, new IntegerCRDT(id),
+                ClockFactory.newClock(), true);
+        for (int k = 0; k < logSize; k++) {
+            crdt.execute(increment(id, k), CRDTOperationDependencyPolicy.IGNORE);
+        }
+        return crdt;
+    }
+
+    /**
+     * @return the updates of a number of objects, as published by the DC
+     */
+    public static Map<CRDTIdentifier, List<CRDTObjectUpdatesGroup<?>>> updates(String table, int objects,
+            int groupsPerObject) {
+        final Map<CRDTIdentifier, List<CRDTObjectUpdatesGroup<?>>> res = new HashMap<CRDTIdentifier, List<CRDTObjectUpdatesGroup<?>>>();
+        int k = 0;
+        for (int i = 0; i < objects; i++) {
+            final CRDTIdentifier id = new CRDTIdentifier(table, "object" + i);
+            final List<CRDTObjectUpdatesGroup<?>> groups = new ArrayList<CRDTObjectUpdatesGroup<?>>();
+            for (int j = 0; j < groupsPerObject; j++) {
+                groups.add(increment(id, k++));
+            }
+            res.put(id, groups);
+        }
+        return res;
+    }
+
+    /**
+     * @return a sequence of the given number of lines, inserted at random
+     *         positions
+     */
+    public static SequenceCRDT<String> sequence(CRDTIdentifier id, Random rg, int size) {
+        final SequenceCRDT<String> seq = new SequenceCRDT<String>(id).copyWith(new BenchTxn("editor"),
+                ClockFactory.newClock());
+        for (int i = 0; i < size; i++) {
+            seq.insertAt(rg.nextInt(seq.size() + 1), line(i));
+        }
+        return seq;
+    }
+
+    /**
+     * @return a set of the given number of integers
+     */
+    public static AddWinsSetCRDT<Integer> set(CRDTIdentifier id, int size) {
+        final AddWinsSetCRDT<Integer> set = new AddWinsSetCRDT<Integer>(id).copyWith(new BenchTxn("writer"),
+                ClockFactory.newClock());
+        for (int i = 0; i < size; i++) {
+            set.add(i);
+        }
+        return set;
+    }
+
+    public static String line(int i) {
+        return "line " + i + " of a document edited by the microbenchmarks";
+    }
+}
@@ -0,0 +1,104 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.Map;
+import java.util.Set;
+
+import swift.client.CommitListener;
+import swift.clocks.IncrementalTripleTimestampGenerator;
+import swift.clocks.Timestamp;
+import swift.clocks.TripleTimestamp;
+import swift.crdt.core.BulkGetProgressListener;
+import swift.crdt.core.CRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.ObjectUpdatesListener;
+import swift.crdt.core.TxnHandle;
+import swift.crdt.core.TxnStatus;
+
+/**
+ * Minimal transaction handle for updating objects outside of a scout:
+ * generates timestamps and discards the updates.
+ */
+class BenchTxn implements TxnHandle {
+    private final IncrementalTripleTimestampGenerator tsSource;
+
+    BenchTxn(String siteId) {
+        tsSource = new IncrementalTripleTimestampGenerator(new Timestamp(siteId, 1));
+    }
+
+    @Override
+    public TripleTimestamp nextTimestamp() {
+        return tsSource.generateNew();
+    }
+
+    @Override
+    public <V extends CRDT<V>> void registerOperation(CRDTIdentifier id, CRDTUpdate<V> op) {
+    }
+
+    @Override
+    public <V extends CRDT<V>> void registerObjectCreation(CRDTIdentifier id, V creationState) {
+    }
+
+    @Override
+    public <V extends CRDT<V>> V get(CRDTIdentifier id, boolean create, Class<V> classOfV) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <V extends CRDT<V>> V get(CRDTIdentifier id, boolean create, Class<V> classOfV,
+            ObjectUpdatesListener updatesListener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commit() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commitAsync(CommitListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void rollback() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TxnStatus getStatus() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<CRDTIdentifier, CRDT<?>> bulkGet(boolean subscribeUpdates, Set<CRDTIdentifier> ids,
+            BulkGetProgressListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<CRDTIdentifier, CRDT<?>> bulkGet(boolean subscribeUpdates, CRDTIdentifier... ids) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<CRDTIdentifier, CRDT<?>> scan(String table, String startKey, int maxCount, boolean subscribeUpdates) {
+        throw new UnsupportedOperationException();
+    }
+}
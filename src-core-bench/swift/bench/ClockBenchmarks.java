@@ -0,0 +1,128 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.clocks.Timestamp;
+import swift.clocks.VersionVectorWithExceptions;
+
+/**
+ * Microbenchmarks of {@link VersionVectorWithExceptions}, on clocks of 8 sites
+ * with a few holes each.
+ */
+final class ClockBenchmarks {
+    static final int SITES = 8;
+    static final int MAX_COUNTER = 10000;
+    static final int HOLES = 4;
+    // power of 2
+    static final int POOL = 64;
+    static final int ROUND = 10000;
+
+    private ClockBenchmarks() {
+    }
+
+    static CausalityClock[] pool() {
+        final Random rg = new Random(1L);
+        final CausalityClock[] res = new CausalityClock[POOL];
+        for (int i = 0; i < POOL; i++) {
+            res[i] = BenchData.randomClock(rg, SITES, MAX_COUNTER, HOLES);
+        }
+        return res;
+    }
+
+    static List<Microbenchmark> benchmarks() {
+        final CausalityClock[] pool = pool();
+        return Arrays.asList(new Microbenchmark("clock.compareTo") {
+            @Override
+            protected Object run(int i) {
+                return pool[i & (POOL - 1)].compareTo(pool[(i + 1) & (POOL - 1)]);
+            }
+        }, new Microbenchmark("clock.merge") {
+            final CausalityClock[] targets = new CausalityClock[ROUND];
+
+            @Override
+            protected void setUp() {
+                for (int i = 0; i < ROUND; i++) {
+                    targets[i] = pool[i & (POOL - 1)].clone();
+                }
+            }
+
+            @Override
+            protected Object run(int i) {
+                return targets[i].merge(pool[(i + 1) & (POOL - 1)]);
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return ROUND;
+            }
+        }, new Microbenchmark("clock.clone") {
+            @Override
+            protected Object run(int i) {
+                return pool[i & (POOL - 1)].clone();
+            }
+        }, new Microbenchmark("clock.record") {
+            CausalityClock clock;
+
+            @Override
+            protected void setUp() {
+                clock = pool[0].clone();
+            }
+
+            // next timestamp of every site in turn
+            @Override
+            protected Object run(int i) {
+                return clock.record(new Timestamp((i % 2 == 0 ? "DC" : "scout") + i % SITES, MAX_COUNTER + 1 + i
+                        / SITES));
+            }
+        }, new Microbenchmark("clock.recordOutOfOrder") {
+            final List<Timestamp> holes = new ArrayList<Timestamp>();
+            CausalityClock clock;
+
+            // timestamps that fill holes, in random order
+            @Override
+            protected void setUp() {
+                clock = ClockFactory.newClock();
+                clock.recordAllUntil(new Timestamp("DC0", 2 * ROUND));
+                holes.clear();
+                for (int i = 1; i <= ROUND; i++) {
+                    final Timestamp ts = new Timestamp("DC0", 2 * i);
+                    clock.drop(ts);
+                    holes.add(ts);
+                }
+                Collections.shuffle(holes, new Random(1L));
+            }
+
+            @Override
+            protected Object run(int i) {
+                return clock.record(holes.get(i));
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return ROUND;
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+import swift.crdt.core.CRDTIdentifier;
+import swift.proto.BatchFetchObjectVersionReply;
+import swift.proto.BatchFetchObjectVersionReply.FetchStatus;
+import swift.pubsub.BatchUpdatesNotification;
+import swift.utils.KryoCRDTUtils;
+import swift.utils.KryoCRDTUtils.Registerable;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Microbenchmarks of Kryo round-trips (write and read back) of the largest
+ * messages: batches of fetched objects, sent by DCs to scouts, and batches of
+ * update notifications.
+ */
+final class KryoBenchmarks {
+    static final int BATCH_SIZE = 32;
+    static final int LOG_SIZE = 10;
+    static final int GROUPS_PER_OBJECT = 4;
+
+    private KryoBenchmarks() {
+    }
+
+    static List<Microbenchmark> benchmarks() {
+        final BatchFetchObjectVersionReply reply = new BatchFetchObjectVersionReply(BATCH_SIZE,
+                BenchData.dcClock(BATCH_SIZE * LOG_SIZE), BenchData.dcClock(BATCH_SIZE * LOG_SIZE / 2));
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            reply.setReply(i, FetchStatus.OK,
+                    BenchData.integer(new CRDTIdentifier("bench", "object" + i), LOG_SIZE));
+        }
+        final BatchUpdatesNotification notification = new BatchUpdatesNotification(
+                BenchData.dcClock(BATCH_SIZE * GROUPS_PER_OBJECT), false, BenchData.updates("bench", BATCH_SIZE,
+                        GROUPS_PER_OBJECT));
+        return Arrays.asList(roundTrip("kryo.batchFetchObjectVersionReply", reply),
+                roundTrip("kryo.batchUpdatesNotification", notification));
+    }
+
+    static Microbenchmark roundTrip(String name, final Object message) {
+        return new Microbenchmark(name) {
+            final Kryo kryo = newKryo();
+            final Output output = new Output(1 << 16, -1);
+            final Input input = new Input();
+
+            @Override
+            protected Object run(int i) {
+                output.clear();
+                kryo.writeClassAndObject(output, message);
+                input.setBuffer(output.getBuffer(), 0, output.position());
+                return kryo.readClassAndObject(input);
+            }
+        };
+    }
+
+    // configured as the instances used for messages, see KryoLib
+    static Kryo newKryo() {
+        final Kryo kryo = new Kryo();
+        KryoCRDTUtils.registerCRDTClasses(new Registerable() {
+            @Override
+            public void register(Class<?> cl, int id) {
+                kryo.register(cl, id);
+            }
+        });
+        kryo.setAsmEnabled(true);
+        kryo.setReferences(true);
+        return kryo;
+    }
+}
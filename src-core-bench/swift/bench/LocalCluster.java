@@ -0,0 +1,343 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import sys.net.impl.providers.LinkEmulator;
+import sys.stats.metrics.HistogramSnapshot;
+import sys.stats.metrics.LongHistogram;
+import sys.utils.Args;
+
+/**
+ * Runs a deployment of a number of DCs and of client processes on the local
+ * machine, with emulated links between them, for reproducible throughput and
+ * latency regression runs.
+ * <p>
+ * Each DC, i.e., a surrogate with an integrated sequencer, and each client
+ * runs in its own JVM, with the classpath of the harness; DC i listens on ports
+ * 30000+100i and up. Links between DCs, and between the clients of a DC and
+ * the DC, are emulated by {@link LinkEmulator}. The output of each process is
+ * kept in the output directory, tmp/cluster-&lt;timestamp&gt; by default; once
+ * the clients finish, the operation latencies they report (APP_OP reports)
+ * are summarized per operation type.
+ * <p>
+ * Usage: LocalCluster [-dcs n] [-clients perDC] [-threads perClient]
+ * [-latency dcToDcMs] [-clientLatency clientToDcMs] [-bandwidth dcToDcMbits]
+ * [-props swiftsocialProps] [-duration seconds] [-out dir] [-- mainClass
+ * args...]
+ * <p>
+ * By default, the clients run SwiftSocial, after a single client populates
+ * the database. Other workloads run the given main class in each client, with
+ * the placeholders {server}, {dc}, {client} and {clients} of its arguments
+ * replaced by the surrogate of the DC of the client, the index of that DC, the
+ * index of the client among all clients and the number of clients.
+ */
+public class LocalCluster {
+    static final int BASE_PORT = 30000;
+    static final int PORTS_PER_DC = 100;
+    static final int SEQUENCER_PORT_OFFSET = 10;
+    static final int SURROGATE_FOR_SEQUENCERS_PORT_OFFSET = 20;
+    static final long STARTUP_TIMEOUT_MILLIS = 60000;
+
+    final int dcs;
+    final int clientsPerDC;
+    final int threads;
+    final double latencyMillis;
+    final double clientLatencyMillis;
+    final double bandwidthMbits;
+    final String props;
+    final long durationMillis;
+    final File outDir;
+    final List<String> clientCommand;
+
+    private final List<Process> processes = new ArrayList<Process>();
+
+    LocalCluster(String[] args) {
+        final int sep = Arrays.asList(args).indexOf("--");
+        final String[] opts = sep < 0 ? args : Arrays.copyOf(args, sep);
+        dcs = Args.valueOf(opts, "-dcs", 2);
+        clientsPerDC = Args.valueOf(opts, "-clients", 1);
+        threads = Args.valueOf(opts, "-threads", 4);
+        latencyMillis = Args.valueOf(opts, "-latency", 40.0);
+        clientLatencyMillis = Args.valueOf(opts, "-clientLatency", 5.0);
+        bandwidthMbits = Args.valueOf(opts, "-bandwidth", 0.0);
+        props = Args.valueOf(opts, "-props", "swiftsocial-test.props");
+        durationMillis = 1000L * Args.valueOf(opts, "-duration", 0);
+        outDir = new File(Args.valueOf(opts, "-out", "tmp/cluster-" + System.currentTimeMillis()));
+        clientCommand = sep < 0 ? null : Arrays.asList(args).subList(sep + 1, args.length);
+    }
+
+    static int surrogatePort(int dc) {
+        return BASE_PORT + PORTS_PER_DC * dc;
+    }
+
+    static String dcSite(int dc) {
+        return "DC" + dc;
+    }
+
+    static String clientSite(int dc) {
+        return "C" + dc;
+    }
+
+    /**
+     * @return the system properties that configure the emulated links of a
+     *         process of the given site
+     */
+    List<String> emulationProperties(String site) {
+        final StringBuilder ports = new StringBuilder();
+        final StringBuilder links = new StringBuilder();
+        for (int i = 0; i < dcs; i++) {
+            ports.append(String.format("%s=%d-%d;", dcSite(i), surrogatePort(i), surrogatePort(i) + PORTS_PER_DC - 1));
+            links.append(String.format("%s-%s=%s;", clientSite(i), dcSite(i), clientLatencyMillis));
+            for (int j = i + 1; j < dcs; j++) {
+                links.append(String.format("%s-%s=%s%s;", dcSite(i), dcSite(j), latencyMillis,
+                        bandwidthMbits > 0 ? "/" + bandwidthMbits : ""));
+            }
+        }
+        return Arrays.asList("-D" + LinkEmulator.SITE_PROPERTY + "=" + site, "-D" + LinkEmulator.PORTS_PROPERTY
+                + "=" + ports, "-D" + LinkEmulator.LINKS_PROPERTY + "=" + links);
+    }
+
+    Process launch(String name, List<String> jvmArgs, String mainClass, List<String> args) throws IOException {
+        final List<String> cmd = new ArrayList<String>();
+        cmd.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.addAll(jvmArgs);
+        cmd.add(mainClass);
+        cmd.addAll(args);
+        final ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectOutput(new File(outDir, name + ".out"));
+        pb.redirectError(new File(outDir, name + ".err"));
+        final Process res = pb.start();
+        synchronized (processes) {
+            processes.add(res);
+        }
+        return res;
+    }
+
+    void startDC(int dc) throws IOException {
+        final int port = surrogatePort(dc);
+        final int seqPort = port + SEQUENCER_PORT_OFFSET;
+        final int port4Sequencers = port + SURROGATE_FOR_SEQUENCERS_PORT_OFFSET;
+        final List<String> args = new ArrayList<String>(Arrays.asList("-integrated", "-name", "X" + dc,
+                "-sequencer", "localhost", "-portSequencer", "" + seqPort, "-port", "" + seqPort, "-portSurrogate", ""
+                        + port, "-portSurrogateForSequencers", "" + port4Sequencers, "-servers", "localhost:"
+                        + port4Sequencers, "-sequencers"));
+        for (int i = 0; i < dcs; i++) {
+            if (i != dc) {
+                args.add("localhost:" + (surrogatePort(i) + SEQUENCER_PORT_OFFSET));
+            }
+        }
+        launch(dcSite(dc), emulationProperties(dcSite(dc)), "swift.dc.DCServer", args);
+    }
+
+    static void awaitPort(int port, long timeoutMillis) throws IOException, InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (;;) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException x) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Timed out waiting for port " + port, x);
+                }
+                Thread.sleep(250);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the SwiftSocial properties that enables the APP_OP
+     *         reports
+     */
+    File socialProperties() throws IOException {
+        final File res = new File(outDir, "swiftsocial.props");
+        final PrintWriter pw = new PrintWriter(new FileWriter(res));
+        final BufferedReader br = new BufferedReader(new FileReader(props));
+        try {
+            for (String line; (line = br.readLine()) != null;) {
+                if (!line.trim().startsWith("swift.reports")) {
+                    pw.println(line);
+                }
+            }
+            pw.println("swift.reports=APP_OP");
+        } finally {
+            br.close();
+            pw.close();
+        }
+        return res;
+    }
+
+    Process startClient(int dc, int client, File socialProps) throws IOException {
+        final String server = "localhost:" + surrogatePort(dc);
+        final int clients = dcs * clientsPerDC;
+        final List<String> args = new ArrayList<String>();
+        final String mainClass;
+        if (clientCommand == null) {
+            mainClass = "swift.application.social.SwiftSocialBenchmark";
+            args.addAll(Arrays.asList("run", "-servers", server, "-threads", "" + threads, "-partition", client + "/"
+                    + clients, "-props", socialProps.getPath()));
+        } else {
+            mainClass = clientCommand.get(0);
+            for (String arg : clientCommand.subList(1, clientCommand.size())) {
+                args.add(arg.replace("{server}", server).replace("{dc}", "" + dc).replace("{client}", "" + client)
+                        .replace("{clients}", "" + clients));
+            }
+        }
+        return launch("client" + client, emulationProperties(clientSite(dc)), mainClass, args);
+    }
+
+    void run() throws Exception {
+        outDir.mkdirs();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                destroyAll();
+            }
+        });
+        System.err.printf("Starting %d DCs, output in %s\n", dcs, outDir);
+        for (int i = 0; i < dcs; i++) {
+            startDC(i);
+        }
+        for (int i = 0; i < dcs; i++) {
+            awaitPort(surrogatePort(i), STARTUP_TIMEOUT_MILLIS);
+        }
+
+        File socialProps = null;
+        if (clientCommand == null) {
+            socialProps = socialProperties();
+            System.err.println("Populating the database...");
+            final Process init = launch("init", emulationProperties(clientSite(0)),
+                    "swift.application.social.SwiftSocialBenchmark", Arrays.asList("init", "-servers", "localhost:"
+                            + surrogatePort(0), "-props", socialProps.getPath()));
+            if (init.waitFor() != 0) {
+                throw new IOException("Database initialization failed, see " + new File(outDir, "init.err"));
+            }
+        }
+
+        System.err.printf("Starting %d clients per DC\n", clientsPerDC);
+        final List<Process> clients = new ArrayList<Process>();
+        for (int i = 0; i < dcs; i++) {
+            for (int j = 0; j < clientsPerDC; j++) {
+                clients.add(startClient(i, i * clientsPerDC + j, socialProps));
+            }
+        }
+        if (durationMillis > 0) {
+            Thread.sleep(durationMillis);
+            for (Process p : clients) {
+                p.destroy();
+            }
+        }
+        for (Process p : clients) {
+            p.waitFor();
+        }
+        destroyAll();
+
+        final File summary = new File(outDir, "summary.txt");
+        final PrintStream out = new PrintStream(summary);
+        try {
+            summarize(clients.size(), out);
+        } finally {
+            out.close();
+        }
+        summarize(clients.size(), System.out);
+    }
+
+    void destroyAll() {
+        synchronized (processes) {
+            for (Process p : processes) {
+                p.destroy();
+            }
+        }
+    }
+
+    /**
+     * Prints the throughput and latency percentiles of the operations reported
+     * by the clients, in total and per operation type.
+     */
+    void summarize(int clients, PrintStream out) throws IOException {
+        final Map<String, LongHistogram> histograms = new TreeMap<String, LongHistogram>();
+        final LongHistogram all = new LongHistogram("ALL");
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (int i = 0; i < clients; i++) {
+            final BufferedReader br = new BufferedReader(new FileReader(new File(outDir, "client" + i + ".out")));
+            try {
+                for (String line; (line = br.readLine()) != null;) {
+                    // timestamp_ms,APP_OP,session_id,operation_name,duration_ms
+                    final String[] fields = line.split(",");
+                    if (fields.length != 5 || !fields[1].equals("APP_OP") || fields[3].equals("INIT")
+                            || fields[3].equals("TOTAL")) {
+                        continue;
+                    }
+                    final long ts, duration;
+                    try {
+                        ts = Long.parseLong(fields[0]);
+                        duration = Long.parseLong(fields[4]);
+                    } catch (NumberFormatException x) {
+                        continue;
+                    }
+                    first = Math.min(first, ts);
+                    last = Math.max(last, ts);
+                    LongHistogram h = histograms.get(fields[3]);
+                    if (h == null) {
+                        histograms.put(fields[3], h = new LongHistogram(fields[3]));
+                    }
+                    h.record(duration);
+                    all.record(duration);
+                }
+            } finally {
+                br.close();
+            }
+        }
+        final HistogramSnapshot total = all.snapshot();
+        final double seconds = Math.max(1, last - first) / 1000.0;
+        out.printf("# dcs=%d clients=%d threads=%d latency=%sms clientLatency=%sms bandwidth=%sMbit/s\n", dcs,
+                clients, threads, latencyMillis, clientLatencyMillis, bandwidthMbits > 0 ? bandwidthMbits : "-");
+        out.printf("# %d operations in %.1f s, throughput %.1f op/s\n", total.getTotalCount(), seconds,
+                total.getTotalCount() / seconds);
+        out.printf("%-24s %8s %8s %6s %6s %6s %6s %6s\n", "operation (ms)", "count", "mean", "p50", "p90", "p99",
+                "p99.9", "max");
+        for (LongHistogram h : histograms.values()) {
+            print(out, h.getName(), h.snapshot());
+        }
+        print(out, all.getName(), total);
+    }
+
+    private static void print(PrintStream out, String name, HistogramSnapshot s) {
+        out.printf("%-24s %8d %8.1f %6d %6d %6d %6d %6d\n", name, s.getTotalCount(), s.getMean(),
+                s.getValueAtPercentile(50), s.getValueAtPercentile(90), s.getValueAtPercentile(99),
+                s.getValueAtPercentile(99.9), s.getMax());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LocalCluster(args).run();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,103 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+import swift.clocks.CausalityClock;
+import swift.crdt.IntegerCRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import swift.crdt.core.CRDTOperationDependencyPolicy;
+import swift.crdt.core.ManagedCRDT;
+
+/**
+ * Microbenchmarks of {@link ManagedCRDT}, on integers with logs of
+ * {@link #LOG_SIZE} updates.
+ */
+final class ManagedCRDTBenchmarks {
+    static final int LOG_SIZE = 1000;
+    static final int ROUND = 10000;
+    static final int PRUNE_ROUND = 100;
+    static final CRDTIdentifier ID = new CRDTIdentifier("bench", "integer");
+
+    private ManagedCRDTBenchmarks() {
+    }
+
+    static List<Microbenchmark> benchmarks() {
+        return Arrays.asList(new Microbenchmark("managed.getVersion") {
+            final ManagedCRDT<IntegerCRDT> crdt = BenchData.integer(ID, LOG_SIZE);
+            // half of the log
+            final CausalityClock version = BenchData.dcClock(LOG_SIZE / 2);
+            final BenchTxn txn = new BenchTxn("reader");
+
+            @Override
+            protected Object run(int i) {
+                return crdt.getVersion(version, txn);
+            }
+        }, new Microbenchmark("managed.execute") {
+            CRDTObjectUpdatesGroup<IntegerCRDT>[] groups;
+            ManagedCRDT<IntegerCRDT> crdt;
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected void setUp() {
+                if (groups == null) {
+                    groups = new CRDTObjectUpdatesGroup[ROUND];
+                    for (int i = 0; i < ROUND; i++) {
+                        groups[i] = BenchData.increment(ID, LOG_SIZE + i);
+                    }
+                }
+                crdt = BenchData.integer(ID, LOG_SIZE);
+            }
+
+            @Override
+            protected Object run(int i) {
+                return crdt.execute(groups[i], CRDTOperationDependencyPolicy.CHECK);
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return ROUND;
+            }
+        }, new Microbenchmark("managed.prune") {
+            @SuppressWarnings("unchecked")
+            final ManagedCRDT<IntegerCRDT>[] crdts = new ManagedCRDT[PRUNE_ROUND];
+            final CausalityClock pruningPoint = BenchData.dcClock(LOG_SIZE / 2);
+
+            @Override
+            protected void setUp() {
+                for (int i = 0; i < PRUNE_ROUND; i++) {
+                    crdts[i] = BenchData.integer(ID, LOG_SIZE);
+                }
+            }
+
+            // prunes half of the log
+            @Override
+            protected Object run(int i) {
+                crdts[i].prune(pruningPoint, true);
+                return crdts[i];
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return PRUNE_ROUND;
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+/**
+ * Microbenchmark of a single operation, run by {@link MicrobenchmarkRunner}.
+ * <p>
+ * The runner measures rounds of operations: each round starts with a call to
+ * {@link #setUp()}, outside of the measurement, followed by calls to
+ * {@link #run(int)} with increasing indexes, up to
+ * {@link #maxOpsPerRound()}. Benchmarks of operations that consume or change
+ * their input, e.g., pruning or merging into a clock, prepare the input of a
+ * whole round in setUp and cap the rounds accordingly.
+ */
+public abstract class Microbenchmark {
+    private final String name;
+
+    protected Microbenchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepares the state of a round of operations; not measured.
+     */
+    protected void setUp() {
+    }
+
+    /**
+     * Runs one operation.
+     * 
+     * @param i
+     *            index of the operation in the round
+     * @return a result of the operation, consumed by the runner so that the
+     *         operation is not optimized away
+     */
+    protected abstract Object run(int i);
+
+    /**
+     * @return the maximum number of operations in a round
+     */
+    protected int maxOpsPerRound() {
+        return Integer.MAX_VALUE;
+    }
+}
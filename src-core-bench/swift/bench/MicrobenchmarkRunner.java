@@ -0,0 +1,189 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import swift.client.CacheBenchmarks;
+
+/**
+ * Runs microbenchmarks of the hot paths of the core: clocks, managed objects,
+ * sequences and sets, Kryo serialization of the largest messages and the
+ * scout cache. Each benchmark runs a number of warm-up iterations, followed
+ * by measured iterations of a fixed duration; the result is the mean time per
+ * operation over the measured iterations, with its standard deviation.
+ * <p>
+ * Usage: MicrobenchmarkRunner [-wi warmupIterations] [-i iterations] [-t
+ * iterationMillis] [regexp]
+ * <p>
+ * Only the benchmarks whose name matches the regular expression, if any, are
+ * run.
+ */
+public class MicrobenchmarkRunner {
+    public static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    public static final int DEFAULT_ITERATIONS = 10;
+    public static final int DEFAULT_ITERATION_MILLIS = 1000;
+
+    // operations between two readings of the clock
+    static final int BATCH = 16;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+
+    // last result of a measured operation, see run()
+    private Object sink;
+    volatile Object publishedSink;
+
+    public MicrobenchmarkRunner(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+    }
+
+    /**
+     * @return all the benchmarks of the suite
+     */
+    public static List<Microbenchmark> allBenchmarks() {
+        final List<Microbenchmark> res = new ArrayList<Microbenchmark>();
+        res.addAll(ClockBenchmarks.benchmarks());
+        res.addAll(ManagedCRDTBenchmarks.benchmarks());
+        res.addAll(SequenceBenchmarks.benchmarks());
+        res.addAll(SetBenchmarks.benchmarks());
+        res.addAll(KryoBenchmarks.benchmarks());
+        res.addAll(CacheBenchmarks.benchmarks());
+        return res;
+    }
+
+    /**
+     * Runs the warm-up and measured iterations of a benchmark.
+     */
+    public Result run(Microbenchmark benchmark) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(benchmark);
+        }
+        final double[] nanosPerOp = new double[iterations];
+        long ops = 0;
+        for (int i = 0; i < iterations; i++) {
+            final long[] res = iteration(benchmark);
+            nanosPerOp[i] = (double) res[0] / res[1];
+            ops += res[1];
+        }
+        return new Result(benchmark.getName(), nanosPerOp, ops);
+    }
+
+    /**
+     * Runs rounds of operations until their measured time reaches the
+     * duration of an iteration.
+     * 
+     * @return the measured time and number of operations
+     */
+    private long[] iteration(Microbenchmark benchmark) {
+        System.gc();
+        long elapsed = 0, ops = 0;
+        final int maxOps = benchmark.maxOpsPerRound();
+        while (elapsed < iterationNanos) {
+            benchmark.setUp();
+            int i = 0;
+            final long start = System.nanoTime();
+            long now = start;
+            while (i < maxOps && elapsed + now - start < iterationNanos) {
+                final int end = Math.min(maxOps, i + BATCH);
+                for (; i < end; i++) {
+                    sink = benchmark.run(i);
+                }
+                now = System.nanoTime();
+            }
+            elapsed += now - start;
+            ops += i;
+        }
+        publishedSink = sink;
+        return new long[] { elapsed, ops };
+    }
+
+    /**
+     * Result of a benchmark.
+     */
+    public static class Result {
+        final String name;
+        final double mean;
+        final double stddev;
+        final long ops;
+
+        Result(String name, double[] nanosPerOp, long ops) {
+            this.name = name;
+            this.ops = ops;
+            double sum = 0;
+            for (double v : nanosPerOp) {
+                sum += v;
+            }
+            this.mean = sum / nanosPerOp.length;
+            double squares = 0;
+            for (double v : nanosPerOp) {
+                squares += (v - mean) * (v - mean);
+            }
+            this.stddev = nanosPerOp.length > 1 ? Math.sqrt(squares / (nanosPerOp.length - 1)) : 0;
+        }
+
+        /**
+         * @return mean time per operation, in nanoseconds
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        public String toString() {
+            return String.format("%-40s %14.1f +- %10.1f ns/op %12d ops", name, mean, stddev, ops);
+        }
+    }
+
+    public static void main(String[] args) {
+        int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+        int iterations = DEFAULT_ITERATIONS;
+        int iterationMillis = DEFAULT_ITERATION_MILLIS;
+        Pattern filter = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-wi")) {
+                warmupIterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-i")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-t")) {
+                iterationMillis = Integer.parseInt(args[++i]);
+            } else {
+                filter = Pattern.compile(args[i]);
+            }
+        }
+        // keep logging of the code under test off the console
+        for (Handler h : Logger.getLogger("").getHandlers()) {
+            h.setLevel(Level.WARNING);
+        }
+
+        final MicrobenchmarkRunner runner = new MicrobenchmarkRunner(warmupIterations, iterations, iterationMillis);
+        System.out.printf("# %d warm-up iterations, %d iterations of %d ms\n", warmupIterations, iterations,
+                iterationMillis);
+        for (Microbenchmark b : allBenchmarks()) {
+            if (filter == null || filter.matcher(b.getName()).find()) {
+                System.out.println(runner.run(b));
+            }
+        }
+    }
+}
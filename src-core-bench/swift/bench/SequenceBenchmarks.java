@@ -0,0 +1,78 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import swift.crdt.SequenceCRDT;
+import swift.crdt.core.CRDTIdentifier;
+
+/**
+ * Microbenchmarks of {@link SequenceCRDT}, on documents of
+ * {@link #DOCUMENT_SIZE} lines edited at random positions.
+ */
+final class SequenceBenchmarks {
+    static final int DOCUMENT_SIZE = 10000;
+    static final int ROUND = 10000;
+    static final CRDTIdentifier ID = new CRDTIdentifier("bench", "sequence");
+
+    private SequenceBenchmarks() {
+    }
+
+    static List<Microbenchmark> benchmarks() {
+        return Arrays.asList(new Microbenchmark("sequence.insertAt") {
+            final Random rg = new Random(1L);
+            SequenceCRDT<String> seq;
+
+            @Override
+            protected void setUp() {
+                seq = BenchData.sequence(ID, rg, DOCUMENT_SIZE);
+            }
+
+            @Override
+            protected Object run(int i) {
+                seq.insertAt(rg.nextInt(seq.size() + 1), BenchData.line(i));
+                return seq;
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return ROUND;
+            }
+        }, new Microbenchmark("sequence.removeAt") {
+            final Random rg = new Random(1L);
+            SequenceCRDT<String> seq;
+
+            @Override
+            protected void setUp() {
+                seq = BenchData.sequence(ID, rg, DOCUMENT_SIZE + ROUND);
+            }
+
+            @Override
+            protected Object run(int i) {
+                return seq.removeAt(rg.nextInt(seq.size()));
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return ROUND;
+            }
+        });
+    }
+}
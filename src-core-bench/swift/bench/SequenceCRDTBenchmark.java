@@ -0,0 +1,159 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import swift.application.swiftdoc.SwiftDocOps;
+import swift.application.swiftdoc.SwiftDocPatchReplay;
+import swift.clocks.ClockFactory;
+import swift.crdt.SequenceCRDT;
+import swift.crdt.core.CRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTUpdate;
+
+/**
+ * Single process benchmark of {@link SequenceCRDT}, driven by
+ * {@link SwiftDocPatchReplay}: unlike {@link SequenceBenchmarks}, it replays
+ * the edits of a real document. Edits are applied to a local replica, which
+ * reads back a window of lines around every edit, as an editor would; the
+ * updates of each commit are then applied to a second, remote replica, which
+ * is read at random positions after every commit.
+ *
+ * The patches are replayed several times over the same document, so that the
+ * cost of each pass can be observed as the document grows.
+ *
+ * Usage: SequenceCRDTBenchmark [passes]
+ */
+public class SequenceCRDTBenchmark {
+    static final int WINDOW = 25;
+
+    public static void main(String[] args) throws Exception {
+        int passes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Replay ops = new Replay();
+        long total = 0;
+        for (int i = 0; i < passes; i++) {
+            long t0 = System.nanoTime();
+            new SwiftDocPatchReplay<String>().parseFiles(ops);
+            long elapsed = System.nanoTime() - t0;
+            total += elapsed;
+            System.out.printf("\npass %d: %d lines, %d ops, %d lookups: %.1f ms\n", i, ops.size(), ops.numOps,
+                    ops.numLookups, elapsed / 1e6);
+        }
+        System.out.printf("total: %.1f ms\n", total / 1e6);
+    }
+
+    static class Replay implements SwiftDocOps<String> {
+        final CRDTIdentifier id = new CRDTIdentifier("swiftdoc", "benchmark");
+        final StubTxn localTxn = new StubTxn("local"), remoteTxn = new StubTxn("remote");
+        final SequenceCRDT<String> local, remote;
+        final Random rg = new Random(1L);
+        long numOps, numLookups;
+
+        Replay() {
+            local = new SequenceCRDT<String>(id).copyWith(localTxn, ClockFactory.newClock());
+            remote = new SequenceCRDT<String>(id).copyWith(remoteTxn, ClockFactory.newClock());
+        }
+
+        @Override
+        public String gen(String s) {
+            return s;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void add(int i, String v) {
+            local.insertAt(i, v);
+            lookupAround(i);
+        }
+
+        @Override
+        public String get(int i) {
+            numLookups++;
+            return local.getValue().get(i);
+        }
+
+        @Override
+        public String remove(int i) {
+            String res = local.removeAt(i);
+            lookupAround(i);
+            return res;
+        }
+
+        @Override
+        public void addAll(int i, List<String> v) {
+            local.insertAllAt(i, v);
+            lookupAround(i);
+        }
+
+        @Override
+        public List<String> removeRange(int from, int to) {
+            List<String> res = local.removeRange(from, to);
+            lookupAround(from);
+            return res;
+        }
+
+        @Override
+        public int size() {
+            return local.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void commit() {
+            for (CRDTUpdate<SequenceCRDT<String>> op : localTxn.ops)
+                op.applyTo(remote);
+            numOps += localTxn.ops.size();
+            localTxn.ops.clear();
+
+            List<String> value = remote.getValue();
+            for (int j = 0; j < WINDOW; j++)
+                value.get(rg.nextInt(value.size()));
+            numLookups += WINDOW;
+        }
+
+        void lookupAround(int i) {
+            List<String> value = local.getValue();
+            int lo = Math.max(0, i - rg.nextInt(WINDOW)), hi = Math.min(value.size(), lo + WINDOW);
+            for (int j = lo; j < hi; j++)
+                value.get(j);
+            numLookups += hi - lo;
+        }
+    }
+
+    /**
+     * Transaction handle that collects the updates of the local replica.
+     */
+    @SuppressWarnings("rawtypes")
+    static class StubTxn extends BenchTxn {
+        final List<CRDTUpdate> ops = new ArrayList<CRDTUpdate>();
+
+        StubTxn(String siteId) {
+            super(siteId);
+        }
+
+        @Override
+        public <V extends CRDT<V>> void registerOperation(CRDTIdentifier id, CRDTUpdate<V> op) {
+            ops.add(op);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+import swift.crdt.AddWinsSetCRDT;
+import swift.crdt.core.CRDTIdentifier;
+
+/**
+ * Microbenchmarks of copies of {@link AddWinsSetCRDT}, as made for every read
+ * of a version of a set. Copies share the elements until their first update,
+ * so copies are also measured together with an update.
+ */
+final class SetBenchmarks {
+    static final CRDTIdentifier ID = new CRDTIdentifier("bench", "set");
+
+    private SetBenchmarks() {
+    }
+
+    static List<Microbenchmark> benchmarks() {
+        return Arrays.asList(copy(1000), copyAndAdd(10), copyAndAdd(1000));
+    }
+
+    static Microbenchmark copy(final int size) {
+        return new Microbenchmark("set.copy[" + size + "]") {
+            final AddWinsSetCRDT<Integer> set = BenchData.set(ID, size);
+
+            @Override
+            protected Object run(int i) {
+                return set.copy();
+            }
+        };
+    }
+
+    static Microbenchmark copyAndAdd(final int size) {
+        return new Microbenchmark("set.copyAndAdd[" + size + "]") {
+            final AddWinsSetCRDT<Integer> set = BenchData.set(ID, size);
+
+            @Override
+            protected Object run(int i) {
+                final AddWinsSetCRDT<Integer> copy = set.copy();
+                copy.add(-1);
+                return copy;
+            }
+        };
+    }
+}
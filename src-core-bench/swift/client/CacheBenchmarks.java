@@ -0,0 +1,96 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import swift.bench.BenchData;
+import swift.bench.Microbenchmark;
+import swift.crdt.IntegerCRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.ManagedCRDT;
+import swift.proto.MetadataStatsCollector;
+import swift.utils.DatabaseSizeStats;
+
+/**
+ * Microbenchmarks of the {@link LRUObjectsCache} of scouts, holding up to
+ * {@link #CACHE_SIZE} objects. In the package of the cache, which is not
+ * public.
+ */
+public final class CacheBenchmarks {
+    static final int CACHE_SIZE = 10000;
+    static final int LOG_SIZE = 10;
+    static final long EVICTION_TIME_MILLIS = Long.MAX_VALUE / 2;
+
+    private CacheBenchmarks() {
+    }
+
+    static LRUObjectsCache newCache() {
+        return new LRUObjectsCache(EVICTION_TIME_MILLIS, CACHE_SIZE, new DatabaseSizeStats(new MetadataStatsCollector(
+                "bench")));
+    }
+
+    @SuppressWarnings("unchecked")
+    static ManagedCRDT<IntegerCRDT>[] objects(int n) {
+        final ManagedCRDT<IntegerCRDT>[] res = new ManagedCRDT[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = BenchData.integer(new CRDTIdentifier("bench", "object" + i), LOG_SIZE);
+        }
+        return res;
+    }
+
+    public static List<Microbenchmark> benchmarks() {
+        final ManagedCRDT<IntegerCRDT>[] objects = objects(2 * CACHE_SIZE);
+        return Arrays.asList(new Microbenchmark("cache.getAndTouch") {
+            final Random rg = new Random(1L);
+            final LRUObjectsCache cache = newCache();
+            {
+                for (int i = 0; i < CACHE_SIZE; i++) {
+                    cache.add(objects[i], -1);
+                }
+            }
+
+            @Override
+            protected Object run(int i) {
+                return cache.getAndTouch(objects[rg.nextInt(CACHE_SIZE)].getUID());
+            }
+        }, new Microbenchmark("cache.addWithEviction") {
+            LRUObjectsCache cache;
+
+            @Override
+            protected void setUp() {
+                cache = newCache();
+                for (int i = 0; i < CACHE_SIZE; i++) {
+                    cache.add(objects[i], -1);
+                }
+            }
+
+            @Override
+            protected Object run(int i) {
+                cache.add(objects[CACHE_SIZE + i], -1);
+                return cache;
+            }
+
+            @Override
+            protected int maxOpsPerRound() {
+                return CACHE_SIZE;
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.clocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class SiteIdsTest {
+    private static final String SCOUT = "scout-0123456789abcdef0123456789abcdef";
+
+    @Test
+    public void internTest() {
+        final String a = new String(SCOUT);
+        final String b = new String(SCOUT);
+        assertSame(SiteIds.intern(a), SiteIds.intern(b));
+        assertSame(SiteIds.intern(a), new Timestamp(b, 1).getIdentifier());
+    }
+
+    @Test
+    public void unreferencedIdsDroppedTest() {
+        WeakReference<String> interned = new WeakReference<String>(SiteIds.intern(new String("scout-gone")));
+        for (int i = 0; i < 100 && interned.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(interned.get());
+        final String c = new String("scout-gone");
+        assertSame(c, SiteIds.intern(c));
+    }
+
+    @Test
+    public void dictionaryTest() {
+        final CausalityClock clock = ClockFactory.newClock();
+        clock.recordAllUntil(new Timestamp(SCOUT, 10));
+        clock.recordAllUntil(new Timestamp("DC", 20));
+        final ArrayList<Object> graph = new ArrayList<Object>();
+        graph.add(clock);
+        for (int i = 1; i <= 10; i++) {
+            graph.add(new Timestamp(SCOUT, i));
+            graph.add(new TripleTimestamp(new Timestamp("DC", i), i));
+        }
+
+        final Kryo kryo = new Kryo();
+        kryo.register(VersionVectorWithExceptions.class);
+        kryo.register(Timestamp.class);
+        kryo.register(TripleTimestamp.class);
+        final Output out = new Output(1024, -1);
+        kryo.writeObject(out, graph);
+        // each site id is written in full once, not 11 times
+        assertTrue(out.total() < 4 * SCOUT.length());
+
+        @SuppressWarnings("unchecked")
+        final ArrayList<Object> read = kryo.readObject(new Input(out.toBytes()), ArrayList.class);
+        assertEquals(graph, read);
+        assertSame(SiteIds.intern(SCOUT), ((Timestamp) read.get(1)).getIdentifier());
+
+        // dictionaries do not outlive the graph
+        final Output out2 = new Output(1024, -1);
+        kryo.writeObject(out2, graph);
+        assertEquals(out.total(), out2.total());
+        assertEquals(graph, kryo.readObject(new Input(out2.toBytes()), ArrayList.class));
+    }
+}
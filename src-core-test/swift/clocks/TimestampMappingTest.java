@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -139,6 +140,15 @@ public class TimestampMappingTest {
         assertFalse(a.getTimestamps().size() == aCopy.getTimestamps().size());
     }
 
+    @Test
+    public void testSnapshots() {
+        final List<Timestamp> before = a.getTimestamps();
+        a.addSystemTimestamp(SYSTEM_TIMESTAMP_1);
+        assertEquals(Collections.singletonList(CLIENT_TIMESTAMP_A), before);
+        assertEquals(Arrays.asList(CLIENT_TIMESTAMP_A, SYSTEM_TIMESTAMP_1), a.getTimestamps());
+        assertEquals(Collections.singletonList(CLIENT_TIMESTAMP_A), aCopy.getTimestamps());
+    }
+
     @Test
     public void testSelectedTimestampIsAddOrderIndependent() {
         a.addSystemTimestamp(SYSTEM_TIMESTAMP_1);
@@ -16,8 +16,11 @@
  *****************************************************************************/
 package swift.crdt;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -82,4 +85,22 @@ public class AddWinsSetTest {
         assertTrue(!i.lookup(v));
         assertTrue(!i.lookup(w));
     }
+
+    @Test
+    public void copyTest() {
+        i.add(5);
+        Set<Integer> view = i.getValue();
+        AddWinsSetCRDT<Integer> copy = i.copy();
+
+        // copies share state until updated, then diverge
+        i.add(7);
+        assertTrue(i.lookup(7) && view.contains(7));
+        assertTrue(!copy.lookup(7));
+
+        copy.remove(5);
+        assertTrue(i.lookup(5));
+        assertTrue(!copy.lookup(5));
+        assertEquals(2, i.size());
+        assertEquals(0, copy.size());
+    }
 }
@@ -514,6 +514,13 @@ public class ManagedCRDTTest {
                 // TODO Auto-generated method stub
                 return null;
             }
+
+            @Override
+            public Map<CRDTIdentifier, CRDT<?>> scan(String table, String startKey, int maxCount,
+                    boolean subscribeUpdates) {
+                // TODO Auto-generated method stub
+                return null;
+            }
         });
         assertNotNull(creationStateRef.get());
 
@@ -551,4 +558,59 @@ public class ManagedCRDTTest {
                 .getUpdatesTimestampMappingsSince(noVersioningClock).get(0));
         assertTrue(copy.isRegisteredInStore());
     }
+
+    @Test
+    public void testDelta() {
+        final CRDTObjectUpdatesGroup<AddWinsSetCRDT<Integer>> groupX1 = createUpdatesGroup("X",
+                ClockFactory.newClock(), 1);
+        a.execute(groupX1, CRDTOperationDependencyPolicy.CHECK);
+        b.execute(groupX1, CRDTOperationDependencyPolicy.CHECK);
+        final CausalityClock knownVersion = b.getClock().clone();
+
+        final CRDTObjectUpdatesGroup<AddWinsSetCRDT<Integer>> groupY2 = createUpdatesGroup("Y",
+                ClockFactory.newClock(), 2);
+        a.execute(groupY2, CRDTOperationDependencyPolicy.CHECK);
+        a.execute(createUpdatesGroup("Z", ClockFactory.newClock(), 3), CRDTOperationDependencyPolicy.CHECK);
+        // b got Y2 already, with a mapping unknown to a
+        groupY2.addSystemTimestamp(new Timestamp("DC1", 1));
+        b.execute(groupY2, CRDTOperationDependencyPolicy.CHECK);
+
+        final ManagedCRDT<AddWinsSetCRDT<Integer>> delta = a.copyDeltaSince(knownVersion, a.getClock());
+        assertTrue(delta.isDelta());
+        assertEquals(2, delta.getUpdatesTimestampMappingsSince(knownVersion).size());
+
+        b.applyDelta(delta);
+        assertEquals(CMP_CLOCK.CMP_DOMINATES, b.getClock().compareTo(a.getClock()));
+        assertEquals(3, b.getInternalLog().size());
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), b.getLatestVersion(null).getValue());
+        final CausalityClock referenceViaMapping = knownVersion.clone();
+        referenceViaMapping.record(new Timestamp("DC1", 1));
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), b.getVersion(referenceViaMapping, null).getValue());
+
+        // idempotence
+        b.applyDelta(delta);
+        assertEquals(3, b.getInternalLog().size());
+    }
+
+    @Test
+    public void testDeltaNotAvailable() {
+        final CausalityClock knownVersion = a.getClock().clone();
+        final CRDTObjectUpdatesGroup<AddWinsSetCRDT<Integer>> groupX1 = createUpdatesGroup("X",
+                ClockFactory.newClock(), 1);
+        groupX1.addSystemTimestamp(new Timestamp("DC1", 1));
+        a.execute(groupX1, CRDTOperationDependencyPolicy.CHECK);
+        a.prune(a.getClock().clone(), true);
+        assertEquals(null, a.copyDeltaSince(knownVersion, a.getClock()));
+
+        final CausalityClock newerVersion = a.getClock().clone();
+        a.execute(createUpdatesGroup("Y", ClockFactory.newClock(), 2), CRDTOperationDependencyPolicy.CHECK);
+        final ManagedCRDT<AddWinsSetCRDT<Integer>> delta = a.copyDeltaSince(newerVersion, a.getClock());
+        try {
+            // b does not hold the base version of the delta
+            b.applyDelta(delta);
+            fail();
+        } catch (IllegalStateException x) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import swift.clocks.IncrementalTimestampGenerator;
+import swift.clocks.IncrementalTripleTimestampGenerator;
+import swift.clocks.TripleTimestamp;
+import swift.crdt.core.CRDTIdentifier;
+
+public class MapTest {
+    MapCRDT<String, Integer> map;
+    IncrementalTripleTimestampGenerator tsGenerator;
+
+    @Before
+    public void setUp() {
+        map = new MapCRDT<String, Integer>(new CRDTIdentifier("A", "Map"));
+        tsGenerator = new IncrementalTripleTimestampGenerator(new IncrementalTimestampGenerator("client")
+                .generateNew());
+    }
+
+    @Test
+    public void putRemoveTest() {
+        TripleTimestamp ts1 = tsGenerator.generateNew();
+        TripleTimestamp ts2 = tsGenerator.generateNew();
+        map.applyPut("k", 1, ts1, null);
+        map.applyPut("k", 2, ts2, null);
+        assertEquals(2, map.getValue().get("k").size());
+
+        map.removeU("k", 1, null, Collections.singleton(ts1));
+        assertEquals(Collections.singleton(2), map.getValue().get("k"));
+
+        map.removeU("k", 2, null, Collections.singleton(ts2));
+        assertTrue(map.getValue().isEmpty());
+        // no trace of the removed key is kept
+        assertTrue(map.keysToElementsInstances.isEmpty());
+    }
+
+    @Test
+    public void removeAbsentTest() {
+        TripleTimestamp ts1 = tsGenerator.generateNew();
+        map.removeU("k", 1, null, Collections.singleton(ts1));
+        assertTrue(map.keysToElementsInstances.isEmpty());
+
+        // removals of instances already removed are no-ops
+        Map<Integer, Set<TripleTimestamp>> instances = new HashMap<Integer, Set<TripleTimestamp>>();
+        AddWinsUtils.add(instances, 1, ts1);
+        AddWinsUtils.applyRemove(instances, 1, Collections.singleton(ts1));
+        AddWinsUtils.applyRemove(instances, 1, Collections.singleton(ts1));
+        assertTrue(instances.isEmpty());
+    }
+}
@@ -0,0 +1,303 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.ClockFactory;
+import swift.clocks.IncrementalTripleTimestampGenerator;
+import swift.clocks.Timestamp;
+import swift.clocks.TripleTimestamp;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.ManagedCRDT;
+import swift.exceptions.SwiftException;
+
+public class SequenceTest {
+    CRDTIdentifier id = new CRDTIdentifier("A", "Seq");
+    SwiftTester swift1, swift2;
+    TxnTester txn1, txn2;
+    SequenceCRDT<String> seq1, seq2;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws SwiftException {
+        swift1 = new SwiftTester("client1");
+        swift2 = new SwiftTester("client2");
+        txn1 = swift1.beginTxn(new ManagedCRDT<SequenceCRDT<String>>(id, new SequenceCRDT<String>(id), ClockFactory
+                .newClock(), true));
+        txn2 = swift2.beginTxn(new ManagedCRDT<SequenceCRDT<String>>(id, new SequenceCRDT<String>(id), ClockFactory
+                .newClock(), true));
+        seq1 = (SequenceCRDT<String>) txn1.get(id, false, SequenceCRDT.class);
+        seq2 = (SequenceCRDT<String>) txn2.get(id, false, SequenceCRDT.class);
+    }
+
+    @Test
+    public void initTest() {
+        assertTrue(seq1.getValue().isEmpty());
+        assertEquals(0, seq1.size());
+    }
+
+    @Test
+    public void insertRemoveTest() {
+        List<String> expected = new ArrayList<String>();
+        Random rg = new Random(1L);
+        for (int i = 0; i < 2000; i++) {
+            if (expected.isEmpty() || rg.nextInt(3) > 0) {
+                int pos = rg.nextInt(expected.size() + 1);
+                seq1.insertAt(pos, "v" + i);
+                expected.add(pos, "v" + i);
+            } else {
+                int pos = rg.nextInt(expected.size());
+                assertEquals(expected.remove(pos), seq1.removeAt(pos));
+            }
+            assertEquals(expected.size(), seq1.size());
+        }
+        assertEquals(expected, seq1.getValue());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i), seq1.getValue().get(i));
+    }
+
+    @Test
+    public void remoteUpdatesTest() {
+        for (int i = 0; i < 10; i++)
+            seq1.insertAt(i, "a" + i);
+        for (int i = 0; i < 10; i++)
+            seq2.insertAt(i, "b" + i);
+
+        // the view is built before remote updates arrive, and kept up to date
+        List<String> view = seq1.getValue();
+        assertEquals(10, view.size());
+
+        apply(txn2, seq1);
+        assertEquals(20, view.size());
+        apply(txn1, seq2);
+        assertEquals(seq2.getValue(), seq1.getValue());
+
+        seq1.removeAt(5);
+        seq1.insertAt(0, "c");
+        assertEquals(20, seq1.size());
+        assertEquals("c", view.get(0));
+    }
+
+    @Test
+    public void positionIdsTest() {
+        Random rg = new Random(1L);
+        IncrementalTripleTimestampGenerator stamps = new IncrementalTripleTimestampGenerator(new Timestamp("A", 1));
+
+        // identifiers grow logarithmically under sequential typing
+        SequenceCRDT.SID last = null;
+        for (int i = 0; i < 1000; i++) {
+            SequenceCRDT.SID next = SequenceCRDT.SID.between(last, null, stamps.generateNew(), rg);
+            assertTrue(last == null || last.compareTo(next) < 0);
+            last = next;
+        }
+        assertTrue(last.depth() <= 10);
+
+        // repeated insertions in the same gap go past the packed levels
+        SequenceCRDT.SID lo = SequenceCRDT.SID.between(null, null, stamps.generateNew(), rg);
+        SequenceCRDT.SID hi = SequenceCRDT.SID.between(lo, null, stamps.generateNew(), rg);
+        for (int i = 0; i < 200; i++) {
+            SequenceCRDT.SID mid = SequenceCRDT.SID.between(lo, hi, stamps.generateNew(), rg);
+            assertTrue(lo.compareTo(mid) < 0 && mid.compareTo(hi) < 0);
+            assertEquals(mid, roundTrip(mid));
+            if (i % 2 == 0)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        assertTrue(lo.depth() > SequenceCRDT.SID.PACKED_LEVELS);
+        assertEquals(lo.toString(), roundTrip(lo).toString());
+    }
+
+    @Test
+    public void concurrentInsertTest() {
+        // two replicas drawing the same digits in the same gap
+        TripleTimestamp tsA = new IncrementalTripleTimestampGenerator(new Timestamp("A", 1)).generateNew();
+        TripleTimestamp tsB = new IncrementalTripleTimestampGenerator(new Timestamp("B", 1)).generateNew();
+        TripleTimestamp tsC = new IncrementalTripleTimestampGenerator(new Timestamp("C", 1)).generateNew();
+        SequenceCRDT.SID a = SequenceCRDT.SID.between(null, null, tsA, new Random(1L));
+        SequenceCRDT.SID b = SequenceCRDT.SID.between(null, null, tsB, new Random(1L));
+        assertEquals(a.toString(), b.toString());
+        assertTrue(a.compareTo(b) < 0);
+        SequenceCRDT.SID mid = SequenceCRDT.SID.between(roundTrip(a), roundTrip(b), tsC, new Random(1L));
+        assertTrue(a.compareTo(mid) < 0 && mid.compareTo(b) < 0);
+
+        // insertions between the merged atoms land where they are made
+        for (int i = 0; i < 2; i++) {
+            seq1.insertAt(i, "a" + i);
+            seq2.insertAt(i, "b" + i);
+        }
+        apply(txn2, seq1);
+        apply(txn1, seq2);
+        assertEquals(seq1.getValue(), seq2.getValue());
+        for (int i = 1; i < 4; i++) {
+            seq1.insertAt(i, "x" + i);
+            assertEquals("x" + i, seq1.getValue().get(i));
+            seq1.removeAt(i);
+        }
+    }
+
+    @Test
+    public void rangeTest() {
+        List<String> expected = new ArrayList<String>();
+        Random rg = new Random(1L);
+        int numOps = 0;
+        for (int i = 0; i < 200; i++) {
+            if (expected.isEmpty() || rg.nextInt(3) > 0) {
+                int pos = rg.nextInt(expected.size() + 1);
+                List<String> block = new ArrayList<String>();
+                for (int j = rg.nextInt(50); j >= 0; j--)
+                    block.add("v" + i + "." + j);
+                seq1.insertAllAt(pos, block);
+                expected.addAll(pos, block);
+                numOps++;
+            } else {
+                int from = rg.nextInt(expected.size());
+                int to = from + rg.nextInt(Math.min(20, expected.size() - from) + 1);
+                List<String> removed = new ArrayList<String>(expected.subList(from, to));
+                expected.subList(from, to).clear();
+                assertEquals(removed, seq1.removeRange(from, to));
+                if (to > from)
+                    numOps++;
+            }
+            assertEquals(expected, seq1.getValue());
+        }
+        // one operation per non-empty range
+        assertEquals(numOps, txn1.operations.get(id).getOperations().size());
+
+        apply(txn1, seq2);
+        assertEquals(expected, seq2.getValue());
+    }
+
+    @Test
+    public void removeRangeBoundsTest() {
+        List<String> block = new ArrayList<String>();
+        for (int i = 0; i < 10; i++)
+            block.add("line" + i);
+        seq1.insertAllAt(0, block);
+
+        int[][] ranges = { { -1, 5 }, { 5, 11 }, { 6, 5 } };
+        for (int[] range : ranges) {
+            try {
+                seq1.removeRange(range[0], range[1]);
+                fail("Expected rejection of range " + range[0] + ".." + range[1]);
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+        // nothing deleted, no operation registered
+        assertEquals(block, seq1.getValue());
+        assertEquals(1, txn1.operations.get(id).getOperations().size());
+
+        assertTrue(seq1.removeRange(10, 10).isEmpty());
+        assertEquals(block.subList(0, 5), seq1.removeRange(0, 5));
+    }
+
+    @Test
+    public void concurrentRangeTest() {
+        // two replicas drawing the same digits in the same gap
+        TripleTimestamp tsA = new IncrementalTripleTimestampGenerator(new Timestamp("A", 1)).generateNew();
+        TripleTimestamp tsB = new IncrementalTripleTimestampGenerator(new Timestamp("B", 1)).generateNew();
+        SequenceCRDT.SID a = SequenceCRDT.SID.between(null, null, 4, tsA, new Random(1L));
+        SequenceCRDT.SID b = SequenceCRDT.SID.between(null, null, 4, tsB, new Random(1L));
+        assertTrue(a.plus(3).compareTo(b) < 0);
+
+        List<String> blockA = new ArrayList<String>(), blockB = new ArrayList<String>();
+        for (int i = 1; i <= 4; i++) {
+            blockA.add("a" + i);
+            blockB.add("b" + i);
+        }
+        seq1.insertAllAt(0, blockA);
+        seq2.insertAllAt(0, blockB);
+        apply(txn2, seq1);
+        apply(txn1, seq2);
+        assertEquals(seq1.getValue(), seq2.getValue());
+
+        List<String> merged = seq1.getValue();
+        List<String> expected = new ArrayList<String>(merged.get(0).equals("a1") ? blockA : blockB);
+        expected.addAll(merged.get(0).equals("a1") ? blockB : blockA);
+        assertEquals(expected, merged);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void rangeEncodingTest() {
+        List<String> block = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++)
+            block.add("line" + i);
+        seq1.insertAllAt(0, block);
+        seq1.insertAt(500, "x");
+        seq1.removeRange(400, 600);
+
+        CRDTObjectUpdatesGroup grp = txn1.operations.get(id);
+        List<CRDTUpdate> ops = (List<CRDTUpdate>) grp.getOperations();
+        SequenceInsertRangeUpdate<String> insert = (SequenceInsertRangeUpdate<String>) ops.get(0);
+        SequenceRemoveRangeUpdate<String> remove = (SequenceRemoveRangeUpdate<String>) ops.get(2);
+
+        Kryo kryo = new Kryo();
+        Output out = new Output(1 << 16, -1);
+        remove.write(kryo, out);
+        // two runs of the block, around the single insertion
+        assertTrue(out.total() < 100);
+        SequenceRemoveRangeUpdate<String> remove2 = new SequenceRemoveRangeUpdate<String>();
+        remove2.read(kryo, new Input(out.toBytes()));
+
+        kryo = new Kryo();
+        out = new Output(1 << 16, -1);
+        insert.write(kryo, out);
+        SequenceInsertRangeUpdate<String> insert2 = new SequenceInsertRangeUpdate<String>();
+        insert2.read(kryo, new Input(out.toBytes()));
+
+        insert2.applyTo(seq2);
+        assertEquals(block, seq2.getValue());
+        ops.get(1).applyTo(seq2);
+        remove2.applyTo(seq2);
+        assertEquals(seq1.getValue(), seq2.getValue());
+        assertEquals(801, seq2.size());
+    }
+
+    private SequenceCRDT.SID roundTrip(SequenceCRDT.SID id) {
+        Kryo kryo = new Kryo();
+        Output out = new Output(64, -1);
+        id.write(kryo, out);
+        SequenceCRDT.SID res = new SequenceCRDT.SID();
+        res.read(kryo, new Input(out.toBytes()));
+        return res;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void apply(TxnTester from, SequenceCRDT<String> to) {
+        CRDTObjectUpdatesGroup grp = from.operations.get(id);
+        for (CRDTUpdate op : (List<CRDTUpdate>) grp.getOperations())
+            op.applyTo(to);
+    }
+}
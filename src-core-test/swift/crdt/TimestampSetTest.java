@@ -0,0 +1,76 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.IncrementalTimestampGenerator;
+import swift.clocks.IncrementalTripleTimestampGenerator;
+import swift.clocks.TripleTimestamp;
+
+public class TimestampSetTest {
+    TripleTimestamp ts1, ts2, ts3;
+
+    @Before
+    public void setUp() {
+        IncrementalTripleTimestampGenerator gen = new IncrementalTripleTimestampGenerator(
+                new IncrementalTimestampGenerator("client").generateNew());
+        ts1 = gen.generateNew();
+        ts2 = gen.generateNew();
+        ts3 = gen.generateNew();
+    }
+
+    @Test
+    public void updatesTest() {
+        TimestampSet s1 = TimestampSet.of(ts1);
+        assertEquals(Collections.singleton(ts1), s1);
+        assertSame(s1, s1.with(ts1));
+        assertSame(s1, s1.without(Collections.singleton(ts2)));
+
+        TimestampSet s3 = s1.with(ts2).with(ts3);
+        assertEquals(new HashSet<TripleTimestamp>(Arrays.asList(ts1, ts2, ts3)), s3);
+        assertEquals(1, s1.size());
+
+        assertEquals(Collections.singleton(ts2), s3.without(Arrays.asList(ts1, ts3)));
+        assertTrue(s3.without(s3).isEmpty());
+        assertEquals(s3, TimestampSet.copyOf(new HashSet<TripleTimestamp>(s3)));
+    }
+
+    @Test
+    public void serializationTest() {
+        for (TimestampSet s : Arrays.asList(TimestampSet.EMPTY, TimestampSet.of(ts1), TimestampSet.of(ts1).with(ts2))) {
+            Output out = new Output(64, -1);
+            s.write(new Kryo(), out);
+            TimestampSet res = new TimestampSet();
+            res.read(new Kryo(), new Input(out.toBytes()));
+            assertEquals(s, res);
+        }
+    }
+}
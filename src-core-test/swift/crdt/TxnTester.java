@@ -206,4 +206,10 @@ public class TxnTester implements TxnHandle {
         return null;
     }
 
+    @Override
+    public Map<CRDTIdentifier, CRDT<?>> scan(String table, String startKey, int maxCount, boolean subscribeUpdates) {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
 }
@@ -0,0 +1,112 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.Timestamp;
+import swift.clocks.TimestampMapping;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import swift.crdt.core.CRDTUpdate;
+
+public class UpdatesGroupTest {
+    private static final CRDTIdentifier ID = new CRDTIdentifier("my", "integer");
+
+    CRDTObjectUpdatesGroup<IntegerCRDT> group;
+
+    @Before
+    public void setUp() {
+        group = new CRDTObjectUpdatesGroup<IntegerCRDT>(ID, new TimestampMapping(new Timestamp("scout", 1)), null,
+                null);
+        group.append(new IntegerUpdate(1));
+    }
+
+    @Test
+    public void freezeTest() {
+        assertFalse(group.isFrozen());
+        group.freeze();
+        assertTrue(group.isFrozen());
+        final List<CRDTUpdate<IntegerCRDT>> ops = group.getOperations();
+        assertSame(ops, group.getOperations());
+        try {
+            group.append(new IntegerUpdate(2));
+            fail("Expected a frozen group to reject appends");
+        } catch (IllegalStateException x) {
+            // expected
+        }
+        assertEquals(1, group.getOperations().size());
+    }
+
+    @Test
+    public void copyTest() {
+        final CRDTObjectUpdatesGroup<IntegerCRDT> copy = group.strippedWithCopiedTimestampMappings();
+        assertTrue(copy.isFrozen());
+        group.append(new IntegerUpdate(2));
+        group.addSystemTimestamp(new Timestamp("DC", 1));
+        assertEquals(3, ((IntegerUpdate) group.getOperations().get(0)).getVal());
+        assertEquals(1, ((IntegerUpdate) copy.getOperations().get(0)).getVal());
+        assertEquals(1, copy.getTimestamps().size());
+    }
+
+    @Test
+    public void coalesceTest() {
+        group.append(new IntegerUpdate(2));
+        group.append(new IntegerUpdate(-5));
+        assertEquals(1, group.getOperations().size());
+        assertEquals(-2, ((IntegerUpdate) group.getOperations().get(0)).getVal());
+
+        final CRDTObjectUpdatesGroup<UpperBoundCounterCRDT> counter = new CRDTObjectUpdatesGroup<UpperBoundCounterCRDT>(
+                ID, new TimestampMapping(new Timestamp("scout", 2)), null, null);
+        counter.append(new BoundedCounterIncrement<UpperBoundCounterCRDT>("a", 1));
+        counter.append(new BoundedCounterIncrement<UpperBoundCounterCRDT>("a", 2));
+        counter.append(new BoundedCounterIncrement<UpperBoundCounterCRDT>("b", 4));
+        counter.append(new BoundedCounterDecrement<UpperBoundCounterCRDT>("b", 1));
+        counter.append(new BoundedCounterIncrement<UpperBoundCounterCRDT>("b", 1));
+        assertEquals(4, counter.getOperations().size());
+
+        final UpperBoundCounterCRDT coalesced = new UpperBoundCounterCRDT(ID);
+        counter.applyTo(coalesced);
+        assertEquals(7, (int) coalesced.getValue());
+    }
+
+    @Test
+    public void serializationTest() {
+        final Kryo kryo = new Kryo();
+        final Output out = new Output(1024, -1);
+        kryo.writeObject(out, group);
+        @SuppressWarnings("unchecked")
+        final CRDTObjectUpdatesGroup<IntegerCRDT> read = kryo.readObject(new Input(out.toBytes()),
+                CRDTObjectUpdatesGroup.class);
+        assertTrue(read.isFrozen());
+        assertEquals(1, read.getOperations().size());
+        assertEquals(group.getTimestamps(), read.getTimestamps());
+    }
+}
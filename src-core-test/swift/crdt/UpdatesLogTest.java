@@ -0,0 +1,177 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.clocks.Timestamp;
+import swift.clocks.TimestampMapping;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import swift.crdt.core.UpdatesLog;
+
+public class UpdatesLogTest {
+    private static final CRDTIdentifier ID = new CRDTIdentifier("my", "integer");
+
+    UpdatesLog<IntegerCRDT> log;
+    List<CRDTObjectUpdatesGroup<IntegerCRDT>> groups;
+    Random rg;
+
+    @Before
+    public void setUp() {
+        log = new UpdatesLog<IntegerCRDT>();
+        groups = new ArrayList<CRDTObjectUpdatesGroup<IntegerCRDT>>();
+        rg = new Random(1L);
+
+        // updates of 4 scouts, committed in order at 2 DCs; a few are not
+        // committed yet
+        final long[] scoutCounters = new long[4];
+        final long[] dcCounters = new long[2];
+        for (int i = 0; i < 500; i++) {
+            final int scout = rg.nextInt(scoutCounters.length);
+            final CRDTObjectUpdatesGroup<IntegerCRDT> group = new CRDTObjectUpdatesGroup<IntegerCRDT>(ID,
+                    new TimestampMapping(new Timestamp("scout" + scout, ++scoutCounters[scout])), null, null);
+            if (i < 450) {
+                final int dc = rg.nextInt(dcCounters.length);
+                group.addSystemTimestamp(new Timestamp("DC" + dc, ++dcCounters[dc]));
+            }
+            log.add(group);
+            groups.add(group);
+        }
+    }
+
+    @Test
+    public void includedTest() {
+        for (int i = 0; i < 100; i++) {
+            final CausalityClock clock = randomClock();
+            final List<CRDTObjectUpdatesGroup<IntegerCRDT>> included = new ArrayList<CRDTObjectUpdatesGroup<IntegerCRDT>>();
+            final List<CRDTObjectUpdatesGroup<IntegerCRDT>> notIncluded = new ArrayList<CRDTObjectUpdatesGroup<IntegerCRDT>>();
+            for (final CRDTObjectUpdatesGroup<IntegerCRDT> group : groups) {
+                (group.anyTimestampIncluded(clock) ? included : notIncluded).add(group);
+            }
+            assertEquals(included, log.getIncluded(clock));
+            assertEquals(notIncluded, log.getNotIncluded(clock));
+        }
+    }
+
+    @Test
+    public void clientTimestampTest() {
+        for (final CRDTObjectUpdatesGroup<IntegerCRDT> group : groups) {
+            assertSame(group, log.getByClientTimestamp(group.getClientTimestamp()));
+        }
+        assertNull(log.getByClientTimestamp(new Timestamp("scout0", 1000)));
+    }
+
+    @Test
+    public void mergeSystemTimestampsTest() {
+        final CRDTObjectUpdatesGroup<IntegerCRDT> last = groups.get(groups.size() - 1);
+        final CausalityClock clock = ClockFactory.newClock();
+        clock.record(new Timestamp("DC2", 1));
+        assertTrue(log.getIncluded(clock).isEmpty());
+
+        final CRDTObjectUpdatesGroup<IntegerCRDT> committed = new CRDTObjectUpdatesGroup<IntegerCRDT>(ID,
+                new TimestampMapping(last.getClientTimestamp()), null, null);
+        committed.addSystemTimestamp(new Timestamp("DC2", 1));
+        assertTrue(log.mergeSystemTimestamps(committed));
+        assertEquals(1, log.getIncluded(clock).size());
+        assertSame(last, log.getIncluded(clock).get(0));
+    }
+
+    @Test
+    public void removeTest() {
+        final CausalityClock clock = randomClock();
+        final List<CRDTObjectUpdatesGroup<IntegerCRDT>> included = log.getIncluded(clock);
+        final List<CRDTObjectUpdatesGroup<IntegerCRDT>> notIncluded = log.getNotIncluded(clock);
+
+        assertEquals(included, log.removeIncluded(clock));
+        assertEquals(notIncluded, log);
+        assertTrue(log.getIncluded(clock).isEmpty());
+        for (final CRDTObjectUpdatesGroup<IntegerCRDT> group : notIncluded) {
+            assertSame(group, log.getByClientTimestamp(group.getClientTimestamp()));
+        }
+        for (final CRDTObjectUpdatesGroup<IntegerCRDT> group : included) {
+            assertNull(log.getByClientTimestamp(group.getClientTimestamp()));
+        }
+
+        assertEquals(notIncluded, log.removeNotIncluded(clock));
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    public void cutTest() {
+        for (int k = 0; k <= groups.size(); k += 50) {
+            final CausalityClock clock = prefixClock(k);
+            assertEquals(groups.subList(0, k), log.getIncluded(clock));
+            assertEquals(groups.subList(k, groups.size()), log.getNotIncluded(clock));
+        }
+
+        // removing prefixes and suffixes keeps the indexes consistent
+        assertEquals(groups.subList(0, 100), log.removeIncluded(prefixClock(100)));
+        assertEquals(groups.subList(400, 500), log.removeNotIncluded(prefixClock(400)));
+        assertEquals(groups.subList(100, 400), log);
+        final CRDTObjectUpdatesGroup<IntegerCRDT> group = new CRDTObjectUpdatesGroup<IntegerCRDT>(ID,
+                new TimestampMapping(new Timestamp("scout4", 1)), null, null);
+        log.add(group);
+        assertSame(group, log.getByClientTimestamp(group.getClientTimestamp()));
+        for (final CRDTObjectUpdatesGroup<IntegerCRDT> g : groups.subList(100, 400)) {
+            assertSame(g, log.getByClientTimestamp(g.getClientTimestamp()));
+        }
+        assertEquals(groups.subList(100, 300), log.getIncluded(prefixClock(300)));
+        assertEquals(groups.subList(100, 300), log.removeIncluded(prefixClock(300)));
+        assertEquals(groups.subList(300, 400), log.subList(0, 100));
+        assertSame(group, log.get(100));
+    }
+
+    // the timestamps of the first k groups, which include no later group
+    private CausalityClock prefixClock(int k) {
+        final CausalityClock clock = ClockFactory.newClock();
+        for (final CRDTObjectUpdatesGroup<IntegerCRDT> group : groups.subList(0, k)) {
+            for (final Timestamp ts : group.getTimestamps()) {
+                clock.recordAllUntil(ts);
+            }
+        }
+        return clock;
+    }
+
+    // a random prefix of each DC and scout, with a few holes
+    private CausalityClock randomClock() {
+        final CausalityClock clock = ClockFactory.newClock();
+        for (final String site : new String[] { "DC0", "DC1", "scout0", "scout1", "scout2", "scout3" }) {
+            if (rg.nextInt(4) == 0) {
+                continue;
+            }
+            final int latest = rg.nextInt(250) + 1;
+            clock.recordAllUntil(new Timestamp(site, latest));
+            for (int j = 0; j < 3; j++) {
+                clock.drop(new Timestamp(site, rg.nextInt(latest) + 1));
+            }
+        }
+        return clock;
+    }
+}
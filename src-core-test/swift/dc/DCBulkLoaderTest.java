@@ -0,0 +1,140 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.dc;
+
+import static sys.net.api.Networking.Networking;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.clocks.Timestamp;
+import swift.crdt.IntegerCRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.dc.db.DCNodeDatabase;
+import sys.dht.DHT_Node;
+import sys.net.api.Endpoint;
+
+public class DCBulkLoaderTest {
+    private static final CRDTIdentifier ID = new CRDTIdentifier("t", "x");
+    private static final Endpoint A = Networking.resolve("10.0.0.1", DCConstants.SURROGATE_PORT);
+    private static final Endpoint B = Networking.resolve("10.0.0.2", DCConstants.SURROGATE_PORT);
+
+    MemoryDatabase db;
+    CausalityClock clock;
+
+    @Before
+    public void setUp() {
+        db = new MemoryDatabase();
+        clock = ClockFactory.newClock();
+        clock.record(new Timestamp("DC", 1));
+    }
+
+    @Test
+    public void loadOverExistingTest() {
+        // preloaded offline, only in the database
+        assertEquals(1, DCBulkLoader.load(Collections.<Endpoint, DCNodeDatabase> singletonMap(A, db),
+                Arrays.asList(new IntegerCRDT(ID)).iterator()));
+        final CRDTData<?> preloaded = db.read(ID);
+
+        assertFalse(DCBulkLoader.loadIfAbsent(db, new IntegerCRDT(ID), clock));
+        assertSame(preloaded, db.read(ID));
+    }
+
+    @Test
+    public void loadPartitionedTest() {
+        final MemoryDatabase otherDb = new MemoryDatabase();
+        final Map<Endpoint, DCNodeDatabase> dbs = new HashMap<Endpoint, DCNodeDatabase>();
+        dbs.put(A, db);
+        dbs.put(B, otherDb);
+        final List<IntegerCRDT> states = new ArrayList<IntegerCRDT>();
+        final List<CRDTIdentifier> ids = new ArrayList<CRDTIdentifier>();
+        for (int i = 0; i < 2500; i++) {
+            states.add(new IntegerCRDT(new CRDTIdentifier("t", "x" + i)));
+            ids.add(states.get(i).getUID());
+        }
+        assertEquals(states.size(), DCBulkLoader.load(dbs, states.iterator()));
+
+        // each object is stored only at the node that owns it
+        final Map<Endpoint, List<Integer>> owners = DHT_Node.partition(dbs.keySet(), ids);
+        assertEquals(2, owners.size());
+        for (Map.Entry<Endpoint, List<Integer>> e : owners.entrySet()) {
+            final MemoryDatabase owner = (MemoryDatabase) dbs.get(e.getKey());
+            assertEquals(e.getValue().size(), owner.objects.size());
+            for (int i : e.getValue())
+                assertNotNull(owner.read(ids.get(i)));
+        }
+    }
+
+    @Test
+    public void loadNewTest() {
+        assertTrue(DCBulkLoader.loadIfAbsent(db, new IntegerCRDT(ID), clock));
+        assertFalse(db.read(ID).isEmpty());
+        assertEquals(clock, db.read(ID).clock);
+
+        // empty entries do not count as existing objects
+        db.write(ID, new CRDTData<IntegerCRDT>(ID));
+        assertTrue(DCBulkLoader.loadIfAbsent(db, new IntegerCRDT(ID), clock));
+    }
+
+    static class MemoryDatabase implements DCNodeDatabase {
+        final Map<CRDTIdentifier, CRDTData<?>> objects = new HashMap<CRDTIdentifier, CRDTData<?>>();
+        final Map<String, Object> sysData = new HashMap<String, Object>();
+
+        public void sync(boolean flag) {
+        }
+
+        public boolean ramOnly() {
+            return true;
+        }
+
+        public void init(Properties props) {
+        }
+
+        public CRDTData<?> read(CRDTIdentifier id) {
+            return objects.get(id);
+        }
+
+        public boolean write(CRDTIdentifier id, CRDTData<?> data) {
+            objects.put(id, data);
+            return true;
+        }
+
+        public Object readSysData(String table, String key) {
+            return sysData.get(table + "/" + key);
+        }
+
+        public boolean writeSysData(String table, String key, Object data) {
+            sysData.put(table + "/" + key, data);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.dc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import swift.crdt.core.CRDTIdentifier;
+import swift.dc.DCBulkLoaderTest.MemoryDatabase;
+
+public class KeyIndexTest {
+    KeyIndex index;
+
+    @Before
+    public void setUp() {
+        index = new KeyIndex();
+        for (String key : new String[] { "d", "b", "a", "c", "b" }) {
+            index.add(new CRDTIdentifier("t", key));
+        }
+        index.add(new CRDTIdentifier("u", "z"));
+    }
+
+    @Test
+    public void scanTest() {
+        assertEquals(Arrays.asList("a", "b", "c", "d"), index.scan("t", null, 10));
+        assertEquals(Arrays.asList("b", "c"), index.scan("t", "b", 2));
+        assertEquals(Arrays.asList("c", "d"), index.scan("t", "bb", 10));
+        assertTrue(index.scan("t", "e", 10).isEmpty());
+        assertEquals(Arrays.asList("z"), index.scan("u", null, 10));
+        assertTrue(index.scan("v", null, 10).isEmpty());
+    }
+
+    @Test
+    public void mergeTest() {
+        final List<List<String>> pages = new ArrayList<List<String>>();
+        pages.add(Arrays.asList("a", "d", "e"));
+        pages.add(Arrays.asList("b", "c"));
+        pages.add(new ArrayList<String>());
+
+        final List<CRDTIdentifier> ids = KeyIndex.merge("t", pages, 4);
+        assertEquals(4, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(new CRDTIdentifier("t", "abcd".substring(i, i + 1)), ids.get(i));
+        }
+    }
+
+    @Test
+    public void saveLoadTest() {
+        final Set<String> written = new TreeSet<String>();
+        final MemoryDatabase db = new MemoryDatabase() {
+            public boolean writeSysData(String table, String key, Object data) {
+                written.add(key);
+                return super.writeSysData(table, key, data);
+            }
+        };
+        final KeyIndex first = new KeyIndex();
+        for (int i = 0; i < KeyIndex.SEGMENT_SIZE + 1; i++) {
+            first.add(new CRDTIdentifier("t", String.format("k%05d", i)));
+        }
+        first.save(db);
+        assertTrue(written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:0"));
+        assertTrue(written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:1"));
+
+        // only the last segment is rewritten
+        written.clear();
+        first.add(new CRDTIdentifier("t", "a"));
+        first.save(db);
+        assertTrue(!written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:0"));
+        assertTrue(written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:1"));
+
+        // nothing is written when nothing was added
+        written.clear();
+        first.add(new CRDTIdentifier("t", "a"));
+        first.save(db);
+        assertTrue(written.isEmpty());
+
+        final KeyIndex second = new KeyIndex();
+        second.load(db);
+        assertEquals(first.scan("t", null, Integer.MAX_VALUE), second.scan("t", null, Integer.MAX_VALUE));
+
+        // a loaded index appends to its last segment
+        written.clear();
+        second.add(new CRDTIdentifier("t", "b"));
+        second.save(db);
+        assertTrue(!written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:0"));
+        assertTrue(written.contains(KeyIndex.TABLE_KEY_PREFIX + "t:1"));
+        final KeyIndex third = new KeyIndex();
+        third.load(db);
+        assertEquals(KeyIndex.SEGMENT_SIZE + 3, third.scan("t", null, Integer.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,54 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.clocks.Timestamp;
+import swift.utils.EventLog.Event;
+
+public class EventLogTest {
+
+    @Test
+    public void clockSummaryTest() {
+        Logger.getLogger("swift.client.SwiftImpl").setLevel(Level.OFF);
+        final CausalityClock clock = ClockFactory.newClock();
+        clock.record(new Timestamp("recorded", 1));
+        final String recorded = EventLog.summary(clock);
+        EventLog.record(Event.SCOUT_SNAPSHOT_INCLUDES_SCOUT, "scout-snapshot-test", clock);
+        // the caller keeps updating its clock
+        clock.record(new Timestamp("later", 1));
+        final String later = EventLog.summary(clock);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EventLog.dump(new PrintStream(out));
+        final String dump = out.toString();
+        assertTrue(dump.contains("scout-snapshot-test"));
+        assertTrue(dump.contains(recorded));
+        assertFalse(dump.contains(later));
+    }
+}
@@ -0,0 +1,114 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import sys.stats.metrics.HistogramSnapshot;
+
+public class LoadGeneratorTest {
+
+    // runs a fixed number of operations, sleeping for each, every 5th fails
+    static class SleepingWorker implements LoadGenerator.Worker {
+        final int ops;
+        final long sleepMillis;
+        final AtomicInteger executed = new AtomicInteger();
+        int next;
+        boolean finished;
+
+        SleepingWorker(int ops, long sleepMillis) {
+            this.ops = ops;
+            this.sleepMillis = sleepMillis;
+        }
+
+        public String getId() {
+            return "sleeping";
+        }
+
+        public String nextOperation() {
+            return next < ops ? (next++ % 2 == 0 ? "A" : "B") : null;
+        }
+
+        public void execute() throws Exception {
+            executed.incrementAndGet();
+            Thread.sleep(sleepMillis);
+            if (next % 5 == 0) {
+                throw new IllegalStateException();
+            }
+        }
+
+        public void finish() {
+            finished = true;
+        }
+    }
+
+    @Test
+    public void closedLoopTest() throws InterruptedException {
+        final List<SleepingWorker> workers = Arrays.asList(new SleepingWorker(50, 0), new SleepingWorker(50, 0));
+        final LoadGenerator gen = new LoadGenerator();
+        gen.run(workers);
+
+        for (SleepingWorker w : workers) {
+            assertEquals(50, w.executed.get());
+            assertTrue(w.finished);
+        }
+        assertEquals(80, gen.getResponseTimes().get(LoadGenerator.ALL_OPERATIONS).snapshot().getTotalCount());
+        assertEquals(20, gen.getFailures(LoadGenerator.ALL_OPERATIONS));
+        assertEquals(50, gen.getResponseTimes().get("A").snapshot().getTotalCount()
+                + gen.getFailures("A"));
+        assertEquals(50, gen.getResponseTimes().get("B").snapshot().getTotalCount()
+                + gen.getFailures("B"));
+    }
+
+    @Test
+    public void warmupTest() throws InterruptedException {
+        final SleepingWorker worker = new SleepingWorker(Integer.MAX_VALUE, 10);
+        final LoadGenerator gen = new LoadGenerator().setWarmup(200).setDuration(200);
+        gen.run(Arrays.asList(worker));
+
+        final long recorded = gen.getResponseTimes().get(LoadGenerator.ALL_OPERATIONS).snapshot().getTotalCount()
+                + gen.getFailures(LoadGenerator.ALL_OPERATIONS);
+        assertTrue(recorded > 0);
+        assertTrue(worker.executed.get() > recorded + 5);
+    }
+
+    @Test
+    public void openLoopTest() throws InterruptedException {
+        // operations take twice their inter-arrival time, so they queue up
+        final SleepingWorker worker = new SleepingWorker(Integer.MAX_VALUE, 20);
+        final LoadGenerator gen = new LoadGenerator().setTargetRate(100).setDuration(400);
+        final List<SleepingWorker> workers = new ArrayList<SleepingWorker>();
+        workers.add(worker);
+        gen.run(workers);
+
+        // every scheduled operation is executed, late
+        assertEquals(40, worker.executed.get());
+        final HistogramSnapshot response = gen.getResponseTimes().get(LoadGenerator.ALL_OPERATIONS).snapshot();
+        final HistogramSnapshot service = gen.getServiceTimes().get(LoadGenerator.ALL_OPERATIONS).snapshot();
+        assertTrue(service.getMax() < 100000000L);
+        assertTrue(response.getMax() > 300000000L);
+        assertTrue(response.getValueAtPercentile(50) > 5 * service.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,104 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import sys.stats.metrics.HistogramSnapshot;
+import sys.stats.metrics.LongHistogram;
+
+public class LongHistogramTester {
+
+    @Test
+    public void testPercentiles() {
+        LongHistogram histogram = new LongHistogram("test");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getTotalCount());
+        assertEquals(1000L, snapshot.getMin());
+        assertEquals(1000000L, snapshot.getMax());
+        assertEquals(500500.0, snapshot.getMean(), 0.1);
+        assertWithinPrecision(500000L, snapshot.getValueAtPercentile(50));
+        assertWithinPrecision(990000L, snapshot.getValueAtPercentile(99));
+        assertEquals(1000000L, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testMergesThreads() throws InterruptedException {
+        final LongHistogram histogram = new LongHistogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++)
+                        histogram.record(i);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(40000, snapshot.getTotalCount());
+        assertEquals(0L, snapshot.getMin());
+        assertEquals(9999L, snapshot.getMax());
+    }
+
+    @Test
+    public void testRetiresTerminatedThreads() throws InterruptedException {
+        final LongHistogram histogram = new LongHistogram("test");
+        for (int t = 1; t <= 50; t++) {
+            final int value = t;
+            Thread thread = new Thread() {
+                public void run() {
+                    histogram.record(value);
+                }
+            };
+            thread.start();
+            thread.join();
+            assertEquals(t, histogram.snapshot().getTotalCount());
+        }
+        histogram.record(100);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(51, snapshot.getTotalCount());
+        assertEquals(1L, snapshot.getMin());
+        assertEquals(100L, snapshot.getMax());
+        assertEquals((50 * 51 / 2 + 100) / 51.0, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    public void testEmptyAndOutOfRange() {
+        LongHistogram histogram = new LongHistogram("test");
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getTotalCount());
+        assertEquals(0L, snapshot.getValueAtPercentile(50));
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 50);
+    }
+}
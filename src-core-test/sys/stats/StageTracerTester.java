@@ -0,0 +1,67 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import sys.stats.metrics.StageTracer;
+
+public class StageTracerTester {
+
+    enum Stage {
+        FIRST, SECOND
+    }
+
+    @Test
+    public void testChainsStages() {
+        StageTracer<Stage> tracer = new StageTracer<Stage>(new DummyStats(), "test", Stage.class, 1);
+        for (int i = 0; i < 10; i++) {
+            long t0 = tracer.begin();
+            assertTrue(t0 != StageTracer.NOT_SAMPLED);
+            long t1 = tracer.end(Stage.FIRST, t0);
+            long t2 = tracer.end(Stage.SECOND, t1);
+            assertTrue(t2 >= t1 && t1 >= t0);
+        }
+        assertEquals(10, tracer.histogram(Stage.FIRST).snapshot().getTotalCount());
+        assertEquals(10, tracer.histogram(Stage.SECOND).snapshot().getTotalCount());
+    }
+
+    @Test
+    public void testSampling() {
+        StageTracer<Stage> tracer = new StageTracer<Stage>(new DummyStats(), "test", Stage.class, 4);
+        for (int i = 0; i < 100; i++)
+            tracer.end(Stage.FIRST, tracer.begin());
+        assertEquals(25, tracer.histogram(Stage.FIRST).snapshot().getTotalCount());
+        assertEquals(0, tracer.histogram(Stage.SECOND).snapshot().getTotalCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        StageTracer<Stage> tracer = new StageTracer<Stage>(new DummyStats(), "test", Stage.class, 0);
+        for (int i = 0; i < 100; i++) {
+            long t0 = tracer.begin();
+            assertEquals(StageTracer.NOT_SAMPLED, t0);
+            tracer.end(Stage.FIRST, t0);
+            tracer.record(Stage.SECOND, t0, 1000L);
+        }
+        assertEquals(0, tracer.histogram(Stage.FIRST).snapshot().getTotalCount());
+        assertEquals(0, tracer.histogram(Stage.SECOND).snapshot().getTotalCount());
+    }
+}
@@ -21,10 +21,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 import swift.clocks.CausalityClock;
 import swift.clocks.CausalityClock.CMP_CLOCK;
@@ -81,6 +84,7 @@ import sys.utils.Threading;
  * @author mzawirski
  */
 abstract class AbstractTxnHandle implements TxnHandle, Comparable<AbstractTxnHandle> {
+    private static Logger logger = Logger.getLogger(AbstractTxnHandle.class.getName());
 
     protected final TxnManager manager;
     protected final boolean readOnly;
@@ -103,6 +107,7 @@ abstract class AbstractTxnHandle implements TxnHandle, Comparable<AbstractTxnHan
     private CounterSignalSource unstableCommitCountStats;
     private ValueSignalSource unstableCommitDurationStats;
     private Stopper unstableGlocalCron;
+    private volatile long locallyCommittedNanos;
 
     /**
      * Creates an update transaction.
@@ -282,11 +287,23 @@ abstract class AbstractTxnHandle implements TxnHandle, Comparable<AbstractTxnHan
     synchronized void markLocallyCommitted() {
         assertStatus(TxnStatus.PENDING);
         status = TxnStatus.COMMITTED_LOCAL;
+        for (final CRDTObjectUpdatesGroup<?> group : localObjectOperations.values()) {
+            group.freeze();
+        }
         logStatusChange();
         // Flush the log before returning to the client call.
         durableLog.flush();
         locallyCommitCountStats.incCounter();
         unstableGlocalCron = unstableCommitDurationStats.createEventDurationSignal();
+        locallyCommittedNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the value of System.nanoTime() when the transaction committed
+     *         locally
+     */
+    long getLocallyCommittedNanos() {
+        return locallyCommittedNanos;
     }
 
     /**
@@ -468,6 +485,37 @@ abstract class AbstractTxnHandle implements TxnHandle, Comparable<AbstractTxnHan
         return this.bulkGet(subscribeUpdates, ids, null);
     }
 
+    @Override
+    public Map<CRDTIdentifier, CRDT<?>> scan(String table, String startKey, int maxCount, boolean subscribeUpdates)
+            throws NetworkException {
+        assertStatus(TxnStatus.PENDING);
+        final List<CRDTIdentifier> ids = manager.scanKeys(this, table, startKey, maxCount);
+        final Set<CRDTIdentifier> absentIds = manager.fetchObjects(this, ids, getReadVersion(), subscribeUpdates);
+        final Map<CRDTIdentifier, CRDT<?>> res = new LinkedHashMap<CRDTIdentifier, CRDT<?>>();
+        for (final CRDTIdentifier id : ids) {
+            if (absentIds.contains(id)) {
+                logger.fine("scanned object " + id + " does not exist in the store");
+                continue;
+            }
+            try {
+                res.put(id, get(id, false, null, subscribeUpdates ? TxnHandle.UPDATES_SUBSCRIBER : null));
+            } catch (NoSuchObjectException x) {
+                logger.fine("scanned object " + id + " does not exist in the store");
+            } catch (VersionNotFoundException x) {
+                logger.warning("scanned object " + id + " not available in the transaction version: " + x);
+            } catch (WrongTypeException x) {
+                logger.warning("scanned object " + id + " could not be read: " + x);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return version in which the objects not read yet by this transaction
+     *         are to be read, or null for the latest version available
+     */
+    protected abstract CausalityClock getReadVersion();
+
     public IsolationLevel getIsolationLevel() {
         return isolationLevel;
     }
@@ -0,0 +1,112 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.client;
+
+import static sys.net.api.Networking.Networking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import swift.clocks.Timestamp;
+import swift.crdt.core.CRDT;
+import swift.dc.DCConstants;
+import swift.exceptions.NetworkException;
+import swift.proto.BulkLoadReply;
+import swift.proto.BulkLoadRequest;
+import sys.net.api.Endpoint;
+import sys.net.api.rpc.RpcEndpoint;
+
+/**
+ * Loader of the initial states of objects into a running DC, for populating
+ * it before a benchmark or an application starts. Unlike transactions, the
+ * objects are sent in batches; each batch is stored under a single DC
+ * timestamp, without update logs, and costs a single round trip to the
+ * surrogate. Objects that already exist at the DC are left untouched.
+ * <p>
+ * Objects loaded are only stored at the DC of the given surrogate. Instances
+ * are not thread-safe.
+ */
+public class BulkLoader {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final RpcEndpoint localEndpoint;
+    private final Endpoint serverEndpoint;
+    private final String loaderId;
+    private final int batchSize;
+
+    private List<CRDT<?>> batch;
+    private long counter;
+    private long count;
+
+    /**
+     * Creates a loader for the DC of the given surrogate, with the default
+     * batch size.
+     * 
+     * @param server
+     *            surrogate host, optionally with a port
+     */
+    public BulkLoader(String server) {
+        this(server, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkLoader(String server, int batchSize) {
+        this.localEndpoint = Networking.rpcConnect().toDefaultService();
+        this.serverEndpoint = Networking.resolve(server, DCConstants.SURROGATE_PORT);
+        this.loaderId = "bulkloader-" + UUID.randomUUID();
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<CRDT<?>>(batchSize);
+    }
+
+    /**
+     * Adds an object, given its initial state, to the current batch, and
+     * sends the batch if it is full.
+     */
+    public void add(CRDT<?> initialState) throws NetworkException {
+        batch.add(initialState);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current batch, if not empty, and waits until it is stored. If
+     * it fails, the batch is kept and can be sent again; a batch is stored at
+     * most once.
+     */
+    public void flush() throws NetworkException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final BulkLoadReply reply = localEndpoint.request(serverEndpoint, new BulkLoadRequest(loaderId, false,
+                new Timestamp(loaderId, counter + 1), batch));
+        if (reply == null) {
+            throw new NetworkException("Loading a batch of " + batch.size() + " objects exceeded the deadline");
+        }
+        counter++;
+        count += reply.getCount();
+        batch = new ArrayList<CRDT<?>>(batchSize);
+    }
+
+    /**
+     * @return the number of objects stored so far; objects that already
+     *         existed are not counted
+     */
+    public long getCount() {
+        return count;
+    }
+}
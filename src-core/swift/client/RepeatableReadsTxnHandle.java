@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import swift.clocks.CausalityClock;
 import swift.clocks.TimestampMapping;
 import swift.crdt.core.BulkGetProgressListener;
 import swift.crdt.core.CRDT;
@@ -100,4 +101,9 @@ class RepeatableReadsTxnHandle extends AbstractTxnHandle {
         }
         return (V) localView;
     }
+
+    @Override
+    protected CausalityClock getReadVersion() {
+        return null;
+    }
 }
@@ -106,4 +106,9 @@ class SnapshotIsolationTxnHandle extends AbstractTxnHandle implements TxnHandle
         }
         return (V) localView;
     }
+
+    @Override
+    protected CausalityClock getReadVersion() {
+        return getUpdatesDependencyClock().clone();
+    }
 }
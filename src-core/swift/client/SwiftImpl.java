@@ -84,10 +84,14 @@ import swift.proto.LatestKnownClockRequest;
 import swift.proto.MetadataStatsCollector;
 import swift.proto.PingReply;
 import swift.proto.PingRequest;
+import swift.proto.ScanKeysReply;
+import swift.proto.ScanKeysRequest;
 import swift.proto.SwiftProtocolHandler;
 import swift.pubsub.BatchUpdatesNotification;
 import swift.pubsub.ScoutPubSubService;
 import swift.utils.DatabaseSizeStats;
+import swift.utils.EventLog;
+import swift.utils.EventLog.Event;
 import swift.utils.DummyLog;
 import swift.utils.KryoDiskLog;
 import swift.utils.NoFlushLogDecorator;
@@ -103,6 +107,7 @@ import sys.stats.DummyStats;
 import sys.stats.Stats;
 import sys.stats.StatsConstants;
 import sys.stats.StatsImpl;
+import sys.stats.metrics.StageTracer;
 import sys.stats.sources.CounterSignalSource;
 import sys.stats.sources.PollingBasedValueProvider;
 import sys.stats.sources.ValueSignalSource;
@@ -187,10 +192,30 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         return newSingleSessionInstance(options, "default-session-id");
     }
 
+    /**
+     * Creates new single session instance backed by a scout, or by the
+     * process-wide scout of the store server if the options request a shared
+     * scout.
+     * <p>
+     * Sessions of a shared scout do not track causality on their own: session
+     * guarantees hold for the scout as a whole, not per session. A session
+     * may observe updates of the other sessions of the scout, and its reads
+     * and writes are ordered only with respect to those of the scout.
+     * 
+     * @param options
+     *            Swift scout options
+     * @param sessionId
+     *            unique id of the session
+     * @return instance of Swift client session
+     * @see SwiftOptions#isSharedScout()
+     */
     public static SwiftSession newSingleSessionInstance(SwiftOptions options, String sessionId) {
+        if (options.isSharedScout()) {
+            return newSharedScoutSession(options, sessionId);
+        }
         Endpoint[] servers = parseEndpoints(options.getServerHostname());
-        final SwiftScout sharedImpl = new SwiftImpl(Networking.rpcConnect().toDefaultService(), servers, options,
-                sessionId);
+        final SwiftScout sharedImpl = new SwiftImpl(Networking.rpcConnect(options.getTransportProvider())
+                .toDefaultService(), servers, options, sessionId);
         return sharedImpl.newSession(sessionId);
     }
 
@@ -205,7 +230,42 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
     public static SwiftScout newMultiSessionInstance(final SwiftOptions options) {
         Endpoint[] servers = parseEndpoints(options.getServerHostname());
 
-        return new SwiftImpl(Networking.rpcConnect().toDefaultService(), servers, options, "multi-session-instance");
+        return new SwiftImpl(Networking.rpcConnect(options.getTransportProvider()).toDefaultService(), servers,
+                options, "multi-session-instance");
+    }
+
+    // Process-wide scouts shared by sessions, by transport and store server.
+    private static final Map<String, SwiftImpl> sharedScouts = new HashMap<String, SwiftImpl>();
+    // Number of open sessions of a shared scout, guarded by sharedScouts.
+    private int sharedSessions;
+
+    private static SwiftSession newSharedScoutSession(SwiftOptions options, String sessionId) {
+        final String key = options.getTransportProvider() + "/" + options.getServerHostname() + ":"
+                + options.getServerPort();
+        synchronized (sharedScouts) {
+            SwiftImpl scout = sharedScouts.get(key);
+            if (scout == null) {
+                Endpoint[] servers = parseEndpoints(options.getServerHostname());
+                scout = new SwiftImpl(Networking.rpcConnect(options.getTransportProvider()).toDefaultService(),
+                        servers, options, "shared-scout");
+                sharedScouts.put(key, scout);
+            }
+            scout.sharedSessions++;
+            return new SwiftSessionToScoutAdapter(scout, sessionId, !options.isConcurrentOpenTransactions(), true);
+        }
+    }
+
+    /**
+     * Closes a session of a shared scout; the last session stops the scout.
+     */
+    static void releaseSharedScoutSession(SwiftImpl scout, boolean waitForCommit) {
+        synchronized (sharedScouts) {
+            if (--scout.sharedSessions > 0) {
+                return;
+            }
+            sharedScouts.values().remove(scout);
+        }
+        scout.stop(waitForCommit);
     }
 
     private static String generateScoutId() {
@@ -308,6 +368,26 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
 
     private CounterSignalSource ongoingObjectFetchesStats;
     private ValueSignalSource batchSizeOnCommitStats;
+
+    /**
+     * Stages of the global commit of a batch of transactions: waiting in the
+     * queue of locally committed transactions, preparing the request, the
+     * round-trip to the surrogate, and applying the reply.
+     */
+    enum CommitStage {
+        QUEUE, PREPARE, RPC, APPLY, TOTAL
+    }
+
+    /**
+     * Stages of an object fetch: the round-trip to the surrogate (including
+     * retries), and applying the reply.
+     */
+    enum FetchStage {
+        RPC, APPLY
+    }
+
+    private StageTracer<CommitStage> commitTracer;
+    private StageTracer<FetchStage> fetchTracer;
     // A vector that represents a locally available snapshot
     // TODO: unify with globalCommitted vectors;
     private CausalityClock nextAvailableSnapshot;
@@ -322,7 +402,8 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
             String sessionId) {
         this.scoutId = generateScoutId();
         this.metadataStatsCollector = new MetadataStatsCollector(sessionId);
-        this.concurrentOpenTransactions = options.isConcurrentOpenTransactions();
+        // sessions of a shared scout run their transactions concurrently
+        this.concurrentOpenTransactions = options.isConcurrentOpenTransactions() || options.isSharedScout();
         this.maxAsyncTransactionsQueued = options.getMaxAsyncTransactionsQueued();
         this.disasterSafe = options.isDisasterSafe();
         this.deadlineMillis = options.getDeadlineMillis();
@@ -367,7 +448,8 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
 
         localEndpoint.setHandler(new SwiftProtocolHandler());
 
-        this.scoutPubSub = new ScoutPubSubService(scoutId, disasterSafe, serverEndpoint(), metadataStatsCollector) {
+        this.scoutPubSub = new ScoutPubSubService(scoutId, disasterSafe, serverEndpoint(),
+                options.getTransportProvider(), metadataStatsCollector) {
 
             public void onNotification(final BatchUpdatesNotification batch) {
                 if (logger.isLoggable(Level.INFO)) {
@@ -452,6 +534,10 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         batchSizeOnCommitStats = this.stats.getValuesFrequencyOverTime("batch-size-on-commit",
                 StatsConstants.BATCH_SIZE);
 
+        final int stageTracingSampling = options.isEnableStatistics() ? options.getStageTracingSampling() : 0;
+        commitTracer = new StageTracer<CommitStage>(stats, "commit", CommitStage.class, stageTracingSampling);
+        fetchTracer = new StageTracer<FetchStage>(stats, "fetch", FetchStage.class, stageTracingSampling);
+
         TransactionsLog log = new DummyLog();
         if (options.getLogFilename() != null) {
             try {
@@ -646,7 +732,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         }
 
         final BatchFetchObjectVersionRequest refreshRequest = new BatchFetchObjectVersionRequest(scoutId, disasterSafe,
-                knownVersionLowerBound, version, false, false, false, ids.toArray(new CRDTIdentifier[0]));
+                knownVersionLowerBound, version, false, false, false, true, ids.toArray(new CRDTIdentifier[0]));
 
         // final BatchFetchObjectVersionReply fetchReply =
         // localEndpoint.request(serverEndpoint(), fetchRequest);
@@ -867,8 +953,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
 
     private void updateNextAvailableSnapshot(CausalityClock causalityClock) {
         if (nextAvailableSnapshot.hasEventFrom(getScoutId())) {
-            logger.warning(getScoutId() + ": " + "nextAvailableSnapshot clock includes scout's timestamp: "
-                    + causalityClock);
+            EventLog.record(Event.SCOUT_SNAPSHOT_INCLUDES_SCOUT, getScoutId(), causalityClock);
         }
         nextAvailableSnapshot = causalityClock.clone();
         if (logger.isLoggable(Level.INFO)) {
@@ -1133,8 +1218,6 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
             Class<V> classOfV, final CausalityClock knownVersion, final CausalityClock requestedVersion,
             final boolean sendMoreRecentUpdates, boolean subscribeUpdates) throws WrongTypeException,
             NoSuchObjectException, VersionNotFoundException, NetworkException, InterruptedException {
-        // TODO: Add a real delta-log shipping support?
-
         if (subscribeUpdates) {
             assertNotificationsCompatibleMode();
             // Why does it appear here and not on getVersion path?
@@ -1152,7 +1235,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         final CausalityClock knownVersionUsed = sendMoreRecentUpdates ? null : knownVersion;
         final BatchFetchObjectVersionRequest fetchRequest = new BatchFetchObjectVersionRequest(scoutId, disasterSafe,
                 knownVersionUsed, requestedVersion, sendMoreRecentUpdates, subscribeUpdates,
-                cacheUpdateProtocol == CacheUpdateProtocol.NO_CACHE_OR_UNCOORDINATED, id);
+                cacheUpdateProtocol == CacheUpdateProtocol.NO_CACHE_OR_UNCOORDINATED, knownVersionUsed != null, id);
 
         doFetchObjectVersionOrTimeout(txn, id, fetchRequest, classOfV, create, requestedScoutVersion);
     }
@@ -1176,6 +1259,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
 
         try {
             final long firstRequestTimestamp = System.currentTimeMillis();
+            long traceMark = fetchTracer.begin();
             BatchFetchObjectVersionReply reply;
             boolean firstTry = true;
             do {
@@ -1203,7 +1287,9 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
                 reply.recordMetadataSample(metadataStatsCollector);
 
                 firstTry = false;
+                traceMark = fetchTracer.end(FetchStage.RPC, traceMark);
             } while (!handleFetchObjectReply(txn, fetchRequest, reply, 0, classOfV, create, requestedScoutVersion));
+            fetchTracer.end(FetchStage.APPLY, traceMark);
         } finally {
             synchronized (this) {
                 fetchVersionsInProgress.remove(fetchRequest.getVersion());
@@ -1269,6 +1355,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         case VERSION_MISSING:
         case VERSION_PRUNED:
         case OK:
+        case OK_DELTA:
             try {
                 crdt = (ManagedCRDT<V>) fetchReply.getCrdt(idxInBatch);
             } catch (Exception e) {
@@ -1304,7 +1391,14 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
             }
 
             if (cacheCRDT == null) {
-                if (crdt != null) {
+                if (crdt != null && crdt.isDelta()) {
+                    // object evicted from the cache during fetch request;
+                    // nothing to apply the delta on
+                    EventLog.record(Event.SCOUT_DELTA_NOT_APPLICABLE, getScoutId(), request.getUid(idxInBatch),
+                            crdt.getPruneClock(), null);
+                    request.disableDelta();
+                    return false;
+                } else if (crdt != null) {
                     objectsCache.add(crdt, txn == null ? -1L : txn.serial);
                     cacheCRDT = crdt;
                     // Apply any local updates that may not be present in
@@ -1331,13 +1425,22 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
                     return false;
                 }
             } else {
-                if (crdt != null) {
+                if (crdt != null && crdt.isDelta()) {
+                    try {
+                        cacheCRDT.applyDelta(crdt);
+                    } catch (IllegalStateException x) {
+                        EventLog.record(Event.SCOUT_DELTA_NOT_APPLICABLE, getScoutId(), request.getUid(idxInBatch),
+                                crdt.getPruneClock(), cacheCRDT.getClock());
+                        request.disableDelta();
+                        return false;
+                    }
+                    objectsCache.markUpdatedWithoutTouch(request.getUid(idxInBatch), false);
+                } else if (crdt != null) {
                     try {
                         cacheCRDT.merge(crdt);
                     } catch (IllegalStateException x) {
-                        logger.warning(getScoutId() + ": " + "Merging incoming object version " + crdt.getClock()
-                                + " with the cached version " + cacheCRDT.getClock()
-                                + " has failed with our heuristic - dropping cached version" + x);
+                        EventLog.record(Event.SCOUT_MERGE_FAILED, getScoutId(), crdt.getClock(), cacheCRDT.getClock(),
+                                x);
                         cacheCRDT = crdt;
                         objectsCache.add(crdt, txn == null ? -1L : txn.serial);
                     }
@@ -1370,8 +1473,8 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         }
 
         if (fetchReply.getStatus(idxInBatch) == FetchStatus.VERSION_PRUNED) {
-            logger.warning(getScoutId() + ": " + "requested object " + request.getUid(idxInBatch) + " version "
-                    + request.getVersion() + " pruned at the DC " + crdt.getPruneClock());
+            EventLog.record(Event.SCOUT_FETCH_VERSION_PRUNED, getScoutId(), request.getUid(idxInBatch),
+                    request.getVersion(), crdt.getPruneClock());
         }
 
         if (fetchReply.getStatus(idxInBatch) == FetchStatus.VERSION_MISSING) {
@@ -1380,8 +1483,8 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
             // fetchReply.getVersion() + "/wanted:" + request.getVersion() +
             // "ownCLOCK:" + committedVersion );
 
-            logger.warning(getScoutId() + ": " + "requested object " + request.getUid(idxInBatch) + " version "
-                    + request.getVersion() + " not (yet) replicated at the DC " + crdt.getClock());
+            EventLog.record(Event.SCOUT_FETCH_VERSION_MISSING, getScoutId(), request.getUid(idxInBatch),
+                    request.getVersion(), crdt.getClock());
             return false;
         }
         return true;
@@ -1668,6 +1771,93 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
         // });
     }
 
+    @Override
+    public List<CRDTIdentifier> scanKeys(AbstractTxnHandle txn, String table, String startKey, int maxCount)
+            throws NetworkException {
+        assertPendingTransaction(txn);
+        assertRunning();
+        // not synchronized, the scout keeps serving other requests meanwhile
+        final ScanKeysReply reply = localEndpoint.request(serverEndpoint(), new ScanKeysRequest(scoutId,
+                disasterSafe, table, startKey, maxCount));
+        if (reply == null) {
+            throw new NetworkException("Scanning the keys of table " + table + " exceeded the deadline");
+        }
+        return reply.getIds();
+    }
+
+    @Override
+    public Set<CRDTIdentifier> fetchObjects(AbstractTxnHandle txn, List<CRDTIdentifier> ids, CausalityClock version,
+            boolean subscribeUpdates) throws NetworkException {
+        assertPendingTransaction(txn);
+        assertRunning();
+
+        final Set<CRDTIdentifier> absentIds = new HashSet<CRDTIdentifier>();
+        final List<CRDTIdentifier> fetchIds = new ArrayList<CRDTIdentifier>();
+        final CausalityClock requestedVersion;
+        synchronized (this) {
+            for (final CRDTIdentifier id : ids) {
+                if (objectsCache.getWithoutTouch(id) == null) {
+                    fetchIds.add(id);
+                }
+            }
+            if (fetchIds.isEmpty()) {
+                return absentIds;
+            }
+            requestedVersion = version == null ? getNextTransactionSnapshot(true) : version.clone();
+        }
+        if (subscribeUpdates) {
+            assertNotificationsCompatibleMode();
+            for (final CRDTIdentifier id : fetchIds) {
+                scoutPubSub.subscribe(id, scoutPubSub);
+            }
+        }
+
+        // Record and drop scout's entry from the requested clock, as for a
+        // single object fetch.
+        final Timestamp requestedScoutVersion = requestedVersion.getLatest(scoutId);
+        requestedVersion.drop(this.scoutId);
+        final BatchFetchObjectVersionRequest fetchRequest = new BatchFetchObjectVersionRequest(scoutId, disasterSafe,
+                null, requestedVersion, subscribeUpdates, subscribeUpdates,
+                cacheUpdateProtocol == CacheUpdateProtocol.NO_CACHE_OR_UNCOORDINATED, false,
+                fetchIds.toArray(new CRDTIdentifier[fetchIds.size()]));
+
+        synchronized (this) {
+            fetchVersionsInProgress.add(requestedVersion);
+            ongoingObjectFetchesStats.incCounter();
+        }
+        try {
+            final RpcHandle rpcReply = localEndpoint.send(serverEndpoint(), fetchRequest, RpcHandler.NONE,
+                    deadlineMillis);
+            if (rpcReply.failed() || rpcReply.getReply() == null) {
+                throw new NetworkException("Fetching objects exceeded the deadline");
+            }
+            final BatchFetchObjectVersionReply fetchReply = (BatchFetchObjectVersionReply) rpcReply.getReply()
+                    .getPayload();
+            fetchRequest.recordMetadataSample(metadataStatsCollector);
+            fetchReply.recordMetadataSample(metadataStatsCollector);
+
+            for (int i = 0; i < fetchRequest.getBatchSize(); i++) {
+                try {
+                    // Objects that could not be applied are fetched again
+                    // one by one when read.
+                    handleFetchObjectReply(txn, fetchRequest, fetchReply, i, CRDT.class, false,
+                            requestedScoutVersion);
+                } catch (NoSuchObjectException x) {
+                    absentIds.add(fetchRequest.getUid(i));
+                } catch (WrongTypeException x) {
+                    logger.warning(getScoutId() + ": " + "could not fetch object " + fetchRequest.getUid(i) + ": "
+                            + x.getMessage());
+                }
+            }
+        } finally {
+            synchronized (this) {
+                fetchVersionsInProgress.remove(requestedVersion);
+                ongoingObjectFetchesStats.decCounter();
+            }
+        }
+        return absentIds;
+    }
+
     @Override
     public synchronized void discardTxn(AbstractTxnHandle txn) {
         assertPendingTransaction(txn);
@@ -1678,7 +1868,7 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
             // returnLastTimestamp :-(
             final RepeatableReadsTxnHandle dummyTxn = new RepeatableReadsTxnHandle(this, txn.getSessionId(),
                     durableLog, CachePolicy.CACHED, txn.getTimestampMapping(), stats);
-            dummyTxn.markLocallyCommitted();
+            addPendingTxn(dummyTxn);
             commitTxn(dummyTxn);
         } else {
             tryReuseTxnTimestamp(txn);
@@ -1767,6 +1957,10 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
      *            locally committed transaction
      */
     private void commitTxnGlobally(final List<AbstractTxnHandle> transactionsToCommit) {
+        final long traceStart = commitTracer.begin();
+        final long queuedNanos = traceStart - transactionsToCommit.get(0).getLocallyCommittedNanos();
+        commitTracer.record(CommitStage.QUEUE, traceStart, queuedNanos);
+
         final List<CommitUpdatesRequest> requests = new LinkedList<CommitUpdatesRequest>();
 
         // Preprocess transactions before sending them.
@@ -1805,7 +1999,9 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
 
         // Send batched updates and wait for reply of server
         final BatchCommitUpdatesRequest commitRequest = new BatchCommitUpdatesRequest(scoutId, disasterSafe, requests);
+        long traceMark = commitTracer.end(CommitStage.PREPARE, traceStart);
         BatchCommitUpdatesReply batchReply = localEndpoint.request(serverEndpoint(), commitRequest);
+        traceMark = commitTracer.end(CommitStage.RPC, traceMark);
         commitRequest.recordMetadataSample(metadataStatsCollector);
 
         // TODO Add here statistics for meta-data overhead?
@@ -1888,6 +2084,8 @@ public class SwiftImpl implements SwiftScout, TxnManager, FailOverHandler {
                 }
             }
         }
+        traceMark = commitTracer.end(CommitStage.APPLY, traceMark);
+        commitTracer.record(CommitStage.TOTAL, traceMark, queuedNanos + traceMark - traceStart);
     }
 
     private synchronized void addLocallyCommittedTransactionBlocking(AbstractTxnHandle txn) {
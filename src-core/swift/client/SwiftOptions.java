@@ -19,6 +19,7 @@ package swift.client;
 import java.util.Properties;
 
 import swift.client.SwiftImpl.CacheUpdateProtocol;
+import sys.net.api.Networking.TransportProvider;
 
 /**
  * Options for Swift scout instance.
@@ -42,11 +43,14 @@ final public class SwiftOptions {
     public static final String DEFAULT_STATISTICS_DIR = "statistics";
     public static final boolean DEFAULT_OVERWRITE_STATISTICS_DIR = true;
     public static final boolean DEFAULT_ENABLE_STATISTICS = false;
+    public static final int DEFAULT_STAGE_TRACING_SAMPLING = 16;
 
     public static final boolean DEFAULT_COMPUTE_METADATA_STATISTICS = false;
 
     public static final CacheUpdateProtocol DEFAULT_CACHE_PROTOCOL = CacheUpdateProtocol.CAUSAL_NOTIFICATIONS_STREAM;
     private static final int DEFAULT_CACHE_REFRESH_PERIOD_MILLIS = 1000;
+    public static final TransportProvider DEFAULT_TRANSPORT_PROVIDER = TransportProvider.DEFAULT;
+    public static final boolean DEFAULT_SHARED_SCOUT = false;
 
     private String serverHostname;
     private int serverPort;
@@ -68,6 +72,9 @@ final public class SwiftOptions {
     private boolean enableStatistics = DEFAULT_ENABLE_STATISTICS;
     private boolean overwriteStatisticsDir = DEFAULT_OVERWRITE_STATISTICS_DIR;
     private String statisticsOutputDir = DEFAULT_STATISTICS_DIR;
+    private int stageTracingSampling = DEFAULT_STAGE_TRACING_SAMPLING;
+    private TransportProvider transportProvider = DEFAULT_TRANSPORT_PROVIDER;
+    private boolean sharedScout = DEFAULT_SHARED_SCOUT;
 
     // for kryo...
     SwiftOptions() {
@@ -164,6 +171,10 @@ final public class SwiftOptions {
         if (overwriteStatisticsDirString != null) {
             this.overwriteStatisticsDir = Boolean.parseBoolean(overwriteStatisticsDirString);
         }
+        final String stageTracingSamplingString = defaultValues.getProperty("swift.stageTracingSampling");
+        if (stageTracingSamplingString != null) {
+            this.stageTracingSampling = Integer.parseInt(stageTracingSamplingString);
+        }
         final String cacheUpdateProtocolString = defaultValues.getProperty("swift.cacheUpdateProtocol");
         if (cacheUpdateProtocolString != null) {
             this.cacheUpdateProtocol = CacheUpdateProtocol.valueOf(cacheUpdateProtocolString);
@@ -173,6 +184,14 @@ final public class SwiftOptions {
         if (cacheRefreshPeriodMillisString != null) {
             this.cacheRefreshPeriodMillis = Integer.valueOf(cacheRefreshPeriodMillisString);
         }
+        final String transportProviderString = defaultValues.getProperty("swift.transportProvider");
+        if (transportProviderString != null) {
+            this.transportProvider = TransportProvider.valueOf(transportProviderString);
+        }
+        final String sharedScoutString = defaultValues.getProperty("swift.sharedScout");
+        if (sharedScoutString != null) {
+            this.sharedScout = Boolean.parseBoolean(sharedScoutString);
+        }
     }
 
     /**
@@ -404,6 +423,23 @@ final public class SwiftOptions {
         this.enableStatistics = enableStatistics;
     }
 
+    /**
+     * @return one in this many commits and fetches is traced stage by stage
+     *         when statistics are enabled; 0 disables tracing
+     */
+    public int getStageTracingSampling() {
+        return stageTracingSampling;
+    }
+
+    /**
+     * @param stageTracingSampling
+     *            one in this many commits and fetches is traced stage by
+     *            stage when statistics are enabled; 0 disables tracing
+     */
+    public void setStageTracingSampling(int stageTracingSampling) {
+        this.stageTracingSampling = stageTracingSampling;
+    }
+
     public int getCacheRefreshPeriodMillis() {
         return cacheRefreshPeriodMillis;
     }
@@ -411,4 +447,42 @@ final public class SwiftOptions {
     public void setCacheRefreshPeriodMillis(int cacheRefreshPeriodMillis) {
         this.cacheRefreshPeriodMillis = cacheRefreshPeriodMillis;
     }
+
+    /**
+     * @return transport used to reach the store server and its notifications
+     *         service
+     */
+    public TransportProvider getTransportProvider() {
+        return transportProvider;
+    }
+
+    /**
+     * @param transportProvider
+     *            transport used to reach the store server and its
+     *            notifications service; INPROC reaches a surrogate running in
+     *            the same process, started with in-process clients enabled
+     */
+    public void setTransportProvider(TransportProvider transportProvider) {
+        this.transportProvider = transportProvider;
+    }
+
+    /**
+     * @return true if single session instances are sessions of a process-wide
+     *         scout, shared with the other sessions of the same store server
+     */
+    public boolean isSharedScout() {
+        return sharedScout;
+    }
+
+    /**
+     * @param sharedScout
+     *            true to open single session instances on a process-wide scout,
+     *            which shares its cache, update subscriptions and commit
+     *            pipeline among all sessions of the same store server;
+     *            causality is then tracked for the whole scout, not per
+     *            session
+     */
+    public void setSharedScout(boolean sharedScout) {
+        this.sharedScout = sharedScout;
+    }
 }
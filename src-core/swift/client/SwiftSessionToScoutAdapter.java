@@ -26,27 +26,52 @@ import swift.exceptions.NetworkException;
 /**
  * Adapter of (possibly) shared Swift scout instance into a single session view,
  * using unique sessionId;
+ * <p>
+ * Sessions of a shared scout enforce their own limit of open transactions,
+ * since the scout itself runs the transactions of all sessions concurrently,
+ * and stop the scout only when the last session is closed.
  * 
  * @author mzawirski
  */
 class SwiftSessionToScoutAdapter implements SwiftSession {
     private final SwiftImpl sharedSwift;
     private final String sessionId;
+    private final boolean oneOpenTransaction;
+    private final boolean sharedScout;
+    private TxnHandle lastTxn;
+    private boolean stopped;
 
     public SwiftSessionToScoutAdapter(SwiftImpl swiftImpl, String sessionId) {
+        this(swiftImpl, sessionId, false, false);
+    }
+
+    SwiftSessionToScoutAdapter(SwiftImpl swiftImpl, String sessionId, boolean oneOpenTransaction,
+            boolean sharedScout) {
         this.sharedSwift = swiftImpl;
         this.sessionId = sessionId;
+        this.oneOpenTransaction = oneOpenTransaction;
+        this.sharedScout = sharedScout;
     }
 
     @Override
-    public TxnHandle beginTxn(IsolationLevel isolationLevel, CachePolicy cachePolicy, boolean readOnly)
-            throws NetworkException {
-        return sharedSwift.beginTxn(sessionId, isolationLevel, cachePolicy, readOnly);
+    public synchronized TxnHandle beginTxn(IsolationLevel isolationLevel, CachePolicy cachePolicy,
+            boolean readOnly) throws NetworkException {
+        if (oneOpenTransaction && lastTxn != null && !lastTxn.getStatus().isTerminated()) {
+            throw new IllegalStateException("Only one transaction can be executing at the time in session "
+                    + sessionId);
+        }
+        lastTxn = sharedSwift.beginTxn(sessionId, isolationLevel, cachePolicy, readOnly);
+        return lastTxn;
     }
 
     @Override
-    public void stopScout(boolean waitForCommit) {
-        sharedSwift.stop(waitForCommit);
+    public synchronized void stopScout(boolean waitForCommit) {
+        if (!sharedScout) {
+            sharedSwift.stop(waitForCommit);
+        } else if (!stopped) {
+            stopped = true;
+            SwiftImpl.releaseSharedScoutSession(sharedSwift, waitForCommit);
+        }
     }
 
     @Override
@@ -16,6 +16,9 @@
  *****************************************************************************/
 package swift.client;
 
+import java.util.List;
+import java.util.Set;
+
 import swift.clocks.CausalityClock;
 import swift.crdt.core.CRDTIdentifier;
 import swift.crdt.core.CachePolicy;
@@ -41,6 +44,24 @@ public interface TxnManager {
             CausalityClock version, boolean create, Class<V> classOfV, ObjectUpdatesListener updatesListener)
             throws WrongTypeException, NoSuchObjectException, VersionNotFoundException, NetworkException;
 
+    /**
+     * Lists, in key order, the identifiers of the objects of a table whose key
+     * is not lower than startKey, as known by the DC.
+     */
+    List<CRDTIdentifier> scanKeys(AbstractTxnHandle txn, String table, String startKey, int maxCount)
+            throws NetworkException;
+
+    /**
+     * Fetches into the cache, with a single request to the DC, the objects
+     * among ids that are not cached yet.
+     * 
+     * @param version
+     *            version to fetch, or null for the latest version available
+     * @return ids of the objects that do not exist in the store
+     */
+    Set<CRDTIdentifier> fetchObjects(AbstractTxnHandle txn, List<CRDTIdentifier> ids, CausalityClock version,
+            boolean subscribeUpdates) throws NetworkException;
+
     void discardTxn(AbstractTxnHandle txn);
 
     void commitTxn(AbstractTxnHandle txn);
@@ -0,0 +1,129 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.clocks;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.ObjectMap;
+
+/**
+ * Interning and dictionary encoding of the site identifiers used by clocks and
+ * timestamps.
+ * <p>
+ * Site ids are interned in a dedicated table, rather than in the JVM string
+ * pool, so that all timestamps of a site share one instance. The table holds
+ * its entries weakly, so the ids of sites that no clock refers to any more,
+ * e.g., of scouts gone long ago, are dropped. The table is striped to spread
+ * the contention of concurrent readers.
+ * <p>
+ * On the wire and on disk, each site id is written in full only the first
+ * time it occurs in a Kryo object graph, i.e., in a message or in a database
+ * file; later occurrences refer to it by its position in the dictionary of
+ * the graph, as a small varint. The dictionaries live in the graph context of
+ * the Kryo instance, and are discarded when the instance is reset, so readers
+ * and writers stay in sync as long as whole graphs are read in the order they
+ * were written.
+ */
+public final class SiteIds {
+    // marks a site id written in full
+    private static final int NEW_ID = 0;
+
+    private static final int STRIPES = 16; // must be a power of 2
+
+    @SuppressWarnings("unchecked")
+    private static final WeakHashMap<String, WeakReference<String>>[] tables = new WeakHashMap[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            tables[i] = new WeakHashMap<String, WeakReference<String>>();
+        }
+    }
+
+    private static final Object WRITER_DICTIONARY = new Object();
+    private static final Object READER_DICTIONARY = new Object();
+
+    private SiteIds() {
+    }
+
+    /**
+     * @return the shared instance of the given site id
+     */
+    public static String intern(String siteId) {
+        final int h = siteId.hashCode();
+        final WeakHashMap<String, WeakReference<String>> table = tables[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        synchronized (table) {
+            final WeakReference<String> ref = table.get(siteId);
+            final String res = ref == null ? null : ref.get();
+            if (res != null) {
+                return res;
+            }
+            table.put(siteId, new WeakReference<String>(siteId));
+            return siteId;
+        }
+    }
+
+    /**
+     * Writes a site id, in full or as a reference to the dictionary of the
+     * current object graph.
+     */
+    public static void write(Kryo kryo, Output out, String siteId) {
+        @SuppressWarnings("unchecked")
+        final ObjectMap<Object, Object> context = kryo.getGraphContext();
+        @SuppressWarnings("unchecked")
+        ObjectMap<String, Integer> dictionary = (ObjectMap<String, Integer>) context.get(WRITER_DICTIONARY);
+        if (dictionary == null) {
+            dictionary = new ObjectMap<String, Integer>();
+            context.put(WRITER_DICTIONARY, dictionary);
+        }
+        final Integer ref = dictionary.get(siteId);
+        if (ref != null) {
+            out.writeVarInt(ref, true);
+        } else {
+            out.writeVarInt(NEW_ID, true);
+            out.writeAscii(siteId);
+            dictionary.put(siteId, dictionary.size + 1);
+        }
+    }
+
+    /**
+     * Reads a site id written by {@link #write(Kryo, Output, String)}.
+     *
+     * @return the interned site id
+     */
+    public static String read(Kryo kryo, Input in) {
+        @SuppressWarnings("unchecked")
+        final ObjectMap<Object, Object> context = kryo.getGraphContext();
+        @SuppressWarnings("unchecked")
+        ArrayList<String> dictionary = (ArrayList<String>) context.get(READER_DICTIONARY);
+        if (dictionary == null) {
+            dictionary = new ArrayList<String>();
+            context.put(READER_DICTIONARY, dictionary);
+        }
+        final int ref = in.readVarInt(true);
+        if (ref != NEW_ID) {
+            return dictionary.get(ref - 1);
+        }
+        final String siteId = intern(in.readString());
+        dictionary.add(siteId);
+        return siteId;
+    }
+}
@@ -17,8 +17,6 @@
 package swift.clocks;
 
 import java.io.Serializable;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoCopyable;
@@ -43,9 +41,10 @@ final public class Timestamp implements Serializable, Comparable<Timestamp>, Kry
     /**
      * @param siteId
      * @return creates a reference to a possibly shared instance of siteId
+     * @see SiteIds#intern(String)
      */
     public static String createSiteIdRef(String siteId) {
-        return siteId.intern();
+        return SiteIds.intern(siteId);
     }
 
     private static final long serialVersionUID = 1L;
@@ -135,13 +134,13 @@ final public class Timestamp implements Serializable, Comparable<Timestamp>, Kry
     /************ FOR KRYO ***************/
     @Override
     public void read(Kryo kryo, Input in) {
-        this.siteid = createSiteIdRef(in.readString());
+        this.siteid = SiteIds.read(kryo, in);
         this.counter = in.readVarLong(true);
     }
 
     @Override
     public void write(Kryo kryo, Output out) {
-        out.writeAscii(this.siteid);
+        SiteIds.write(kryo, out, this.siteid);
         out.writeVarLong(this.counter, true);
     }
 
@@ -149,13 +148,4 @@ final public class Timestamp implements Serializable, Comparable<Timestamp>, Kry
     public Timestamp copy(Kryo kryo) {
         return new Timestamp(this.siteid, this.counter);
     }
-
-    String s2s(String s) {
-        String ref = s2s.get(s);
-        if (ref == null)
-            s2s.put(s, ref = s);
-        return ref;
-    }
-
-    private static Map<String, String> s2s = new ConcurrentHashMap<String, String>();
 }
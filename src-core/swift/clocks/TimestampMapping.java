@@ -16,9 +16,8 @@
  *****************************************************************************/
 package swift.clocks;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import swift.crdt.core.Copyable;
@@ -34,14 +33,16 @@ import com.esotericsoftware.kryo.io.Output;
  * grow-only set of system timestamps, added with each successful run of the
  * hand-off protocol.
  * <p>
- * Thread-hostile, synchronize externally if really needed. Only
- * {@link #getClientTimestamp()} is immutable.
+ * Thread-safe. Timestamps are kept in an array that is never modified once
+ * published: adding a system timestamp publishes a new array (copy-on-write),
+ * so readers do not lock, and lists returned by {@link #getTimestamps()} are
+ * immutable snapshots. Copies share the array until either is updated.
  * 
  * @author mzawirski
  */
 final public class TimestampMapping implements Copyable, KryoSerializable, KryoCopyable<TimestampMapping> {
-    /** Client timestamp followed by system-assigned timestamps */
-    protected LinkedList<Timestamp> timestamps;
+    /** Client timestamp followed by system-assigned timestamps; immutable */
+    protected volatile Timestamp[] timestamps;
 
     /**
      * USED by Kyro and copy
@@ -56,34 +57,34 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
      *            stable client timestamp to use
      */
     public TimestampMapping(Timestamp clientTimestamp) {
-        this.timestamps = new LinkedList<Timestamp>();
-        this.timestamps.add(clientTimestamp);
+        this.timestamps = new Timestamp[] { clientTimestamp };
     }
 
-    private TimestampMapping(List<Timestamp> timestamps) {
-        this.timestamps = new LinkedList<Timestamp>(timestamps);
+    private TimestampMapping(Timestamp[] timestamps) {
+        this.timestamps = timestamps;
     }
 
     /**
      * @return stable client timestamp for the transaction
      */
     public Timestamp getClientTimestamp() {
-        return timestamps.get(0);
+        return timestamps[0];
     }
 
     /**
-     * @return unmodifiable list of all timestamps assigned to the transaction
+     * @return immutable snapshot of all timestamps assigned to the transaction
      */
     public List<Timestamp> getTimestamps() {
-        return Collections.unmodifiableList(timestamps);
+        return Collections.unmodifiableList(Arrays.asList(timestamps));
     }
 
     /**
-     * @return unmodifiable list of all system timestamps assigned to the
+     * @return immutable snapshot of all system timestamps assigned to the
      *         transaction
      */
     public List<Timestamp> getSystemTimestamps() {
-        return Collections.unmodifiableList(timestamps.subList(1, timestamps.size()));
+        final Timestamp[] snapshot = timestamps;
+        return Collections.unmodifiableList(Arrays.asList(snapshot).subList(1, snapshot.length));
     }
 
     /**
@@ -117,11 +118,10 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
      *         of this update intersects with the provided clock
      */
     public boolean allSystemTimestampsIncluded(final CausalityClock clock) {
-        final Iterator<Timestamp> iter = timestamps.iterator();
+        final Timestamp[] snapshot = timestamps;
         // Skip client timestamp.
-        iter.next();
-        while (iter.hasNext()) {
-            if (!clock.includes(iter.next())) {
+        for (int i = 1; i < snapshot.length; i++) {
+            if (!clock.includes(snapshot[i])) {
                 return false;
             }
         }
@@ -134,11 +134,16 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
      * @param ts
      *            system timestamp to add
      */
-    public void addSystemTimestamp(final Timestamp ts) {
-        if (timestamps.contains(ts)) {
-            return;
+    public synchronized void addSystemTimestamp(final Timestamp ts) {
+        final Timestamp[] snapshot = timestamps;
+        for (final Timestamp existing : snapshot) {
+            if (existing.equals(ts)) {
+                return;
+            }
         }
-        timestamps.add(ts);
+        final Timestamp[] updated = Arrays.copyOf(snapshot, snapshot.length + 1);
+        updated[snapshot.length] = ts;
+        timestamps = updated;
     }
 
     /**
@@ -149,12 +154,12 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
      *            timestamp; remains unchanged
      */
     public void mergeIn(TimestampMapping otherMapping) {
-        final Iterator<Timestamp> iter = otherMapping.timestamps.iterator();
-        if (!getClientTimestamp().equals(iter.next())) {
+        final Timestamp[] others = otherMapping.timestamps;
+        if (!getClientTimestamp().equals(others[0])) {
             throw new IllegalArgumentException("Invalid mappings to merge, they use different client timestamp");
         }
-        while (iter.hasNext()) {
-            addSystemTimestamp(iter.next());
+        for (int i = 1; i < others.length; i++) {
+            addSystemTimestamp(others[i]);
         }
     }
 
@@ -162,7 +167,7 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
      * @return true when there is at least 1 system timestamp defined
      */
     public boolean hasSystemTimestamp() {
-        return timestamps.size() > 1;
+        return timestamps.length > 1;
     }
 
     @Override
@@ -172,24 +177,26 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
 
     @Override
     public String toString() {
-        return timestamps.toString();
+        return Arrays.toString(timestamps);
     }
 
     @Override
     public void read(Kryo kryo, Input in) {
         int n = in.readByte();
-        this.timestamps = new LinkedList<Timestamp>();
+        final Timestamp[] result = new Timestamp[n];
         for (int i = 0; i < n; i++) {
             final Timestamp ts = new Timestamp();
             ts.read(kryo, in);
-            timestamps.add(ts);
+            result[i] = ts;
         }
+        this.timestamps = result;
     }
 
     @Override
     public void write(Kryo kryo, Output out) {
-        out.writeByte(this.timestamps.size());
-        for (Timestamp i : timestamps)
+        final Timestamp[] snapshot = timestamps;
+        out.writeByte(snapshot.length);
+        for (Timestamp i : snapshot)
             i.write(kryo, out);
     }
 
@@ -200,7 +207,7 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
 
     @Override
     public int hashCode() {
-        return timestamps.hashCode();
+        return Arrays.hashCode(timestamps);
     }
 
     @Override
@@ -208,6 +215,6 @@ final public class TimestampMapping implements Copyable, KryoSerializable, KryoC
         if (!(obj instanceof TimestampMapping)) {
             return false;
         }
-        return timestamps.equals(((TimestampMapping) obj).timestamps);
+        return Arrays.equals(timestamps, ((TimestampMapping) obj).timestamps);
     }
 }
@@ -16,8 +16,9 @@
  *****************************************************************************/
 package swift.crdt;
 
+import java.util.AbstractSet;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
@@ -46,6 +47,9 @@ import swift.utils.PrettyPrint;
  */
 public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT<V, T>> extends BaseCRDT<T> implements
         KryoSerializable {
+    // true if the map of elements instances may be shared with copies; it is
+    // then cloned before the next update (instances sets are immutable)
+    private transient boolean sharedElementsInstances;
 
     // Kryo
     protected AbstractAddWinsSetCRDT() {
@@ -64,11 +68,53 @@ public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT
     protected abstract Map<V, Set<TripleTimestamp>> getElementsInstances();
 
     /**
-     * @return non-modifiable reference of a set of elements
+     * Shares the map of elements instances of this object with its copy, until
+     * either of them is updated.
+     * 
+     * @param copy
+     *            a copy of this object, built over the same map
+     * @return the copy
+     */
+    protected T shareElementsInstances(T copy) {
+        sharedElementsInstances = true;
+        ((AbstractAddWinsSetCRDT<V, T>) copy).sharedElementsInstances = true;
+        return copy;
+    }
+
+    /**
+     * @return the map of elements instances, cloned first if it is shared
+     */
+    protected Map<V, Set<TripleTimestamp>> getElementsInstancesForUpdate() {
+        if (sharedElementsInstances) {
+            final Map<V, Set<TripleTimestamp>> shared = getElementsInstances();
+            createElementsInstances();
+            getElementsInstances().putAll(shared);
+            sharedElementsInstances = false;
+        }
+        return getElementsInstances();
+    }
+
+    /**
+     * @return non-modifiable view of the set of elements
      */
     @Override
     public Set<V> getValue() {
-        return Collections.unmodifiableSet(getElementsInstances().keySet());
+        return new AbstractSet<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return Collections.unmodifiableSet(getElementsInstances().keySet()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return getElementsInstances().size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return getElementsInstances().containsKey(o);
+            }
+        };
     }
 
     public int size() {
@@ -81,7 +127,7 @@ public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT
 
     public void add(final V element) {
         final TripleTimestamp ts = nextTimestamp();
-        final Set<TripleTimestamp> existingInstances = AddWinsUtils.add(getElementsInstances(), element, ts);
+        final Set<TripleTimestamp> existingInstances = AddWinsUtils.add(getElementsInstancesForUpdate(), element, ts);
         registerLocalOperation(generateUpdateDownstream(element, ts, existingInstances));
     }
 
@@ -91,14 +137,14 @@ public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT
     }
 
     public void remove(V element) {
-        Set<TripleTimestamp> removedInstances = AddWinsUtils.remove(getElementsInstances(), element);
+        Set<TripleTimestamp> removedInstances = AddWinsUtils.remove(getElementsInstancesForUpdate(), element);
         if (removedInstances != null) {
             registerLocalOperation(generateUpdateDownstream(element, null, removedInstances));
         }
     }
 
     protected void applyUpdate(V element, TripleTimestamp instance, Set<TripleTimestamp> overwrittenInstances) {
-        AddWinsUtils.applyUpdate(getElementsInstances(), element, instance, overwrittenInstances);
+        AddWinsUtils.applyUpdate(getElementsInstancesForUpdate(), element, instance, overwrittenInstances);
     }
 
     @Override
@@ -112,11 +158,7 @@ public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT
         output.writeVarInt(getElementsInstances().size(), true);
         for (Entry<V, Set<TripleTimestamp>> entry : getElementsInstances().entrySet()) {
             writeElement(kryo, output, entry.getKey());
-            final Set<TripleTimestamp> timestamps = entry.getValue();
-            output.writeVarInt(timestamps.size(), true);
-            for (final TripleTimestamp ts : timestamps) {
-                ts.write(kryo, output);
-            }
+            TimestampSet.copyOf(entry.getValue()).write(kryo, output);
         }
     }
 
@@ -132,13 +174,8 @@ public abstract class AbstractAddWinsSetCRDT<V, T extends AbstractAddWinsSetCRDT
         final Map<V, Set<TripleTimestamp>> elemsInstances = getElementsInstances();
         for (int i = 0; i < elementsNumber; i++) {
             final V element = readElement(kryo, input);
-            final int timestampsNumber = input.readVarInt(true);
-            final HashSet<TripleTimestamp> timestamps = new HashSet<>();
-            for (int j = 0; j < timestampsNumber; j++) {
-                final TripleTimestamp ts = new TripleTimestamp();
-                ts.read(kryo, input);
-                timestamps.add(ts);
-            }
+            final TimestampSet timestamps = new TimestampSet();
+            timestamps.read(kryo, input);
             elemsInstances.put(element, timestamps);
         }
     }
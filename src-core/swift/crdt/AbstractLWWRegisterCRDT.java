@@ -55,8 +55,16 @@ public abstract class AbstractLWWRegisterCRDT<V, T extends AbstractLWWRegisterCR
     }
 
     public AbstractLWWRegisterCRDT(CRDTIdentifier uid) {
+        this(uid, null);
+    }
+
+    /**
+     * Creates an initial state of a register holding the given value, which is
+     * overwritten by any assignment.
+     */
+    public AbstractLWWRegisterCRDT(CRDTIdentifier uid, V initialValue) {
         super(uid);
-        lastUpdate = generateUpdate(0, INIT_TIMESTAMP, null);
+        lastUpdate = generateUpdate(0, INIT_TIMESTAMP, initialValue);
     }
 
     protected AbstractLWWRegisterCRDT(CRDTIdentifier id, TxnHandle txn, CausalityClock clock,
@@ -48,9 +48,10 @@ public class AddWinsIdSetCRDT extends AbstractAddWinsSetCRDT<CRDTIdentifier, Add
         createElementsInstances();
     }
 
-    private AddWinsIdSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock) {
+    private AddWinsIdSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock,
+            Map<CRDTIdentifier, Set<TripleTimestamp>> elemsInstances) {
         super(id, txn, clock);
-        createElementsInstances();
+        this.elemsInstances = elemsInstances;
     }
 
     @Override
@@ -65,9 +66,7 @@ public class AddWinsIdSetCRDT extends AbstractAddWinsSetCRDT<CRDTIdentifier, Add
 
     @Override
     public AddWinsIdSetCRDT copy() {
-        AddWinsIdSetCRDT copy = new AddWinsIdSetCRDT(id, txn, clock);
-        AddWinsUtils.deepCopy(elemsInstances, copy.elemsInstances);
-        return copy;
+        return shareElementsInstances(new AddWinsIdSetCRDT(id, txn, clock, elemsInstances));
     }
     
     @Override
@@ -49,9 +49,10 @@ public class AddWinsMessageSetCRDT extends AbstractAddWinsSetCRDT<Message, AddWi
         createElementsInstances();
     }
 
-    private AddWinsMessageSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock) {
+    private AddWinsMessageSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock,
+            Map<Message, Set<TripleTimestamp>> elemsInstances) {
         super(id, txn, clock);
-        createElementsInstances();
+        this.elemsInstances = elemsInstances;
     }
 
     @Override
@@ -66,9 +67,7 @@ public class AddWinsMessageSetCRDT extends AbstractAddWinsSetCRDT<Message, AddWi
 
     @Override
     public AddWinsMessageSetCRDT copy() {
-        AddWinsMessageSetCRDT copy = new AddWinsMessageSetCRDT(id, txn, clock);
-        AddWinsUtils.deepCopy(elemsInstances, copy.elemsInstances);
-        return copy;
+        return shareElementsInstances(new AddWinsMessageSetCRDT(id, txn, clock, elemsInstances));
     }
 
     @Override
@@ -46,9 +46,10 @@ public class AddWinsSetCRDT<V> extends AbstractAddWinsSetCRDT<V, AddWinsSetCRDT<
         createElementsInstances();
     }
 
-    private AddWinsSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock) {
+    private AddWinsSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock,
+            Map<V, Set<TripleTimestamp>> elemsInstances) {
         super(id, txn, clock);
-        createElementsInstances();
+        this.elemsInstances = elemsInstances;
     }
 
     @Override
@@ -63,8 +64,6 @@ public class AddWinsSetCRDT<V> extends AbstractAddWinsSetCRDT<V, AddWinsSetCRDT<
 
     @Override
     public AddWinsSetCRDT<V> copy() {
-        final AddWinsSetCRDT<V> copy = new AddWinsSetCRDT<V>(id, txn, clock);
-        AddWinsUtils.deepCopy(elemsInstances, copy.getElementsInstances());
-        return copy;
+        return shareElementsInstances(new AddWinsSetCRDT<V>(id, txn, clock, elemsInstances));
     }
 }
@@ -47,9 +47,10 @@ public class AddWinsSortedSetCRDT<V extends Comparable<V>> extends AbstractAddWi
         createElementsInstances();
     }
 
-    private AddWinsSortedSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock) {
+    private AddWinsSortedSetCRDT(CRDTIdentifier id, final TxnHandle txn, final CausalityClock clock,
+            SortedMap<V, Set<TripleTimestamp>> elemsInstances) {
         super(id, txn, clock);
-        createElementsInstances();
+        this.elemsInstances = elemsInstances;
     }
 
     @Override
@@ -64,8 +65,6 @@ public class AddWinsSortedSetCRDT<V extends Comparable<V>> extends AbstractAddWi
 
     @Override
     public AddWinsSortedSetCRDT<V> copy() {
-        AddWinsSortedSetCRDT<V> copy = new AddWinsSortedSetCRDT<V>(id, txn, clock);
-        AddWinsUtils.deepCopy(elemsInstances, copy.getElementsInstances());
-        return copy;
+        return shareElementsInstances(new AddWinsSortedSetCRDT<V>(id, txn, clock, elemsInstances));
     }
 }
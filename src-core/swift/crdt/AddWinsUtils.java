@@ -17,9 +17,7 @@
 package swift.crdt;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import swift.clocks.TripleTimestamp;
@@ -27,38 +25,36 @@ import swift.clocks.TripleTimestamp;
 /**
  * Helper class with static methods for processing common type of payload. The
  * methods are used to reduce code duplication and simplify the maintenance.
+ * <p>
+ * Instances of elements are kept in immutable {@link TimestampSet}s, so maps of
+ * element instances can be copied shallowly.
  * 
  * @author annettebieniusa, mzawirsk
  * 
  */
 public final class AddWinsUtils {
-    // 4 is a magic constant secretly shared with me by aliens...
-    // ... which works well for the common case of singleton set.
-    public static final int SMALL_HASHSET_EXPECTED_CAPACITY = 4;
 
     public static <V> Set<TripleTimestamp> add(Map<V, Set<TripleTimestamp>> elemsInstances, V element,
             final TripleTimestamp newInstance) {
-        final HashSet<TripleTimestamp> newInstances = new HashSet<TripleTimestamp>(SMALL_HASHSET_EXPECTED_CAPACITY);
-        newInstances.add(newInstance);
-        return elemsInstances.put(element, newInstances);
+        return elemsInstances.put(element, TimestampSet.of(newInstance));
     }
 
     public static <V> void applyUpdate(Map<V, Set<TripleTimestamp>> elemsInstances, V element,
             TripleTimestamp newInstance, Collection<?> overwrittenInstances) {
         Set<TripleTimestamp> instances = elemsInstances.get(element);
-        if (instances == null && newInstance != null) {
-            instances = new HashSet<TripleTimestamp>(SMALL_HASHSET_EXPECTED_CAPACITY);
-            elemsInstances.put(element, instances);
+        if (instances == null) {
+            if (newInstance != null) {
+                elemsInstances.put(element, TimestampSet.of(newInstance));
+            }
+            // otherwise, removal of instances already removed: nothing to record
+            return;
         }
-        if (instances != null && overwrittenInstances != null) {
-            // Self-cleaning GC.
-            instances.removeAll(overwrittenInstances);
-        }
-        if (newInstance != null) {
-            instances.add(newInstance);
-        }
-        if (instances.isEmpty()) {
+        // Self-cleaning GC.
+        final TimestampSet updated = TimestampSet.copyOf(instances).without(overwrittenInstances).with(newInstance);
+        if (updated.isEmpty()) {
             elemsInstances.remove(element);
+        } else if (updated != instances) {
+            elemsInstances.put(element, updated);
         }
     }
 
@@ -70,10 +66,4 @@ public final class AddWinsUtils {
             Set<TripleTimestamp> removedInstances) {
         applyUpdate(elemsInstances, element, null, removedInstances);
     }
-
-    public static <V, T extends Map<V, Set<TripleTimestamp>>> void deepCopy(T origInstances, T newInstances) {
-        for (final Entry<V, Set<TripleTimestamp>> entry : origInstances.entrySet()) {
-            newInstances.put(entry.getKey(), new HashSet<TripleTimestamp>(entry.getValue()));
-        }
-    }
 }
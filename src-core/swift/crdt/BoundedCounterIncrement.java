@@ -1,8 +1,9 @@
 package swift.crdt;
 
 import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.CoalescableUpdate;
 
-public class BoundedCounterIncrement<T extends BoundedCounterCRDT<T>> implements CRDTUpdate<T> {
+public class BoundedCounterIncrement<T extends BoundedCounterCRDT<T>> implements CoalescableUpdate<T> {
 
     private int amount;
     private String siteId;
@@ -37,6 +38,19 @@ public class BoundedCounterIncrement<T extends BoundedCounterCRDT<T>> implements
         this.siteId = siteId;
     }
 
+    @Override
+    public CRDTUpdate<T> coalesce(CRDTUpdate<T> next) {
+        // increments of the same site add up
+        if (next.getClass() != BoundedCounterIncrement.class) {
+            return null;
+        }
+        final BoundedCounterIncrement<T> other = (BoundedCounterIncrement<T>) next;
+        if (!siteId.equals(other.siteId)) {
+            return null;
+        }
+        return new BoundedCounterIncrement<T>(siteId, amount + other.amount);
+    }
+
     @Override
     public Object getValueWithoutMetadata() {
         // TODO Auto-generated method stub
@@ -204,8 +204,8 @@ public class DirectoryCRDT extends BaseCRDT<DirectoryCRDT> {
 
     @Override
     public DirectoryCRDT copy() {
-        final Map<CRDTIdentifier, Set<TripleTimestamp>> newDir = new HashMap<CRDTIdentifier, Set<TripleTimestamp>>();
-        AddWinsUtils.deepCopy(dir, newDir);
+        // instances sets are immutable, a shallow copy suffices
+        final Map<CRDTIdentifier, Set<TripleTimestamp>> newDir = new HashMap<CRDTIdentifier, Set<TripleTimestamp>>(dir);
         return new DirectoryCRDT(id, txn, clock, newDir);
     }
 }
@@ -17,8 +17,9 @@
 package swift.crdt;
 
 import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.CoalescableUpdate;
 
-public class IntegerUpdate implements CRDTUpdate<IntegerCRDT> {
+public class IntegerUpdate implements CoalescableUpdate<IntegerCRDT> {
     protected int delta;
 
     // required for kryo
@@ -38,6 +39,15 @@ public class IntegerUpdate implements CRDTUpdate<IntegerCRDT> {
         crdt.applyAdd(delta);
     }
 
+    @Override
+    public CRDTUpdate<IntegerCRDT> coalesce(CRDTUpdate<IntegerCRDT> next) {
+        // increments add up
+        if (getClass() != IntegerUpdate.class || next.getClass() != IntegerUpdate.class) {
+            return null;
+        }
+        return new IntegerUpdate(delta + ((IntegerUpdate) next).delta);
+    }
+
     @Override
     public Object getValueWithoutMetadata() {
         return delta;
@@ -43,6 +43,10 @@ public class LWWRegisterCRDT<V> extends AbstractLWWRegisterCRDT<V, LWWRegisterCR
         super(uid);
     }
 
+    public LWWRegisterCRDT(CRDTIdentifier uid, V initialValue) {
+        super(uid, initialValue);
+    }
+
     private LWWRegisterCRDT(CRDTIdentifier id, TxnHandle txn, CausalityClock clock,
             LWWRegisterUpdate<V, LWWRegisterCRDT<V>> lastUpdate) {
         super(id, txn, clock, lastUpdate);
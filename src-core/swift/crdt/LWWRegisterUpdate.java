@@ -18,13 +18,14 @@ package swift.crdt;
 
 import swift.clocks.TripleTimestamp;
 import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.CoalescableUpdate;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoSerializable;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
-public class LWWRegisterUpdate<V, T extends AbstractLWWRegisterCRDT<V, T>> implements CRDTUpdate<T>,
+public class LWWRegisterUpdate<V, T extends AbstractLWWRegisterCRDT<V, T>> implements CoalescableUpdate<T>,
         Comparable<LWWRegisterUpdate<V, T>>, KryoSerializable {
     protected V val;
     protected long registerTimestamp;
@@ -45,6 +46,16 @@ public class LWWRegisterUpdate<V, T extends AbstractLWWRegisterCRDT<V, T>> imple
         register.applySet(this);
     }
 
+    @Override
+    public CRDTUpdate<T> coalesce(CRDTUpdate<T> next) {
+        // only the last write wins
+        if (next.getClass() != getClass()) {
+            return null;
+        }
+        final LWWRegisterUpdate<V, T> other = (LWWRegisterUpdate<V, T>) next;
+        return other.compareTo(this) > 0 ? other : this;
+    }
+
     @Override
     public Object getValueWithoutMetadata() {
         return val;
@@ -84,7 +84,7 @@ public class LowerBoundCounterCRDT extends BoundedCounterCRDT<LowerBoundCounterC
 
     protected void applyDec(BoundedCounterDecrement<LowerBoundCounterCRDT> decUpdate) {
         checkExistsPermissionPair(decUpdate.getSiteId(), decUpdate.getSiteId());
-        delta.put(decUpdate.getSiteId(), decUpdate.getAmount());
+        delta.put(decUpdate.getSiteId(), delta.get(decUpdate.getSiteId()) + decUpdate.getAmount());
         val -= decUpdate.getAmount();
 
     }
@@ -73,19 +73,32 @@ public class MapCRDT<K, V> extends BaseCRDT<MapCRDT<K, V>> {
             keysToElementsInstances.put(k, value = new HashMap<V, Set<TripleTimestamp>>());
         }
         AddWinsUtils.applyUpdate(value, e, uid, overwrittenInstances);
+        if (value.isEmpty()) {
+            keysToElementsInstances.remove(k);
+        }
     }
 
     public void removeU(K k, V e, TripleTimestamp uid, Set<TripleTimestamp> rset) {
+        // a key without elements is equivalent to an absent key, so it is not
+        // kept around once its last element is removed
         Map<V, Set<TripleTimestamp>> value = keysToElementsInstances.get(k);
         if (value == null) {
-            keysToElementsInstances.put(k, value = new HashMap<V, Set<TripleTimestamp>>());
+            return;
         }
         AddWinsUtils.applyUpdate(value, e, null, rset);
+        if (value.isEmpty()) {
+            keysToElementsInstances.remove(k);
+        }
     }
 
     @Override
     public MapCRDT<K, V> copy() {
-        return new MapCRDT<K, V>(id, txn, clock, keysToElementsInstances);
+        // instances sets are immutable, only the maps need to be copied
+        final Map<K, Map<V, Set<TripleTimestamp>>> newKeysToInstances = new HashMap<K, Map<V, Set<TripleTimestamp>>>();
+        for (Map.Entry<K, Map<V, Set<TripleTimestamp>>> entry : keysToElementsInstances.entrySet()) {
+            newKeysToInstances.put(entry.getKey(), new HashMap<V, Set<TripleTimestamp>>(entry.getValue()));
+        }
+        return new MapCRDT<K, V>(id, txn, clock, newKeysToInstances);
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 package swift.crdt;
 
 import swift.crdt.core.CRDTUpdate;
+import swift.crdt.core.CoalescableUpdate;
 
-public class MaxUpdate<V extends Comparable<V>> implements CRDTUpdate<MaxCRDT<V>> {
+public class MaxUpdate<V extends Comparable<V>> implements CoalescableUpdate<MaxCRDT<V>> {
     V value;
 
     public MaxUpdate(V value) {
@@ -14,6 +15,16 @@ public class MaxUpdate<V extends Comparable<V>> implements CRDTUpdate<MaxCRDT<V>
         crdt.applySet(value);
     }
 
+    @Override
+    public CRDTUpdate<MaxCRDT<V>> coalesce(CRDTUpdate<MaxCRDT<V>> next) {
+        // only the largest value matters
+        if (!(next instanceof MaxUpdate)) {
+            return null;
+        }
+        final MaxUpdate<V> other = (MaxUpdate<V>) next;
+        return other.value.compareTo(value) > 0 ? other : this;
+    }
+
     @Override
     public Object getValueWithoutMetadata() {
         return value;
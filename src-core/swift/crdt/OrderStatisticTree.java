@@ -0,0 +1,328 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Balanced (AVL) search tree of keys, indexed by rank. Each key is either
+ * visible or hidden (e.g., a tombstone); ranks only count visible keys, and
+ * every node keeps the number of visible keys in its subtree, so that hidden
+ * keys are skipped without being visited.
+ *
+ * Lookups by rank, rank of a key, insertions and removals take O(log n).
+ * @param <K>
+ *            type of the keys
+ */
+final class OrderStatisticTree<K extends Comparable<? super K>> implements Iterable<K> {
+
+    static final class Node<K> {
+        K key;
+        boolean visible;
+        int visibleCount;
+        int height;
+        Node<K> left, right;
+
+        Node(K key, boolean visible) {
+            this.key = key;
+            this.visible = visible;
+            this.visibleCount = visible ? 1 : 0;
+            this.height = 1;
+        }
+    }
+
+    private Node<K> root;
+    private int totalSize;
+
+    OrderStatisticTree() {
+    }
+
+    /**
+     * Builds a balanced tree from keys already sorted in ascending order, in
+     * O(n).
+     */
+    static <K extends Comparable<? super K>> OrderStatisticTree<K> fromSorted(List<K> sortedKeys,
+            List<Boolean> visibility) {
+        OrderStatisticTree<K> res = new OrderStatisticTree<K>();
+        res.root = build(sortedKeys, visibility, 0, sortedKeys.size() - 1);
+        res.totalSize = sortedKeys.size();
+        return res;
+    }
+
+    /**
+     * @return the number of visible keys
+     */
+    int size() {
+        return visibleCount(root);
+    }
+
+    /**
+     * @return the number of keys, including hidden ones
+     */
+    int totalSize() {
+        return totalSize;
+    }
+
+    boolean contains(K key) {
+        return find(key) != null;
+    }
+
+    /**
+     * @return true if the key is stored and visible
+     */
+    boolean isVisible(K key) {
+        Node<K> n = find(key);
+        return n != null && n.visible;
+    }
+
+    /**
+     * Adds the key, or changes the visibility of an existing one.
+     *
+     * @return true if the key was not in the tree
+     */
+    boolean add(K key, boolean visible) {
+        int before = totalSize;
+        root = insert(root, key, visible);
+        return totalSize > before;
+    }
+
+    /**
+     * @return true if the key was in the tree
+     */
+    boolean remove(K key) {
+        int before = totalSize;
+        root = delete(root, key);
+        return totalSize < before;
+    }
+
+    /**
+     * @return the visible key with the given rank
+     * @throws IndexOutOfBoundsException
+     *             if there is no such key
+     */
+    K get(int rank) {
+        if (rank < 0 || rank >= size())
+            throw new IndexOutOfBoundsException("Index: " + rank + ", Size: " + size());
+
+        Node<K> n = root;
+        for (;;) {
+            int l = visibleCount(n.left);
+            if (rank < l)
+                n = n.left;
+            else {
+                rank -= l;
+                if (n.visible) {
+                    if (rank == 0)
+                        return n.key;
+                    rank--;
+                }
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * @return the number of visible keys smaller than the given key
+     */
+    int rank(K key) {
+        int res = 0;
+        Node<K> n = root;
+        while (n != null) {
+            int cmp = key.compareTo(n.key);
+            if (cmp <= 0)
+                n = n.left;
+            else {
+                res += visibleCount(n.left) + (n.visible ? 1 : 0);
+                n = n.right;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Iterates over the visible keys, in ascending order.
+     */
+    @Override
+    public Iterator<K> iterator() {
+        return new Iterator<K>() {
+            final Deque<Node<K>> path = new ArrayDeque<Node<K>>();
+            Node<K> next;
+            {
+                pushLeft(root);
+                next = nextVisible();
+            }
+
+            // subtrees without visible keys are not entered
+            void pushLeft(Node<K> n) {
+                for (; n != null && n.visibleCount > 0; n = n.left)
+                    path.push(n);
+            }
+
+            Node<K> nextVisible() {
+                while (!path.isEmpty()) {
+                    Node<K> n = path.pop();
+                    pushLeft(n.right);
+                    if (n.visible)
+                        return n;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public K next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                K res = next.key;
+                next = nextVisible();
+                return res;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private Node<K> find(K key) {
+        Node<K> n = root;
+        while (n != null) {
+            int cmp = key.compareTo(n.key);
+            if (cmp == 0)
+                return n;
+            n = cmp < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    private Node<K> insert(Node<K> n, K key, boolean visible) {
+        if (n == null) {
+            totalSize++;
+            return new Node<K>(key, visible);
+        }
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0)
+            n.left = insert(n.left, key, visible);
+        else if (cmp > 0)
+            n.right = insert(n.right, key, visible);
+        else {
+            n.key = key;
+            n.visible = visible;
+        }
+        return balance(n);
+    }
+
+    private Node<K> delete(Node<K> n, K key) {
+        if (n == null)
+            return null;
+
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0)
+            n.left = delete(n.left, key);
+        else if (cmp > 0)
+            n.right = delete(n.right, key);
+        else {
+            totalSize--;
+            if (n.left == null)
+                return n.right;
+            if (n.right == null)
+                return n.left;
+            Node<K> min = n.right;
+            while (min.left != null)
+                min = min.left;
+            n.right = deleteMin(n.right);
+            min.left = n.left;
+            min.right = n.right;
+            n = min;
+        }
+        return balance(n);
+    }
+
+    private Node<K> deleteMin(Node<K> n) {
+        if (n.left == null)
+            return n.right;
+        n.left = deleteMin(n.left);
+        return balance(n);
+    }
+
+    private static <K> Node<K> build(List<K> keys, List<Boolean> visibility, int lo, int hi) {
+        if (lo > hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        Node<K> n = new Node<K>(keys.get(mid), visibility.get(mid));
+        n.left = build(keys, visibility, lo, mid - 1);
+        n.right = build(keys, visibility, mid + 1, hi);
+        update(n);
+        return n;
+    }
+
+    private static <K> Node<K> balance(Node<K> n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right))
+                n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left))
+                n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static <K> Node<K> rotateRight(Node<K> n) {
+        Node<K> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static <K> Node<K> rotateLeft(Node<K> n) {
+        Node<K> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static <K> void update(Node<K> n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        n.visibleCount = visibleCount(n.left) + visibleCount(n.right) + (n.visible ? 1 : 0);
+    }
+
+    private static <K> int height(Node<K> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static <K> int visibleCount(Node<K> n) {
+        return n == null ? 0 : n.visibleCount;
+    }
+}
@@ -16,16 +16,20 @@
  *****************************************************************************/
 package swift.crdt;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 
 import swift.clocks.CausalityClock;
 import swift.clocks.TripleTimestamp;
@@ -43,8 +47,10 @@ import swift.crdt.core.TxnHandle;
  */
 public class SequenceCRDT<V> extends BaseCRDT<SequenceCRDT<V>> {
     protected SortedMap<PosID<V>, Set<TripleTimestamp>> setElems;
-    protected transient List<PosID<V>> posIDs;
-    protected transient List<V> atoms;
+    // rank index of the keys of setElems, built on first use
+    protected transient OrderStatisticTree<PosID<V>> posIDs;
+    // digits of new position identifiers, seeded per instance
+    private transient Random rg;
 
     // Kryo
     public SequenceCRDT() {
@@ -66,8 +72,7 @@ public class SequenceCRDT<V> extends BaseCRDT<SequenceCRDT<V>> {
      */
     public void insertAt(int pos, V v) {
         PosID<V> posId = newPosId(pos, v);
-        getOrComputeAtoms().add(pos, v);
-        getOrComputePosIds().add(pos, posId);
+        getOrComputePosIds().add(posId, true);
         Set<TripleTimestamp> overwrittenInstances = AddWinsUtils.add(setElems, posId, posId.getTimestamp());
         // WISHME: could be optimized
         registerLocalOperation(new SequenceInsertUpdate(posId, posId.getTimestamp(), overwrittenInstances));
@@ -77,94 +82,155 @@ public class SequenceCRDT<V> extends BaseCRDT<SequenceCRDT<V>> {
      * Deletes atom at position pos
      */
     public V removeAt(int pos) {
-        PosID<V> posId = getOrComputePosIds().remove(pos);
-        V v = getOrComputeAtoms().remove(pos);
+        PosID<V> posId = getOrComputePosIds().get(pos);
+        getOrComputePosIds().remove(posId);
         Set<TripleTimestamp> removedInstances = AddWinsUtils.remove(setElems, posId);
         if (removedInstances != null) {
             registerLocalOperation(new SequenceRemoveUpdate(posId, removedInstances));
         }
-        return v;
+        return posId.getAtom();
+    }
+
+    /**
+     * Inserts the atoms into positions pos, pos + 1, ... of the sequence, as a
+     * single operation: the atoms get a contiguous block of position
+     * identifiers and share one timestamp. Blocks inserted concurrently at the
+     * same position are not interleaved.
+     */
+    public void insertAllAt(int pos, List<V> atoms) {
+        if (atoms.isEmpty())
+            return;
+        final OrderStatisticTree<PosID<V>> tree = getOrComputePosIds();
+        final SID lo = pos > 0 ? tree.get(pos - 1).getId() : null;
+        final SID hi = pos < tree.size() ? tree.get(pos).getId() : null;
+        final TripleTimestamp ts = nextTimestamp();
+        final SequenceInsertRangeUpdate<V> update = new SequenceInsertRangeUpdate<V>(SID.between(lo, hi,
+                atoms.size(), ts, random()), ts, new ArrayList<V>(atoms));
+        update.applyTo(this);
+        registerLocalOperation(update);
+    }
+
+    /**
+     * Deletes the atoms at positions from (inclusive) to to (exclusive), as a
+     * single operation.
+     * 
+     * @return the deleted atoms
+     * @throws IndexOutOfBoundsException
+     *             if from &lt; 0, to &gt; size() or from &gt; to; nothing is
+     *             deleted then
+     */
+    public List<V> removeRange(int from, int to) {
+        final OrderStatisticTree<PosID<V>> tree = getOrComputePosIds();
+        if (from < 0 || to > tree.size() || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + tree.size());
+        }
+        final List<V> atoms = new ArrayList<V>(to - from);
+        final List<PosID<V>> removed = new ArrayList<PosID<V>>(to - from);
+        for (int i = from; i < to; i++) {
+            final PosID<V> posId = tree.get(i);
+            atoms.add(posId.getAtom());
+            removed.add(posId.deletedPosID());
+        }
+        if (!removed.isEmpty()) {
+            final SequenceRemoveRangeUpdate<V> update = new SequenceRemoveRangeUpdate<V>(removed);
+            update.applyTo(this);
+            registerLocalOperation(update);
+        }
+        return atoms;
     }
 
     public int size() {
-        return getOrComputeAtoms().size();
+        return getOrComputePosIds().size();
     }
 
+    /**
+     * Returns a live, read-only view of the sequence. Access by index takes
+     * O(log n).
+     */
     @Override
     public List<V> getValue() {
-        return Collections.unmodifiableList(getOrComputeAtoms());
+        final OrderStatisticTree<PosID<V>> tree = getOrComputePosIds();
+        return new AbstractList<V>() {
+            @Override
+            public V get(int index) {
+                return tree.get(index).getAtom();
+            }
+
+            @Override
+            public int size() {
+                return tree.size();
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<PosID<V>> it = tree.iterator();
+                return new Iterator<V>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public V next() {
+                        return it.next().getAtom();
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
     }
 
     protected void applyRemove(PosID<V> posId, Set<TripleTimestamp> ids) {
-        // Make sure to not affect existing view;
-        // WISHME: could be done differently, if done consistently
-        delinearize();
         AddWinsUtils.applyUpdate(setElems, posId, null, ids);
+        updatePosId(posId);
     }
 
     protected void applyAdd(PosID<V> posId, TripleTimestamp id, Set<TripleTimestamp> overwrittenIds) {
-        // Make sure to not affect existing view
-        // WISHME: could be done differently, if done consistently
-        delinearize();
         AddWinsUtils.applyUpdate(setElems, posId, id, overwrittenIds);
+        updatePosId(posId);
     }
 
-    private List<PosID<V>> getOrComputePosIds() {
-        if (posIDs == null) {
-            linearize();
-        }
-        return posIDs;
+    // keeps the rank index in sync with setElems, if it was already built
+    private void updatePosId(PosID<V> posId) {
+        if (posIDs == null)
+            return;
+        if (setElems.containsKey(posId))
+            posIDs.add(posId, !posId.isDeleted());
+        else
+            posIDs.remove(posId);
     }
 
-    private List<V> getOrComputeAtoms() {
-        if (atoms == null) {
-            linearize();
-        }
-        return atoms;
-    }
-
-    private void linearize() {
-        atoms = new ArrayList<V>();
-        posIDs = new ArrayList<PosID<V>>();
-        for (Map.Entry<PosID<V>, Set<TripleTimestamp>> i : setElems.entrySet()) {
-            PosID<V> k = i.getKey();
-            if (!k.isDeleted()) {
-                getOrComputeAtoms().add(k.getAtom());
-                getOrComputePosIds().add(k);
-            }
+    private OrderStatisticTree<PosID<V>> getOrComputePosIds() {
+        if (posIDs == null) {
+            List<PosID<V>> keys = new ArrayList<PosID<V>>(setElems.keySet());
+            List<Boolean> visible = new ArrayList<Boolean>(keys.size());
+            for (PosID<V> k : keys)
+                visible.add(!k.isDeleted());
+            posIDs = OrderStatisticTree.fromSorted(keys, visible);
         }
-    }
-
-    private void delinearize() {
-        atoms = null;
-        posIDs = null;
+        return posIDs;
     }
 
     final private PosID<V> newPosId(int pos, V atom) {
-        SID id = null;
-        int size = size();
-
+        final OrderStatisticTree<PosID<V>> tree = getOrComputePosIds();
+        final SID lo = pos > 0 ? tree.get(pos - 1).getId() : null;
+        final SID hi = pos < tree.size() ? tree.get(pos).getId() : null;
         final TripleTimestamp ts = nextTimestamp();
-        if (pos == 0) {
-            id = size == 0 ? SID.FIRST : SID.smallerThan(getOrComputePosIds().get(0).getId());
-            return new PosID<V>(id, atom, ts);
-        }
-        if (pos == size) {
-            id = SID.greaterThan(getOrComputePosIds().get(pos - 1).getId());
-            return new PosID<V>(id, atom, ts);
-        }
-
-        PosID<V> lo = getOrComputePosIds().get(pos - 1), hi = getOrComputePosIds().get(pos);
-        id = lo.getId().between(hi.getId());
-        PosID<V> res = new PosID<V>(id, atom, ts);
+        return new PosID<V>(SID.between(lo, hi, ts, random()), atom, ts);
+    }
 
-        return res;
+    private Random random() {
+        if (rg == null)
+            rg = new Random();
+        return rg;
     }
 
     @Override
     public SequenceCRDT<V> copy() {
-        final SortedMap<PosID<V>, Set<TripleTimestamp>> newSetElems = new TreeMap<PosID<V>, Set<TripleTimestamp>>();
-        AddWinsUtils.deepCopy(setElems, newSetElems);
+        // instances sets are immutable, a shallow copy suffices
+        final SortedMap<PosID<V>, Set<TripleTimestamp>> newSetElems = new TreeMap<PosID<V>, Set<TripleTimestamp>>(
+                setElems);
         return new SequenceCRDT<V>(id, txn, clock, newSetElems);
     }
 
@@ -225,102 +291,201 @@ public class SequenceCRDT<V> extends BaseCRDT<SequenceCRDT<V>> {
         }
     }
 
-    static class SID implements Comparable<SID> {
-        static final int TOP = 1 << 30;
-
-        static final int INCREMENT = 1 << 9;
-        static final Random rg = new Random(1L);
-        static SID FIRST = new SID(new int[] { increment(0), SiteId.get() });
-
-        int[] coords;
+    /**
+     * Position identifier: a path of digits in a tree whose arity doubles at
+     * each level, allocated in the LSEQ style. Each level also carries the
+     * timestamp of the insertion that allocated its digit, as in Logoot, so
+     * that identifiers allocated concurrently in the same gap, possibly with
+     * the same digits, are distinct, and an insertion between them falls
+     * between them. Levels are compared by digit, then by timestamp, and
+     * paths lexicographically, a prefix being smaller; the digit of the last
+     * level of a path is never 0, so the order is the same as that of the
+     * paths padded with zeros and no timestamps.
+     * 
+     * The digits of the first {@link #PACKED_LEVELS} levels are packed in one
+     * long, most significant level first, with the depth in the lowest bits;
+     * deeper levels, which are rare, are kept in an array. Timestamps of the
+     * prefix of a path are shared with the identifier it was allocated from.
+     */
+    static final class SID implements Comparable<SID>, KryoSerializable {
+        static final int BASE_BITS = 4;
+        static final int MAX_BITS = 30;
+        static final int DEPTH_BITS = 4;
+        static final int PACKED_LEVELS = 8;
+        // maximum distance of a new digit to the boundary it is allocated from
+        static final int BOUNDARY = 10;
+
+        static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+        static final int[] OFFSETS = new int[PACKED_LEVELS];
+        static {
+            int offset = Long.SIZE;
+            for (int d = 0; d < PACKED_LEVELS; d++)
+                OFFSETS[d] = offset -= width(d);
+        }
+
+        // encoding of the timestamp of a level
+        private static final int NO_STAMP = 0;
+        private static final int SAME_STAMP = 1;
+        private static final int NEW_STAMP = 2;
+
+        long head;
+        int[] tail;
+        // timestamp of each level, null for the zero levels of a padded prefix
+        TripleTimestamp[] stamps;
 
         // for kryo
         SID() {
         }
 
-        protected SID(int[] coords) {
-            this.coords = coords;
+        private SID(long head, int[] tail, TripleTimestamp[] stamps) {
+            this.head = head;
+            this.tail = tail;
+            this.stamps = stamps;
+        }
+
+        /**
+         * Allocates an identifier between lo and hi, which must be ordered,
+         * for the insertion with timestamp ts; null stands for the beginning
+         * (lo) or end (hi) of the sequence. Appends allocate close to lo,
+         * prepends close to hi, and other insertions alternate between the two
+         * at each level.
+         */
+        static SID between(SID lo, SID hi, TripleTimestamp ts, Random rg) {
+            boolean bounded = hi != null;
+            for (int d = 0;; d++) {
+                final int l = lo == null ? 0 : lo.digit(d);
+                final int h = bounded && d < hi.depth() ? hi.digit(d) : 1 << width(d);
+                if (h - l > 1) {
+                    final int room = Math.min(BOUNDARY, h - l - 1);
+                    final boolean fromLo = hi == null || (lo != null && (d & 1) == 0);
+                    final int digit = fromLo ? l + 1 + rg.nextInt(room) : h - 1 - rg.nextInt(room);
+                    return withDigit(lo, d, digit, ts);
+                }
+                // past this level, the prefix of lo is already below hi
+                if (h != l || (bounded && compareStamps(stamp(lo, d), hi.stamp(d)) != 0))
+                    bounded = false;
+            }
         }
 
-        public SID between(SID other) {
-            return new SID(between(this, other));
+        /**
+         * Allocates the first of a block of n consecutive identifiers between
+         * lo and hi; the others are obtained with {@link #plus(int)}. The block
+         * is placed under a new identifier of its own, at the first level with
+         * room for n digits, so that blocks inserted concurrently in the same
+         * gap are ordered as wholes rather than interleaved.
+         */
+        static SID between(SID lo, SID hi, int n, TripleTimestamp ts, Random rg) {
+            final SID anchor = between(lo, hi, ts, rg);
+            if (n == 1)
+                return anchor;
+            if (n >= 1 << MAX_BITS)
+                throw new IllegalArgumentException("Block too large: " + n);
+            int d = anchor.depth();
+            while ((1 << width(d)) - 1 < n)
+                d++;
+            return withDigit(anchor, d, 1, ts);
         }
 
-        // TODO deal with underoverflow of first coordinate...
-        static public SID smallerThan(SID x) {
-            return new SID(new int[] { decrement(x.coord(0)), SiteId.get() });
+        // the first d levels of prefix (zeros if null), followed by digit
+        private static SID withDigit(SID prefix, int d, int digit, TripleTimestamp ts) {
+            final TripleTimestamp[] stamps = new TripleTimestamp[d + 1];
+            for (int i = 0; i < d; i++)
+                stamps[i] = stamp(prefix, i);
+            stamps[d] = ts;
+
+            final long prefixHead = prefix == null || d == 0 ? 0L : prefix.head & -(1L << OFFSETS[Math.min(d,
+                    PACKED_LEVELS) - 1]);
+            if (d < PACKED_LEVELS)
+                return new SID(prefixHead | ((long) digit) << OFFSETS[d] | (d + 1), null, stamps);
+
+            final int[] tail = new int[d - PACKED_LEVELS + 1];
+            for (int i = 0; i < tail.length - 1; i++)
+                tail[i] = prefix == null ? 0 : prefix.digit(PACKED_LEVELS + i);
+            tail[tail.length - 1] = digit;
+            return new SID(prefixHead | PACKED_LEVELS, tail, stamps);
         }
 
-        // TODO deal with overflow of first coordinate...
-        static public SID greaterThan(SID x) {
-            return new SID(new int[] { increment(x.coord(0)), SiteId.get() });
+        /**
+         * @return the identifier i places after this one in a block allocated
+         *         by {@link #between(SID, SID, int, TripleTimestamp, Random)},
+         *         i.e., with i added to the digit of the last level
+         */
+        SID plus(int i) {
+            if (tail == null)
+                return new SID(head + ((long) i << OFFSETS[depth() - 1]), null, stamps);
+            final int[] next = tail.clone();
+            next[next.length - 1] += i;
+            return new SID(head, next, stamps);
         }
 
-        @Override
-        public int compareTo(SID other) {
-            int dims = Math.max(dims(), other.dims());
-            for (int i = 0; i < dims; i++) {
-                int signum = coord(i) - other.coord(i);
-                if (signum != 0)
-                    return signum;
-            }
-            return 0;
+        static int width(int d) {
+            return Math.min(BASE_BITS + d, MAX_BITS);
         }
 
-        final int coord(int d) {
-            return d < coords.length ? coords[d] : 0;
+        int depth() {
+            return tail == null ? (int) (head & DEPTH_MASK) : PACKED_LEVELS + tail.length;
         }
 
-        static private int[] between(SID lo, SID hi) {
+        /**
+         * @return the digit at level d, or 0 if the path is shorter
+         */
+        int digit(int d) {
+            if (d < PACKED_LEVELS)
+                return d < depth() ? (int) ((head >>> OFFSETS[d]) & ((1L << width(d)) - 1)) : 0;
+            d -= PACKED_LEVELS;
+            return tail != null && d < tail.length ? tail[d] : 0;
+        }
 
-            int dims = Math.max(lo.dims(), hi.dims());
+        /**
+         * @return the timestamp of level d, or null if the path is shorter
+         */
+        TripleTimestamp stamp(int d) {
+            return d < stamps.length ? stamps[d] : null;
+        }
 
-            int[] inc = Arrays.copyOf(lo.coords, dims);
-            int[] res = Arrays.copyOf(lo.coords, dims);
+        private static TripleTimestamp stamp(SID id, int d) {
+            return id == null ? null : id.stamp(d);
+        }
 
-            for (int i = 0; i < dims - 1; i += 2) {
-                inc[i] = Math.min(2 * INCREMENT, ((hi.coord(i) - lo.coord(i)) + TOP) % TOP);
-                res[i] = (lo.coord(i) + (inc[i] >> 1));
-                if (res[i] > TOP) {
-                    res[i] %= TOP;
-                    res[i - 2] += 1;
-                }
-            }
+        private static int compareStamps(TripleTimestamp a, TripleTimestamp b) {
+            if (a == b)
+                return 0;
+            if (a == null || b == null)
+                return a == null ? -1 : 1;
+            return a.compareTo(b);
+        }
 
-            for (int i = 0; i < dims - 1; i += 2) {
-                if (inc[i] > 1) {
-                    res[i + 1] = SiteId.get();
-                    res = Arrays.copyOf(res, i + 2);
+        @Override
+        public int compareTo(SID other) {
+            // packed levels before the first one with different digits
+            final long diff = (head ^ other.head) & ~DEPTH_MASK;
+            int same = diff == 0 ? PACKED_LEVELS : 0;
+            if (diff != 0) {
+                final int bit = Long.SIZE - 1 - Long.numberOfLeadingZeros(diff);
+                while (OFFSETS[same] > bit)
+                    same++;
+            }
+            for (int d = 0; d < same; d++) {
+                final int res = compareStamps(stamp(d), other.stamp(d));
+                if (res != 0)
                     return res;
-                }
             }
-
-            // we got a collision, increase #dims by 2.
-            res = Arrays.copyOf(res, dims + 2);
-            res[dims] = INCREMENT;
-            res[dims + 1] = SiteId.get();
-
-            return res;
-        }
-
-        static List<Integer> INT(int[] a) {
-            Integer[] res = new Integer[a.length / 2];
-            int j = 0;
-            for (int i = 0; i < a.length; i++) {
-                if ((i & 1) == 0)
-                    res[j++] = a[i];
+            if (same < PACKED_LEVELS)
+                return Integer.compare(digit(same), other.digit(same));
+
+            final int depth = Math.max(depth(), other.depth());
+            for (int d = PACKED_LEVELS; d < depth; d++) {
+                int res = Integer.compare(digit(d), other.digit(d));
+                if (res == 0)
+                    res = compareStamps(stamp(d), other.stamp(d));
+                if (res != 0)
+                    return res;
             }
-
-            return Arrays.asList(res);
+            return 0;
         }
 
         public int hashCode() {
-            int res = 0;
-
-            for (int i : coords)
-                res ^= i;
-
-            return res;
+            return (int) (head ^ (head >>> 32)) ^ Arrays.hashCode(tail);
         }
 
         public boolean equals(Object other) {
@@ -328,45 +493,63 @@ public class SequenceCRDT<V> extends BaseCRDT<SequenceCRDT<V>> {
         }
 
         public String toString() {
-            List<Integer> tmp = new ArrayList<Integer>();
-            int j = 0;
-            for (int i : coords)
-                if ((j++ & 1) == 0)
-                    tmp.add(i);
-
-            return String.format("%s", tmp);
+            StringBuilder sb = new StringBuilder("[");
+            for (int d = 0, depth = depth(); d < depth; d++)
+                sb.append(d > 0 ? ", " : "").append(digit(d));
+            return sb.append(']').toString();
         }
 
-        static private int increment(int base) {
-            final int jitter = (INCREMENT >> 2) + rg.nextInt(INCREMENT >> 1);
-            return base + jitter;
-        }
-
-        static private int decrement(int base) {
-            final int jitter = (INCREMENT >> 2) + rg.nextInt(INCREMENT >> 1);
-            return base - jitter;
-        }
-
-        final private int dims() {
-            return coords.length;
+        // the packed levels are written right-aligned, to keep the varint
+        // short; a timestamp equal to that of the previous level is written
+        // as a reference
+        @Override
+        public void write(Kryo kryo, Output out) {
+            final int depth = depth();
+            out.writeVarInt(depth, true);
+            final int packed = Math.min(depth, PACKED_LEVELS);
+            if (packed > 0)
+                out.writeVarLong(head >>> OFFSETS[packed - 1], true);
+            for (int i = PACKED_LEVELS; i < depth; i++)
+                out.writeVarInt(tail[i - PACKED_LEVELS], true);
+            TripleTimestamp previous = null;
+            for (final TripleTimestamp ts : stamps) {
+                if (ts == null) {
+                    out.writeByte(NO_STAMP);
+                } else if (ts.equals(previous)) {
+                    out.writeByte(SAME_STAMP);
+                } else {
+                    out.writeByte(NEW_STAMP);
+                    ts.write(kryo, out);
+                    previous = ts;
+                }
+            }
         }
-    }
-
-    // TODO Needs to initialize SiteId from somewhere else...
-    static class SiteId {
 
-        private static final AtomicInteger uniqueId = new AtomicInteger(-1);
-
-        static final ThreadLocal<Integer> uniqueNum = new ThreadLocal<Integer>() {
-            @Override
-            protected Integer initialValue() {
-                return uniqueId.getAndIncrement();
+        @Override
+        public void read(Kryo kryo, Input in) {
+            final int depth = in.readVarInt(true);
+            final int packed = Math.min(depth, PACKED_LEVELS);
+            head = packed > 0 ? (in.readVarLong(true) << OFFSETS[packed - 1]) | packed : 0L;
+            if (depth > PACKED_LEVELS) {
+                tail = new int[depth - PACKED_LEVELS];
+                for (int i = 0; i < tail.length; i++)
+                    tail[i] = in.readVarInt(true);
+            }
+            stamps = new TripleTimestamp[depth];
+            TripleTimestamp previous = null;
+            for (int i = 0; i < depth; i++) {
+                switch (in.readByte()) {
+                case SAME_STAMP:
+                    stamps[i] = previous;
+                    break;
+                case NEW_STAMP:
+                    stamps[i] = previous = new TripleTimestamp();
+                    previous.read(kryo, in);
+                    break;
+                default:
+                    break;
+                }
             }
-        };
-
-        public static Integer get() {
-            return uniqueId.get();
         }
-
     }
 }
@@ -0,0 +1,84 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.TripleTimestamp;
+import swift.crdt.SequenceCRDT.PosID;
+import swift.crdt.SequenceCRDT.SID;
+import swift.crdt.core.CRDTUpdate;
+
+/**
+ * Insertion of a block of atoms in a sequence. The atoms have consecutive
+ * position identifiers, starting at the first one, and share a timestamp, so
+ * the update carries one identifier and one timestamp for the whole block.
+ */
+public class SequenceInsertRangeUpdate<V> implements CRDTUpdate<SequenceCRDT<V>>, KryoSerializable {
+    protected SID first;
+    protected TripleTimestamp ts;
+    protected List<V> atoms;
+
+    // required for kryo
+    public SequenceInsertRangeUpdate() {
+    }
+
+    public SequenceInsertRangeUpdate(SID first, TripleTimestamp ts, List<V> atoms) {
+        this.first = first;
+        this.ts = ts;
+        this.atoms = atoms;
+    }
+
+    @Override
+    public void applyTo(SequenceCRDT<V> crdt) {
+        for (int i = 0; i < atoms.size(); i++)
+            crdt.applyAdd(new PosID<V>(first.plus(i), atoms.get(i), ts), ts, null);
+    }
+
+    @Override
+    public Object getValueWithoutMetadata() {
+        return atoms;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        first.write(kryo, output);
+        ts.write(kryo, output);
+        output.writeVarInt(atoms.size(), true);
+        for (final V atom : atoms)
+            kryo.writeClassAndObject(output, atom);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void read(Kryo kryo, Input input) {
+        first = new SID();
+        first.read(kryo, input);
+        ts = new TripleTimestamp();
+        ts.read(kryo, input);
+        final int size = input.readVarInt(true);
+        atoms = new ArrayList<V>(size);
+        for (int i = 0; i < size; i++)
+            atoms.add((V) kryo.readClassAndObject(input));
+    }
+}
@@ -0,0 +1,96 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.TripleTimestamp;
+import swift.crdt.SequenceCRDT.PosID;
+import swift.crdt.SequenceCRDT.SID;
+import swift.crdt.core.CRDTUpdate;
+
+/**
+ * Deletion of a range of atoms of a sequence. The update carries only the
+ * position identifiers of the atoms; on the wire, runs of atoms inserted by the
+ * same {@link SequenceInsertRangeUpdate}, i.e., with consecutive identifiers
+ * and the same timestamp, are written as their first identifier, timestamp and
+ * length.
+ */
+public class SequenceRemoveRangeUpdate<V> implements CRDTUpdate<SequenceCRDT<V>>, KryoSerializable {
+    protected List<PosID<V>> posIds;
+
+    // required for kryo
+    public SequenceRemoveRangeUpdate() {
+    }
+
+    public SequenceRemoveRangeUpdate(List<PosID<V>> posIds) {
+        this.posIds = posIds;
+    }
+
+    @Override
+    public void applyTo(SequenceCRDT<V> crdt) {
+        // each position identifier has a single instance, its own timestamp
+        for (final PosID<V> posId : posIds)
+            crdt.applyRemove(posId, TimestampSet.of(posId.getTimestamp()));
+    }
+
+    @Override
+    public Object getValueWithoutMetadata() {
+        return null;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        output.writeVarInt(posIds.size(), true);
+        for (int i = 0; i < posIds.size();) {
+            final PosID<V> first = posIds.get(i);
+            int length = 1;
+            while (i + length < posIds.size() && follows(posIds.get(i + length), first, length))
+                length++;
+            first.getId().write(kryo, output);
+            first.getTimestamp().write(kryo, output);
+            output.writeVarInt(length, true);
+            i += length;
+        }
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+        final int size = input.readVarInt(true);
+        posIds = new ArrayList<PosID<V>>(size);
+        while (posIds.size() < size) {
+            final SID first = new SID();
+            first.read(kryo, input);
+            final TripleTimestamp ts = new TripleTimestamp();
+            ts.read(kryo, input);
+            final int length = input.readVarInt(true);
+            for (int i = 0; i < length; i++)
+                posIds.add(new PosID<V>(first.plus(i), null, ts));
+        }
+    }
+
+    // true if posId is i places after first, in the same inserted block
+    private static <V> boolean follows(PosID<V> posId, PosID<V> first, int i) {
+        return posId.getTimestamp().equals(first.getTimestamp()) && posId.getId().equals(first.getId().plus(i));
+    }
+}
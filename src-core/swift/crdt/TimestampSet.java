@@ -0,0 +1,182 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoCopyable;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import swift.clocks.TripleTimestamp;
+
+/**
+ * Immutable set of the instances (timestamps) of an element of an add-wins
+ * CRDT. The common case of a single instance is kept inline, without any
+ * array; further instances are kept in an array. Updates return new sets, so
+ * sets can be shared between copies of a CRDT.
+ */
+public final class TimestampSet extends AbstractSet<TripleTimestamp> implements KryoSerializable,
+        KryoCopyable<TimestampSet> {
+
+    private static final TripleTimestamp[] NONE = new TripleTimestamp[0];
+
+    public static final TimestampSet EMPTY = new TimestampSet();
+
+    // null iff the set is empty
+    private TripleTimestamp first;
+    private TripleTimestamp[] others = NONE;
+
+    // Kryo
+    TimestampSet() {
+    }
+
+    private TimestampSet(TripleTimestamp first, TripleTimestamp[] others) {
+        this.first = first;
+        this.others = others;
+    }
+
+    public static TimestampSet of(TripleTimestamp instance) {
+        return new TimestampSet(instance, NONE);
+    }
+
+    /**
+     * @return the given instances as a TimestampSet, which is the argument
+     *         itself if it is one already
+     */
+    public static TimestampSet copyOf(Collection<TripleTimestamp> instances) {
+        if (instances instanceof TimestampSet)
+            return (TimestampSet) instances;
+
+        TimestampSet res = EMPTY;
+        for (TripleTimestamp ts : instances)
+            res = res.with(ts);
+        return res;
+    }
+
+    /**
+     * @return this set with the given instance; this set if it is null or
+     *         already present
+     */
+    public TimestampSet with(TripleTimestamp instance) {
+        if (instance == null || contains(instance))
+            return this;
+        if (first == null)
+            return of(instance);
+
+        TripleTimestamp[] res = Arrays.copyOf(others, others.length + 1);
+        res[others.length] = instance;
+        return new TimestampSet(first, res);
+    }
+
+    /**
+     * @return this set without the given instances; this set if none is
+     *         present
+     */
+    public TimestampSet without(Collection<?> instances) {
+        if (first == null || instances == null || instances.isEmpty())
+            return this;
+
+        TripleTimestamp[] kept = new TripleTimestamp[size()];
+        int n = 0;
+        for (TripleTimestamp ts : this)
+            if (!instances.contains(ts))
+                kept[n++] = ts;
+
+        if (n == kept.length)
+            return this;
+        if (n == 0)
+            return EMPTY;
+        return new TimestampSet(kept[0], n == 1 ? NONE : Arrays.copyOfRange(kept, 1, n));
+    }
+
+    @Override
+    public int size() {
+        return first == null ? 0 : 1 + others.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (first == null)
+            return false;
+        if (first.equals(o))
+            return true;
+        for (TripleTimestamp ts : others)
+            if (ts.equals(o))
+                return true;
+        return false;
+    }
+
+    @Override
+    public Iterator<TripleTimestamp> iterator() {
+        return new Iterator<TripleTimestamp>() {
+            int next = first == null ? others.length : -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < others.length;
+            }
+
+            @Override
+            public TripleTimestamp next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return next++ < 0 ? first : others[next - 1];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public TimestampSet copy(Kryo kryo) {
+        return this;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        output.writeVarInt(size(), true);
+        for (TripleTimestamp ts : this)
+            ts.write(kryo, output);
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+        final int size = input.readVarInt(true);
+        if (size == 0)
+            return;
+        first = readTimestamp(kryo, input);
+        others = size == 1 ? NONE : new TripleTimestamp[size - 1];
+        for (int i = 0; i < others.length; i++)
+            others[i] = readTimestamp(kryo, input);
+    }
+
+    private static TripleTimestamp readTimestamp(Kryo kryo, Input input) {
+        final TripleTimestamp ts = new TripleTimestamp();
+        ts.read(kryo, input);
+        return ts;
+    }
+}
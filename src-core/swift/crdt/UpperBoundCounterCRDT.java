@@ -91,7 +91,7 @@ public class UpperBoundCounterCRDT extends BoundedCounterCRDT<UpperBoundCounterC
 
     protected void applyInc(BoundedCounterIncrement<UpperBoundCounterCRDT> incUpdate) {
         checkExistsPermissionPair(incUpdate.getSiteId(), incUpdate.getSiteId());
-        delta.put(incUpdate.getSiteId(), incUpdate.getAmount());
+        delta.put(incUpdate.getSiteId(), delta.get(incUpdate.getSiteId()) + incUpdate.getAmount());
         val += incUpdate.getAmount();
     }
 
@@ -16,8 +16,9 @@
  *****************************************************************************/
 package swift.crdt.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -40,7 +41,12 @@ import swift.clocks.VersionVectorWithExceptions;
  * Additionally, the whole group may have any non-negative number of
  * system-assigned timestamps.
  * <p>
- * Thread-safe.
+ * Thread-safe. A group is built by appending operations, and is frozen once
+ * the transaction commits (or when it is deserialized or shared by a copy):
+ * its operations are then kept in an immutable array-backed list, published
+ * through a volatile field, and accessors do not lock. Timestamp mappings are
+ * copy-on-write (see {@link TimestampMapping}), so the rare merge of system
+ * timestamps does not block readers either.
  * <p>
  * TODO: document life-cycle of mappings and dependencyClock references
  * (optimization hacks in {@link #strippedWithCopiedTimestampMappings()} and
@@ -54,7 +60,9 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
     protected CausalityClock dependencyClock;
     // the first one is the client timestamp, followed by system timestamp(s)
     protected TimestampMapping timestampMapping;
-    protected List<CRDTUpdate<V>> operations;
+    // mutable list while the group is built; immutable once frozen
+    protected volatile List<CRDTUpdate<V>> operations;
+    protected volatile boolean frozen;
     protected V creationState;
 
     /**
@@ -73,16 +81,17 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      */
     public CRDTObjectUpdatesGroup(CRDTIdentifier id, TimestampMapping timestampMapping, V creationState,
             final CausalityClock dependencyClock) {
-        this(id, timestampMapping, new LinkedList<CRDTUpdate<V>>(), creationState, dependencyClock);
+        this(id, timestampMapping, new ArrayList<CRDTUpdate<V>>(), false, creationState, dependencyClock);
     }
 
     private CRDTObjectUpdatesGroup(CRDTIdentifier id, TimestampMapping timestampMapping,
-            List<CRDTUpdate<V>> operations, V creationState, final CausalityClock dependencyClock) {
+            List<CRDTUpdate<V>> operations, boolean frozen, V creationState, final CausalityClock dependencyClock) {
         this.id = id;
         this.timestampMapping = timestampMapping;
-        this.operations = operations;
         this.creationState = creationState;
         this.dependencyClock = dependencyClock;
+        this.frozen = frozen;
+        this.operations = operations;
     }
 
     /**
@@ -107,7 +116,7 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      * @param timestampsToMerge
      *            list of timestamps to add
      */
-    public synchronized void mergeSystemTimestamps(final CRDTObjectUpdatesGroup<V> group) {
+    public void mergeSystemTimestamps(final CRDTObjectUpdatesGroup<V> group) {
         if (id != null && group.id != null && !id.equals(group.id)) {
             throw new IllegalArgumentException(
                     "Cannot group timestamps for two group of operations on different objects");
@@ -121,15 +130,15 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      * @param ts
      *            system timestamp to add
      */
-    public synchronized void addSystemTimestamp(final Timestamp ts) {
+    public void addSystemTimestamp(final Timestamp ts) {
         timestampMapping.addSystemTimestamp(ts);
     }
 
     /**
-     * @return all timestamps currently assigned to this transaction;
-     *         unmodifiable view, but not an immutable one
+     * @return immutable snapshot of all timestamps currently assigned to this
+     *         transaction
      */
-    public synchronized List<Timestamp> getTimestamps() {
+    public List<Timestamp> getTimestamps() {
         return timestampMapping.getTimestamps();
     }
 
@@ -145,7 +154,7 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      * @return true if any timestamp (client or system) used to represent the
      *         transaction of this update intersects with the provided clock
      */
-    public synchronized boolean anyTimestampIncluded(final CausalityClock clock) {
+    public boolean anyTimestampIncluded(final CausalityClock clock) {
         return timestampMapping.anyTimestampIncluded(clock);
     }
 
@@ -157,16 +166,16 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      * @return causality clock of object state when operations have been issued
      * 
      */
-    public synchronized CausalityClock getDependency() {
+    public CausalityClock getDependency() {
         return dependencyClock;
     }
 
     /**
      * @return read-only reference to the internal list of operations
-     *         constituting this group
+     *         constituting this group; immutable once the group is frozen
      */
-    public synchronized List<CRDTUpdate<V>> getOperations() {
-        return Collections.unmodifiableList(operations);
+    public List<CRDTUpdate<V>> getOperations() {
+        return frozen ? operations : Collections.unmodifiableList(operations);
     }
 
     /**
@@ -179,13 +188,65 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
     /**
      * Appends a new operation to the sequence of operations.
      * 
+     * If the last operation of the group is a {@link CoalescableUpdate}, the
+     * new operation may be coalesced with it.
+     * 
      * @param op
      *            next operation to be applied within the transaction
+     * @throws IllegalStateException
+     *             if the group is frozen
      */
     public synchronized void append(CRDTUpdate<V> op) {
+        if (frozen) {
+            throw new IllegalStateException("Cannot append an operation to a frozen group");
+        }
+        final int last = operations.size() - 1;
+        if (last >= 0 && operations.get(last) instanceof CoalescableUpdate) {
+            final CRDTUpdate<V> coalesced = ((CoalescableUpdate<V>) operations.get(last)).coalesce(op);
+            if (coalesced != null) {
+                operations.set(last, coalesced);
+                return;
+            }
+        }
         operations.add(op);
     }
 
+    /**
+     * Freezes the sequence of operations, which becomes immutable. Idempotent.
+     */
+    public synchronized void freeze() {
+        if (!frozen) {
+            operations = frozenCopy(operations);
+            frozen = true;
+        }
+    }
+
+    /**
+     * @return true if the sequence of operations is immutable
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V extends CRDT<V>> List<CRDTUpdate<V>> frozenCopy(List<CRDTUpdate<V>> operations) {
+        final CRDTUpdate<V>[] ops = operations.toArray(new CRDTUpdate[operations.size()]);
+        return Collections.unmodifiableList(Arrays.asList(ops));
+    }
+
+    /**
+     * @return the operations of this group, to share with a copy; frozen, so
+     *         that the copy does not observe later appends
+     */
+    private List<CRDTUpdate<V>> sharedOperations() {
+        if (frozen) {
+            return operations;
+        }
+        synchronized (this) {
+            return frozen ? operations : frozenCopy(operations);
+        }
+    }
+
     /**
      * Applies all operations in order to the given object instance.
      * 
@@ -222,7 +283,8 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
                 && !newDependencyClock.compareTo(dependencyClock).is(CMP_CLOCK.CMP_DOMINATES, CMP_CLOCK.CMP_EQUALS)) {
             throw new IllegalArgumentException("new dependency clock is concurrent or lower than the old one");
         }
-        return new CRDTObjectUpdatesGroup<V>(id, timestampMapping, operations, creationState, newDependencyClock);
+        return new CRDTObjectUpdatesGroup<V>(id, timestampMapping, sharedOperations(), true, creationState,
+                newDependencyClock);
     }
 
     /**
@@ -230,7 +292,8 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      * @return shallow copy of the object id set to another one.
      */
     public CRDTObjectUpdatesGroup<V> withId(CRDTIdentifier newId) {
-        return new CRDTObjectUpdatesGroup<V>(newId, timestampMapping, operations, creationState, dependencyClock);
+        return new CRDTObjectUpdatesGroup<V>(newId, timestampMapping, sharedOperations(), true, creationState,
+                dependencyClock);
     }
 
     /**
@@ -239,7 +302,8 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
      *         stripped out of dependencyClock and object id information
      */
     public CRDTObjectUpdatesGroup<V> strippedWithCopiedTimestampMappings() {
-        return new CRDTObjectUpdatesGroup<V>(null, timestampMapping.copy(), operations, creationState, null);
+        return new CRDTObjectUpdatesGroup<V>(null, timestampMapping.copy(), sharedOperations(), true, creationState,
+                null);
     }
 
     @Override
@@ -255,8 +319,9 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
         }
         kryo.writeObjectOrNull(output, dependencyClock, VersionVectorWithExceptions.class);
         timestampMapping.write(kryo, output);
-        output.writeVarInt(operations.size(), true);
-        for (final CRDTUpdate<V> update : operations) {
+        final List<CRDTUpdate<V>> ops = sharedOperations();
+        output.writeVarInt(ops.size(), true);
+        for (final CRDTUpdate<V> update : ops) {
             kryo.writeClassAndObject(output, update);
         }
         kryo.writeClassAndObject(output, creationState);
@@ -272,10 +337,12 @@ public class CRDTObjectUpdatesGroup<V extends CRDT<V>> implements KryoSerializab
         timestampMapping = new TimestampMapping();
         timestampMapping.read(kryo, input);
         final int operationsNumber = input.readVarInt(true);
-        operations = new LinkedList<>();
+        final CRDTUpdate<V>[] ops = new CRDTUpdate[operationsNumber];
         for (int i = 0; i < operationsNumber; i++) {
-            operations.add((CRDTUpdate<V>) kryo.readClassAndObject(input));
+            ops[i] = (CRDTUpdate<V>) kryo.readClassAndObject(input);
         }
         creationState = (V) kryo.readClassAndObject(input);
+        frozen = true;
+        operations = Collections.unmodifiableList(Arrays.asList(ops));
     }
 }
@@ -0,0 +1,37 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt.core;
+
+/**
+ * Update operation that can be coalesced with the next operation on the same
+ * object in the same transaction, e.g., increments that add up, or writes of a
+ * last-writer-wins register of which only the last one matters.
+ * {@link CRDTObjectUpdatesGroup#append(CRDTUpdate)} replaces such consecutive
+ * operations by their coalesced update, so that groups, commit requests, logs
+ * and notifications carry a single operation.
+ */
+public interface CoalescableUpdate<V extends CRDT<V>> extends CRDTUpdate<V> {
+    /**
+     * @param next
+     *            operation issued right after this one on the same object
+     *            instance, in the same transaction
+     * @return an update whose effect is that of applying this operation and
+     *         then next (possibly one of them), or null if they cannot be
+     *         coalesced
+     */
+    CRDTUpdate<V> coalesce(CRDTUpdate<V> next);
+}
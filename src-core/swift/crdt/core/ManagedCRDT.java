@@ -16,11 +16,9 @@
  *****************************************************************************/
 package swift.crdt.core;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoSerializable;
@@ -56,15 +54,6 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
     // TODO: make costly assertion checks optional.
     private static final long serialVersionUID = 1L;
 
-    private static <V extends CRDT<V>> Map<Timestamp, CRDTObjectUpdatesGroup<V>> getTimestampToUpdatesMap(
-            List<CRDTObjectUpdatesGroup<V>> log) {
-        final Map<Timestamp, CRDTObjectUpdatesGroup<V>> result = new HashMap<Timestamp, CRDTObjectUpdatesGroup<V>>();
-        for (final CRDTObjectUpdatesGroup<V> localUpdate : log) {
-            result.put(localUpdate.getClientTimestamp(), localUpdate);
-        }
-        return result;
-    }
-
     // WISHME: we can make some of these fields transient (e.g., id and
     // registeredInStore) for sake of optimized storage.
 
@@ -82,8 +71,9 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
     protected boolean registeredInStore;
     protected V checkpoint;
     // log of updates, in some linear extension of causality, stripped of
-    // unnecessary information (dependency clocks and ids)
-    protected List<CRDTObjectUpdatesGroup<V>> strippedLog;
+    // unnecessary information (dependency clocks and ids); indexed by
+    // timestamps
+    protected UpdatesLog<V> strippedLog;
 
     public ManagedCRDT() {
     }
@@ -108,7 +98,7 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
     public ManagedCRDT(CRDTIdentifier id, V initialCheckpoint, CausalityClock clock, boolean registeredInStore) {
         this.id = id;
         this.checkpoint = initialCheckpoint;
-        this.strippedLog = new LinkedList<CRDTObjectUpdatesGroup<V>>();
+        this.strippedLog = new UpdatesLog<V>();
         this.clock = clock;
         this.pruneClock = ClockFactory.newClock();
         this.registeredInStore = registeredInStore;
@@ -154,6 +144,13 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         return pruneClock;
     }
 
+    /**
+     * @return number of update groups logged since the prune point
+     */
+    public int getLogSize() {
+        return strippedLog.size();
+    }
+
     /**
      * Augments update clock of this object with the timestamp of some scout
      * assuming this object includes all the updates with that timestamp and
@@ -232,15 +229,11 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         clock.merge(pruningPoint);
         final CMP_CLOCK cmpPrune = pruneClock.compareTo(pruningPoint);
         if (cmpPrune.is(CMP_CLOCK.CMP_CONCURRENT, CMP_CLOCK.CMP_ISDOMINATED)) {
-            for (final Iterator<CRDTObjectUpdatesGroup<V>> updatesIter = strippedLog.iterator(); updatesIter.hasNext();) {
-                final CRDTObjectUpdatesGroup<V> updates = updatesIter.next();
-                if (updates.anyTimestampIncluded(pruningPoint)) {
-                    updates.applyTo(checkpoint);
-                    updatesIter.remove();
-                    for (final Timestamp ts : updates.getTimestamps()) {
-                        if (!ts.equals(updates.getClientTimestamp())) {
-                            pruneClock.recordAllUntil(ts);
-                        }
+            for (final CRDTObjectUpdatesGroup<V> updates : strippedLog.removeIncluded(pruningPoint)) {
+                updates.applyTo(checkpoint);
+                for (final Timestamp ts : updates.getTimestamps()) {
+                    if (!ts.equals(updates.getClientTimestamp())) {
+                        pruneClock.recordAllUntil(ts);
                     }
                 }
             }
@@ -273,7 +266,6 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         // This is a somewhat messy best-effort logic, since merge is not
         // exactly symmetric for op-based.
 
-        final Map<Timestamp, CRDTObjectUpdatesGroup<V>> thisTimestampToUpdatesMap = getTimestampToUpdatesMap(strippedLog);
         switch (getClock().compareTo(other.getClock())) {
         case CMP_DOMINATES:
         case CMP_EQUALS:
@@ -283,11 +275,7 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
             // Merge timestamp mappings. (not sure if this is strictly
             // necessary, but let's do it)
             for (final CRDTObjectUpdatesGroup<V> otherUpdate : other.strippedLog) {
-                final CRDTObjectUpdatesGroup<V> localMatch = thisTimestampToUpdatesMap.get(otherUpdate
-                        .getClientTimestamp());
-                if (localMatch != null) {
-                    localMatch.mergeSystemTimestamps(otherUpdate);
-                }
+                strippedLog.mergeSystemTimestamps(otherUpdate);
             }
             break;
         case CMP_ISDOMINATED:
@@ -295,15 +283,15 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
             this.checkpoint = other.checkpoint.copy();
             this.pruneClock = other.pruneClock.clone();
             this.clock = other.clock.clone();
-            final List<CRDTObjectUpdatesGroup<V>> newLog = new LinkedList<CRDTObjectUpdatesGroup<V>>();
+            final UpdatesLog<V> newLog = new UpdatesLog<V>();
             for (final CRDTObjectUpdatesGroup<V> otherUpdate : other.strippedLog) {
                 final CRDTObjectUpdatesGroup<V> copiedOtherUpdate = otherUpdate.strippedWithCopiedTimestampMappings();
-                newLog.add(copiedOtherUpdate);
-                final CRDTObjectUpdatesGroup<V> localMatch = thisTimestampToUpdatesMap.get(otherUpdate
+                final CRDTObjectUpdatesGroup<V> localMatch = strippedLog.getByClientTimestamp(otherUpdate
                         .getClientTimestamp());
                 if (localMatch != null) {
                     copiedOtherUpdate.mergeSystemTimestamps(localMatch);
                 }
+                newLog.add(copiedOtherUpdate);
             }
             this.strippedLog = newLog;
             break;
@@ -322,31 +310,28 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
             this.checkpoint = other.checkpoint;
             this.pruneClock = other.pruneClock.clone();
             this.clock.merge(other.clock);
-            final List<CRDTObjectUpdatesGroup<V>> mergedLog = new LinkedList<CRDTObjectUpdatesGroup<V>>();
+            final UpdatesLog<V> mergedLog = new UpdatesLog<V>();
             // Copy other's log and merge timestamps with all local updates.
             for (final CRDTObjectUpdatesGroup<V> otherUpdate : other.strippedLog) {
                 final CRDTObjectUpdatesGroup<V> copiedOtherUpdate = otherUpdate.strippedWithCopiedTimestampMappings();
-                mergedLog.add(copiedOtherUpdate);
-                final CRDTObjectUpdatesGroup<V> localMatch = thisTimestampToUpdatesMap.get(otherUpdate
+                final CRDTObjectUpdatesGroup<V> localMatch = strippedLog.getByClientTimestamp(otherUpdate
                         .getClientTimestamp());
                 if (localMatch != null) {
                     copiedOtherUpdate.mergeSystemTimestamps(localMatch);
                 }
+                mergedLog.add(copiedOtherUpdate);
             }
-            final Map<Timestamp, CRDTObjectUpdatesGroup<V>> mergedTimestampToUpdatesMap = getTimestampToUpdatesMap(mergedLog);
             // Apply this log entries that are not in other's checkpoint/log.
-            for (final CRDTObjectUpdatesGroup<V> thisUpdate : strippedLog) {
-                if (thisUpdate.anyTimestampIncluded(other.clock)) {
-                    final CRDTObjectUpdatesGroup<V> mergedUpdate = mergedTimestampToUpdatesMap.get(thisUpdate
-                            .getClientTimestamp());
-                    if (mergedUpdate != null) {
-                        mergedUpdate.mergeSystemTimestamps(thisUpdate);
-                    }
-                    // else: skip - it is in the checkpoint, while
+            final BitSet includedInOther = strippedLog.includedIn(other.clock);
+            for (int i = 0; i < strippedLog.size(); i++) {
+                final CRDTObjectUpdatesGroup<V> thisUpdate = strippedLog.get(i);
+                if (includedInOther.get(i)) {
+                    mergedLog.mergeSystemTimestamps(thisUpdate);
+                    // if absent: skip - it is in the checkpoint, while
                     // pruneClock does not contain scout's entry. See note
                     // in #augmentWithScoutClock
                 } else {
-                    if (mergedTimestampToUpdatesMap.containsKey(thisUpdate.getClientTimestamp())) {
+                    if (mergedLog.getByClientTimestamp(thisUpdate.getClientTimestamp()) != null) {
                         throw new IllegalArgumentException(
                                 "The incoming CRDT contains updates that are not included in its clock");
                     }
@@ -401,12 +386,7 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         if (newOperation) {
             strippedLog.add(ops.strippedWithCopiedTimestampMappings());
         } else if (!ops.anyTimestampIncluded(pruneClock)) {
-            for (final CRDTObjectUpdatesGroup<V> existingOps : strippedLog) {
-                if (existingOps.getClientTimestamp().equals(ops.getClientTimestamp())) {
-                    existingOps.mergeSystemTimestamps(existingOps);
-                    break;
-                }
-            }
+            strippedLog.mergeSystemTimestamps(ops);
         }
 
         return newOperation;
@@ -441,10 +421,8 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
             txn.registerObjectCreation(id, (V) checkpoint.copy());
         }
         final V version = (V) checkpoint.copyWith(txn, versionClock.clone());
-        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog) {
-            if (updates.anyTimestampIncluded(versionClock)) {
-                updates.applyTo(version);
-            }
+        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog.getIncluded(versionClock)) {
+            updates.applyTo(version);
         }
         // String x = versionClock.toString();
         // if (x.length() > 300) {
@@ -500,10 +478,8 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         }
 
         final List<TimestampMapping> result = new LinkedList<TimestampMapping>();
-        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog) {
-            if (!updates.anyTimestampIncluded(lowerBoundClock)) {
-                result.add(updates.getTimestampMapping());
-            }
+        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog.getNotIncluded(lowerBoundClock)) {
+            result.add(updates.getTimestampMapping());
         }
         return result;
     }
@@ -531,16 +507,19 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         result.pruneClock = pruneClock.clone();
         result.registeredInStore = registeredInStore;
         result.checkpoint = checkpoint.copy();
-        result.strippedLog = new LinkedList<CRDTObjectUpdatesGroup<V>>();
-        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog) {
-            if (updates.anyTimestampIncluded(targetPruningPoint)) {
+        result.strippedLog = new UpdatesLog<V>();
+        final BitSet pruned = strippedLog.includedIn(targetPruningPoint);
+        final BitSet prunedForClient = strippedLog.includedIn(pruneClientClock);
+        for (int i = 0; i < strippedLog.size(); i++) {
+            final CRDTObjectUpdatesGroup<V> updates = strippedLog.get(i);
+            if (pruned.get(i)) {
                 updates.applyTo(result.checkpoint);
                 for (final Timestamp ts : updates.getTimestamps()) {
                     if (!ts.equals(updates.getClientTimestamp())) {
                         result.pruneClock.recordAllUntil(ts);
                     }
                 }
-            } else if (updates.anyTimestampIncluded(pruneClientClock)) {
+            } else if (prunedForClient.get(i)) {
                 updates.applyTo(result.checkpoint);
                 // timestamps of updates referenced by client timestamps only
                 // are not included in the pruneClock.
@@ -551,20 +530,93 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         return result;
     }
 
+    /**
+     * Creates a delta of this object for a replica that already holds it in
+     * knownVersion: a copy without checkpoint, holding only the updates not
+     * included in knownVersion. The prune clock of a delta is its base
+     * version, knownVersion.
+     *
+     * @param knownVersion
+     *            version of the object held by the replica
+     * @param requestedVersion
+     *            version requested by the replica
+     * @return a delta to apply with {@link #applyDelta(ManagedCRDT)}, or null
+     *         if the log does not cover the updates since knownVersion, or if
+     *         requestedVersion is pruned
+     */
+    public ManagedCRDT<V> copyDeltaSince(final CausalityClock knownVersion, final CausalityClock requestedVersion) {
+        if (pruneClock.compareTo(knownVersion).is(CMP_CLOCK.CMP_DOMINATES, CMP_CLOCK.CMP_CONCURRENT)
+                || pruneClock.compareTo(requestedVersion).is(CMP_CLOCK.CMP_DOMINATES, CMP_CLOCK.CMP_CONCURRENT)) {
+            return null;
+        }
+
+        final ManagedCRDT<V> result = new ManagedCRDT<V>();
+        result.id = id;
+        result.clock = clock.clone();
+        result.pruneClock = knownVersion.clone();
+        result.registeredInStore = registeredInStore;
+        result.strippedLog = new UpdatesLog<V>();
+        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog.getNotIncluded(knownVersion)) {
+            result.strippedLog.add(updates.strippedWithCopiedTimestampMappings());
+        }
+        return result;
+    }
+
+    /**
+     * @return true if this is a delta created by
+     *         {@link #copyDeltaSince(CausalityClock, CausalityClock)}, with no
+     *         checkpoint
+     */
+    public boolean isDelta() {
+        return checkpoint == null;
+    }
+
+    /**
+     * Applies a delta of this object: updates of the delta that are not
+     * included in this object are appended to the log, the mappings of the
+     * others are merged, and the clock is merged with the clock of the delta.
+     *
+     * @param delta
+     *            delta created by
+     *            {@link #copyDeltaSince(CausalityClock, CausalityClock)};
+     *            unmodified
+     * @throws IllegalStateException
+     *             if this object does not include the base version of the
+     *             delta
+     */
+    public void applyDelta(ManagedCRDT<V> delta) {
+        if (!id.equals(delta.id) || !delta.isDelta()) {
+            throw new IllegalArgumentException("Refusing to apply a delta of another object, or a full object: " + id
+                    + " vs " + delta.id);
+        }
+        if (clock.compareTo(delta.pruneClock).is(CMP_CLOCK.CMP_ISDOMINATED, CMP_CLOCK.CMP_CONCURRENT)) {
+            throw new IllegalStateException("Object clock " + clock + " does not include the delta base version "
+                    + delta.pruneClock);
+        }
+
+        final BitSet known = delta.strippedLog.includedIn(clock);
+        for (int i = 0; i < delta.strippedLog.size(); i++) {
+            final CRDTObjectUpdatesGroup<V> deltaUpdate = delta.strippedLog.get(i);
+            if (known.get(i)) {
+                strippedLog.mergeSystemTimestamps(deltaUpdate);
+                // if absent: skip - it is in the checkpoint
+            } else {
+                strippedLog.add(deltaUpdate.strippedWithCopiedTimestampMappings());
+            }
+        }
+        clock.merge(delta.clock);
+        registeredInStore |= delta.registeredInStore;
+    }
+
     /**
      * Discard all updates more recent than the provided version (exclusive).
      * 
      * @param version
      */
     public void discardRecentUpdates(CausalityClock version) {
-        version.clone();
+        version = version.clone();
         version.merge(pruneClock);
-        for (final Iterator<CRDTObjectUpdatesGroup<V>> updatesIter = strippedLog.iterator(); updatesIter.hasNext();) {
-            final CRDTObjectUpdatesGroup<V> updates = updatesIter.next();
-            if (!updates.anyTimestampIncluded(version)) {
-                updatesIter.remove();
-            }
-        }
+        strippedLog.removeNotIncluded(version);
         clock.intersect(version);
     }
 
@@ -582,9 +634,10 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         pruneClock = kryo.readObjectOrNull(in, VersionVectorWithExceptions.class);
         registeredInStore = in.readBoolean();
         checkpoint = (V) kryo.readClassAndObject(in);
-        strippedLog = kryo.readObjectOrNull(in, LinkedList.class);
-        if (strippedLog == null) {
-            strippedLog = new LinkedList<>();
+        final int logSize = in.readVarInt(true);
+        strippedLog = new UpdatesLog<V>();
+        for (int i = 0; i < logSize; i++) {
+            strippedLog.add(kryo.readObject(in, CRDTObjectUpdatesGroup.class));
         }
     }
 
@@ -595,7 +648,10 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         kryo.writeObjectOrNull(out, pruneClock, VersionVectorWithExceptions.class);
         out.writeBoolean(registeredInStore);
         kryo.writeClassAndObject(out, checkpoint);
-        kryo.writeObjectOrNull(out, strippedLog.isEmpty() ? null : strippedLog, LinkedList.class);
+        out.writeVarInt(strippedLog.size(), true);
+        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog) {
+            kryo.writeObject(out, updates);
+        }
     }
 
     /**
@@ -610,11 +666,8 @@ public class ManagedCRDT<V extends CRDT<V>> implements KryoSerializable {
         if (pruneClock.compareTo(knownVersion).is(CMP_CLOCK.CMP_DOMINATES, CMP_CLOCK.CMP_CONCURRENT)) {
             return true;
         }
-        for (final CRDTObjectUpdatesGroup<V> updates : strippedLog) {
-            if (!updates.anyTimestampIncluded(knownVersion) && updates.anyTimestampIncluded(requestedVersion)) {
-                return true;
-            }
-        }
-        return false;
+        final BitSet updates = strippedLog.includedIn(requestedVersion);
+        updates.andNot(strippedLog.includedIn(knownVersion));
+        return !updates.isEmpty();
     }
 }
@@ -181,6 +181,28 @@ public interface TxnHandle {
      */
     Map<CRDTIdentifier, CRDT<?>> bulkGet(boolean subscribeUpdates, final CRDTIdentifier... ids);
 
+    /**
+     * Reads, in key order, the objects of a table whose key is not lower than
+     * startKey. The keys are listed by the DC; the objects are read in the
+     * version of this transaction, as in {@link #get}, and those that do not
+     * exist in that version are left out.
+     * 
+     * @param table
+     *            table to scan
+     * @param startKey
+     *            smallest key to read, inclusive
+     * @param maxCount
+     *            maximum number of keys to list
+     * @param subscribeUpdates
+     *            when true, the objects read are subscribed, as with
+     *            {@link #UPDATES_SUBSCRIBER}
+     * @return map of the objects read, iterated in key order
+     * @throws NetworkException
+     *             when the keys could not be listed
+     */
+    Map<CRDTIdentifier, CRDT<?>> scan(String table, String startKey, int maxCount, boolean subscribeUpdates)
+            throws NetworkException;
+
     // SYSTEM API:
     /**
      * <b>SYSTEM USE ONLY</b> Generates timestamps for operations.
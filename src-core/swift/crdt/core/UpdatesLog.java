@@ -0,0 +1,435 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.crdt.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.Timestamp;
+
+/**
+ * Log of the update groups of a {@link ManagedCRDT}, in some linear extension
+ * of causality, indexed by client timestamp and by the counters of the
+ * timestamps (client and system) of each site.
+ * <p>
+ * The groups with some timestamp included in a clock are found as a cut of
+ * the log: a prefix of groups known to be included, a suffix of groups known
+ * not to be, and a window between them whose groups are checked one by one.
+ * The bounds of the cut are found site by site, by binary search of the latest
+ * counter of the site in the clock. The window is empty when the clock has no
+ * holes and the log lists the included groups first, the common case; prefixes
+ * and suffixes are then returned, and removed, without checking the timestamps
+ * of any group. A group is found by its client timestamp in constant time.
+ * Appending a group takes O(log n) in the common case of increasing counters.
+ * <p>
+ * The log is read-only through the {@link List} interface, except for
+ * {@link #add(CRDTObjectUpdatesGroup)}, which appends a group. Timestamps of
+ * logged groups must only be merged through
+ * {@link #mergeSystemTimestamps(CRDTObjectUpdatesGroup)}, so that they are
+ * indexed.
+ * <p>
+ * Not thread-safe.
+ */
+public final class UpdatesLog<V extends CRDT<V>> extends AbstractList<CRDTObjectUpdatesGroup<V>> {
+
+    /**
+     * Timestamps of one site used by the logged groups, sorted by counter,
+     * with the sequence number of their groups in the log.
+     */
+    private static final class SiteIndex {
+        Timestamp[] timestamps = new Timestamp[4];
+        long[] positions = new long[4];
+        int size;
+        // true if the positions increase with the counters
+        boolean ordered = true;
+
+        void add(Timestamp ts, long position) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, 2 * size);
+                positions = Arrays.copyOf(positions, 2 * size);
+            }
+            // counters of a site are mostly logged in increasing order
+            final int i = upperBound(ts.getCounter());
+            if (i < size || (size > 0 && positions[size - 1] > position)) {
+                ordered = false;
+            }
+            System.arraycopy(timestamps, i, timestamps, i + 1, size - i);
+            System.arraycopy(positions, i, positions, i + 1, size - i);
+            timestamps[i] = ts;
+            positions[i] = position;
+            size++;
+        }
+
+        /**
+         * @return the number of timestamps with counter lower or equal than
+         *         the given one
+         */
+        int upperBound(long counter) {
+            if (size == 0 || timestamps[size - 1].getCounter() <= counter) {
+                return size;
+            }
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (timestamps[mid].getCounter() <= counter) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return the highest position of the first end timestamps
+         */
+        long maxPosition(int end) {
+            if (ordered) {
+                return positions[end - 1];
+            }
+            long res = Long.MIN_VALUE;
+            for (int i = 0; i < end; i++) {
+                res = Math.max(res, positions[i]);
+            }
+            return res;
+        }
+
+        /**
+         * @return the lowest position of the timestamps from the given one on
+         */
+        long minPosition(int start) {
+            if (ordered) {
+                return positions[start];
+            }
+            long res = Long.MAX_VALUE;
+            for (int i = start; i < size; i++) {
+                res = Math.min(res, positions[i]);
+            }
+            return res;
+        }
+
+        /**
+         * Drops the timestamps with positions in [from, to).
+         */
+        void drop(long from, long to) {
+            if (ordered) {
+                final int lo = lowerBound(from), hi = lowerBound(to);
+                System.arraycopy(timestamps, hi, timestamps, lo, size - hi);
+                System.arraycopy(positions, hi, positions, lo, size - hi);
+                Arrays.fill(timestamps, size - (hi - lo), size, null);
+                size -= hi - lo;
+                return;
+            }
+            int j = 0;
+            ordered = true;
+            for (int i = 0; i < size; i++) {
+                if (positions[i] < from || positions[i] >= to) {
+                    if (j > 0 && positions[j - 1] > positions[i]) {
+                        ordered = false;
+                    }
+                    timestamps[j] = timestamps[i];
+                    positions[j++] = positions[i];
+                }
+            }
+            Arrays.fill(timestamps, j, size, null);
+            size = j;
+        }
+
+        /**
+         * @return the number of timestamps with position lower than the given
+         *         one; the index must be ordered
+         */
+        private int lowerBound(long position) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (positions[mid] < position) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Groups with some timestamp included in a clock: all groups before lo,
+     * the groups in [lo, hi) set in the window, and none from hi on.
+     */
+    private static final class Cut {
+        final int lo;
+        final int hi;
+        final BitSet window;
+
+        Cut(int lo, int hi, BitSet window) {
+            this.lo = lo;
+            this.hi = hi;
+            this.window = window;
+        }
+    }
+
+    private final ArrayList<CRDTObjectUpdatesGroup<V>> groups = new ArrayList<CRDTObjectUpdatesGroup<V>>();
+    private final Map<Timestamp, Long> clientTimestampPositions = new HashMap<Timestamp, Long>();
+    private final Map<String, SiteIndex> siteIndexes = new HashMap<String, SiteIndex>();
+    // sequence number of the first group in the log; indexes refer to groups
+    // by sequence number, so that removing a prefix does not shift them
+    private long offset;
+
+    public UpdatesLog() {
+    }
+
+    @Override
+    public CRDTObjectUpdatesGroup<V> get(int index) {
+        return groups.get(index);
+    }
+
+    @Override
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Appends a group to the log.
+     *
+     * @param group
+     *            group whose client timestamp is not in the log yet
+     * @return true
+     */
+    @Override
+    public boolean add(CRDTObjectUpdatesGroup<V> group) {
+        final long position = offset + groups.size();
+        groups.add(group);
+        clientTimestampPositions.put(group.getClientTimestamp(), position);
+        index(group.getTimestamps(), 0, position);
+        return true;
+    }
+
+    /**
+     * @return the logged group with the given client timestamp, or null
+     */
+    public CRDTObjectUpdatesGroup<V> getByClientTimestamp(Timestamp clientTimestamp) {
+        final Long position = clientTimestampPositions.get(clientTimestamp);
+        return position == null ? null : groups.get((int) (position - offset));
+    }
+
+    /**
+     * Merges the system timestamps of the given group into the logged group
+     * with the same client timestamp, if any.
+     *
+     * @return true if there is such a group in the log
+     */
+    public boolean mergeSystemTimestamps(CRDTObjectUpdatesGroup<V> group) {
+        final Long position = clientTimestampPositions.get(group.getClientTimestamp());
+        if (position == null) {
+            return false;
+        }
+        final CRDTObjectUpdatesGroup<V> logged = groups.get((int) (position - offset));
+        final int indexed = logged.getTimestamps().size();
+        logged.mergeSystemTimestamps(group);
+        // new system timestamps are appended to the mapping
+        index(logged.getTimestamps(), indexed, position);
+        return true;
+    }
+
+    /**
+     * @return the positions in the log of the groups with any timestamp
+     *         included in the clock
+     */
+    public BitSet includedIn(CausalityClock clock) {
+        final Cut cut = cut(clock);
+        final BitSet result = new BitSet(groups.size());
+        result.set(0, cut.lo);
+        for (int i = cut.window.nextSetBit(0); i >= 0; i = cut.window.nextSetBit(i + 1)) {
+            result.set(cut.lo + i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the groups with any timestamp included in the clock, in log
+     *         order
+     */
+    public List<CRDTObjectUpdatesGroup<V>> getIncluded(CausalityClock clock) {
+        final Cut cut = cut(clock);
+        final List<CRDTObjectUpdatesGroup<V>> result = new ArrayList<CRDTObjectUpdatesGroup<V>>(cut.lo
+                + cut.window.cardinality());
+        result.addAll(groups.subList(0, cut.lo));
+        selectWindow(cut, true, result);
+        return result;
+    }
+
+    /**
+     * @return the groups with no timestamp included in the clock, in log order
+     */
+    public List<CRDTObjectUpdatesGroup<V>> getNotIncluded(CausalityClock clock) {
+        final Cut cut = cut(clock);
+        final List<CRDTObjectUpdatesGroup<V>> result = new ArrayList<CRDTObjectUpdatesGroup<V>>(groups.size()
+                - cut.lo - cut.window.cardinality());
+        selectWindow(cut, false, result);
+        result.addAll(groups.subList(cut.hi, groups.size()));
+        return result;
+    }
+
+    /**
+     * Removes the groups with any timestamp included in the clock.
+     *
+     * @return the removed groups, in log order
+     */
+    public List<CRDTObjectUpdatesGroup<V>> removeIncluded(CausalityClock clock) {
+        final Cut cut = cut(clock);
+        if (cut.lo == cut.hi) {
+            return removeGroups(0, cut.lo);
+        }
+        return remove(cut, true);
+    }
+
+    /**
+     * Removes the groups with no timestamp included in the clock.
+     *
+     * @return the removed groups, in log order
+     */
+    public List<CRDTObjectUpdatesGroup<V>> removeNotIncluded(CausalityClock clock) {
+        final Cut cut = cut(clock);
+        if (cut.lo == cut.hi) {
+            return removeGroups(cut.hi, groups.size());
+        }
+        return remove(cut, false);
+    }
+
+    /**
+     * Finds the groups with some timestamp included in the clock.
+     */
+    private Cut cut(CausalityClock clock) {
+        final int n = groups.size();
+        // groups before lo only have timestamps not after the latest counter
+        // of their site, groups from hi on only have timestamps after it
+        long lo = offset + n, hi = offset;
+        for (final Map.Entry<String, SiteIndex> entry : siteIndexes.entrySet()) {
+            final SiteIndex index = entry.getValue();
+            final long latest = clock.getLatestCounter(entry.getKey());
+            final int end = latest <= Timestamp.MIN_VALUE ? 0 : index.upperBound(latest);
+            if (end > 0) {
+                hi = Math.max(hi, index.maxPosition(end) + 1);
+            }
+            if (end < index.size) {
+                lo = Math.min(lo, index.minPosition(end));
+            }
+        }
+        if (clock.getExceptionsNumber() > 0) {
+            // the timestamps before the latest counters may be in holes
+            lo = offset;
+        }
+        final int cutHi = (int) (hi - offset);
+        final int cutLo = Math.min((int) (lo - offset), cutHi);
+        final BitSet window = new BitSet(cutHi - cutLo);
+        for (int i = cutLo; i < cutHi; i++) {
+            if (groups.get(i).anyTimestampIncluded(clock)) {
+                window.set(i - cutLo);
+            }
+        }
+        return new Cut(cutLo, cutHi, window);
+    }
+
+    private void selectWindow(Cut cut, boolean value, List<CRDTObjectUpdatesGroup<V>> result) {
+        for (int i = cut.lo; i < cut.hi; i++) {
+            if (cut.window.get(i - cut.lo) == value) {
+                result.add(groups.get(i));
+            }
+        }
+    }
+
+    /**
+     * Removes the groups in [from, to) from the log and from its indexes.
+     */
+    private List<CRDTObjectUpdatesGroup<V>> removeGroups(int from, int to) {
+        final List<CRDTObjectUpdatesGroup<V>> range = groups.subList(from, to);
+        final List<CRDTObjectUpdatesGroup<V>> removed = new ArrayList<CRDTObjectUpdatesGroup<V>>(range);
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        range.clear();
+        for (final CRDTObjectUpdatesGroup<V> group : removed) {
+            clientTimestampPositions.remove(group.getClientTimestamp());
+        }
+        for (final Iterator<SiteIndex> it = siteIndexes.values().iterator(); it.hasNext();) {
+            final SiteIndex index = it.next();
+            index.drop(offset + from, offset + to);
+            if (index.size == 0) {
+                it.remove();
+            }
+        }
+        if (from == 0) {
+            offset += to;
+        } else if (from < groups.size()) {
+            // groups after the range moved: reindex them
+            reindex();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the groups included in, or not included in, the clock, and
+     * rebuilds the indexes.
+     */
+    private List<CRDTObjectUpdatesGroup<V>> remove(Cut cut, boolean included) {
+        final List<CRDTObjectUpdatesGroup<V>> removed = new ArrayList<CRDTObjectUpdatesGroup<V>>();
+        final List<CRDTObjectUpdatesGroup<V>> kept = new ArrayList<CRDTObjectUpdatesGroup<V>>();
+        (included ? removed : kept).addAll(groups.subList(0, cut.lo));
+        for (int i = cut.lo; i < cut.hi; i++) {
+            (cut.window.get(i - cut.lo) == included ? removed : kept).add(groups.get(i));
+        }
+        (included ? kept : removed).addAll(groups.subList(cut.hi, groups.size()));
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        groups.clear();
+        groups.addAll(kept);
+        reindex();
+        return removed;
+    }
+
+    private void reindex() {
+        final List<CRDTObjectUpdatesGroup<V>> kept = new ArrayList<CRDTObjectUpdatesGroup<V>>(groups);
+        groups.clear();
+        clientTimestampPositions.clear();
+        siteIndexes.clear();
+        offset = 0;
+        for (final CRDTObjectUpdatesGroup<V> group : kept) {
+            add(group);
+        }
+    }
+
+    private void index(List<Timestamp> timestamps, int from, long position) {
+        for (int i = from; i < timestamps.size(); i++) {
+            final Timestamp ts = timestamps.get(i);
+            SiteIndex index = siteIndexes.get(ts.getIdentifier());
+            if (index == null) {
+                index = new SiteIndex();
+                siteIndexes.put(ts.getIdentifier(), index);
+            }
+            index.add(ts, position);
+        }
+    }
+}
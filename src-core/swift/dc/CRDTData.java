@@ -73,7 +73,14 @@ public class CRDTData<V extends CRDT<V>> {
         this.empty = true;
     }
 
-    boolean pruneIfPossible(final int pruningInterval) {
+    /**
+     * Prunes the updates that the object already had at the previous call, at
+     * least pruningInterval ago, and that are stable in the DC. Assumes that
+     * the entry is locked.
+     * 
+     * @return true if the object was pruned
+     */
+    boolean pruneIfPossible(final int pruningInterval, final CausalityClock stableClock) {
         long curTime = System.currentTimeMillis();
         if (lastPrunedTime == -1) {
             lastPrunedTime = curTime;
@@ -81,8 +88,10 @@ public class CRDTData<V extends CRDT<V>> {
             lastPrunedClock.trim();
         }
         if (lastPrunedTime + pruningInterval < curTime) {
-            crdt.prune(lastPrunedClock, false);
-            pruneClock = lastPrunedClock;
+            lastPrunedClock.intersect(stableClock);
+            crdt.prune(lastPrunedClock, true);
+            pruneClock = pruneClock.clone();
+            pruneClock.merge(lastPrunedClock);
             lastPrunedTime = curTime;
             lastPrunedClock = (CausalityClock) clock.copy();
             lastPrunedClock.trim();
@@ -0,0 +1,120 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.dc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.ClockFactory;
+import swift.crdt.core.CRDT;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.ManagedCRDT;
+import swift.dc.db.DCNodeDatabase;
+import sys.dht.DHT_Node;
+import sys.net.api.Endpoint;
+
+/**
+ * Offline loader of the initial states of objects, written directly into the
+ * databases of the data nodes before the DC is started. Objects are stored with
+ * an empty clock, as if they existed from the beginning, and are visible in
+ * every snapshot. For loading into a running DC, use
+ * {@link swift.client.BulkLoader}.
+ */
+public final class DCBulkLoader {
+    static final int BATCH_SIZE = 1000;
+
+    private DCBulkLoader() {
+    }
+
+    /**
+     * Writes the given initial states into the databases of the data nodes of
+     * a DC, each object into the database of the node that owns it in the
+     * DHT, and adds their keys to the key index saved in each database.
+     * Existing objects with the same ids are overwritten.
+     * 
+     * @param dbs
+     *            the databases of the data nodes, by the surrogate endpoint
+     *            of each node
+     * @return the number of objects written
+     */
+    public static int load(Map<Endpoint, DCNodeDatabase> dbs, Iterator<? extends CRDT<?>> states) {
+        final Map<Endpoint, KeyIndex> keyIndexes = new HashMap<Endpoint, KeyIndex>();
+        for (Map.Entry<Endpoint, DCNodeDatabase> e : dbs.entrySet()) {
+            final KeyIndex keyIndex = new KeyIndex();
+            keyIndex.load(e.getValue());
+            keyIndexes.put(e.getKey(), keyIndex);
+        }
+        final CausalityClock clock = ClockFactory.newClock();
+        final List<CRDT<?>> batch = new ArrayList<CRDT<?>>(BATCH_SIZE);
+        final List<CRDTIdentifier> ids = new ArrayList<CRDTIdentifier>(BATCH_SIZE);
+        int count = 0;
+        while (states.hasNext()) {
+            batch.clear();
+            ids.clear();
+            while (states.hasNext() && batch.size() < BATCH_SIZE) {
+                final CRDT<?> state = states.next();
+                batch.add(state);
+                ids.add(state.getUID());
+            }
+            for (Map.Entry<Endpoint, List<Integer>> e : DHT_Node.partition(dbs.keySet(), ids).entrySet()) {
+                final DCNodeDatabase db = dbs.get(e.getKey());
+                final KeyIndex keyIndex = keyIndexes.get(e.getKey());
+                for (int i : e.getValue()) {
+                    final CRDT<?> state = batch.get(i);
+                    db.write(state.getUID(), newEntry(state, clock));
+                    keyIndex.add(state.getUID());
+                    count++;
+                }
+            }
+        }
+        for (Map.Entry<Endpoint, DCNodeDatabase> e : dbs.entrySet()) {
+            keyIndexes.get(e.getKey()).save(e.getValue());
+        }
+        return count;
+    }
+
+    /**
+     * Writes the initial state of an object into the database, as of the
+     * given clock, unless the database already holds a state of the object.
+     * The caller must hold the lock of the object.
+     * 
+     * @return true if the state was written
+     */
+    static boolean loadIfAbsent(DCNodeDatabase db, CRDT<?> state, CausalityClock clock) {
+        final CRDTData<?> stored = db.read(state.getUID());
+        if (stored != null && !stored.isEmpty())
+            return false;
+        db.write(state.getUID(), newEntry(state, clock));
+        return true;
+    }
+
+    /**
+     * @return a database entry for an object with the given state, as of the
+     *         given clock (copied), and an empty log
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static CRDTData<?> newEntry(CRDT<?> state, CausalityClock clock) {
+        final CRDTData data = new CRDTData(state.getUID());
+        final ManagedCRDT crdt = new ManagedCRDT(state.getUID(), state, clock.clone(), true);
+        data.initValue(crdt, crdt.getClock(), crdt.getPruneClock(), ClockFactory.newClock());
+        return data;
+    }
+}
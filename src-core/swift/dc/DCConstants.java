@@ -65,6 +65,15 @@ public class DCConstants {
 
     public static final int DEFAULT_PRUNING_INTERVAL_MS = 3000;
 
+    // period of the background pruning rounds, and time each round may spend
+    public static final String PRUNING_PERIOD_PROPERTY = "swift.pruningPeriodMillis";
+
+    public static final int DEFAULT_PRUNING_PERIOD_MS = 1000;
+
+    public static final String PRUNING_BUDGET_PROPERTY = "swift.pruningBudgetMillis";
+
+    public static final int DEFAULT_PRUNING_BUDGET_MS = 100;
+
     public static final boolean DEFAULT_DB_NULL = true;
 
     public static final String NOTIFICATION_PERIOD_PROPERTY = "swift.notificationPeriodMillis";
@@ -78,4 +87,17 @@ public class DCConstants {
     public static final String NOTIFICATIONS_SEND_DELTA_VECTORS_PROPERTY = "swift.notificationsDeltaVectors";
 
     public static final String DEFAULT_NOTIFICATIONS_SEND_DELTA_VECTORS = "false";
+
+    // one in N commits/fetches is traced per stage; 0 disables tracing;
+    // stages are recorded in the statistics of the node, dumped periodically
+    public static final String STAGE_TRACING_SAMPLING_PROPERTY = "swift.stageTracingSampling";
+
+    public static final int DEFAULT_STAGE_TRACING_SAMPLING = 16;
+
+    public static final double STATS_DUMP_PERIOD_SEC = 30.0;
+
+    // serve also scouts running in the same process, over the INPROC transport
+    public static final String INPROC_CLIENTS_PROPERTY = "swift.inProcClients";
+
+    public static final String DEFAULT_INPROC_CLIENTS = "false";
 }
@@ -22,6 +22,7 @@ import static sys.utils.Threading.unlock;
 
 import java.lang.management.LockInfo;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +32,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,22 +49,35 @@ import swift.crdt.core.CRDTOperationDependencyPolicy;
 import swift.crdt.core.ManagedCRDT;
 import swift.dc.db.DCNodeDatabase;
 import swift.dc.db.StatsNodeDatabaseWrapper;
+import swift.proto.DHTBatchExecCRDT;
+import swift.proto.DHTBatchExecCRDTReply;
+import swift.proto.DHTBatchGetCRDT;
+import swift.proto.DHTBatchGetCRDTReply;
+import swift.proto.DHTBulkLoad;
+import swift.proto.DHTBulkLoadReply;
 import swift.proto.DHTExecCRDT;
 import swift.proto.DHTExecCRDTReply;
 import swift.proto.DHTGetCRDT;
 import swift.proto.DHTGetCRDTReply;
+import swift.proto.DHTScanKeys;
+import swift.proto.DHTScanKeysReply;
 import swift.proto.ObjectUpdatesInfo;
 import swift.proto.SwiftProtocolHandler;
 import swift.pubsub.DataServerPubSubService;
 import swift.pubsub.SurrogatePubSubService;
 import swift.pubsub.UpdateNotification;
 import swift.utils.FutureResultHandler;
+import swift.utils.EventLog;
+import swift.utils.EventLog.Event;
+import swift.utils.IndexedResultHandler;
 import sys.dht.DHT_Node;
 import sys.net.api.Endpoint;
 import sys.net.api.rpc.RpcEndpoint;
 import sys.net.api.rpc.RpcHandle;
 import sys.net.api.rpc.RpcMessage;
 import sys.scheduler.PeriodicTask;
+import sys.scheduler.Task;
+import sys.stats.metrics.StageTracer;
 import sys.utils.Threading;
 
 /**
@@ -72,6 +88,8 @@ import sys.utils.Threading;
 final class DCDataServer {
     private static Logger logger = Logger.getLogger(DCDataServer.class.getName());
 
+    static final double DHT_BATCH_RETRY_PERIOD = 0.1; // seconds
+
     Map<CRDTIdentifier, LockInfo> locks;
     Map<String, Map<String, CRDTData<?>>> db;
 
@@ -84,6 +102,8 @@ final class DCDataServer {
 
     Set<CRDTData<?>> modified;
 
+    final KeyIndex keyIndex = new KeyIndex();
+
     SurrogatePubSubService suPubSub;
     DataServerPubSubService dsPubSub;
 
@@ -94,12 +114,37 @@ final class DCDataServer {
 
     CRDTIdentifier heartBeat = new CRDTIdentifier("heart", "beat");
 
+    /**
+     * Stages of the execution of the updates to one object: waiting for the
+     * object lock, executing and publishing the updates.
+     */
+    enum ExecStage {
+        LOCK, EXECUTE, PUBLISH
+    }
+
+    /**
+     * Stages of reading one object: waiting for the object lock and copying
+     * the requested version.
+     */
+    enum GetStage {
+        LOCK, COPY
+    }
+
+    final StageTracer<ExecStage> execTracer;
+    final StageTracer<GetStage> getTracer;
+
+    final DCPruningService pruningService;
+
     DCDataServer(final DCSurrogate surrogate, Properties props, SurrogatePubSubService suPubSub, int dhtPort) {
         sys.dht.DHT_Node.DHT_PORT = dhtPort;
         this.surrogate = surrogate;
         this.localSurrogateId = surrogate.getId();
         this.dsPubSub = new DataServerPubSubService(localSurrogateId, executor, surrogate);
         this.suPubSub = suPubSub;
+        this.execTracer = new StageTracer<ExecStage>(surrogate.stats, "exec", ExecStage.class,
+                surrogate.stageTracingSampling);
+        this.getTracer = new StageTracer<GetStage>(surrogate.stats, "get", GetStage.class,
+                surrogate.stageTracingSampling);
 
         final String pruningIntervalString = props.getProperty(DCConstants.PRUNING_INTERVAL_PROPERTY);
         if (pruningIntervalString != null) {
@@ -119,6 +164,9 @@ final class DCDataServer {
         initData(props);
         initDHT();
 
+        pruningService = new DCPruningService(this, props);
+        pruningService.start();
+
         if (logger.isLoggable(Level.INFO)) {
             logger.info("Data server ready...");
         }
@@ -158,6 +206,7 @@ final class DCDataServer {
                             }
                             writeCRDTintoDB(obj);
                         }
+                        keyIndex.save(dbServer);
                         logger.info("Flushed store to disk...");
                         Thread.sleep(DCConstants.SYNC_PERIOD);
                     } catch (Exception e) {
@@ -211,6 +260,50 @@ final class DCDataServer {
         return (V) result.get();
     }
 
+    /**
+     * Sends a batch request to a data node, asynchronously. Each result in the
+     * reply is delivered to the handler, tagged with the corresponding position
+     * in idxs. The request is re-sent until a reply arrives.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void dhtBatchRequest(final Endpoint dst, final RpcMessage req, final List<Integer> idxs,
+            final IndexedResultHandler rh) {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final SwiftProtocolHandler replyHandler = new SwiftProtocolHandler() {
+            public void onReceive(DHTBatchExecCRDTReply reply) {
+                deliver(reply.getResults());
+            }
+
+            public void onReceive(DHTBatchGetCRDTReply reply) {
+                deliver(reply.getObjects());
+            }
+
+            public void onReceive(DHTScanKeysReply reply) {
+                deliver(Collections.singletonList(reply.getKeys()));
+            }
+
+            public void onReceive(DHTBulkLoadReply reply) {
+                deliver(Collections.singletonList(reply.getCount()));
+            }
+
+            private void deliver(List<?> results) {
+                if (done.compareAndSet(false, true)) {
+                    for (int i = 0; i < idxs.size(); i++)
+                        rh.onResult(idxs.get(i), results.get(i));
+                }
+            }
+        };
+        dhtEndpoint.send(dst, req, replyHandler, 0);
+        new Task(DHT_BATCH_RETRY_PERIOD) {
+            public void run() {
+                if (!done.get()) {
+                    dhtEndpoint.send(dst, req, replyHandler, 0);
+                    reSchedule(DHT_BATCH_RETRY_PERIOD);
+                }
+            }
+        };
+    }
+
     void initDHT() {
 
         dhtEndpoint = Networking.rpcConnect().toDefaultService();
@@ -231,6 +324,55 @@ final class DCDataServer {
                         request.getTrxVersion(), request.getTxTs(), request.getCltTs(), request.getPrvCltTs(),
                         request.getCurDCVersion())));
             }
+
+            public void onReceive(RpcHandle con, DHTBatchGetCRDT request) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("DHT data server: batch get CRDT : " + request.getIds());
+                }
+                List<ManagedCRDT> objects = new ArrayList<ManagedCRDT>(request.getIds().size());
+                for (CRDTIdentifier id : request.getIds()) {
+                    try {
+                        if (request.subscribesUpdates())
+                            dsPubSub.subscribe(id, con.remoteEndpoint());
+                        objects.add(localGetCRDTObject(id, request.getKnownVersion(), request.getVersion(),
+                                request.getCltId(), request.sendMoreRecentUpdates(), false, request.sendDelta()));
+                    } catch (RuntimeException x) {
+                        EventLog.record(Event.DHT_BATCH_GET_FAILED, id, x);
+                        objects.add(null);
+                    }
+                }
+                con.reply(new DHTBatchGetCRDTReply(objects));
+            }
+
+            public void onReceive(RpcHandle con, DHTScanKeys request) {
+                con.reply(new DHTScanKeysReply(keyIndex.scan(request.getTable(), request.getStartKey(),
+                        request.getMaxCount())));
+            }
+
+            public void onReceive(RpcHandle con, DHTBulkLoad request) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("DHT data server: bulk load : " + request.getObjects().size() + " objects");
+                }
+                con.reply(new DHTBulkLoadReply(localBulkLoad(request.getObjects(), request.getClock())));
+            }
+
+            public void onReceive(RpcHandle con, DHTBatchExecCRDT request) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("DHT data server: batch exec CRDT : " + request.getGrps().size() + " objects");
+                }
+                List<ExecCRDTResult> results = new ArrayList<ExecCRDTResult>(request.getGrps().size());
+                for (CRDTObjectUpdatesGroup<?> grp : request.getGrps()) {
+                    try {
+                        results.add(localExecCRDT(grp, request.getSnapshotVersion(), request.getTrxVersion(),
+                                request.getTxTs(), request.getCltTs(), request.getPrvCltTs(),
+                                request.getCurDCVersion()));
+                    } catch (RuntimeException x) {
+                        EventLog.record(Event.DHT_BATCH_EXEC_FAILED, grp.getTargetUID(), x);
+                        results.add(new ExecCRDTResult(false));
+                    }
+                }
+                con.reply(new DHTBatchExecCRDTReply(results));
+            }
         });
     }
 
@@ -244,6 +386,7 @@ final class DCDataServer {
         this.cltClock = ClockFactory.newClock();
 
         initDB(props);
+        keyIndex.load(dbServer);
 
         if (dbServer.ramOnly()) {
 
@@ -313,6 +456,8 @@ final class DCDataServer {
                 return data;
         }
         data = readCRDTFromDB(id);
+        if (data != null && !data.isEmpty())
+            keyIndex.add(id);
         synchronized (m) {
             if (data == null)
                 data = new CRDTData(id);
@@ -321,6 +466,43 @@ final class DCDataServer {
         }
     }
 
+    /**
+     * @return the entries currently loaded from the database
+     */
+    List<CRDTData<?>> getLoadedEntries() {
+        final List<Map<String, CRDTData<?>>> tables;
+        synchronized (db) {
+            tables = new ArrayList<Map<String, CRDTData<?>>>(db.values());
+        }
+        final List<CRDTData<?>> result = new ArrayList<CRDTData<?>>();
+        for (Map<String, CRDTData<?>> m : tables) {
+            synchronized (m) {
+                result.addAll(m.values());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prunes the given entry if it is due, under the object lock.
+     * 
+     * @return true if the entry was pruned
+     */
+    boolean pruneEntry(CRDTData<?> data, CausalityClock stableClock) {
+        lock(data.id);
+        try {
+            if (data.isEmpty()
+                    || !data.pruneIfPossible(
+                            pruningInterval + surrogate.timeSmootherRandom.get().nextInt(pruningInterval), stableClock)) {
+                return false;
+            }
+            setModifiedDatabaseEntry(data);
+            return true;
+        } finally {
+            unlock(data.id);
+        }
+    }
+
     private void setModifiedDatabaseEntry(CRDTData<?> crdt) {
         synchronized (modified) {
             modified.add(crdt);
@@ -328,7 +510,7 @@ final class DCDataServer {
     }
 
     Endpoint resolve(CRDTIdentifier id) {
-        return DHT_Node.resolveKey(id.toString());
+        return DHT_Node.resolveKey(id);
     }
 
     /**
@@ -339,7 +521,7 @@ final class DCDataServer {
     <V extends CRDT<V>> ExecCRDTResult execCRDT(CRDTObjectUpdatesGroup<V> grp, CausalityClock snapshotVersion,
             CausalityClock trxVersion, Timestamp txTs, Timestamp cltTs, Timestamp prvCltTs, CausalityClock curDCVersion) {
 
-        Endpoint dst = DHT_Node.resolveKey(grp.getTargetUID().toString());
+        Endpoint dst = DHT_Node.resolveKey(grp.getTargetUID());
         if (dst == null)
             return localExecCRDT(grp, snapshotVersion, trxVersion, txTs, cltTs, prvCltTs, curDCVersion);
         else {
@@ -348,6 +530,165 @@ final class DCDataServer {
         }
     }
 
+    /**
+     * Groups the positions of the given objects by the data node responsible
+     * for them. Objects stored locally are grouped under the null key.
+     */
+    private Map<Endpoint, List<Integer>> groupByDataNode(List<CRDTIdentifier> ids) {
+        Map<Endpoint, List<Integer>> res = new HashMap<Endpoint, List<Integer>>();
+        for (int i = 0; i < ids.size(); i++) {
+            Endpoint dst = DHT_Node.resolveKey(ids.get(i));
+            List<Integer> idxs = res.get(dst);
+            if (idxs == null)
+                res.put(dst, idxs = new ArrayList<Integer>());
+            idxs.add(i);
+        }
+        return res;
+    }
+
+    private static <T> List<T> select(List<T> list, List<Integer> idxs) {
+        List<T> res = new ArrayList<T>(idxs.size());
+        for (int i : idxs)
+            res.add(list.get(i));
+        return res;
+    }
+
+    /**
+     * Executes the operations of one transaction on the given CRDTs. Updates
+     * groups of objects stored at the same remote data node are sent in a
+     * single request; the results are delivered asynchronously to the handler,
+     * one per group, tagged with the position of the group in the list.
+     */
+    void execCRDTs(final List<CRDTObjectUpdatesGroup<?>> grps, final CausalityClock snapshotVersion,
+            final CausalityClock trxVersion, final Timestamp txTs, final Timestamp cltTs, final Timestamp prvCltTs,
+            final CausalityClock curDCVersion, final IndexedResultHandler<ExecCRDTResult> rh) {
+        List<Integer> local = null;
+        for (Map.Entry<Endpoint, List<Integer>> e : groupByDataNode(targetsOf(grps)).entrySet()) {
+            if (e.getKey() == null)
+                local = e.getValue();
+            else
+                dhtBatchRequest(e.getKey(), new DHTBatchExecCRDT(select(grps, e.getValue()), snapshotVersion,
+                        trxVersion, txTs, cltTs, prvCltTs, curDCVersion), e.getValue(), rh);
+        }
+        if (local == null)
+            return;
+
+        if (local.size() > 2) { // do multiple local execCRDTs in parallel
+            for (final int i : local)
+                surrogate.crdtExecutor.execute(new Runnable() {
+                    public void run() {
+                        rh.onResult(i, localExecCRDT(grps.get(i), snapshotVersion, trxVersion, txTs, cltTs, prvCltTs,
+                                curDCVersion));
+                    }
+                });
+        } else {
+            for (int i : local)
+                rh.onResult(i, localExecCRDT(grps.get(i), snapshotVersion, trxVersion, txTs, cltTs, prvCltTs,
+                        curDCVersion));
+        }
+    }
+
+    private static List<CRDTIdentifier> targetsOf(List<CRDTObjectUpdatesGroup<?>> grps) {
+        List<CRDTIdentifier> res = new ArrayList<CRDTIdentifier>(grps.size());
+        for (CRDTObjectUpdatesGroup<?> i : grps)
+            res.add(i.getTargetUID());
+        return res;
+    }
+
+    /**
+     * Fetches a number of CRDTs with the same clocks and options. Objects
+     * stored at the same remote data node are fetched with a single request;
+     * the results are delivered asynchronously to the handler, one per object,
+     * tagged with the position of the object in the list. A null result means
+     * the object does not exist or cannot fulfill the request. With sendDelta,
+     * objects whose log covers the updates since knownClk are delivered as
+     * deltas (see {@link ManagedCRDT#copyDeltaSince}).
+     */
+    void getCRDTs(final List<CRDTIdentifier> ids, CausalityClock knownClk, CausalityClock clk, String clientId,
+            boolean sendMoreRecentUpdates, boolean isSubscribed, boolean sendDelta,
+            IndexedResultHandler<ManagedCRDT> rh) {
+        List<Integer> local = null;
+        for (Map.Entry<Endpoint, List<Integer>> e : groupByDataNode(ids).entrySet()) {
+            if (e.getKey() == null)
+                local = e.getValue();
+            else
+                dhtBatchRequest(e.getKey(), new DHTBatchGetCRDT(select(ids, e.getValue()), knownClk, clk, clientId,
+                        sendMoreRecentUpdates, isSubscribed, sendDelta), e.getValue(), rh);
+        }
+        if (local != null)
+            for (int i : local)
+                rh.onResult(i, localGetCRDTObject(ids.get(i), knownClk, clk, clientId, sendMoreRecentUpdates,
+                        isSubscribed, sendDelta));
+    }
+
+    /**
+     * Lists, in key order, up to maxCount identifiers of objects of the table
+     * with key greater than or equal to startKey (or from the first key, if
+     * null). Every data node is asked for its page of keys in a single
+     * request; the merged page is delivered asynchronously to the handler.
+     */
+    void scanKeys(final String table, final String startKey, final int maxCount,
+            final FutureResultHandler<List<CRDTIdentifier>> rh) {
+        final List<Endpoint> remote = DHT_Node.remoteDataNodes();
+        final List<List<String>> pages = new ArrayList<List<String>>();
+        pages.add(keyIndex.scan(table, startKey, maxCount));
+        if (remote.isEmpty()) {
+            rh.onResult(KeyIndex.merge(table, pages, maxCount));
+            return;
+        }
+        final AtomicInteger pending = new AtomicInteger(remote.size());
+        final IndexedResultHandler<List<String>> collector = new IndexedResultHandler<List<String>>() {
+            @Override
+            public void onResult(int idx, List<String> keys) {
+                synchronized (pages) {
+                    pages.add(keys);
+                }
+                if (pending.decrementAndGet() == 0)
+                    rh.onResult(KeyIndex.merge(table, pages, maxCount));
+            }
+        };
+        final DHTScanKeys req = new DHTScanKeys(table, startKey, maxCount);
+        for (int i = 0; i < remote.size(); i++)
+            dhtBatchRequest(remote.get(i), req, Collections.singletonList(i), collector);
+    }
+
+    /**
+     * Stores new objects with the given initial states, as of the given clock,
+     * without update logs. Objects stored at the same remote data node are
+     * sent in a single request; the total number of objects stored is
+     * delivered asynchronously to the handler.
+     */
+    void bulkLoad(final List<CRDT<?>> objects, final CausalityClock clock, final FutureResultHandler<Integer> rh) {
+        final List<CRDTIdentifier> ids = new ArrayList<CRDTIdentifier>(objects.size());
+        for (CRDT<?> i : objects)
+            ids.add(i.getUID());
+        final Map<Endpoint, List<Integer>> nodes = groupByDataNode(ids);
+        if (nodes.isEmpty()) {
+            rh.onResult(0);
+            return;
+        }
+        final AtomicInteger pending = new AtomicInteger(nodes.size());
+        final AtomicInteger count = new AtomicInteger(0);
+        final IndexedResultHandler<Integer> collector = new IndexedResultHandler<Integer>() {
+            @Override
+            public void onResult(int idx, Integer n) {
+                count.addAndGet(n);
+                if (pending.decrementAndGet() == 0)
+                    rh.onResult(count.get());
+            }
+        };
+        List<Integer> local = null;
+        for (Map.Entry<Endpoint, List<Integer>> e : nodes.entrySet()) {
+            if (e.getKey() == null)
+                local = e.getValue();
+            else
+                dhtBatchRequest(e.getKey(), new DHTBulkLoad(select(objects, e.getValue()), clock),
+                        Collections.singletonList(0), collector);
+        }
+        if (local != null)
+            collector.onResult(0, localBulkLoad(select(objects, local), clock));
+    }
+
     /**
      * Return null if CRDT does not exist
      * 
@@ -359,9 +700,9 @@ final class DCDataServer {
      */
     void getCRDT(final CRDTIdentifier id, CausalityClock knownClk, CausalityClock clk, String clientId,
             boolean sendMoreRecentUpdates, boolean isSubscribed, FutureResultHandler<ManagedCRDT> rh) {
-        Endpoint dst = DHT_Node.resolveKey(id.toString());
+        Endpoint dst = DHT_Node.resolveKey(id);
         if (dst == null) {
-            rh.onResult(localGetCRDTObject(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed));
+            rh.onResult(localGetCRDTObject(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed, false));
         } else {
             dhtRequest(dst, new DHTGetCRDT(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed), rh);
         }
@@ -378,9 +719,9 @@ final class DCDataServer {
      */
     ManagedCRDT getCRDT(final CRDTIdentifier id, CausalityClock knownClk, CausalityClock clk, String clientId,
             boolean sendMoreRecentUpdates, boolean isSubscribed) {
-        Endpoint dst = DHT_Node.resolveKey(id.toString());
+        Endpoint dst = DHT_Node.resolveKey(id);
         if (dst == null) {
-            return localGetCRDTObject(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed);
+            return localGetCRDTObject(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed, false);
         } else {
             return dhtRequest(dst, new DHTGetCRDT(id, knownClk, clk, clientId, sendMoreRecentUpdates, isSubscribed));
         }
@@ -396,6 +737,7 @@ final class DCDataServer {
             CRDTData<V> data = (CRDTData<V>) this.getDatabaseEntry(crdt.getUID());
             if (data.empty) {
                 data.initValue(crdt, crdt.getClock(), crdt.getPruneClock(), ClockFactory.newClock());
+                keyIndex.add(crdt.getUID());
             } else {
                 // FIXME: this is an outcome of change to the op-based model and
                 // discussions over e-mail.
@@ -421,18 +763,71 @@ final class DCDataServer {
         }
     }
 
+    /**
+     * Stores new objects with the given initial states, as of the given clock.
+     * Meant for the initial population of the DC: objects that already exist,
+     * in memory or in the database, are left untouched. New objects are
+     * written straight to the database, without being loaded in memory.
+     * 
+     * @return the number of objects stored
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    int localBulkLoad(List<CRDT<?>> objects, CausalityClock clock) {
+        int count = 0;
+        for (CRDT<?> state : objects) {
+            final CRDTIdentifier id = state.getUID();
+            lock(id);
+            try {
+                final CRDTData loaded = getLoadedEntry(id);
+                if (loaded == null) {
+                    // the object may still exist in the database only
+                    final boolean written = DCBulkLoader.loadIfAbsent(dbServer, state, clock);
+                    keyIndex.add(id);
+                    if (!written)
+                        continue;
+                } else if (loaded.empty) {
+                    final CRDTData<?> data = DCBulkLoader.newEntry(state, clock);
+                    loaded.initValue(data.crdt, data.clock, data.pruneClock, ClockFactory.newClock());
+                    setModifiedDatabaseEntry(loaded);
+                    keyIndex.add(id);
+                } else
+                    continue;
+                count++;
+            } finally {
+                unlock(id);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the entry of the object, if loaded in memory, or null
+     */
+    private CRDTData<?> getLoadedEntry(CRDTIdentifier id) {
+        Map<String, CRDTData<?>> m;
+        synchronized (db) {
+            m = db.get(id.getTable());
+        }
+        if (m == null)
+            return null;
+        synchronized (m) {
+            return m.get(id.getKey());
+        }
+    }
+
     @SuppressWarnings("unchecked")
     <V extends CRDT<V>> ExecCRDTResult localExecCRDT(CRDTObjectUpdatesGroup<V> grp, CausalityClock _snapshotVersion,
             CausalityClock _trxVersion, Timestamp _txTs, Timestamp cltTs, Timestamp prvCltTs,
             CausalityClock curDCVersion) {
         CRDTIdentifier id = grp.getTargetUID();
+        long traceMark = execTracer.begin();
         lock(id);
         try {
+            traceMark = execTracer.end(ExecStage.LOCK, traceMark);
             CRDTData<?> data = localGetCRDT(id);
             if (data == null) {
                 if (!grp.hasCreationState()) {
-                    logger.warning("No creation state provided by client for an object that does not exist "
-                            + grp.getTargetUID());
+                    EventLog.record(Event.MISSING_CREATION_STATE, grp.getTargetUID());
                     return new ExecCRDTResult(false);
                 }
                 V creationState = grp.getCreationState();
@@ -448,8 +843,6 @@ final class DCDataServer {
                 // sure after the switch to op-based.
                 data = localPutCRDT(crdt);
             }
-            data.pruneIfPossible(pruningInterval + surrogate.timeSmootherRandom.get().nextInt(pruningInterval));
-
             // crdt.augumentWithScoutClock(new Timestamp(clientId, clientTxs))
             // //
             // ensures that execute() has enough information to ensure tx
@@ -491,9 +884,12 @@ final class DCDataServer {
                 }
             }
 
+            traceMark = execTracer.end(ExecStage.EXECUTE, traceMark);
+
             ObjectUpdatesInfo info = new ObjectUpdatesInfo(id, data.pruneClock.clone(), grp);
 
             dsPubSub.publish(new UpdateNotification(surrogate.surrogateId, info, surrogate.getEstimatedDCVersionCopy()));
+            execTracer.end(ExecStage.PUBLISH, traceMark);
 
             return new ExecCRDTResult(true, id, info);
         } finally {
@@ -509,7 +905,7 @@ final class DCDataServer {
         // dsPubSub.unsubscribe(req.getId(), remote);
 
         return localGetCRDTObject(req.getId(), req.getKnownVersion(), req.getVersion(), req.getCltId(),
-                req.sendMoreRecentUpdates(), false);
+                req.sendMoreRecentUpdates(), false, false);
     }
 
     /**
@@ -521,18 +917,23 @@ final class DCDataServer {
      * 
      * @param subscribe
      *            Subscription type
+     * @param sendDelta
+     *            return only the updates since knownVersion, if the log of
+     *            the object still covers them
      * @return null if cannot fulfill request
      */
     ManagedCRDT localGetCRDTObject(CRDTIdentifier id, CausalityClock knownVersion, CausalityClock version,
-            String clientId, boolean sendMoreRecentUpdates, boolean subscribeUpdates) {
+            String clientId, boolean sendMoreRecentUpdates, boolean subscribeUpdates, boolean sendDelta) {
 
         if (subscribeUpdates)
             dsPubSub.subscribe(id, surrogate.suPubSub);
 
         // else
         // dsPubSub.unsubscribe(localSurrogateId, id, suPubSub);
+        long traceMark = getTracer.begin();
         lock(id);
         try {
+            traceMark = getTracer.end(GetStage.LOCK, traceMark);
             CRDTData<?> data = localGetCRDT(id);
             if (data == null)
                 return null;
@@ -565,7 +966,13 @@ final class DCDataServer {
             synchronized (cltClock) {
                 ts = cltClock.getLatest(clientId);
             }
-            final ManagedCRDT crdt = data.crdt.copyWithRestrictedVersioning(version, ts);
+            ManagedCRDT crdt = null;
+            if (sendDelta && knownVersion != null) {
+                crdt = data.crdt.copyDeltaSince(knownVersion, version);
+            }
+            if (crdt == null) {
+                crdt = data.crdt.copyWithRestrictedVersioning(version, ts);
+            }
             // FIXME: when failing over between DCs, notifications for the
             // same update may reach the client with two different DC
             // timestamps.
@@ -576,6 +983,7 @@ final class DCDataServer {
             if (ts != null)
                 crdt.augmentWithScoutClockWithoutMappings(ts);
 
+            getTracer.end(GetStage.COPY, traceMark);
             return crdt;
         } finally {
             unlock(id);
@@ -0,0 +1,163 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.dc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import swift.clocks.CausalityClock;
+import swift.crdt.core.CRDTIdentifier;
+import swift.crdt.core.ManagedCRDT;
+import sys.stats.StatsImpl;
+import sys.stats.sources.CounterSignalSource;
+import sys.stats.sources.PollingBasedValueProvider;
+import sys.stats.sources.ValueSignalSource;
+
+/**
+ * Background service that prunes the update logs of the objects loaded by a
+ * data server, against the DC stable clock, so that commits do not pay for
+ * pruning and objects that are no longer written do not keep long logs.
+ * <p>
+ * Each round walks the loaded objects, those not pruned for a long time
+ * first, then by decreasing log size, and stops when it exhausts its time
+ * budget; the remaining objects wait for the next round. Every round records
+ * the log sizes of the objects in the statistics of the surrogate.
+ */
+final class DCPruningService {
+    private static Logger logger = Logger.getLogger(DCPruningService.class.getName());
+
+    // objects not pruned for this many pruning intervals come first
+    static final int MAX_AGE_INTERVALS = 10;
+
+    private final DCDataServer server;
+    private final long periodMillis;
+    private final long budgetNanos;
+    private final long maxAgeMillis;
+
+    private final ValueSignalSource logSizeStats;
+    private final CounterSignalSource prunedStats;
+    // largest log size, as of the last round
+    private volatile int maxLogSize;
+
+    DCPruningService(DCDataServer server, Properties props) {
+        this.server = server;
+        this.periodMillis = Integer.valueOf(props.getProperty(DCConstants.PRUNING_PERIOD_PROPERTY,
+                Integer.toString(DCConstants.DEFAULT_PRUNING_PERIOD_MS)));
+        this.budgetNanos = 1000000L * Integer.valueOf(props.getProperty(DCConstants.PRUNING_BUDGET_PROPERTY,
+                Integer.toString(DCConstants.DEFAULT_PRUNING_BUDGET_MS)));
+        this.maxAgeMillis = (long) MAX_AGE_INTERVALS * server.pruningInterval;
+
+        this.logSizeStats = server.surrogate.stats.getValuesFrequencyOverTime("pruning-log-size", 0, 1, 2, 5, 10,
+                20, 50, 100, 200, 500, 1000, 5000);
+        this.prunedStats = server.surrogate.stats.getCountingSourceForStat("pruned-objects");
+        server.surrogate.stats.registerPollingBasedValueProvider("pruning-max-log-size",
+                new PollingBasedValueProvider() {
+                    @Override
+                    public double poll() {
+                        return maxLogSize;
+                    }
+                }, StatsImpl.SAMPLING_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Starts the background thread running the pruning rounds.
+     */
+    void start() {
+        final Thread t = new Thread() {
+            public void run() {
+                for (;;) {
+                    try {
+                        Thread.sleep(periodMillis);
+                        pruneRound();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Pruning round failed", e);
+                    }
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Runs one pruning round, within the time budget.
+     *
+     * @return the number of objects pruned
+     */
+    int pruneRound() {
+        final long start = System.nanoTime();
+        final long now = System.currentTimeMillis();
+        final CausalityClock stableClock = server.surrogate.getEstimatedDCStableVersionCopy();
+
+        int maxSize = 0;
+        final Map<CRDTIdentifier, Long> priorities = new HashMap<CRDTIdentifier, Long>();
+        final List<CRDTData<?>> candidates = new ArrayList<CRDTData<?>>();
+        for (final CRDTData<?> data : server.getLoadedEntries()) {
+            final ManagedCRDT<?> crdt = data.crdt;
+            if (data.isEmpty() || crdt == null) {
+                continue;
+            }
+            // racy read, only used to prioritize objects
+            final int size = crdt.getLogSize();
+            maxSize = Math.max(maxSize, size);
+            logSizeStats.setValue(size);
+            if (size > 0) {
+                // old objects first, then larger logs
+                priorities.put(data.id, isOld(data, now) ? Integer.MAX_VALUE + (long) size : size);
+                candidates.add(data);
+            }
+        }
+        maxLogSize = maxSize;
+
+        Collections.sort(candidates, new Comparator<CRDTData<?>>() {
+            @Override
+            public int compare(CRDTData<?> a, CRDTData<?> b) {
+                return priorities.get(b.id).compareTo(priorities.get(a.id));
+            }
+        });
+
+        int pruned = 0;
+        for (final CRDTData<?> data : candidates) {
+            if (System.nanoTime() - start > budgetNanos) {
+                break;
+            }
+            if (server.pruneEntry(data, stableClock)) {
+                prunedStats.incCounter();
+                pruned++;
+            }
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Pruning round: " + pruned + " of " + candidates.size() + " objects pruned in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+        }
+        return pruned;
+    }
+
+    // racy read of a field updated under the object lock
+    private boolean isOld(CRDTData<?> data, long now) {
+        return data.lastPrunedTime == -1 || now - data.lastPrunedTime > maxAgeMillis;
+    }
+}
@@ -58,10 +58,16 @@ import swift.proto.PingRequest;
 import swift.proto.SeqCommitUpdatesReply;
 import swift.proto.SeqCommitUpdatesRequest;
 import swift.proto.SwiftProtocolHandler;
+import swift.utils.EventLog;
+import swift.utils.EventLog.Event;
 import sys.net.api.Endpoint;
 import sys.net.api.Networking.TransportProvider;
 import sys.net.api.rpc.RpcEndpoint;
 import sys.net.api.rpc.RpcHandle;
+import sys.stats.DummyStats;
+import sys.stats.Stats;
+import sys.stats.StatsImpl;
+import sys.stats.metrics.StageTracer;
 import sys.utils.Args;
 import sys.utils.FifoQueue;
 import sys.utils.Threading;
@@ -112,6 +118,18 @@ public class DCSequencerServer extends SwiftProtocolHandler {
     ExecutorService stableExecutor = Executors.newCachedThreadPool();
     Set<Timestamp> unstableTS = new HashSet<Timestamp>();
 
+    /**
+     * Stages of the sequencer part of a commit: generating a timestamp,
+     * waiting in the per-site FIFO queue for the commit of the timestamp, and
+     * committing it.
+     */
+    enum SequencerStage {
+        TIMESTAMP, COMMIT_QUEUE, COMMIT
+    }
+
+    int stageTracingSampling;
+    StageTracer<SequencerStage> tracer;
+
     public DCSequencerServer(String siteId, List<String> servers, List<String> sequencers, String sequencerShadow,
             boolean isBackup, Properties props) {
         this(siteId, DCConstants.SEQUENCER_PORT, servers, sequencers, sequencerShadow, isBackup, props);
@@ -128,6 +146,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
         this.props = props;
         init();
         initDB(props);
+        initTracing(props);
 
     }
 
@@ -193,6 +212,18 @@ public class DCSequencerServer extends SwiftProtocolHandler {
         }
     }
 
+    void initTracing(Properties props) {
+        stageTracingSampling = Integer.valueOf(props.getProperty(DCConstants.STAGE_TRACING_SAMPLING_PROPERTY, ""
+                + DCConstants.DEFAULT_STAGE_TRACING_SAMPLING));
+        Stats stats = new DummyStats();
+        if (stageTracingSampling > 0) {
+            final StatsImpl statsImpl = StatsImpl.getInstance("sequencer-" + siteId);
+            statsImpl.dumpPeriodically(DCConstants.STATS_DUMP_PERIOD_SEC);
+            stats = statsImpl;
+        }
+        tracer = new StageTracer<SequencerStage>(stats, "sequencer", SequencerStage.class, stageTracingSampling);
+    }
+
     void execPending() {
         Thread th = Threading.newThread(true, new Runnable() {
             public void run() {
@@ -299,6 +330,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
             synchronizer();
             execPending();
         }
+        EventLog.startReporting("DC " + siteId, 30.0);
         if (isBackup) {
             if (logger.isLoggable(Level.INFO)) {
                 logger.info("Sequencer backup ready...");
@@ -356,9 +388,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
                                     lastEffectiveSendTime = l;
                                 }
                             }
-                            if (logger.isLoggable(Level.INFO)) {
-                                logger.info("sequencer: synchronizer: num operations to propagate : " + s.size());
-                            }
+                            EventLog.record(Event.SEQUENCER_SYNC_BACKLOG, s.size());
                             if (r == null) {
                                 long waitime = lastEffectiveSendTime - System.currentTimeMillis()
                                         + DCConstants.INTERSEQ_RETRY;
@@ -525,8 +555,11 @@ public class DCSequencerServer extends SwiftProtocolHandler {
         }
         if (isBackup && !upgradeToPrimary())
             return;
+        long traceMark = tracer.begin();
         if (!processGenerateDCTimestampRequest(conn, request)) {
             addPendingTimestampReq(new BlockedTimestampRequest(conn, request));
+        } else {
+            tracer.end(SequencerStage.TIMESTAMP, traceMark);
         }
         cleanPendingTS();
     }
@@ -569,6 +602,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
     @Override
     public void onReceive(final RpcHandle conn, final CommitTSRequest request) {
         request.setReplyHandle(conn);
+        request.setTraceMark(tracer.begin());
 
         Timestamp ts = request.getTimestamp();
         queueFor(ts).offer(ts.getCounter(), request);
@@ -589,6 +623,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
         if (isBackup && !upgradeToPrimary())
             return;
 
+        final long traceMark = tracer.end(SequencerStage.COMMIT_QUEUE, request.getTraceMark());
         boolean ok = false;
         final CausalityClock clk;
         final CausalityClock stableClk;
@@ -621,6 +656,7 @@ public class DCSequencerServer extends SwiftProtocolHandler {
         dbServer.writeSysData("SYS_TABLE", "CLK", currentState);
 
         conn.reply(new CommitTSReply(CommitTSReply.CommitTSStatus.OK, clk, stableClk));
+        tracer.end(SequencerStage.COMMIT, traceMark);
         cleanPendingTSReq();
     }
 
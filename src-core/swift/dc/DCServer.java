@@ -108,6 +108,9 @@ public class DCServer {
         props.setProperty(DCConstants.NOTIFICATION_PERIOD_PROPERTY,
                 Args.valueOf(args, "-notificationsMs", DCConstants.DEFAULT_NOTIFICATION_PERIOD_MS) + "");
 
+        if (Args.contains(args, "-inProcClients"))
+            props.setProperty(DCConstants.INPROC_CLIENTS_PROPERTY, "true");
+
         String sequencerNode = Args.valueOf(args, "-sequencer", "localhost");
         // int pubsubPort = Args.valueOf(args, "-portPubSub",
         // DCConstants.PUBSUB_PORT);
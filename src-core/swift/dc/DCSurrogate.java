@@ -35,6 +35,7 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
@@ -55,6 +56,8 @@ import swift.proto.BatchFetchObjectVersionReply.FetchStatus;
 import swift.proto.BatchFetchObjectVersionRequest;
 import swift.proto.ClientRequest;
 import swift.proto.CommitTSReply;
+import swift.proto.BulkLoadReply;
+import swift.proto.BulkLoadRequest;
 import swift.proto.CommitTSRequest;
 import swift.proto.CommitUpdatesReply;
 import swift.proto.CommitUpdatesReply.CommitStatus;
@@ -65,13 +68,18 @@ import swift.proto.LatestKnownClockReply;
 import swift.proto.LatestKnownClockRequest;
 import swift.proto.PingReply;
 import swift.proto.PingRequest;
+import swift.proto.ScanKeysReply;
+import swift.proto.ScanKeysRequest;
 import swift.proto.SeqCommitUpdatesRequest;
 import swift.proto.SwiftProtocolHandler;
 import swift.pubsub.BatchUpdatesNotification;
 import swift.pubsub.SurrogatePubSubService;
 import swift.pubsub.SwiftSubscriber;
 import swift.pubsub.UpdateNotification;
+import swift.utils.EventLog;
+import swift.utils.EventLog.Event;
 import swift.utils.FutureResultHandler;
+import swift.utils.IndexedResultHandler;
 import swift.utils.SafeLog;
 import swift.utils.SafeLog.ReportType;
 import sys.Sys;
@@ -84,6 +92,10 @@ import sys.pubsub.PubSubNotification;
 import sys.pubsub.RemoteSubscriber;
 import sys.pubsub.impl.AbstractSubscriber;
 import sys.scheduler.PeriodicTask;
+import sys.stats.DummyStats;
+import sys.stats.Stats;
+import sys.stats.StatsImpl;
+import sys.stats.metrics.StageTracer;
 import sys.utils.Args;
 
 /**
@@ -99,6 +111,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
     String siteId;
     String surrogateId;
     RpcEndpoint srvEndpoint4Clients;
+    RpcEndpoint srvEndpoint4InProcClients;
     RpcEndpoint srvEndpoint4Sequencer;
 
     Endpoint sequencerServerEndpoint;
@@ -129,6 +142,28 @@ final public class DCSurrogate extends SwiftProtocolHandler {
 
     final ThreadLocal<Random> timeSmootherRandom;
 
+    /**
+     * Stages of a commit at the surrogate: obtaining a timestamp from the
+     * sequencer, executing the updates at the data nodes, and committing the
+     * timestamp at the sequencer.
+     */
+    enum CommitStage {
+        SEQUENCER, EXEC, COMMIT_TS, TOTAL
+    }
+
+    /**
+     * Stages of a fetch at the surrogate: getting the objects from the data
+     * nodes, and preparing the reply.
+     */
+    enum FetchStage {
+        GET, REPLY, TOTAL
+    }
+
+    final int stageTracingSampling;
+    final Stats stats;
+    final StageTracer<CommitStage> commitTracer;
+    final StageTracer<FetchStage> fetchTracer;
+
     DCSurrogate(String siteId, int port4Clients, int port4Sequencers, Endpoint sequencerEndpoint, Properties props) {
         this.siteId = siteId;
         this.surrogateId = "s" + System.nanoTime();
@@ -161,7 +196,29 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         generalExecutor = new ThreadPoolExecutor(4, 8, 3, TimeUnit.SECONDS, generalWorkQueue);
         generalExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
 
+        stageTracingSampling = Integer.valueOf(props.getProperty(DCConstants.STAGE_TRACING_SAMPLING_PROPERTY, ""
+                + DCConstants.DEFAULT_STAGE_TRACING_SAMPLING));
+        if (stageTracingSampling > 0) {
+            final StatsImpl statsImpl = StatsImpl.getInstance("surrogate-" + siteId);
+            statsImpl.dumpPeriodically(DCConstants.STATS_DUMP_PERIOD_SEC);
+            stats = statsImpl;
+        } else {
+            stats = new DummyStats();
+        }
+        commitTracer = new StageTracer<CommitStage>(stats, "commit", CommitStage.class, stageTracingSampling);
+        fetchTracer = new StageTracer<FetchStage>(stats, "fetch", FetchStage.class, stageTracingSampling);
+
         suPubSub = new SurrogatePubSubService(generalExecutor, this);
+
+        // scouts of application servers co-located with the surrogate skip
+        // the network
+        if (Boolean.valueOf(props.getProperty(DCConstants.INPROC_CLIENTS_PROPERTY,
+                DCConstants.DEFAULT_INPROC_CLIENTS))) {
+            srvEndpoint4InProcClients = Networking.rpcBind(port4Clients, INPROC).toDefaultService();
+            srvEndpoint4InProcClients.setHandler(this);
+            srvEndpoint4InProcClients.getFactory().setExecutor(Executors.newCachedThreadPool());
+            suPubSub.bindInProc();
+        }
         dataServer = new DCDataServer(this, props, suPubSub, port4Clients + 2);
 
         final String notificationPeriodString = props.getProperty(DCConstants.NOTIFICATION_PERIOD_PROPERTY);
@@ -190,6 +247,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
             }
         };
         final double CLOCKS_REPORTING_PERIOD_SEC = 30.0;
+        EventLog.startReporting("DC " + siteId, CLOCKS_REPORTING_PERIOD_SEC);
         new PeriodicTask(0.0, CLOCKS_REPORTING_PERIOD_SEC) {
             public void run() {
                 System.err.printf("DC %s: VV=%s, VV_K=%s\n", DCSurrogate.this.siteId,
@@ -270,6 +328,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
             logger.info("BatchFetchObjectVersionRequest client = " + request.getClientId() + "; crdt id = "
                     + request.getUids());
         }
+        final long traceStart = fetchTracer.begin();
         // LWWStringMapRegisterCRDT initialCheckpoint = new
         // LWWStringMapRegisterCRDT(request.getUid());
         // FAKE_INIT_UPDATE.applyTo(initialCheckpoint);
@@ -325,23 +384,21 @@ final public class DCSurrogate extends SwiftProtocolHandler {
                 disasterSafeVVReply);
 
         final Semaphore sem = new Semaphore(0);
-        for (int i = 0; i < request.getBatchSize(); i++) {
-            final int finalIdx = i;
-            dataServer.getCRDT(request.getUid(i), request.getKnownVersion(), request.getVersion(),
-                    request.getClientId(), request.isSendMoreRecentUpdates(), request.hasSubscription(),
-                    new FutureResultHandler<ManagedCRDT>() {
-                        @Override
-                        public void onResult(ManagedCRDT crdt) {
-                            try {
-                                adaptGetReplyToFetchReply(request, finalIdx, cltLastSeqNo, finalCmpClk,
-                                        finalEstimatedDCVersionCopy, reply, crdt);
-                            } finally {
-                                sem.release();
-                            }
+        dataServer.getCRDTs(request.getUids(), request.getKnownVersion(), request.getVersion(), request.getClientId(),
+                request.isSendMoreRecentUpdates(), request.hasSubscription(), request.isAcceptDelta(),
+                new IndexedResultHandler<ManagedCRDT>() {
+                    @Override
+                    public void onResult(int idx, ManagedCRDT crdt) {
+                        try {
+                            adaptGetReplyToFetchReply(request, idx, cltLastSeqNo, finalCmpClk,
+                                    finalEstimatedDCVersionCopy, reply, crdt);
+                        } finally {
+                            sem.release();
                         }
-                    });
-        }
+                    }
+                });
         sem.acquireUninterruptibly(request.getBatchSize());
+        final long traceMark = fetchTracer.end(FetchStage.GET, traceStart);
 
         if (request.getBatchSize() > 1 && !request.isSendMoreRecentUpdates()) {
             final CausalityClock commonPruneClock = request.getVersion().clone();
@@ -353,6 +410,8 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         }
 
         conn.reply(reply);
+        fetchTracer.end(FetchStage.REPLY, traceMark);
+        fetchTracer.end(FetchStage.TOTAL, traceStart);
     }
 
     private void adaptGetReplyToFetchReply(final BatchFetchObjectVersionRequest request, int idxInBatch,
@@ -384,15 +443,16 @@ final public class DCSurrogate extends SwiftProtocolHandler {
 
                 final BatchFetchObjectVersionReply.FetchStatus status;
                 if (versionToDcCmpClock.is(CMP_CLOCK.CMP_ISDOMINATED, CMP_CLOCK.CMP_CONCURRENT)) {
-                    logger.warning("Requested version " + request.getVersion() + " of object "
-                            + request.getUid(idxInBatch) + " missing; local version: " + estimatedDCVersionClock
-                            + " pruned as of " + crdt.getPruneClock());
+                    EventLog.record(Event.FETCH_VERSION_MISSING, request.getVersion(), request.getUid(idxInBatch),
+                            estimatedDCVersionClock, crdt.getPruneClock());
                     status = FetchStatus.VERSION_MISSING;
+                } else if (crdt.isDelta()) {
+                    // checked by the data server
+                    status = FetchStatus.OK_DELTA;
                 } else if (crdt.getPruneClock().compareTo(request.getVersion())
                         .is(CMP_CLOCK.CMP_DOMINATES, CMP_CLOCK.CMP_CONCURRENT)) {
-                    logger.warning("Requested version " + request.getVersion() + " of object "
-                            + request.getUid(idxInBatch) + " is pruned; local version: " + estimatedDCVersionClock
-                            + " pruned as of " + crdt.getPruneClock());
+                    EventLog.record(Event.FETCH_VERSION_PRUNED, request.getVersion(), request.getUid(idxInBatch),
+                            estimatedDCVersionClock, crdt.getPruneClock());
                     status = FetchStatus.VERSION_PRUNED;
                 } else {
                     status = FetchStatus.OK;
@@ -435,6 +495,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         final List<CRDTObjectUpdatesGroup<?>> ops = req.getObjectUpdateGroups();
         final CausalityClock dependenciesClock = ops.size() > 0 ? req.getDependencyClock() : ClockFactory.newClock();
 
+        final long traceStart = commitTracer.begin();
         GenerateDCTimestampReply tsReply = cltEndpoint4Sequencer.request(sequencerServerEndpoint,
                 new GenerateDCTimestampRequest(req.getClientId(), req.isDisasterSafeSession(), req.getCltTimestamp(),
                         dependenciesClock));
@@ -443,11 +504,13 @@ final public class DCSurrogate extends SwiftProtocolHandler {
 
         // req.setDisasterSafe(); // FOR SOSP EVALUATION...
 
-        doOneCommit(session, req, dependenciesClock, resHandler);
+        doOneCommit(session, req, dependenciesClock, traceStart, commitTracer.end(CommitStage.SEQUENCER, traceStart),
+                resHandler);
     }
 
     private void doOneCommit(final ClientSession session, final CommitUpdatesRequest req,
-            final CausalityClock snapshotClock, final FutureResultHandler<CommitUpdatesReply> resHandler) {
+            final CausalityClock snapshotClock, final long traceStart, final long traceMark,
+            final FutureResultHandler<CommitUpdatesReply> resHandler) {
         // 0) updates.addSystemTimestamp(timestampService.allocateTimestamp())
         // 1) let int clientTxs =
         // clientTxClockService.getAndLockNumberOfCommitedTxs(clientId)
@@ -480,36 +543,26 @@ final public class DCSurrogate extends SwiftProtocolHandler {
 
         final CausalityClock estimatedDCVersionCopy = getEstimatedDCVersionCopy();
 
-        int pos = 0;
         final AtomicBoolean txnOK = new AtomicBoolean(true);
         final AtomicReferenceArray<ExecCRDTResult> results = new AtomicReferenceArray<ExecCRDTResult>(ops.size());
 
-        if (ops.size() > 2) { // do multiple execCRDTs in parallel
-            final Semaphore s = new Semaphore(0);
-            for (final CRDTObjectUpdatesGroup<?> i : ops) {
-                final int j = pos++;
-                crdtExecutor.execute(new Runnable() {
-                    public void run() {
+        // updates to objects at the same data node are executed in one batch
+        final Semaphore s = new Semaphore(0);
+        dataServer.execCRDTs(ops, snapshotClock, trxClock, txTs, cltTs, prvCltTs, estimatedDCVersionCopy,
+                new IndexedResultHandler<ExecCRDTResult>() {
+                    @Override
+                    public void onResult(int idx, ExecCRDTResult result) {
                         try {
-                            results.set(j,
-                                    execCRDT(i, snapshotClock, trxClock, txTs, cltTs, prvCltTs, estimatedDCVersionCopy));
-                            txnOK.compareAndSet(true, results.get(j).isResult());
-                            updateEstimatedDCVersion(i.getDependency());
+                            results.set(idx, result);
+                            txnOK.compareAndSet(true, result.isResult());
+                            updateEstimatedDCVersion(ops.get(idx).getDependency());
                         } finally {
                             s.release();
                         }
                     }
                 });
-            }
-            s.acquireUninterruptibly(ops.size());
-        } else {
-            for (final CRDTObjectUpdatesGroup<?> i : ops) {
-                results.set(pos, execCRDT(i, snapshotClock, trxClock, txTs, cltTs, prvCltTs, estimatedDCVersionCopy));
-                txnOK.compareAndSet(true, results.get(pos).isResult());
-                updateEstimatedDCVersion(i.getDependency());
-                pos++;
-            }
-        }
+        s.acquireUninterruptibly(ops.size());
+        final long execMark = commitTracer.end(CommitStage.EXEC, traceMark);
 
         // TODO: handle failure
         session.setLastSeqNo(cltTs);
@@ -517,6 +570,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
                 estimatedDCVersionCopy, txnOK.get(), ops, req.disasterSafe(), session.clientId),
                 new SwiftProtocolHandler() {
                     public void onReceive(CommitTSReply reply) {
+                        commitTracer.end(CommitStage.COMMIT_TS, execMark);
                         if (logger.isLoggable(Level.INFO)) {
                             logger.info("Commit: received CommitTSRequest:old vrs:" + estimatedDCVersionCopy
                                     + "; new vrs=" + reply.getCurrVersion() + ";ts = " + txTs + ";cltts = " + cltTs);
@@ -527,6 +581,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
 
                         updateEstimatedDCStableVersion(reply.getStableVersion());
                         dataServer.dbServer.writeSysData("SYS_TABLE", "STABLE_CLK", getEstimatedDCStableVersionCopy());
+                        commitTracer.end(CommitStage.TOTAL, traceStart);
 
                         if (txnOK.get() && reply.getStatus() == CommitTSReply.CommitTSStatus.OK) {
                             if (logger.isLoggable(Level.INFO)) {
@@ -537,7 +592,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
                         } else {
                             // FIXME: CommitTSStatus.FAILED if not well
                             // documented. How comes it can fail?
-                            logger.warning("Commit: failed for request " + req);
+                            EventLog.record(Event.COMMIT_FAILED, ops.size(), req.getClientId(), cltTs, txTs, null);
                             resHandler.onResult(new CommitUpdatesReply());
                         }
                     }
@@ -610,7 +665,8 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         ClientSession session = getSession(request.getCltTimestamp().getIdentifier(), false);
         List<CRDTObjectUpdatesGroup<?>> ops = request.getObjectUpdateGroups();
         CausalityClock snapshotClock = ops.size() > 0 ? ops.get(0).getDependency() : ClockFactory.newClock();
-        doOneCommit(session, request, snapshotClock, new FutureResultHandler<CommitUpdatesReply>() {
+        final long traceStart = commitTracer.begin();
+        doOneCommit(session, request, snapshotClock, traceStart, traceStart, new FutureResultHandler<CommitUpdatesReply>() {
             @Override
             public void onResult(CommitUpdatesReply result) {
                 conn.reply(result);
@@ -637,6 +693,95 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         }, 0);
     }
 
+    @Override
+    public void onReceive(final RpcHandle conn, ScanKeysRequest request) {
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info("ScanKeysRequest client = " + request.getClientId() + " table = " + request.getTable());
+        }
+        dataServer.scanKeys(request.getTable(), request.getStartKey(), request.getMaxCount(),
+                new FutureResultHandler<List<CRDTIdentifier>>() {
+                    @Override
+                    public void onResult(List<CRDTIdentifier> ids) {
+                        conn.reply(new ScanKeysReply(ids));
+                    }
+                });
+    }
+
+    @Override
+    public void onReceive(final RpcHandle conn, final BulkLoadRequest request) {
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info("BulkLoadRequest client = " + request.getClientId() + ":ts=" + request.getCltTimestamp()
+                    + ":nobjects=" + request.getObjects().size());
+        }
+        final ClientSession session = getSession(request);
+        final Timestamp cltTs = request.getCltTimestamp();
+        // batches of a session are stored one at a time, and the sequence
+        // number of a batch is recorded only once it is stored, so that a
+        // retransmission either stores the batch or gets its actual result
+        final BulkLoadReply reply;
+        synchronized (session) {
+            final Timestamp prvCltTs = session.getLastSeqNo();
+            if (prvCltTs != null && prvCltTs.getCounter() >= cltTs.getCounter()) {
+                reply = session.lastBulkLoadReply;
+            } else {
+                reply = bulkLoad(session, request, prvCltTs);
+                if (reply != null) {
+                    session.setLastSeqNo(cltTs);
+                    session.lastBulkLoadReply = reply;
+                }
+            }
+        }
+        if (reply != null) {
+            conn.reply(reply);
+        }
+    }
+
+    /**
+     * Stores a batch of new objects under a single DC timestamp, with no
+     * dependencies, and waits until the timestamp is committed.
+     * 
+     * @return the reply to the client, or null if the batch was not stored
+     */
+    private BulkLoadReply bulkLoad(final ClientSession session, final BulkLoadRequest request,
+            final Timestamp prvCltTs) {
+        final Timestamp cltTs = request.getCltTimestamp();
+        final GenerateDCTimestampReply tsReply = cltEndpoint4Sequencer.request(sequencerServerEndpoint,
+                new GenerateDCTimestampRequest(request.getClientId(), request.isDisasterSafeSession(), cltTs,
+                        ClockFactory.newClock()));
+        if (tsReply == null) {
+            return null;
+        }
+        final Timestamp txTs = tsReply.getTimestamp();
+        final CausalityClock clock = ClockFactory.newClock();
+        clock.record(txTs);
+
+        final CausalityClock estimatedDCVersionCopy = getEstimatedDCVersionCopy();
+        final AtomicInteger count = new AtomicInteger();
+        final Semaphore s = new Semaphore(0);
+        dataServer.bulkLoad(request.getObjects(), clock, new FutureResultHandler<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                count.set(result);
+                s.release();
+            }
+        });
+        s.acquireUninterruptibly();
+
+        final CommitTSReply reply = cltEndpoint4Sequencer.request(sequencerServerEndpoint, new CommitTSRequest(txTs,
+                cltTs, prvCltTs, estimatedDCVersionCopy, true, new ArrayList<CRDTObjectUpdatesGroup<?>>(),
+                request.isDisasterSafeSession(), session.clientId));
+        if (reply == null || reply.getStatus() != CommitTSReply.CommitTSStatus.OK) {
+            return null;
+        }
+        estimatedDCVersionCopy.record(txTs);
+        updateEstimatedDCVersion(reply.getCurrVersion());
+        dataServer.dbServer.writeSysData("SYS_TABLE", "CURRENT_CLK", getEstimatedDCVersionCopy());
+
+        updateEstimatedDCStableVersion(reply.getStableVersion());
+        dataServer.dbServer.writeSysData("SYS_TABLE", "STABLE_CLK", getEstimatedDCStableVersionCopy());
+        return new BulkLoadReply(txTs, count.get());
+    }
+
     @Override
     public void onReceive(final RpcHandle conn, PingRequest request) {
         PingReply reply = new PingReply(request.getTimeAtSender(), System.currentTimeMillis());
@@ -648,6 +793,7 @@ final public class DCSurrogate extends SwiftProtocolHandler {
         final String clientId;
         boolean disasterSafe;
         volatile Timestamp lastSeqNo;
+        BulkLoadReply lastBulkLoadReply;
         private CausalityClock clientFakeVectorKnowledge;
         private CausalityClock lastSnapshotVector;
 
@@ -685,8 +831,8 @@ final public class DCSurrogate extends SwiftProtocolHandler {
             return suPubSub.minDcVersion();
         }
 
-        public ClientSession setClientEndpoint(Endpoint remote) {
-            remoteClient = new RemoteSubscriber<CRDTIdentifier>(clientId, suPubSub.endpoint(), remote);
+        public ClientSession setClientEndpoint(RpcEndpoint endpoint, Endpoint remote) {
+            remoteClient = new RemoteSubscriber<CRDTIdentifier>(clientId, endpoint, remote);
             return this;
         }
 
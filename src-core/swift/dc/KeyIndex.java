@@ -0,0 +1,205 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.dc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import swift.crdt.core.CRDTIdentifier;
+import swift.dc.db.DCNodeDatabase;
+
+/**
+ * Ordered index of the keys of the objects stored at a data node, per table,
+ * for range scans.
+ * <p>
+ * Keys are added when objects are created or loaded, and never removed, as
+ * objects are never deleted. The index is saved to the system table of the
+ * node database, as segments of up to {@link #SEGMENT_SIZE} keys per table,
+ * in the order the keys were added. Each save only writes the keys added
+ * since the previous one: they fill the last segment of their table, and then
+ * new segments.
+ */
+final class KeyIndex {
+    static final String TABLES_KEY = "KEY_INDEX";
+    static final String TABLE_KEY_PREFIX = "KEY_INDEX:";
+    static final int SEGMENT_SIZE = 1024;
+
+    /**
+     * Keys of one table, and the state of their segments in the database.
+     */
+    private static final class Table {
+        final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<String>();
+        // keys added since the last save, guarded by the table
+        List<String> added = new ArrayList<String>();
+        // number of full segments saved, and keys of the last segment saved,
+        // if not full; only accessed by load and save
+        int segments;
+        List<String> tail = new ArrayList<String>();
+    }
+
+    private final ConcurrentHashMap<String, Table> tables = new ConcurrentHashMap<String, Table>();
+    private final Set<String> dirty = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * Adds the key of an object to the index of its table.
+     */
+    void add(CRDTIdentifier id) {
+        final Table table = getTable(id.getTable());
+        if (table.keys.add(id.getKey())) {
+            synchronized (table) {
+                table.added.add(id.getKey());
+            }
+            dirty.add(id.getTable());
+        }
+    }
+
+    private Table getTable(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            final Table newTable = new Table();
+            table = tables.putIfAbsent(name, newTable);
+            if (table == null) {
+                table = newTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return up to maxCount keys of the table, in order, greater than or
+     *         equal to startKey (or from the first key, if null)
+     */
+    List<String> scan(String table, String startKey, int maxCount) {
+        final List<String> res = new ArrayList<String>();
+        final Table t = tables.get(table);
+        if (t == null || maxCount <= 0) {
+            return res;
+        }
+
+        final Iterator<String> it = (startKey == null ? t.keys : t.keys.tailSet(startKey, true)).iterator();
+        while (res.size() < maxCount && it.hasNext()) {
+            res.add(it.next());
+        }
+        return res;
+    }
+
+    /**
+     * Merges pages of keys of a table, each in order, into a page of
+     * identifiers.
+     * 
+     * @return the first maxCount identifiers, in key order
+     */
+    static List<CRDTIdentifier> merge(String table, List<List<String>> pages, int maxCount) {
+        final List<String> keys = new ArrayList<String>();
+        for (List<String> page : pages) {
+            keys.addAll(page);
+        }
+        Collections.sort(keys);
+
+        final List<CRDTIdentifier> res = new ArrayList<CRDTIdentifier>(Math.min(keys.size(), maxCount));
+        for (int i = 0; i < keys.size() && res.size() < maxCount; i++) {
+            res.add(new CRDTIdentifier(table, keys.get(i)));
+        }
+        return res;
+    }
+
+    /**
+     * Loads the index saved to the given database, if any.
+     */
+    @SuppressWarnings("unchecked")
+    void load(DCNodeDatabase db) {
+        final List<String> names = (List<String>) db.readSysData(DCConstants.DATABASE_SYSTEM_TABLE, TABLES_KEY);
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            final Object segments = db.readSysData(DCConstants.DATABASE_SYSTEM_TABLE, TABLE_KEY_PREFIX + name);
+            if (segments instanceof List) {
+                // index saved whole, before segments: rewrite it segmented
+                for (String key : (List<String>) segments) {
+                    add(new CRDTIdentifier(name, key));
+                }
+                continue;
+            }
+            if (segments == null) {
+                continue;
+            }
+            final Table table = getTable(name);
+            for (int i = 0; i < (Integer) segments; i++) {
+                final List<String> keys = (List<String>) db.readSysData(DCConstants.DATABASE_SYSTEM_TABLE,
+                        segmentKey(name, i));
+                if (keys == null) {
+                    continue;
+                }
+                table.keys.addAll(keys);
+                if (keys.size() < SEGMENT_SIZE) {
+                    table.segments = i;
+                    table.tail = new ArrayList<String>(keys);
+                } else {
+                    table.segments = i + 1;
+                    table.tail = new ArrayList<String>();
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the keys added since the last save to the given database.
+     */
+    void save(DCNodeDatabase db) {
+        final List<String> changed;
+        synchronized (dirty) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            changed = new ArrayList<String>(dirty);
+            dirty.clear();
+        }
+        for (String name : changed) {
+            final Table table = tables.get(name);
+            final List<String> added;
+            synchronized (table) {
+                added = table.added;
+                table.added = new ArrayList<String>();
+            }
+            for (int i = 0; i < added.size();) {
+                final int n = Math.min(SEGMENT_SIZE - table.tail.size(), added.size() - i);
+                table.tail.addAll(added.subList(i, i + n));
+                i += n;
+                db.writeSysData(DCConstants.DATABASE_SYSTEM_TABLE, segmentKey(name, table.segments),
+                        new ArrayList<String>(table.tail));
+                if (table.tail.size() == SEGMENT_SIZE) {
+                    table.segments++;
+                    table.tail = new ArrayList<String>();
+                }
+            }
+            db.writeSysData(DCConstants.DATABASE_SYSTEM_TABLE, TABLE_KEY_PREFIX + name, table.segments
+                    + (table.tail.isEmpty() ? 0 : 1));
+        }
+        db.writeSysData(DCConstants.DATABASE_SYSTEM_TABLE, TABLES_KEY, new ArrayList<String>(tables.keySet()));
+    }
+
+    private static String segmentKey(String table, int segment) {
+        return TABLE_KEY_PREFIX + table + ":" + segment;
+    }
+}
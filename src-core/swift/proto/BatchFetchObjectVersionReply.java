@@ -59,7 +59,13 @@ public class BatchFetchObjectVersionReply implements RpcMessage, MetadataSamplab
         /**
          * 
          */
-        UP_TO_DATE
+        UP_TO_DATE,
+        /**
+         * The reply contains the updates between the known version and the
+         * requested version, to apply on the version known by the client (see
+         * {@link ManagedCRDT#isDelta()}).
+         */
+        OK_DELTA
     }
 
     protected FetchStatus[] statuses;
@@ -200,7 +206,7 @@ public class BatchFetchObjectVersionReply implements RpcMessage, MetadataSamplab
         int versionSize = 0;
         int valueSize = 0;
         for (final ManagedCRDT crdt : crdts) {
-            if (crdt != null) {
+            if (crdt != null && !crdt.isDelta()) {
                 maxExceptionsNum = Math.max(crdt.getClock().getExceptionsNumber(), maxExceptionsNum);
                 maxExceptionsNum = Math.max(crdt.getPruneClock().getExceptionsNumber(), maxExceptionsNum);
                 maxVectorSize = Math.max(crdt.getClock().getSize(), maxVectorSize);
@@ -44,6 +44,7 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
     protected boolean sendMoreRecentUpdates;
     protected boolean subscribe;
     protected boolean sendDCVector;
+    protected boolean acceptDelta;
 
     /**
      * Fake constructor for Kryo serialization. Do NOT use.
@@ -53,7 +54,7 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
 
     public BatchFetchObjectVersionRequest(String clientId, boolean disasterSafe, CausalityClock clientKnownVersion,
             CausalityClock version, final boolean sendMoreRecentUpdates, boolean subscribe, boolean sendDCVersion,
-            CRDTIdentifier... uids) {
+            boolean acceptDelta, CRDTIdentifier... uids) {
         super(clientId, disasterSafe);
         this.uids = Arrays.asList(uids);
         this.knownVersion = clientKnownVersion;
@@ -61,6 +62,7 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
         this.subscribe = subscribe;
         this.sendMoreRecentUpdates = sendMoreRecentUpdates;
         this.sendDCVector = sendDCVersion;
+        this.acceptDelta = acceptDelta;
     }
 
     public boolean isSendDCVector() {
@@ -108,6 +110,23 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
         return sendMoreRecentUpdates;
     }
 
+    /**
+     * @return true if the client holds the requested objects in the known
+     *         version, and accepts only the updates since that version in the
+     *         reply, when possible
+     */
+    public boolean isAcceptDelta() {
+        return acceptDelta && knownVersion != null;
+    }
+
+    /**
+     * Requests full copies of the objects on a retry, e.g., after a reply
+     * could not be applied on the version known by the client.
+     */
+    public void disableDelta() {
+        acceptDelta = false;
+    }
+
     @Override
     public void deliverTo(RpcHandle conn, RpcHandler handler) {
         ((SwiftProtocolHandler) handler).onReceive(conn, this);
@@ -167,6 +186,9 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
         if (sendDCVector) {
             options |= 1 << 2;
         }
+        if (acceptDelta) {
+            options |= 1 << 3;
+        }
         output.writeByte(options);
     }
 
@@ -190,5 +212,6 @@ public class BatchFetchObjectVersionRequest extends ClientRequest implements Met
         sendMoreRecentUpdates = (options & 1) != 0;
         subscribe = (options & (1 << 1)) != 0;
         sendDCVector = (options & (1 << 2)) != 0;
+        acceptDelta = (options & (1 << 3)) != 0;
     }
 }
@@ -0,0 +1,62 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import swift.clocks.Timestamp;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Server reply to a {@link BulkLoadRequest}.
+ */
+public class BulkLoadReply implements RpcMessage {
+
+    Timestamp timestamp;
+    int count;
+
+    /**
+     * Constructor for Kryo serialization.
+     */
+    BulkLoadReply() {
+    }
+
+    public BulkLoadReply(Timestamp timestamp, int count) {
+        this.timestamp = timestamp;
+        this.count = count;
+    }
+
+    /**
+     * @return DC timestamp of the batch
+     */
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return number of objects stored; objects that already existed are left
+     *         untouched
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
@@ -0,0 +1,67 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.clocks.Timestamp;
+import swift.crdt.core.CRDT;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+
+/**
+ * Client request to store a batch of new objects, given their initial states,
+ * under a single DC timestamp, without going through transactions and update
+ * logs. Meant for the initial population of a DC.
+ */
+public class BulkLoadRequest extends ClientRequest {
+
+    Timestamp cltTimestamp;
+    List<CRDT<?>> objects;
+
+    /**
+     * Constructor for Kryo serialization.
+     */
+    BulkLoadRequest() {
+    }
+
+    public BulkLoadRequest(String clientId, boolean disasterSafeSession, Timestamp cltTimestamp,
+            List<CRDT<?>> objects) {
+        super(clientId, disasterSafeSession);
+        this.cltTimestamp = cltTimestamp;
+        this.objects = objects;
+    }
+
+    /**
+     * @return client timestamp of the batch
+     */
+    public Timestamp getCltTimestamp() {
+        return cltTimestamp;
+    }
+
+    /**
+     * @return initial states of the objects, identified by their ids
+     */
+    public List<CRDT<?>> getObjects() {
+        return objects;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
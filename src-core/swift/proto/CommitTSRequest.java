@@ -43,6 +43,7 @@ public class CommitTSRequest implements RpcMessage {
 
     public String clientId;
     transient RpcHandle replyHandle;
+    transient long traceMark;
 
     /**
      * Fake constructor for Kryo serialization. Do NOT use.
@@ -82,6 +83,14 @@ public class CommitTSRequest implements RpcMessage {
         return this.replyHandle;
     }
 
+    public void setTraceMark(long traceMark) {
+        this.traceMark = traceMark;
+    }
+
+    public long getTraceMark() {
+        return this.traceMark;
+    }
+
     public boolean disasterSafe() {
         return disasterSafe;
     }
@@ -0,0 +1,92 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.clocks.CausalityClock;
+import swift.clocks.Timestamp;
+import swift.crdt.core.CRDTObjectUpdatesGroup;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Object for executing the operations of one transaction on a number of crdts
+ * stored at the same data node, with a single request.
+ */
+public class DHTBatchExecCRDT implements RpcMessage {
+
+    List<CRDTObjectUpdatesGroup<?>> grps;
+    CausalityClock curDCVersion;
+    CausalityClock snapshotVersion;
+    CausalityClock trxVersion;
+    Timestamp txTs;
+    Timestamp cltTs;
+    Timestamp prvCltTs;
+
+    /**
+     * Needed for Kryo serialization
+     */
+    DHTBatchExecCRDT() {
+    }
+
+    public DHTBatchExecCRDT(List<CRDTObjectUpdatesGroup<?>> grps, CausalityClock snapshotVersion,
+            CausalityClock trxVersion, Timestamp txTs, Timestamp cltTs, Timestamp prvCltTs,
+            CausalityClock curDCVersion) {
+        this.grps = grps;
+        this.snapshotVersion = snapshotVersion;
+        this.trxVersion = trxVersion;
+        this.txTs = txTs;
+        this.cltTs = cltTs;
+        this.prvCltTs = prvCltTs;
+        this.curDCVersion = curDCVersion;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+
+    public List<CRDTObjectUpdatesGroup<?>> getGrps() {
+        return grps;
+    }
+
+    public CausalityClock getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    public CausalityClock getTrxVersion() {
+        return trxVersion;
+    }
+
+    public Timestamp getTxTs() {
+        return txTs;
+    }
+
+    public Timestamp getCltTs() {
+        return cltTs;
+    }
+
+    public Timestamp getPrvCltTs() {
+        return prvCltTs;
+    }
+
+    public CausalityClock getCurDCVersion() {
+        return curDCVersion;
+    }
+}
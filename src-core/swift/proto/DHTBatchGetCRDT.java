@@ -0,0 +1,97 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.clocks.CausalityClock;
+import swift.crdt.core.CRDTIdentifier;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Object for getting a number of crdts stored at the same data node, with a
+ * single request. All objects are read with the same clocks and options.
+ */
+public class DHTBatchGetCRDT implements RpcMessage {
+
+    String clientId;
+    List<CRDTIdentifier> ids;
+    CausalityClock version;
+    boolean subscribeUpdates;
+    boolean sendMoreRecentUpdates;
+    CausalityClock knownVersion;
+    boolean sendDelta;
+
+    /**
+     * Needed for Kryo serialization
+     */
+    DHTBatchGetCRDT() {
+    }
+
+    public DHTBatchGetCRDT(List<CRDTIdentifier> ids, CausalityClock knownVersion, CausalityClock version,
+            String clientId, boolean sendMoreRecentUpdates, boolean subscribeUpdates, boolean sendDelta) {
+        this.ids = ids;
+        this.knownVersion = knownVersion;
+        this.version = version;
+        this.clientId = clientId;
+        this.sendMoreRecentUpdates = sendMoreRecentUpdates;
+        this.subscribeUpdates = subscribeUpdates;
+        this.sendDelta = sendDelta;
+    }
+
+    /**
+     * @return ids of the requested objects
+     */
+    public List<CRDTIdentifier> getIds() {
+        return ids;
+    }
+
+    public CausalityClock getKnownVersion() {
+        return knownVersion;
+    }
+
+    public CausalityClock getVersion() {
+        return version;
+    }
+
+    public boolean sendMoreRecentUpdates() {
+        return sendMoreRecentUpdates;
+    }
+
+    public boolean subscribesUpdates() {
+        return subscribeUpdates;
+    }
+
+    /**
+     * @return true if only the updates since the known version should be sent
+     *         for objects whose log covers them
+     */
+    public boolean sendDelta() {
+        return sendDelta;
+    }
+
+    public String getCltId() {
+        return clientId;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
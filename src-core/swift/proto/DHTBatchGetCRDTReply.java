@@ -0,0 +1,53 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.crdt.core.ManagedCRDT;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Reply to a {@link DHTBatchGetCRDT} request. Objects are in the same order as
+ * the requested ids; an entry is null if the object does not exist, could not
+ * be read, or has no updates to send.
+ */
+public class DHTBatchGetCRDTReply implements RpcMessage {
+
+    List<ManagedCRDT> objects;
+
+    /**
+     * Needed for Kryo serialization
+     */
+    DHTBatchGetCRDTReply() {
+    }
+
+    public DHTBatchGetCRDTReply(List<ManagedCRDT> objects) {
+        this.objects = objects;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(this);
+    }
+
+    public List<ManagedCRDT> getObjects() {
+        return objects;
+    }
+}
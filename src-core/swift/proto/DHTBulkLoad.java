@@ -0,0 +1,62 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.clocks.CausalityClock;
+import swift.crdt.core.CRDT;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Object for storing, at a data node, a batch of new objects given their
+ * initial states.
+ */
+public class DHTBulkLoad implements RpcMessage {
+
+    List<CRDT<?>> objects;
+    CausalityClock clock;
+
+    /**
+     * Needed for Kryo serialization
+     */
+    DHTBulkLoad() {
+    }
+
+    public DHTBulkLoad(List<CRDT<?>> objects, CausalityClock clock) {
+        this.objects = objects;
+        this.clock = clock;
+    }
+
+    public List<CRDT<?>> getObjects() {
+        return objects;
+    }
+
+    /**
+     * @return clock of the initial states
+     */
+    public CausalityClock getClock() {
+        return clock;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
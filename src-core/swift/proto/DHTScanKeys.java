@@ -0,0 +1,61 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Object for listing, in key order, the keys of a table stored at a data
+ * node, starting at a given key.
+ */
+public class DHTScanKeys implements RpcMessage {
+
+    String table;
+    String startKey;
+    int maxCount;
+
+    /**
+     * Needed for Kryo serialization
+     */
+    DHTScanKeys() {
+    }
+
+    public DHTScanKeys(String table, String startKey, int maxCount) {
+        this.table = table;
+        this.startKey = startKey;
+        this.maxCount = maxCount;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import java.util.List;
+
+import swift.crdt.core.CRDTIdentifier;
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+import sys.net.api.rpc.RpcMessage;
+
+/**
+ * Server reply to a {@link ScanKeysRequest}: a page of identifiers, in key
+ * order, merged across the data nodes of the DC.
+ */
+public class ScanKeysReply implements RpcMessage {
+
+    List<CRDTIdentifier> ids;
+
+    /**
+     * Constructor for Kryo serialization.
+     */
+    ScanKeysReply() {
+    }
+
+    public ScanKeysReply(List<CRDTIdentifier> ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * @return identifiers of the objects, in key order
+     */
+    public List<CRDTIdentifier> getIds() {
+        return ids;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
@@ -0,0 +1,67 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.proto;
+
+import sys.net.api.rpc.RpcHandle;
+import sys.net.api.rpc.RpcHandler;
+
+/**
+ * Client request to list, in key order, the identifiers of the objects of a
+ * table, starting at a given key.
+ */
+public class ScanKeysRequest extends ClientRequest {
+
+    String table;
+    String startKey;
+    int maxCount;
+
+    /**
+     * Constructor for Kryo serialization.
+     */
+    ScanKeysRequest() {
+    }
+
+    public ScanKeysRequest(String clientId, boolean disasterSafeSession, String table, String startKey, int maxCount) {
+        super(clientId, disasterSafeSession);
+        this.table = table;
+        this.startKey = startKey;
+        this.maxCount = maxCount;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return the smallest key to list, inclusive
+     */
+    public String getStartKey() {
+        return startKey;
+    }
+
+    /**
+     * @return the maximum number of identifiers to list
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    @Override
+    public void deliverTo(RpcHandle conn, RpcHandler handler) {
+        ((SwiftProtocolHandler) handler).onReceive(conn, this);
+    }
+}
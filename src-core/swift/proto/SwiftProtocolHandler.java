@@ -97,6 +97,22 @@ public class SwiftProtocolHandler extends AbstractRpcHandler {
         Thread.dumpStack();
     }
 
+    protected void onReceive(RpcHandle conn, ScanKeysRequest request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, ScanKeysReply reply) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, BulkLoadRequest request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, BulkLoadReply reply) {
+        Thread.dumpStack();
+    }
+
     protected void onReceive(RpcHandle conn, final PingRequest request) {
         Thread.dumpStack();
     }
@@ -122,6 +138,38 @@ public class SwiftProtocolHandler extends AbstractRpcHandler {
         Thread.dumpStack();
     }
 
+    protected void onReceive(RpcHandle conn, DHTBatchExecCRDT request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(DHTBatchExecCRDTReply reply) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, DHTBatchGetCRDT request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(DHTBatchGetCRDTReply reply) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, DHTScanKeys request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(DHTScanKeysReply reply) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(RpcHandle conn, DHTBulkLoad request) {
+        Thread.dumpStack();
+    }
+
+    protected void onReceive(DHTBulkLoadReply reply) {
+        Thread.dumpStack();
+    }
+
     // For PubSub --------------------------------------
     public void onReceive(RpcHandle conn, PubSubHandshake request) {
         Thread.dumpStack();
@@ -18,6 +18,7 @@ import swift.proto.SwiftProtocolHandler;
 import swift.proto.UnsubscribeUpdatesReply;
 import swift.proto.UnsubscribeUpdatesRequest;
 import sys.net.api.Endpoint;
+import sys.net.api.Networking.TransportProvider;
 import sys.net.api.rpc.RpcEndpoint;
 import sys.net.api.rpc.RpcHandle;
 import sys.pubsub.PubSubNotification;
@@ -40,7 +41,7 @@ abstract public class ScoutPubSubService extends AbstractPubSub<CRDTIdentifier>
     final FifoQueue<PubSubNotification<CRDTIdentifier>> fifoQueue;
 
     public ScoutPubSubService(final String clientId, boolean disasterSafeSession, final Endpoint surrogate,
-            final MetadataStatsCollector statsCollector) {
+            TransportProvider provider, final MetadataStatsCollector statsCollector) {
         super(clientId);
 
         this.disasterSafeSession = disasterSafeSession;
@@ -54,7 +55,7 @@ abstract public class ScoutPubSubService extends AbstractPubSub<CRDTIdentifier>
         };
 
         this.suPubSub = Networking.resolve(surrogate.getHost(), surrogate.getPort() + 1);
-        this.endpoint = Networking.rpcConnect().toService(0, new SwiftProtocolHandler() {
+        this.endpoint = Networking.rpcConnect(provider).toService(0, new SwiftProtocolHandler() {
             @Override
             public void onReceive(BatchUpdatesNotification evt) {
                 fifoQueue.offer(evt.seqN(), evt);
@@ -1,6 +1,7 @@
 package swift.pubsub;
 
 import static sys.net.api.Networking.Networking;
+import static sys.net.api.Networking.TransportProvider.INPROC;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,7 +28,7 @@ public class SurrogatePubSubService extends AbstractPubSub<CRDTIdentifier> imple
 
     final Executor executor;
     final RpcEndpoint endpoint;
-    final SwiftProtocolHandler handler;
+    volatile RpcEndpoint inProcEndpoint;
     final DCSurrogate surrogate;
 
     final FifoQueues fifoQueues = new FifoQueues();
@@ -41,7 +42,20 @@ public class SurrogatePubSubService extends AbstractPubSub<CRDTIdentifier> imple
 
         this.executor = executor;
         this.surrogate = surrogate;
-        this.handler = new SwiftProtocolHandler() {
+        this.endpoint = Networking.rpcBind(surrogate.pubsubPort).toService(0, newHandler(false));
+    }
+
+    /**
+     * Serves also the scouts running in the same process, through the INPROC
+     * transport.
+     */
+    public void bindInProc() {
+        this.inProcEndpoint = Networking.rpcBind(surrogate.pubsubPort, INPROC).toService(0, newHandler(true));
+    }
+
+    // notifications to a scout go through the endpoint of its handshake
+    private SwiftProtocolHandler newHandler(final boolean inProc) {
+        return new SwiftProtocolHandler() {
 
             @Override
             public void onReceive(UpdateNotification evt) {
@@ -59,7 +73,7 @@ public class SurrogatePubSubService extends AbstractPubSub<CRDTIdentifier> imple
                 }
                 logger.info("##### PubSubHandshake client = " + request.getClientId() + " @ " + conn.remoteEndpoint());
                 surrogate.getSession(request.getClientId(), request.isDisasterSafeSession()).setClientEndpoint(
-                        conn.remoteEndpoint());
+                        inProc ? inProcEndpoint : endpoint, conn.remoteEndpoint());
                 conn.reply(new PubSubHandshakeReply()); // minDcVersion()));
             }
 
@@ -73,7 +87,6 @@ public class SurrogatePubSubService extends AbstractPubSub<CRDTIdentifier> imple
                 handle.reply(new UnsubscribeUpdatesReply(request.getId()));
             }
         };
-        this.endpoint = Networking.rpcBind(surrogate.pubsubPort).toService(0, handler);
     }
 
     public RpcEndpoint endpoint() {
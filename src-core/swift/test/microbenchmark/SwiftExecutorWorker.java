@@ -26,15 +26,13 @@ import swift.crdt.core.IsolationLevel;
 import swift.crdt.core.SwiftSession;
 import swift.crdt.core.TxnHandle;
 import swift.crdt.core.CRDT;
-import swift.exceptions.NetworkException;
-import swift.exceptions.NoSuchObjectException;
-import swift.exceptions.VersionNotFoundException;
-import swift.exceptions.WrongTypeException;
+import swift.exceptions.SwiftException;
 import swift.test.microbenchmark.interfaces.MicroBenchmarkWorker;
 import swift.test.microbenchmark.interfaces.ResultHandler;
 import swift.test.microbenchmark.interfaces.WorkerManager;
+import swift.utils.LoadGenerator;
 
-public class SwiftExecutorWorker implements MicroBenchmarkWorker {
+public class SwiftExecutorWorker implements MicroBenchmarkWorker, LoadGenerator.Worker {
 
     private WorkerManager manager;
     private SwiftSession clientServer;
@@ -43,7 +41,8 @@ public class SwiftExecutorWorker implements MicroBenchmarkWorker {
     private String workerID;
     private int maxTxSize;
     private Random random;
-    private boolean stop;
+    private volatile boolean stop;
+    private OpType operationType;
 
     protected long startTime, endTime;
     protected int numExecutedTransactions, writeOps, readOps;
@@ -72,67 +71,76 @@ public class SwiftExecutorWorker implements MicroBenchmarkWorker {
     @Override
     public void run() {
         manager.onWorkerStart(this);
-        startTime = System.currentTimeMillis();
-        while (!stop) {
+        while (!stop && nextOperation() != null) {
             try {
-                OpType operationType = (random.nextDouble() > updateRatio) ? OpType.READ_ONLY : OpType.UPDATE;
-
-                switch (operationType) {
-
-                case UPDATE: {
-                    long txStartTime = System.nanoTime();
-                    TxnHandle txh = clientServer.beginTxn(isolationLevel, cachePolicy, false);
-                    int randomIndex = random.nextInt(identifiers.length);// (int)
-                                                                         // Math.floor(random.nextDouble()
-                                                                         // *
-                                                                         // identifiers.length);
-                    IntegerCRDT integerCRDT = txh.get(identifiers[randomIndex], false, IntegerCRDT.class,
-                            listener);
-                    if (random.nextDouble() > 0.5) {
-                        integerCRDT.add(10);
-                    } else {
-                        integerCRDT.sub(10);
-                    }
-                    txh.commit();
-                    long txEndTime = System.nanoTime();
-                    rawData.registerOperation(txEndTime - txStartTime, 1, 1, txStartTime);
-                    writeOps++;
-                    break;
-                }
-                case READ_ONLY: {
-                    long txStartTime = System.nanoTime();
-                    int txSize = (int) Math.ceil(random.nextDouble() * maxTxSize);
-                    TxnHandle txh = clientServer.beginTxn(isolationLevel, cachePolicy, true);
-                    for (int i = 0; i < txSize; i++) {
-                        int randomIndex = (int) Math.floor(Math.random() * identifiers.length);
-                        txh.get(identifiers[randomIndex], false, IntegerCRDT.class, listener);
-                        readOps++;
-                    }
-                    txh.commit();
-                    long txEndTime = System.nanoTime();
-                    rawData.registerOperation(txEndTime - txStartTime, 0, txSize, txStartTime);
-                    break;
-                }
-                default:
-                    break;
-                }
-                numExecutedTransactions++;
-
-            } catch (NetworkException e) {
-                e.printStackTrace();
-            } catch (WrongTypeException e) {
-                e.printStackTrace();
-            } catch (NoSuchObjectException e) {
-                e.printStackTrace();
-            } catch (VersionNotFoundException e) {
+                execute();
+            } catch (SwiftException e) {
                 e.printStackTrace();
             }
         }
+        finish();
+    }
+
+    @Override
+    public String getId() {
+        return workerID;
+    }
+
+    @Override
+    public String nextOperation() {
+        if (startTime == 0) {
+            startTime = System.currentTimeMillis();
+        }
+        operationType = (random.nextDouble() > updateRatio) ? OpType.READ_ONLY : OpType.UPDATE;
+        return operationType.name();
+    }
+
+    @Override
+    public void execute() throws SwiftException {
+        switch (operationType) {
+
+        case UPDATE: {
+            long txStartTime = System.nanoTime();
+            TxnHandle txh = clientServer.beginTxn(isolationLevel, cachePolicy, false);
+            int randomIndex = random.nextInt(identifiers.length);
+            IntegerCRDT integerCRDT = txh.get(identifiers[randomIndex], false, IntegerCRDT.class, listener);
+            if (random.nextDouble() > 0.5) {
+                integerCRDT.add(10);
+            } else {
+                integerCRDT.sub(10);
+            }
+            txh.commit();
+            long txEndTime = System.nanoTime();
+            rawData.registerOperation(txEndTime - txStartTime, 1, 1, txStartTime);
+            writeOps++;
+            break;
+        }
+        case READ_ONLY: {
+            long txStartTime = System.nanoTime();
+            int txSize = (int) Math.ceil(random.nextDouble() * maxTxSize);
+            TxnHandle txh = clientServer.beginTxn(isolationLevel, cachePolicy, true);
+            for (int i = 0; i < txSize; i++) {
+                int randomIndex = (int) Math.floor(Math.random() * identifiers.length);
+                txh.get(identifiers[randomIndex], false, IntegerCRDT.class, listener);
+                readOps++;
+            }
+            txh.commit();
+            long txEndTime = System.nanoTime();
+            rawData.registerOperation(txEndTime - txStartTime, 0, txSize, txStartTime);
+            break;
+        }
+        default:
+            break;
+        }
+        numExecutedTransactions++;
+    }
+
+    @Override
+    public void finish() {
         // System.out.println("STOP CLIENT");
         clientServer.stopScout(true);
         endTime = System.currentTimeMillis();
         manager.onWorkerFinish(this);
-
     }
 
     @Override
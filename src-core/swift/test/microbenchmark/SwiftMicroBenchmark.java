@@ -36,6 +36,7 @@ import swift.dc.DCServer;
 import swift.test.microbenchmark.interfaces.MicroBenchmarkWorker;
 import swift.test.microbenchmark.interfaces.ResultHandler;
 import swift.test.microbenchmark.interfaces.WorkerManager;
+import swift.utils.LoadGenerator;
 import sys.Sys;
 
 public class SwiftMicroBenchmark implements WorkerManager {
@@ -151,8 +152,7 @@ public class SwiftMicroBenchmark implements WorkerManager {
 
     private void executeWorkers(String workersName, int numWorkers, CRDTIdentifier[] identifiers, int cltObjects,
             long executionTime, int runCount, String outputDir) throws InterruptedException {
-        List<MicroBenchmarkWorker> workers = new ArrayList<MicroBenchmarkWorker>();
-        stopSemaphore = new Semaphore(-numWorkers + 1);
+        List<SwiftExecutorWorker> workers = new ArrayList<SwiftExecutorWorker>();
         // TODO: Use more then one client?
         // Swift client = BenchUtil.getNewSwiftInterface(serverLocation,
         // DCConstants.SURROGATE_PORT);
@@ -167,23 +167,23 @@ public class SwiftMicroBenchmark implements WorkerManager {
             SwiftSession client = BenchUtil.getNewSwiftInterface(serverLocation, DCConstants.SURROGATE_PORT);
             SwiftExecutorWorker worker = new SwiftExecutorWorker(this, workersName + i, ids, updateRatio, random,
                     client, maxTxSize, cachePolicy, isolationLevel, runCount, outputDir);
-            new Thread(worker).start();
             workers.add(worker);
 
         }
-        stopSemaphore.acquire();
-        Thread.sleep(executionTime);
+        // closed loop, unless a load.rate system property sets an arrival
+        // rate
+        final LoadGenerator generator = new LoadGenerator().configure(System.getProperties());
+        generator.setWarmup(0).setDuration(executionTime);
         stopSemaphore = new Semaphore(-numWorkers + 1);
-        for (MicroBenchmarkWorker w : workers) {
-            w.stop();
-
-        }
+        generator.run(workers);
         stopSemaphore.acquire();
-        if (!workersName.equals("WARM_UP"))
-            for (MicroBenchmarkWorker w : workers) {
+        if (!workersName.equals("WARM_UP")) {
+            generator.printSummary(System.out);
+            for (SwiftExecutorWorker w : workers) {
                 w.getRawData().rawDataToFile();
                 // System.out.println(w.getRawData().RawData());
             }
+        }
     }
 
     @Override
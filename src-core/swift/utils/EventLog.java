@@ -0,0 +1,367 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.utils;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import swift.clocks.CausalityClock;
+import sys.scheduler.PeriodicTask;
+
+/**
+ * Structured logging of recurring events on the DC and scout hot paths.
+ * Events are logged through the logger of the component that raises them.
+ *
+ * Recording an event does not build any string: the event type and its
+ * arguments are stored as references in a fixed-size ring buffer, and are only
+ * rendered when the buffer is dumped, or when the event is logged. Events are
+ * passed on to java.util.logging at most {@link #MAX_LOGGED_PER_SECOND} times
+ * per second and type; the number of suppressed events is reported with the
+ * next logged one.
+ *
+ * Clocks are rendered as short summaries: their number of sites, entries and
+ * holes, and their hash. Kept events record the summaries of their clock
+ * arguments as numbers, so callers pass their clocks as they are. Other
+ * arguments are rendered lazily, and must not be mutated afterwards.
+ *
+ * DC nodes report the counts of events periodically, and dump the ring buffer
+ * on exit, see {@link #startReporting(String, double)}.
+ */
+public final class EventLog {
+    private static final String DC_SURROGATE = "swift.dc.DCSurrogate";
+    private static final String DC_DATA_SERVER = "swift.dc.DCDataServer";
+    private static final String DC_SEQUENCER = "swift.dc.DCSequencerServer";
+    private static final String SCOUT = "swift.client.SwiftImpl";
+
+    public static final int MAX_LOGGED_PER_SECOND = 5;
+    public static final int RING_CAPACITY = 4096;
+    public static final int MAX_ARGS = 4;
+
+    public static enum Event {
+        FETCH_VERSION_MISSING(DC_SURROGATE, Level.WARNING,
+                "Requested version {0} of object {1} missing; local version: {2} pruned as of {3}"),
+
+        FETCH_VERSION_PRUNED(DC_SURROGATE, Level.WARNING,
+                "Requested version {0} of object {1} is pruned; local version: {2} pruned as of {3}"),
+
+        COMMIT_FAILED(DC_SURROGATE, Level.WARNING,
+                "Commit: failed for request of client {0}: cltTs={1}, ts={2}, #ops={#}"),
+
+        MISSING_CREATION_STATE(DC_DATA_SERVER, Level.WARNING,
+                "No creation state provided by client for an object that does not exist {0}"),
+
+        DHT_BATCH_GET_FAILED(DC_DATA_SERVER, Level.WARNING, "DHT data server: batch get failed for {0}: {1}"),
+
+        DHT_BATCH_EXEC_FAILED(DC_DATA_SERVER, Level.WARNING, "DHT data server: batch exec failed for {0}: {1}"),
+
+        SEQUENCER_SYNC_BACKLOG(DC_SEQUENCER, Level.INFO,
+                "sequencer: synchronizer: num operations to propagate : {#}"),
+
+        SCOUT_FETCH_VERSION_PRUNED(SCOUT, Level.WARNING,
+                "{0}: requested object {1} version {2} pruned at the DC {3}"),
+
+        SCOUT_FETCH_VERSION_MISSING(SCOUT, Level.WARNING,
+                "{0}: requested object {1} version {2} not (yet) replicated at the DC {3}"),
+
+        SCOUT_MERGE_FAILED(SCOUT, Level.WARNING, "{0}: Merging incoming object version {1} with the cached"
+                + " version {2} has failed with our heuristic - dropping cached version {3}"),
+
+        SCOUT_SNAPSHOT_INCLUDES_SCOUT(SCOUT, Level.WARNING,
+                "{0}: nextAvailableSnapshot clock includes scout's timestamp: {1}"),
+
+        SCOUT_DELTA_NOT_APPLICABLE(SCOUT, Level.WARNING,
+                "{0}: incoming delta of object {1} from version {2} cannot be applied on the cached version {3}");
+
+        final Logger logger;
+        final Level level;
+        final String format;
+        final LongAdder count = new LongAdder();
+        final AtomicLong window = new AtomicLong();
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong suppressed = new AtomicLong();
+
+        private Event(String source, Level level, String format) {
+            this.logger = Logger.getLogger(source);
+            this.level = level;
+            this.format = format;
+        }
+
+        /**
+         * @return true if recording the event keeps or logs its arguments
+         */
+        public boolean isEnabled() {
+            return level.intValue() >= Level.WARNING.intValue() || logger.isLoggable(level);
+        }
+
+        /**
+         * @return the number of times the event was recorded
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the number of suppressed events to report, or -1 if the
+         * event is over the rate limit of the current second.
+         */
+        long admit(long now) {
+            long second = now / 1000;
+            long w = window.get();
+            if (w != second && window.compareAndSet(w, second))
+                admitted.set(0);
+
+            if (admitted.incrementAndGet() > MAX_LOGGED_PER_SECOND) {
+                suppressed.incrementAndGet();
+                return -1;
+            }
+            return suppressed.getAndSet(0);
+        }
+
+        String render(long value, Object a0, Object a1, Object a2, Object a3) {
+            return render(value, a0, a1, a2, a3, -1);
+        }
+
+        /**
+         * Renders the event. Clock arguments are either clocks, or the
+         * {@link #CLOCK} marker for the summaries kept at the given position of
+         * the ring buffer.
+         */
+        String render(long value, Object a0, Object a1, Object a2, Object a3, int base) {
+            StringBuilder sb = new StringBuilder(format.length() + 64);
+            for (int i = 0; i < format.length(); i++) {
+                char c = format.charAt(i);
+                if (c == '{' && i + 2 < format.length() && format.charAt(i + 2) == '}') {
+                    char p = format.charAt(i + 1);
+                    if (p == '#') {
+                        sb.append(value);
+                        i += 2;
+                        continue;
+                    } else if (p >= '0' && p < '0' + MAX_ARGS) {
+                        Object arg = p == '0' ? a0 : p == '1' ? a1 : p == '2' ? a2 : a3;
+                        if (arg == CLOCK) {
+                            int i0 = base + p - '0';
+                            sb.append(summary(clockSizes[i0], clockHashes[i0]));
+                        } else if (arg instanceof CausalityClock) {
+                            CausalityClock clock = (CausalityClock) arg;
+                            sb.append(summary(sizes(clock), clock.hashCode()));
+                        } else {
+                            sb.append(String.valueOf(arg));
+                        }
+                        i += 2;
+                        continue;
+                    }
+                }
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final int MASK = RING_CAPACITY - 1;
+    private static final AtomicLong cursor = new AtomicLong();
+    private static final AtomicLongArray published = new AtomicLongArray(RING_CAPACITY);
+    private static final long[] times = new long[RING_CAPACITY];
+    private static final long[] values = new long[RING_CAPACITY];
+    private static final Event[] events = new Event[RING_CAPACITY];
+    private static final Object[] args = new Object[RING_CAPACITY * MAX_ARGS];
+    private static final long[] clockSizes = new long[RING_CAPACITY * MAX_ARGS];
+    private static final int[] clockHashes = new int[RING_CAPACITY * MAX_ARGS];
+
+    /**
+     * Marks the clock arguments of kept events, whose summaries are in
+     * clockSizes and clockHashes.
+     */
+    private static final Object CLOCK = new Object();
+
+    static {
+        for (int i = 0; i < RING_CAPACITY; i++)
+            published.set(i, -1L);
+    }
+
+    private static boolean reporting;
+
+    private EventLog() {
+    }
+
+    public static void record(Event e, Object a0) {
+        record(e, 0L, a0, null, null, null);
+    }
+
+    public static void record(Event e, Object a0, Object a1) {
+        record(e, 0L, a0, a1, null, null);
+    }
+
+    public static void record(Event e, Object a0, Object a1, Object a2) {
+        record(e, 0L, a0, a1, a2, null);
+    }
+
+    public static void record(Event e, Object a0, Object a1, Object a2, Object a3) {
+        record(e, 0L, a0, a1, a2, a3);
+    }
+
+    public static void record(Event e, long value) {
+        record(e, value, null, null, null, null);
+    }
+
+    /**
+     * Records an event. Events at WARNING level or above are kept in the ring
+     * buffer; all events are logged, subject to rate limiting, if their level
+     * is enabled.
+     *
+     * @param value
+     *            a numeric argument, rendered for {#}
+     */
+    public static void record(Event e, long value, Object a0, Object a1, Object a2, Object a3) {
+        e.count.increment();
+        boolean kept = e.level.intValue() >= Level.WARNING.intValue();
+        boolean logged = e.logger.isLoggable(e.level);
+        if (!kept && !logged)
+            return;
+
+        long now = System.currentTimeMillis();
+        if (kept) {
+            long seq = cursor.getAndIncrement();
+            int slot = (int) (seq & MASK);
+            published.lazySet(slot, -1L);
+            times[slot] = now;
+            values[slot] = value;
+            events[slot] = e;
+            int base = slot * MAX_ARGS;
+            keep(base, a0);
+            keep(base + 1, a1);
+            keep(base + 2, a2);
+            keep(base + 3, a3);
+            published.lazySet(slot, seq);
+        }
+
+        if (logged) {
+            long suppressed = e.admit(now);
+            if (suppressed == 0)
+                e.logger.log(e.level, e.render(value, a0, a1, a2, a3));
+            else if (suppressed > 0)
+                e.logger.log(e.level, e.render(value, a0, a1, a2, a3) + " [" + suppressed + " similar suppressed]");
+        }
+    }
+
+    private static void keep(int i, Object arg) {
+        if (arg instanceof CausalityClock) {
+            CausalityClock clock = (CausalityClock) arg;
+            clockSizes[i] = sizes(clock);
+            clockHashes[i] = clock.hashCode();
+            args[i] = CLOCK;
+        } else
+            args[i] = arg;
+    }
+
+    /**
+     * @return the number of sites, entries and holes of the clock, packed in
+     *         21 bits each
+     */
+    private static long sizes(CausalityClock clock) {
+        long sites = Math.min(clock.getSiteIds().size(), 0x1FFFFF);
+        long entries = Math.min(clock.getSize(), 0x1FFFFF);
+        long holes = Math.min(clock.getExceptionsNumber(), 0x1FFFFF);
+        return sites << 42 | entries << 21 | holes;
+    }
+
+    private static String summary(long sizes, int hash) {
+        return String.format("<%d sites, %d entries, %d holes, #%08x>", sizes >>> 42, (sizes >>> 21) & 0x1FFFFF,
+                sizes & 0x1FFFFF, hash);
+    }
+
+    /**
+     * Renders a short summary of a clock: its number of sites, entries and
+     * holes, and its hash.
+     */
+    public static String summary(CausalityClock clock) {
+        if (clock == null)
+            return "null";
+        return summary(sizes(clock), clock.hashCode());
+    }
+
+    /**
+     * Prints the events in the ring buffer, oldest first.
+     */
+    public static void dump(PrintStream out) {
+        SimpleDateFormat df = new SimpleDateFormat("HH:mm:ss.SSS");
+        long end = cursor.get();
+        for (long seq = Math.max(0, end - RING_CAPACITY); seq < end; seq++) {
+            int slot = (int) (seq & MASK);
+            if (published.get(slot) != seq)
+                continue;
+            long time = times[slot];
+            long value = values[slot];
+            Event e = events[slot];
+            int base = slot * MAX_ARGS;
+            Object a0 = args[base], a1 = args[base + 1], a2 = args[base + 2], a3 = args[base + 3];
+            if (published.get(slot) != seq) // overwritten meanwhile
+                continue;
+            String text = e.render(value, a0, a1, a2, a3, base);
+            if (published.get(slot) != seq) // overwritten while rendering
+                continue;
+            out.printf("%s %s %s\n", df.format(new Date(time)), e, text);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the counts of the events recorded so far, or an empty string if
+     *         none was
+     */
+    public static String counts() {
+        StringBuilder sb = new StringBuilder();
+        for (Event e : Event.values()) {
+            long n = e.getCount();
+            if (n > 0)
+                sb.append(sb.length() > 0 ? ", " : "").append(e).append('=').append(n);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the counts of the events recorded so far to stderr every period,
+     * if any, and dumps the ring buffer there on exit. Subsequent calls have no
+     * effect.
+     *
+     * @param node
+     *            name of the node, prefixing the reports
+     */
+    public static synchronized void startReporting(final String node, double periodSec) {
+        if (reporting)
+            return;
+        reporting = true;
+        new PeriodicTask(periodSec, periodSec) {
+            public void run() {
+                String counts = counts();
+                if (!counts.isEmpty())
+                    System.err.printf("%s: events: %s\n", node, counts);
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                dump(System.err);
+            }
+        });
+    }
+}
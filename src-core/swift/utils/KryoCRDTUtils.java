@@ -55,6 +55,9 @@ import swift.crdt.PutOnlyLWWMapCRDT;
 import swift.crdt.PutOnlyLWWMapUpdate;
 import swift.crdt.PutOnlyLWWStringMapCRDT;
 import swift.crdt.PutOnlyLWWStringMapUpdate;
+import swift.crdt.SequenceInsertRangeUpdate;
+import swift.crdt.SequenceRemoveRangeUpdate;
+import swift.crdt.TimestampSet;
 import swift.crdt.core.CRDTIdentifier;
 import swift.crdt.core.CRDTObjectUpdatesGroup;
 import swift.crdt.core.ManagedCRDT;
@@ -62,19 +65,31 @@ import swift.proto.BatchCommitUpdatesReply;
 import swift.proto.BatchCommitUpdatesRequest;
 import swift.proto.BatchFetchObjectVersionReply;
 import swift.proto.BatchFetchObjectVersionRequest;
+import swift.proto.BulkLoadReply;
+import swift.proto.BulkLoadRequest;
 import swift.proto.ClientRequest;
 import swift.proto.CommitTSReply;
 import swift.proto.CommitTSRequest;
 import swift.proto.CommitUpdatesReply;
 import swift.proto.CommitUpdatesRequest;
+import swift.proto.DHTBatchExecCRDT;
+import swift.proto.DHTBatchExecCRDTReply;
+import swift.proto.DHTBatchGetCRDT;
+import swift.proto.DHTBatchGetCRDTReply;
 import swift.proto.DHTExecCRDT;
 import swift.proto.DHTExecCRDTReply;
 import swift.proto.DHTGetCRDT;
 import swift.proto.DHTGetCRDTReply;
+import swift.proto.DHTBulkLoad;
+import swift.proto.DHTBulkLoadReply;
+import swift.proto.DHTScanKeys;
+import swift.proto.DHTScanKeysReply;
 import swift.proto.LatestKnownClockReply;
 import swift.proto.LatestKnownClockRequest;
 import swift.proto.PubSubHandshake;
 import swift.proto.PubSubHandshakeReply;
+import swift.proto.ScanKeysReply;
+import swift.proto.ScanKeysRequest;
 import swift.proto.UnsubscribeUpdatesRequest;
 import swift.pubsub.BatchUpdatesNotification;
 import swift.pubsub.UpdateNotification;
@@ -194,5 +209,25 @@ public class KryoCRDTUtils {
 
         registerable.register(PubSubHandshake.class, classId++);
         registerable.register(PubSubHandshakeReply.class, classId++);
+
+        registerable.register(DHTBatchExecCRDT.class, classId++);
+        registerable.register(DHTBatchExecCRDTReply.class, classId++);
+        registerable.register(DHTBatchGetCRDT.class, classId++);
+        registerable.register(DHTBatchGetCRDTReply.class, classId++);
+
+        registerable.register(TimestampSet.class, classId++);
+
+        registerable.register(ScanKeysRequest.class, classId++);
+        registerable.register(ScanKeysReply.class, classId++);
+        registerable.register(DHTScanKeys.class, classId++);
+        registerable.register(DHTScanKeysReply.class, classId++);
+
+        registerable.register(BulkLoadRequest.class, classId++);
+        registerable.register(BulkLoadReply.class, classId++);
+        registerable.register(DHTBulkLoad.class, classId++);
+        registerable.register(DHTBulkLoadReply.class, classId++);
+
+        registerable.register(SequenceInsertRangeUpdate.class, classId++);
+        registerable.register(SequenceRemoveRangeUpdate.class, classId++);
     }
 }
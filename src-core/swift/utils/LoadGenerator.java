@@ -0,0 +1,337 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package swift.utils;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import swift.utils.SafeLog.ReportType;
+import sys.stats.metrics.HistogramSnapshot;
+import sys.stats.metrics.LongHistogram;
+
+/**
+ * Load generation engine shared by the application benchmarks. Each worker,
+ * e.g., a client session, runs in its own thread and executes its operations
+ * one at a time, in one of two modes:
+ * <ul>
+ * <li>closed loop: the next operation starts when the previous one completes,
+ * after an optional think time;</li>
+ * <li>open loop: operations are scheduled at a fixed arrival rate, shared
+ * evenly by the workers, independently of the completion of the previous
+ * ones.</li>
+ * </ul>
+ * The response time of an operation is measured from its intended start time,
+ * i.e., its scheduled time in open loop, so that the time an operation waits
+ * behind a slow predecessor is accounted for (no coordinated omission). The
+ * service time, from the actual start, is recorded as well. Both are recorded
+ * in nanoseconds, per operation type, in {@link LongHistogram}s.
+ * <p>
+ * A run has a warm-up phase, whose operations are executed but not recorded,
+ * followed by a steady-state phase of a given duration, or that lasts until
+ * the workers run out of operations. Recorded operations are also reported
+ * as APP_OP, in milliseconds, and failed ones as APP_OP_FAILURE, with the
+ * exception class as cause.
+ * <p>
+ * Configuration properties, see {@link #configure(Properties)}:
+ * {@value #RATE_PROPERTY} (operations per second, 0 for closed loop),
+ * {@value #WARMUP_PROPERTY} and {@value #DURATION_PROPERTY} (seconds, a
+ * duration of 0 runs until the workers are done).
+ */
+public class LoadGenerator {
+    private static Logger logger = Logger.getLogger(LoadGenerator.class.getName());
+
+    public static final String RATE_PROPERTY = "load.rate";
+    public static final String WARMUP_PROPERTY = "load.warmupSecs";
+    public static final String DURATION_PROPERTY = "load.durationSecs";
+
+    public static final String ALL_OPERATIONS = "ALL";
+
+    /**
+     * Source of the operations of one thread of load.
+     */
+    public interface Worker {
+        /**
+         * @return identifier of the worker in the reports, e.g., a session id
+         */
+        String getId();
+
+        /**
+         * Prepares the next operation.
+         * 
+         * @return the type of the next operation, or null if the worker has
+         *         no more operations
+         */
+        String nextOperation();
+
+        /**
+         * Executes the operation prepared by the last call to
+         * {@link #nextOperation()}.
+         */
+        void execute() throws Exception;
+
+        /**
+         * Called once the worker will not execute more operations.
+         */
+        void finish();
+    }
+
+    private double targetRate;
+    private long thinkTimeNanos;
+    private long warmupNanos;
+    private long durationNanos;
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentSkipListMap<String, Stats>();
+    private final Stats all = new Stats(ALL_OPERATIONS);
+    private volatile long steadyStart, steadyEnd;
+
+    /**
+     * Reads the load properties, keeping the current settings for those that
+     * are not set.
+     */
+    public LoadGenerator configure(Properties props) {
+        targetRate = Double.parseDouble(props.getProperty(RATE_PROPERTY, Double.toString(targetRate)));
+        warmupNanos = seconds(props.getProperty(WARMUP_PROPERTY), warmupNanos);
+        durationNanos = seconds(props.getProperty(DURATION_PROPERTY), durationNanos);
+        return this;
+    }
+
+    private static long seconds(String value, long defaultNanos) {
+        return value == null ? defaultNanos : (long) (Double.parseDouble(value) * 1e9);
+    }
+
+    /**
+     * @param opsPerSec
+     *            arrival rate of the operations of all the workers, or 0 to
+     *            run closed loop
+     */
+    public LoadGenerator setTargetRate(double opsPerSec) {
+        this.targetRate = opsPerSec;
+        return this;
+    }
+
+    /**
+     * Sets the time between the completion of an operation and the start of
+     * the next one of the same worker, in closed loop.
+     */
+    public LoadGenerator setThinkTime(long millis) {
+        this.thinkTimeNanos = millis * 1000000L;
+        return this;
+    }
+
+    public LoadGenerator setWarmup(long millis) {
+        this.warmupNanos = millis * 1000000L;
+        return this;
+    }
+
+    /**
+     * Sets the duration of the steady-state phase; 0 runs until the workers
+     * have no more operations.
+     */
+    public LoadGenerator setDuration(long millis) {
+        this.durationNanos = millis * 1000000L;
+        return this;
+    }
+
+    public boolean isOpenLoop() {
+        return targetRate > 0;
+    }
+
+    /**
+     * Runs the workers, each in its own thread, and waits until they finish.
+     */
+    public void run(List<? extends Worker> workers) throws InterruptedException {
+        final int n = workers.size();
+        final long start = System.nanoTime();
+        steadyStart = start + warmupNanos;
+        steadyEnd = durationNanos > 0 ? steadyStart + durationNanos : Long.MAX_VALUE;
+        // each worker gets an even share of the rate, with staggered schedules
+        final long intervalNanos = isOpenLoop() ? (long) (1e9 * n / targetRate) : 0;
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < n; i++) {
+            final Worker worker = workers.get(i);
+            final String workerId = worker.getId();
+            final long firstStart = start + intervalNanos * i / n;
+            final Thread t = new Thread("load-" + i) {
+                public void run() {
+                    try {
+                        runWorker(workerId, worker, firstStart, intervalNanos);
+                    } finally {
+                        worker.finish();
+                    }
+                }
+            };
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (steadyEnd == Long.MAX_VALUE) {
+            steadyEnd = System.nanoTime();
+        }
+    }
+
+    void runWorker(String workerId, Worker worker, long firstStart, long intervalNanos) {
+        long intendedStart = firstStart;
+        for (;;) {
+            if (intervalNanos > 0) {
+                for (long wait; (wait = intendedStart - System.nanoTime()) > 0;) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            if (intendedStart >= steadyEnd) {
+                return;
+            }
+            final String type = worker.nextOperation();
+            if (type == null) {
+                return;
+            }
+            final long actualStart = System.nanoTime();
+            if (intervalNanos == 0) {
+                intendedStart = actualStart;
+            }
+            Throwable failure = null;
+            try {
+                worker.execute();
+            } catch (Exception x) {
+                failure = x;
+                logger.log(Level.FINE, "Operation " + type + " failed", x);
+            }
+            final long end = System.nanoTime();
+            if (intendedStart >= steadyStart) {
+                record(workerId, type, end - intendedStart, end - actualStart, failure);
+            }
+            if (intervalNanos > 0) {
+                intendedStart += intervalNanos;
+            } else if (thinkTimeNanos > 0) {
+                LockSupport.parkNanos(thinkTimeNanos);
+            }
+        }
+    }
+
+    private void record(String workerId, String type, long responseNanos, long serviceNanos, Throwable failure) {
+        Stats s = stats.get(type);
+        if (s == null) {
+            final Stats old = stats.putIfAbsent(type, s = new Stats(type));
+            if (old != null) {
+                s = old;
+            }
+        }
+        if (failure == null) {
+            s.record(responseNanos, serviceNanos);
+            all.record(responseNanos, serviceNanos);
+            SafeLog.report(ReportType.APP_OP, workerId, type, responseNanos / 1000000);
+        } else {
+            s.failures.incrementAndGet();
+            all.failures.incrementAndGet();
+            SafeLog.report(ReportType.APP_OP_FAILURE, workerId, type, failure.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * @return the response times of the successful operations of each type,
+     *         and of all types, under {@value #ALL_OPERATIONS}
+     */
+    public Map<String, LongHistogram> getResponseTimes() {
+        final Map<String, LongHistogram> res = new ConcurrentHashMap<String, LongHistogram>();
+        for (Stats s : stats.values()) {
+            res.put(s.name, s.responseTimes);
+        }
+        res.put(ALL_OPERATIONS, all.responseTimes);
+        return res;
+    }
+
+    /**
+     * @return the service times of the successful operations of each type, and
+     *         of all types, under {@value #ALL_OPERATIONS}
+     */
+    public Map<String, LongHistogram> getServiceTimes() {
+        final Map<String, LongHistogram> res = new ConcurrentHashMap<String, LongHistogram>();
+        for (Stats s : stats.values()) {
+            res.put(s.name, s.serviceTimes);
+        }
+        res.put(ALL_OPERATIONS, all.serviceTimes);
+        return res;
+    }
+
+    /**
+     * @return the number of failed operations of the given type, or of all
+     *         types
+     */
+    public long getFailures(String type) {
+        final Stats s = ALL_OPERATIONS.equals(type) ? all : stats.get(type);
+        return s == null ? 0 : s.failures.get();
+    }
+
+    /**
+     * Prints the throughput of the steady-state phase, and the response time
+     * percentiles of each type of operation, in milliseconds.
+     */
+    public void printSummary(PrintStream out) {
+        final double seconds = Math.max(1, Math.min(System.nanoTime(), steadyEnd) - steadyStart) / 1e9;
+        final long count = all.responseTimes.snapshot().getTotalCount();
+        final String mode = isOpenLoop() ? String.format("open loop at %.1f op/s", targetRate) : "closed loop";
+        out.printf("# %s, %.1f s steady state, %d ops, %.1f op/s\n", mode, seconds, count, count / seconds);
+        out.printf("%-16s %8s %6s %9s %9s %9s %9s %9s %9s %12s\n", "response (ms)", "count", "fail", "mean", "p50",
+                "p90", "p99", "p99.9", "max", "service p99");
+        for (Stats s : stats.values()) {
+            s.print(out);
+        }
+        all.print(out);
+    }
+
+    static final class Stats {
+        final String name;
+        final LongHistogram responseTimes;
+        final LongHistogram serviceTimes;
+        final AtomicLong failures = new AtomicLong();
+
+        Stats(String name) {
+            this.name = name;
+            this.responseTimes = new LongHistogram(name);
+            this.serviceTimes = new LongHistogram(name);
+        }
+
+        void record(long responseNanos, long serviceNanos) {
+            responseTimes.record(responseNanos);
+            serviceTimes.record(serviceNanos);
+        }
+
+        void print(PrintStream out) {
+            final HistogramSnapshot r = responseTimes.snapshot();
+            out.printf("%-16s %8d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %12.2f\n", name, r.getTotalCount(),
+                    failures.get(), r.getMean() / 1e6, r.getValueAtPercentile(50) / 1e6,
+                    r.getValueAtPercentile(90) / 1e6, r.getValueAtPercentile(99) / 1e6,
+                    r.getValueAtPercentile(99.9) / 1e6, r.getMax() / 1e6,
+                    serviceTimes.snapshot().getValueAtPercentile(99) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.dht;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import sys.net.api.Endpoint;
+
+/**
+ * Immutable snapshot of the DHT ring. Each member node is placed on the ring
+ * at a number of virtual positions (tokens), to even out the share of the key
+ * space each node gets. A key is owned by the node holding the first token
+ * that follows the key hash, wrapping around.
+ *
+ * Snapshots are never modified after construction, so they can be published
+ * through a volatile reference and looked up without any locking.
+ */
+final class ConsistentHashRing {
+
+    final Node self;
+    final long[] tokens;
+    final Node[] owners;
+    final List<Node> nodes;
+    final Set<Endpoint> members;
+
+    private ConsistentHashRing(Node self, long[] tokens, Node[] owners, List<Node> nodes, Set<Endpoint> members) {
+        this.self = self;
+        this.tokens = tokens;
+        this.owners = owners;
+        this.nodes = nodes;
+        this.members = members;
+    }
+
+    /**
+     * Builds a new ring snapshot for the given membership.
+     *
+     * @param dc
+     *            the datacenter of the members
+     * @param members
+     *            the endpoints of the nodes that make up the ring
+     * @param selfEndpoint
+     *            the endpoint of the local node
+     * @param virtualNodes
+     *            the number of tokens placed on the ring for each member
+     */
+    static ConsistentHashRing build(String dc, Collection<Endpoint> members, Endpoint selfEndpoint, int virtualNodes) {
+        SortedMap<Long, Node> tmp = new TreeMap<Long, Node>();
+        List<Node> nodes = new ArrayList<Node>();
+        Node self = null;
+        for (Endpoint i : members) {
+            Node n = new Node(i, dc);
+            nodes.add(n);
+            if (i.equals(selfEndpoint))
+                self = n;
+
+            String locator = i.locator().toString();
+            for (int v = 0; v < virtualNodes; v++) {
+                long token = DHT_Node.longHashValue(locator + "#" + v);
+                // on the (very unlikely) collision, the smallest node key wins,
+                // so that all nodes agree on the owner.
+                Node prev = tmp.get(token);
+                if (prev == null || prev.key > n.key)
+                    tmp.put(token, n);
+            }
+        }
+        if (self == null)
+            self = new Node(selfEndpoint, dc);
+
+        long[] tokens = new long[tmp.size()];
+        Node[] owners = new Node[tmp.size()];
+        int j = 0;
+        for (Map.Entry<Long, Node> e : tmp.entrySet()) {
+            tokens[j] = e.getKey();
+            owners[j++] = e.getValue();
+        }
+        return new ConsistentHashRing(self, tokens, owners, Collections.unmodifiableList(nodes),
+                Collections.unmodifiableSet(new HashSet<Endpoint>(members)));
+    }
+
+    /**
+     * @return true if this snapshot was built for exactly the given membership
+     */
+    boolean sameMembers(Set<Endpoint> other) {
+        return members.equals(other);
+    }
+
+    /**
+     * Returns the first online node responsible for the given key hash, or the
+     * local node if none is online.
+     */
+    Node lookup(long hash) {
+        int n = tokens.length;
+        if (n == 0)
+            return self;
+
+        int pos = Arrays.binarySearch(tokens, hash);
+        if (pos < 0)
+            pos = -pos - 1;
+
+        for (int i = 0; i < n; i++) {
+            Node candidate = owners[(pos + i) % n];
+            if (candidate.isOnline())
+                return candidate;
+        }
+        return self;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d node(s), %d token(s): %s", nodes.size(), tokens.length, nodes);
+    }
+}
@@ -16,73 +16,180 @@
  *****************************************************************************/
 package sys.dht;
 
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import swift.crdt.core.CRDTIdentifier;
 import sys.herd.Herd;
 import sys.net.api.Endpoint;
+import sys.scheduler.PeriodicTask;
 import sys.utils.IP;
 
+/**
+ * Routing layer of the DC data servers DHT. Keys are mapped onto a consistent
+ * hashing ring with virtual nodes, whose immutable snapshot is republished
+ * whenever the herd membership changes.
+ */
 public class DHT_Node {
     public static int DHT_PORT = 29999;
 
+    /**
+     * Number of virtual nodes (tokens) placed on the ring for each member.
+     */
+    public static int VIRTUAL_NODES = 64;
+
+    static final int ROUTE_CACHE_SIZE = 256; // must be a power of 2
+    static final double MEMBERSHIP_CHECK_PERIOD = 1.0;
+
     private static Logger Log = Logger.getLogger(DHT_Node.class.getName());
 
-    static Node self;
-    static OrdinalDB db;
+    static volatile ConsistentHashRing ring;
 
     protected DHT_Node() {
     }
 
-    public static void init(String dc, String herd, Endpoint selfEndpoint) {
+    public static void init(final String dc, final String herd, final Endpoint selfEndpoint) {
         Herd.joinHerd(dc, herd, selfEndpoint);
 
         int delay = 15;
         Herd h = Herd.getHerd(dc, herd, delay, true);
-        db = new OrdinalDB().populate(h, selfEndpoint);
-        self = db.self();
-        Log.info(String.format(IP.localHostname() + " Found %d node(s): %s\n", db.nodes().size(), db.nodes()));
+        ring = ConsistentHashRing.build(dc, new HashSet<Endpoint>(h.sheep()), selfEndpoint, VIRTUAL_NODES);
+        Log.info(String.format(IP.localHostname() + " Found %s\n", ring));
+
+        new PeriodicTask(MEMBERSHIP_CHECK_PERIOD, MEMBERSHIP_CHECK_PERIOD) {
+            public void run() {
+                Set<Endpoint> members = Herd.sheep(dc, herd);
+                if (!ring.sameMembers(members)) {
+                    ring = ConsistentHashRing.build(dc, members, selfEndpoint, VIRTUAL_NODES);
+                    Log.info(String.format(IP.localHostname() + " Membership changed: %s\n", ring));
+                }
+            }
+        };
     }
 
     public static Set<Long> nodeKeys() {
-        return db.nodeKeys();
+        Set<Long> res = new HashSet<Long>();
+        for (Node i : ring.nodes)
+            res.add(i.key);
+        return res;
+    }
+
+    /**
+     * @return the DHT endpoints of the other data nodes of the ring
+     */
+    public static List<Endpoint> remoteDataNodes() {
+        ConsistentHashRing r = ring;
+        List<Endpoint> res = new ArrayList<Endpoint>();
+        for (Node i : r.nodes)
+            if (i.key != r.self.key)
+                res.add(i.dhtEndpoint);
+        return res;
     }
 
     static public boolean isHandledLocally(final String key) {
-        return resolveNextHop(key).key == self.key;
+        return resolveNextHop(key).key == ring.self.key;
     }
 
     static public Endpoint resolveKey(final String key) {
-        Node nextHop = resolveNextHop(key);
-        return self.key == nextHop.key ? null : nextHop.dhtEndpoint;
+        ConsistentHashRing r = ring;
+        Node nextHop = r.lookup(longHashValue(key));
+        return r.self.key == nextHop.key ? null : nextHop.dhtEndpoint;
     }
 
-    static Node resolveNextHop(String key) {
-        long key2key = longHashValue(key) & Node.MAX_KEY;
-        for (Node i : db.nodes(key2key))
-            if (i.isOnline())
-                return i;
+    /**
+     * Same as resolveKey(id.toString()), but memoizes recent routes in a small
+     * per-thread cache, valid for the current ring snapshot.
+     */
+    static public Endpoint resolveKey(final CRDTIdentifier id) {
+        ConsistentHashRing r = ring;
+        Node nextHop = routeCache.get().lookup(r, id);
+        return r.self.key == nextHop.key ? null : nextHop.dhtEndpoint;
+    }
 
-        return self;
+    /**
+     * Partitions the given keys among the given data nodes, as a ring made of
+     * these nodes routes them. Meant for tools that prepare the data nodes
+     * while they are offline.
+     * 
+     * @param members
+     *            the endpoints of the data nodes, as they join the herd
+     * @return the positions of the keys owned by each node
+     */
+    public static Map<Endpoint, List<Integer>> partition(Collection<Endpoint> members, List<CRDTIdentifier> ids) {
+        ConsistentHashRing r = ConsistentHashRing.build("?", members, members.iterator().next(), VIRTUAL_NODES);
+        Map<Endpoint, List<Integer>> res = new HashMap<Endpoint, List<Integer>>();
+        for (int i = 0; i < ids.size(); i++) {
+            Endpoint owner = r.lookup(longHashValue(ids.get(i).toString())).endpoint;
+            List<Integer> idxs = res.get(owner);
+            if (idxs == null)
+                res.put(owner, idxs = new ArrayList<Integer>());
+            idxs.add(i);
+        }
+        return res;
     }
 
+    static Node resolveNextHop(String key) {
+        return ring.lookup(longHashValue(key));
+    }
+
+    /**
+     * Non-cryptographic 64-bit hash of the given string (FNV-1a over the
+     * characters, followed by the MurmurHash3 finalizer to spread the bits).
+     * 
+     * @return a non-negative hash value
+     */
     static public long longHashValue(String key) {
-        synchronized (digest) {
-            digest.reset();
-            digest.update(key.getBytes());
-            return new BigInteger(1, digest.digest()).longValue() >>> 1;
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
         }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h >>> 1;
     }
 
-    private static MessageDigest digest;
-    static {
-        try {
-            digest = java.security.MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+    static final ThreadLocal<RouteCache> routeCache = new ThreadLocal<RouteCache>() {
+        @Override
+        protected RouteCache initialValue() {
+            return new RouteCache();
+        }
+    };
+
+    /**
+     * Direct-mapped cache of recently resolved identifiers. Flushed whenever
+     * the ring snapshot changes.
+     */
+    static final class RouteCache {
+        ConsistentHashRing ring;
+        final CRDTIdentifier[] ids = new CRDTIdentifier[ROUTE_CACHE_SIZE];
+        final Node[] hops = new Node[ROUTE_CACHE_SIZE];
+
+        Node lookup(ConsistentHashRing r, CRDTIdentifier id) {
+            if (ring != r) {
+                Arrays.fill(ids, null);
+                Arrays.fill(hops, null);
+                ring = r;
+            }
+            int h = id.hashCode();
+            int slot = (h ^ (h >>> 16)) & (ROUTE_CACHE_SIZE - 1);
+            if (id.equals(ids[slot]))
+                return hops[slot];
+
+            Node res = r.lookup(longHashValue(id.toString()));
+            ids[slot] = id;
+            hops[slot] = res;
+            return res;
         }
     }
 }
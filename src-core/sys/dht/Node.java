@@ -26,8 +26,8 @@ import sys.net.api.Networking;
  */
 public class Node {
 
-    static final int NODE_KEY_LENGTH = 10;
-    public static final long MAX_KEY = (1L << NODE_KEY_LENGTH) - 1L;
+    static final int NODE_KEY_LENGTH = 63;
+    public static final long MAX_KEY = Long.MAX_VALUE;
 
     public long key;
     public Endpoint endpoint;
@@ -88,6 +88,6 @@ public class Node {
     }
 
     private static long locator2key(Object locator) {
-        return (DHT_Node.longHashValue(locator.toString()) >>> 1) & MAX_KEY;
+        return DHT_Node.longHashValue(locator.toString()) & MAX_KEY;
     }
 }
\ No newline at end of file
@@ -183,6 +183,16 @@ public class Herd extends HerdProtoHandler {
         }
     }
 
+    /**
+     * Returns a snapshot of the current members of the given herd, without
+     * waiting for the membership to settle.
+     */
+    public static Set<Endpoint> sheep(String dc, String herd) {
+        synchronized (herds) {
+            return new HashSet<Endpoint>(getHerd(dc, herd).sheep);
+        }
+    }
+
     public static Herd getHerd(String dc, String herd, int minimumAge, boolean stop) {
         Log.info(String.format(IP.localHostname() + " Waiting up to %s seconds for <%s, %s> membership to settle...\n",
                 minimumAge, dc, herd));
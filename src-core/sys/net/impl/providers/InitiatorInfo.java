@@ -24,16 +24,21 @@ import sys.net.impl.AbstractMessage;
 public class InitiatorInfo extends AbstractMessage {
 
     protected Endpoint local;
+    // site of the initiator, if emulating links
+    protected String site;
 
     public InitiatorInfo() {
     }
 
     public InitiatorInfo(Endpoint local) {
         this.local = local;
+        this.site = LinkEmulator.localSite();
     }
 
     public void deliverTo(final TransportConnection conn, final MessageHandler handler) {
         ((RemoteEndpointUpdater) conn).setRemoteEndpoint(local);
+        if (site != null && conn instanceof RemoteSiteUpdater)
+            ((RemoteSiteUpdater) conn).setRemoteSite(site);
         handler.onAccept(conn);
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.net.impl.providers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Emulation of wide-area links between the processes of a deployment running
+ * on a single machine. Every process belongs to a site, e.g., a DC or the
+ * clients of a DC; messages received from a process of another site are
+ * delivered after the one-way latency of the link between the two sites, and
+ * no faster than the bandwidth of the link allows. Each direction of a
+ * connection is delayed once, at its receiving end; the initiator of a
+ * connection tells its site to the other end in its {@link InitiatorInfo}.
+ * <p>
+ * Configured with system properties; emulation is off unless
+ * {@value #SITE_PROPERTY} is set:
+ * <ul>
+ * <li>{@value #SITE_PROPERTY}: site of this process, e.g., DC0</li>
+ * <li>{@value #PORTS_PROPERTY}: listening ports of the processes of each site,
+ * e.g., DC0=30000-30099;DC1=30100-30199</li>
+ * <li>{@value #LINKS_PROPERTY}: one-way latency in milliseconds and,
+ * optionally, bandwidth in Mbit/s of the links between sites, e.g.,
+ * DC0-DC1=40/100;C0-DC0=5. Links are symmetric; sites without a link between
+ * them are not delayed.</li>
+ * </ul>
+ * Only the OIO TCP provider supports emulation.
+ */
+public final class LinkEmulator {
+    private static Logger Log = Logger.getLogger(LinkEmulator.class.getName());
+
+    public static final String SITE_PROPERTY = "sys.net.emulation.site";
+    public static final String PORTS_PROPERTY = "sys.net.emulation.ports";
+    public static final String LINKS_PROPERTY = "sys.net.emulation.links";
+
+    private static final LinkEmulator instance = create();
+
+    private final String site;
+    private final Map<Integer, String> sitesByPort = new HashMap<Integer, String>();
+    private final Map<String, Link> links = new HashMap<String, Link>();
+
+    private LinkEmulator(String site, String ports, String links) {
+        this.site = site;
+        for (String i : split(ports)) {
+            final String[] kv = i.split("=");
+            final String[] range = kv[1].split("-");
+            final int lo = Integer.parseInt(range[0].trim());
+            final int hi = range.length > 1 ? Integer.parseInt(range[1].trim()) : lo;
+            for (int port = lo; port <= hi; port++)
+                sitesByPort.put(port, kv[0].trim());
+        }
+        for (String i : split(links)) {
+            final String[] kv = i.split("=");
+            final String[] ends = kv[0].split("-");
+            final String[] params = kv[1].split("/");
+            final double latencyMillis = Double.parseDouble(params[0].trim());
+            final double mbits = params.length > 1 ? Double.parseDouble(params[1].trim()) : 0;
+            final String a = ends[0].trim(), b = ends[1].trim();
+            if (a.equals(site))
+                this.links.put(b, new Link(b, latencyMillis, mbits));
+            else if (b.equals(site))
+                this.links.put(a, new Link(a, latencyMillis, mbits));
+        }
+    }
+
+    private static LinkEmulator create() {
+        final String site = System.getProperty(SITE_PROPERTY);
+        if (site == null)
+            return null;
+        final LinkEmulator res = new LinkEmulator(site, System.getProperty(PORTS_PROPERTY, ""), System.getProperty(
+                LINKS_PROPERTY, ""));
+        Log.info("Emulating links of site " + site + ": " + res.links.values());
+        return res;
+    }
+
+    private static String[] split(String list) {
+        return list.trim().isEmpty() ? new String[0] : list.split(";");
+    }
+
+    /**
+     * @return the site of this process, or null if emulation is off
+     */
+    public static String localSite() {
+        return instance == null ? null : instance.site;
+    }
+
+    /**
+     * @return a receiver for a connection initiated to the given port, or null
+     *         if messages from it are not delayed
+     */
+    public static Receiver receiverForPort(int port) {
+        return instance == null ? null : receiverForSite(instance.sitesByPort.get(port));
+    }
+
+    /**
+     * @return a receiver for a connection with a process of the given site, or
+     *         null if messages from it are not delayed
+     */
+    public static Receiver receiverForSite(String site) {
+        if (instance == null || site == null)
+            return null;
+        final Link link = instance.links.get(site);
+        return link == null ? null : new Receiver(link);
+    }
+
+    /**
+     * Link from a remote site, shared by all the connections with processes of
+     * that site.
+     */
+    static final class Link {
+        final String remoteSite;
+        final long latencyNanos;
+        final double nanosPerByte;
+        private long nextFree;
+
+        Link(String remoteSite, double latencyMillis, double mbits) {
+            this.remoteSite = remoteSite;
+            this.latencyNanos = (long) (latencyMillis * 1000000);
+            this.nanosPerByte = mbits > 0 ? 8000 / mbits : 0;
+        }
+
+        /**
+         * Reserves the link for a message received now.
+         * 
+         * @return the time when the message is due for delivery
+         */
+        synchronized long dueTime(int size) {
+            nextFree = Math.max(System.nanoTime(), nextFree) + (long) (size * nanosPerByte);
+            return nextFree + latencyNanos;
+        }
+
+        public String toString() {
+            return String.format("%s: %.1f ms, %s", remoteSite, latencyNanos / 1e6,
+                    nanosPerByte > 0 ? String.format("%.1f Mbit/s", 8000 / nanosPerByte) : "unlimited");
+        }
+    }
+
+    /**
+     * Delays the delivery of the messages received by a connection. Messages
+     * are delivered in order, by a dedicated thread, so a handler blocking on
+     * a message blocks the connection, as without emulation.
+     */
+    public static final class Receiver implements Runnable {
+        private final Link link;
+        private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<Delivery>();
+
+        Receiver(Link link) {
+            this.link = link;
+            final Thread t = new Thread(this, "link-" + link.remoteSite);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        /**
+         * Delivers a received message when it is due.
+         */
+        public void deliver(int size, Runnable delivery) {
+            queue.add(new Delivery(link.dueTime(size), delivery));
+        }
+
+        /**
+         * Stops the receiver once the messages received so far are delivered.
+         */
+        public void stop() {
+            queue.add(new Delivery(System.nanoTime(), null));
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                try {
+                    final Delivery d = queue.take();
+                    if (d.delivery == null)
+                        return;
+                    for (long wait; (wait = d.dueTime - System.nanoTime()) > 0;)
+                        LockSupport.parkNanos(wait);
+                    d.delivery.run();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException x) {
+                    Log.log(Level.SEVERE, "Exception delivering message from: " + link.remoteSite, x);
+                }
+            }
+        }
+    }
+
+    static final class Delivery {
+        final long dueTime;
+        final Runnable delivery;
+
+        Delivery(long dueTime, Runnable delivery) {
+            this.dueTime = dueTime;
+            this.delivery = delivery;
+        }
+    }
+}
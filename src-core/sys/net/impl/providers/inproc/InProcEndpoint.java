@@ -36,10 +36,8 @@ final public class InProcEndpoint extends AbstractLocalEndpoint {
 
     public TransportConnection connect(Endpoint remote) {
         InProcEndpoint r;
-        do {
-            r = endpoints.get(remote.getPort());
+        while ((r = endpoints.get(remote.getPort())) == null)
             Threading.sleep(1000);
-        } while (r == null);
 
         InProcConnection lC = new InProcConnection(localEndpoint, remote, r.localEndpoint.getHandler());
         InProcConnection rC = new InProcConnection(remote, localEndpoint, localEndpoint.getHandler());
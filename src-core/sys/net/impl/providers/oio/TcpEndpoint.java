@@ -40,7 +40,9 @@ import sys.net.impl.FailedTransportConnection;
 import sys.net.impl.KryoLib;
 import sys.net.impl.providers.AbstractTransport;
 import sys.net.impl.providers.InitiatorInfo;
+import sys.net.impl.providers.LinkEmulator;
 import sys.net.impl.providers.RemoteEndpointUpdater;
+import sys.net.impl.providers.RemoteSiteUpdater;
 import sys.utils.IO;
 import sys.utils.Threading;
 
@@ -113,7 +115,8 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
         }
     }
 
-    abstract class AbstractConnection extends AbstractTransport implements RemoteEndpointUpdater, Runnable {
+    abstract class AbstractConnection extends AbstractTransport implements RemoteEndpointUpdater, RemoteSiteUpdater,
+            Runnable {
 
         String type;
         Throwable cause;
@@ -121,6 +124,8 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
         SocketChannel channel;
         KryoInputBuffer inBuf;
         KryoOutputBuffer outBuf;
+        // delays received messages, if emulating the link
+        volatile LinkEmulator.Receiver receiver;
 
         ExecutorService workers = Executors.newFixedThreadPool(2);
 
@@ -132,20 +137,24 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
         final public void run() {
             try {
                 for (;;) {
-                    Message msg;
+                    final Message msg;
+                    final int msgSize;
                     synchronized (inBuf) {
                         msg = inBuf.readClassAndObject(channel);
-                        int msgSize = inBuf.msgSize;
+                        msgSize = inBuf.msgSize;
                         Sys.downloadedBytes.addAndGet(msgSize);
                         incomingBytesCounter.addAndGet(msgSize);
                         msg.setSize(msgSize);
                     }
-                    try {
-                        msg.deliverTo(this, TcpEndpoint.this.handler);
-                    } catch (Exception x) {
-                        x.printStackTrace();
-                        Log.severe("Exception: " + x.getMessage());
-                    }
+                    final LinkEmulator.Receiver r = receiver;
+                    if (r == null)
+                        deliver(msg);
+                    else
+                        r.deliver(msgSize, new Runnable() {
+                            public void run() {
+                                deliver(msg);
+                            }
+                        });
                 }
             } catch (IOException x) {
                 x.printStackTrace();
@@ -160,9 +169,34 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
                 Log.severe("Exception in connection to: " + remote + "/" + t);
                 cause = t;
             }
+            close();
+            Log.fine("Closed connection to: " + remote);
+        }
+
+        /**
+         * Closes the socket and stops the emulated link receiver, if any.
+         */
+        void close() {
             isBroken = true;
             IO.close(socket);
-            Log.fine("Closed connection to: " + remote);
+            final LinkEmulator.Receiver r = receiver;
+            receiver = null;
+            if (r != null)
+                r.stop();
+        }
+
+        @Override
+        public void dispose() {
+            close();
+        }
+
+        void deliver(Message msg) {
+            try {
+                msg.deliverTo(this, TcpEndpoint.this.handler);
+            } catch (Exception x) {
+                x.printStackTrace();
+                Log.severe("Exception: " + x.getMessage());
+            }
         }
 
         public boolean send(final Message msg) {
@@ -175,8 +209,7 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
 
             } catch (ClosedChannelException x) {
                 cause = x;
-                isBroken = true;
-                IO.close(socket);
+                close();
                 handler.onFailure(this);
             } catch (Throwable t) {
                 t.printStackTrace();
@@ -185,8 +218,7 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
 
                 Log.warning("Exception in connection to: " + remote + " " + t.getMessage());
                 cause = t;
-                isBroken = true;
-                IO.close(socket);
+                close();
                 handler.onFailure(this);
             }
             return false;
@@ -204,6 +236,13 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
         public void setRemoteEndpoint(Endpoint remote) {
             this.remote = remote;
         }
+
+        public void setRemoteSite(String site) {
+            final LinkEmulator.Receiver old = receiver;
+            receiver = LinkEmulator.receiverForSite(site);
+            if (old != null)
+                old.stop();
+        }
     }
 
     final class IncomingConnection extends AbstractConnection {
@@ -235,13 +274,13 @@ final public class TcpEndpoint extends AbstractLocalEndpoint implements Runnable
                 configureChannel(socket);
                 inBuf = new KryoInputBuffer();
                 outBuf = new KryoOutputBuffer();
+                receiver = LinkEmulator.receiverForPort(socket.getPort());
                 this.send(new InitiatorInfo(localEndpoint));
                 handler.onConnect(this);
                 workers.execute(this);
             } catch (IOException x) {
                 cause = x;
-                isBroken = true;
-                IO.close(socket);
+                close();
                 Log.warning("Cannot connect to: " + remote + " " + x.getMessage());
                 if (Log.isLoggable(Level.INFO))
                     x.printStackTrace();
@@ -2,6 +2,7 @@ package sys.stats;
 
 import java.io.IOException;
 
+import sys.stats.metrics.LongHistogram;
 import sys.stats.sources.CounterSignalSource;
 import sys.stats.sources.PollingBasedValueProvider;
 import sys.stats.sources.ValueSignalSource;
@@ -50,6 +51,11 @@ public class DummyStats implements Stats {
         };
     }
 
+    @Override
+    public LongHistogram getLatencyHistogram(String statName) {
+        return new LongHistogram(statName);
+    }
+
     @Override
     public void dump() throws IOException {
     }
@@ -2,6 +2,7 @@ package sys.stats;
 
 import java.io.IOException;
 
+import sys.stats.metrics.LongHistogram;
 import sys.stats.sources.CounterSignalSource;
 import sys.stats.sources.PollingBasedValueProvider;
 import sys.stats.sources.ValueSignalSource;
@@ -51,6 +52,17 @@ public interface Stats {
      */
     public abstract CounterSignalSource getCountingSourceForStat(String statName);
 
+    /**
+     * Returns an empty nanosecond latency histogram with the given name, or an
+     * already existing one with the recorded values. Callers are expected to
+     * keep the returned handle, so that recording does no lookup.
+     * 
+     * @param statName
+     *            the name of the histogram
+     * @return LongHistogram
+     */
+    public abstract LongHistogram getLatencyHistogram(String statName);
+
     /**
      * Writes the gathered statistics to the output folder since the creation of
      * the statistics manager. Probe names with ":" are split and created in
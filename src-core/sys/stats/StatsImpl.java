@@ -24,12 +24,15 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import swift.utils.Pair;
+import sys.scheduler.PeriodicTask;
 import sys.stats.common.PlotValues;
+import sys.stats.metrics.LongHistogram;
 import sys.stats.output.BufferedFileDumper;
 import sys.stats.overtime.CounterOverTime;
 import sys.stats.overtime.FixedRateValueOverTime;
@@ -51,8 +54,9 @@ public final class StatsImpl implements Stats {
 
     private static Map<String, StatsImpl> statisticsByName = new HashMap<String, StatsImpl>();
 
-    private Map<String, CounterOverTime> countigSources;
-    private Map<String, HistogramOverTime> valuesFrequencySource;
+    private ConcurrentHashMap<String, CounterOverTime> countigSources;
+    private ConcurrentHashMap<String, HistogramOverTime> valuesFrequencySource;
+    private ConcurrentHashMap<String, LongHistogram> latencyHistograms;
     private Map<String, Pair<FixedRateValueOverTime, PollingBasedValueProvider>> pollingProviders;
     private Map<String, Pair<Integer, Long>> pollingUpdates;
     private int maxSamplingInterval;
@@ -129,8 +133,9 @@ public final class StatsImpl implements Stats {
 
         terminate = false;
         maxSamplingInterval = samplingInterval;
-        countigSources = new HashMap<String, CounterOverTime>();
-        valuesFrequencySource = new HashMap<String, HistogramOverTime>();
+        countigSources = new ConcurrentHashMap<String, CounterOverTime>();
+        valuesFrequencySource = new ConcurrentHashMap<String, HistogramOverTime>();
+        latencyHistograms = new ConcurrentHashMap<String, LongHistogram>();
         pollingProviders = new LinkedHashMap<String, Pair<FixedRateValueOverTime, PollingBasedValueProvider>>();
         // First: Update interval; Second: Last update
         pollingUpdates = new HashMap<String, Pair<Integer, Long>>();
@@ -208,19 +213,22 @@ public final class StatsImpl implements Stats {
             logger.log(Level.WARNING, outputDir + " has no write permissions, cannot dump statistics");
             return;
         }
-        synchronized (countigSources) {
-            for (Entry<String, CounterOverTime> counter : countigSources.entrySet()) {
-                BufferedFileDumper statsOutput = createFile(dir, counter.getKey() + "-count");
-                statsOutput.output(counter.getValue());
-                statsOutput.close();
-            }
+        for (Entry<String, CounterOverTime> counter : countigSources.entrySet()) {
+            BufferedFileDumper statsOutput = createFile(dir, counter.getKey() + "-count");
+            statsOutput.output(counter.getValue());
+            statsOutput.close();
         }
-        synchronized (valuesFrequencySource) {
-            for (Entry<String, HistogramOverTime> histogram : valuesFrequencySource.entrySet()) {
-                BufferedFileDumper statsOutput = createFile(dir, histogram.getKey() + "-histo");
-                statsOutput.output(histogram.getValue());
-                statsOutput.close();
-            }
+        for (Entry<String, HistogramOverTime> histogram : valuesFrequencySource.entrySet()) {
+            BufferedFileDumper statsOutput = createFile(dir, histogram.getKey() + "-histo");
+            statsOutput.output(histogram.getValue());
+            statsOutput.close();
+        }
+        for (Entry<String, LongHistogram> histogram : latencyHistograms.entrySet()) {
+            BufferedFileDumper statsOutput = createFile(dir, histogram.getKey() + "-pct");
+            statsOutput.output(histogram.getValue());
+            statsOutput.close();
+        }
+        synchronized (pollingProviders) {
             for (Entry<String, Pair<FixedRateValueOverTime, PollingBasedValueProvider>> pollingValues : pollingProviders
                     .entrySet()) {
                 BufferedFileDumper statsOutput = createFile(dir, pollingValues.getKey() + "-poll");
@@ -230,6 +238,32 @@ public final class StatsImpl implements Stats {
         }
     }
 
+    /**
+     * Dumps the statistics every period and when the process exits, for
+     * long-running processes that do not dump them otherwise, e.g., DC nodes.
+     */
+    public void dumpPeriodically(double periodSec) {
+        new PeriodicTask(periodSec, periodSec) {
+            public void run() {
+                tryDump();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                tryDump();
+            }
+        });
+    }
+
+    private void tryDump() {
+        try {
+            dump();
+        } catch (IOException x) {
+            logger.log(Level.WARNING, "cannot dump statistics to " + outputDir, x);
+        }
+    }
+
     @Override
     public void terminate() {
         terminate = true;
@@ -237,36 +271,46 @@ public final class StatsImpl implements Stats {
 
     @Override
     public CounterSignalSource getCountingSourceForStat(String statName) {
-        CounterOverTime cs = null;
-        synchronized (countigSources) {
-            cs = countigSources.get(statName);
-            if (cs == null) {
-                cs = new CounterOverTime(maxSamplingInterval, statName);
-                countigSources.put(statName, cs);
-            } else {
-                logger.log(Level.FINE, "CounterSignalSource " + statName + " already initialized");
-
-            }
+        CounterOverTime cs = countigSources.get(statName);
+        if (cs == null) {
+            CounterOverTime ncs = new CounterOverTime(maxSamplingInterval, statName);
+            cs = countigSources.putIfAbsent(statName, ncs);
+            if (cs == null)
+                cs = ncs;
+        } else {
+            logger.log(Level.FINE, "CounterSignalSource " + statName + " already initialized");
         }
         return cs;
     }
 
     @Override
     public ValueSignalSource getValuesFrequencyOverTime(String statName, double... valueBins) {
-
-        if (valueBins == null || valueBins.length == 0) {
-            valueBins = new double[] {Double.MAX_VALUE};
-        }
-        HistogramOverTime hist = null;
-        synchronized (valuesFrequencySource) {
-            hist = valuesFrequencySource.get(statName);
-            if (hist == null) {
-                Arrays.sort(valueBins);
-                hist = new HistogramOverTime(StatsConstants.histogramTimeFrequency, valueBins, statName);
-                valuesFrequencySource.put(statName, hist);
+        HistogramOverTime hist = valuesFrequencySource.get(statName);
+        if (hist == null) {
+            if (valueBins == null || valueBins.length == 0) {
+                valueBins = new double[] { Double.MAX_VALUE };
             } else {
-                logger.log(Level.FINE, "ValueSignalSource " + statName + " already initialized ignoring value bins");
+                valueBins = valueBins.clone();
+                Arrays.sort(valueBins);
             }
+            HistogramOverTime nhist = new HistogramOverTime(StatsConstants.histogramTimeFrequency, valueBins, statName);
+            hist = valuesFrequencySource.putIfAbsent(statName, nhist);
+            if (hist == null)
+                hist = nhist;
+        } else {
+            logger.log(Level.FINE, "ValueSignalSource " + statName + " already initialized ignoring value bins");
+        }
+        return hist;
+    }
+
+    @Override
+    public LongHistogram getLatencyHistogram(String statName) {
+        LongHistogram hist = latencyHistograms.get(statName);
+        if (hist == null) {
+            LongHistogram nhist = new LongHistogram(statName);
+            hist = latencyHistograms.putIfAbsent(statName, nhist);
+            if (hist == null)
+                hist = nhist;
         }
         return hist;
     }
@@ -0,0 +1,90 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.stats.metrics;
+
+/**
+ * Immutable-after-construction view of the values recorded by a
+ * {@link LongHistogram}, merged across all recording threads.
+ */
+public class HistogramSnapshot {
+
+    final long[] counts;
+    long totalCount, sum, min = Long.MAX_VALUE, max;
+
+    HistogramSnapshot(int buckets) {
+        this.counts = new long[buckets];
+    }
+
+    void add(HistogramSnapshot other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        merge(other.totalCount, other.sum, other.min, other.max);
+    }
+
+    void merge(long count, long sum, long min, long max) {
+        this.totalCount += count;
+        this.sum += sum;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values
+     * fall, within the precision of the histogram buckets.
+     * 
+     * @param percentile
+     *            a value between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+
+        long threshold = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * totalCount);
+        if (threshold < 1)
+            threshold = 1;
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold)
+                return Math.max(getMin(), Math.min(max, LongHistogram.highestValueInBucket(i)));
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, mean=%.1f, p50=%d, p99=%d, max=%d", totalCount, getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(99), max);
+    }
+}
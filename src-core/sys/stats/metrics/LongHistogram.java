@@ -0,0 +1,209 @@
+/*****************************************************************************
+ * Copyright 2011-2012 INRIA
+ * Copyright 2011-2012 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.stats.metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import sys.stats.common.PlotValues;
+import sys.stats.output.ValuesOutput;
+
+/**
+ * Concurrent histogram of non-negative long values, typically durations in
+ * nanoseconds. Values are bucketed log-linearly, as in HdrHistogram: every
+ * power-of-two range is split into 64 equal sub-buckets, which bounds the
+ * relative error of any reported value to less than 2%.
+ * 
+ * Each recording thread owns its buckets, so recording does not contend; the
+ * per-thread buckets are merged on read. The buckets of a thread are allocated
+ * lazily, one power-of-two range at a time, when a value first falls in it, so
+ * that a thread recording values of a similar magnitude only holds a few of
+ * them. The buckets of terminated threads are folded into a single retired
+ * copy, when a thread starts recording or the histogram is read.
+ */
+public class LongHistogram implements ValuesOutput {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    static final int MAX_SHIFT = 40;
+    static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKET_HALF;
+
+    /**
+     * Percentiles reported by {@link #getPlotValues()}.
+     */
+    public static final double[] REPORTED_PERCENTILES = { 50, 90, 95, 99, 99.9, 100 };
+
+    private final String name;
+    // buckets of live threads, and of terminated threads not retired yet
+    private final CopyOnWriteArrayList<Recorder> recorders = new CopyOnWriteArrayList<Recorder>();
+    // guards the retirement of recorders
+    private final HistogramSnapshot retired = new HistogramSnapshot(BUCKETS);
+    private final ThreadLocal<Recorder> recorder = new ThreadLocal<Recorder>() {
+        @Override
+        protected Recorder initialValue() {
+            Recorder res = new Recorder(Thread.currentThread());
+            synchronized (retired) {
+                retireTerminated();
+                recorders.add(res);
+            }
+            return res;
+        }
+    };
+
+    public LongHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one occurrence of the given value. Negative values are recorded
+     * as 0, values too large to track are recorded in the last bucket.
+     */
+    public void record(long value) {
+        recorder.get().record(value < 0 ? 0 : value);
+    }
+
+    /**
+     * @return a merged copy of the values recorded so far by all threads
+     */
+    public HistogramSnapshot snapshot() {
+        HistogramSnapshot res = new HistogramSnapshot(BUCKETS);
+        synchronized (retired) {
+            retireTerminated();
+            res.add(retired);
+            for (Recorder i : recorders)
+                i.mergeInto(res);
+        }
+        return res;
+    }
+
+    private void retireTerminated() {
+        for (Recorder i : recorders) {
+            if (!i.isOwnerAlive()) {
+                i.mergeInto(retired);
+                recorders.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the reported percentiles of the recorded values, as pairs of
+     * (percentile, value).
+     */
+    @Override
+    public PlotValues<Double, Long> getPlotValues() {
+        HistogramSnapshot snapshot = snapshot();
+        PlotValues<Double, Long> res = new PlotValues<Double, Long>();
+        for (double p : REPORTED_PERCENTILES)
+            res.addValue(p, snapshot.getValueAtPercentile(p));
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + snapshot();
+    }
+
+    static int bucketIndex(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits <= SUB_BUCKET_BITS)
+            return (int) value;
+
+        int shift = bits - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT)
+            return BUCKETS - 1;
+
+        return (shift + 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKET_HALF)
+            return index;
+
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long base = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((base + 1) << shift) - 1;
+    }
+
+    /**
+     * Buckets written by a single thread, in chunks of {@link #SUB_BUCKET_HALF}
+     * buckets allocated on first use. Writes use lazySet, which is enough for a
+     * single writer and makes them visible to readers without fences on the
+     * hot path.
+     */
+    static final class Recorder {
+        static final int COUNT = 0, SUM = 1, MIN = 2, MAX = 3;
+
+        final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<AtomicLongArray>(BUCKETS
+                / SUB_BUCKET_HALF);
+        final AtomicLongArray totals = new AtomicLongArray(4);
+        final WeakReference<Thread> owner;
+
+        Recorder(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+            totals.set(MIN, Long.MAX_VALUE);
+        }
+
+        // once false, the buckets do not change anymore
+        boolean isOwnerAlive() {
+            Thread t = owner.get();
+            return t != null && t.isAlive();
+        }
+
+        void record(long value) {
+            int idx = bucketIndex(value);
+            AtomicLongArray chunk = chunks.get(idx / SUB_BUCKET_HALF);
+            if (chunk == null) {
+                chunk = new AtomicLongArray(SUB_BUCKET_HALF);
+                chunks.lazySet(idx / SUB_BUCKET_HALF, chunk);
+            }
+            int i = idx % SUB_BUCKET_HALF;
+            chunk.lazySet(i, chunk.get(i) + 1);
+            totals.lazySet(SUM, totals.get(SUM) + value);
+            if (value < totals.get(MIN))
+                totals.lazySet(MIN, value);
+            if (value > totals.get(MAX))
+                totals.lazySet(MAX, value);
+            totals.lazySet(COUNT, totals.get(COUNT) + 1);
+        }
+
+        void mergeInto(HistogramSnapshot snapshot) {
+            if (totals.get(COUNT) == 0)
+                return;
+            // the bucket counts are authoritative, totals may lag behind them
+            long n = 0;
+            for (int k = 0; k < chunks.length(); k++) {
+                AtomicLongArray chunk = chunks.get(k);
+                if (chunk == null)
+                    continue;
+                for (int i = 0; i < SUB_BUCKET_HALF; i++) {
+                    long c = chunk.get(i);
+                    if (c != 0) {
+                        snapshot.counts[k * SUB_BUCKET_HALF + i] += c;
+                        n += c;
+                    }
+                }
+            }
+            snapshot.merge(n, totals.get(SUM), totals.get(MIN), totals.get(MAX));
+        }
+    }
+}
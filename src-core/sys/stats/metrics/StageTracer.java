@@ -0,0 +1,152 @@
+/*****************************************************************************
+ * Copyright 2011-2014 INRIA
+ * Copyright 2011-2014 Universidade Nova de Lisboa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *****************************************************************************/
+package sys.stats.metrics;
+
+import sys.stats.Stats;
+
+/**
+ * Sampled latency tracer for the stages of a pipeline, such as the commit or
+ * the fetch path. Each stage gets its own nanosecond {@link LongHistogram},
+ * named <code>pipeline:stage</code> in the given {@link Stats}.
+ *
+ * A trace is a plain long: {@link #begin()} returns the start time of a
+ * sampled trace, or {@link #NOT_SAMPLED}; every {@link #end(Enum, long)}
+ * records the time elapsed since the given mark and returns the new mark, so
+ * consecutive stages can be chained. A trace can be handed over between
+ * threads. Calls on a trace that is not sampled are no-ops, so the cost of an
+ * unsampled request is one thread-local counter increment.
+ */
+public class StageTracer<S extends Enum<S>> {
+
+    /**
+     * The trace mark of a request that is not sampled.
+     */
+    public static final long NOT_SAMPLED = 0L;
+
+    private final String name;
+    private final S[] stages;
+    private final LongHistogram[] histograms;
+    private final int samplingPeriod;
+    private final ThreadLocal<int[]> ticks = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * @param stats
+     *            the statistics manager where stage histograms are kept
+     * @param name
+     *            the name of the traced pipeline
+     * @param stageType
+     *            the enumeration of the stages of the pipeline
+     * @param samplingPeriod
+     *            one in every samplingPeriod traces is sampled; 0 disables
+     *            tracing
+     */
+    public StageTracer(Stats stats, String name, Class<S> stageType, int samplingPeriod) {
+        this.name = name;
+        this.samplingPeriod = samplingPeriod;
+        this.stages = stageType.getEnumConstants();
+        this.histograms = new LongHistogram[stages.length];
+        for (S s : stages)
+            histograms[s.ordinal()] = stats.getLatencyHistogram(name + ":" + s.name().toLowerCase());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts a new trace, if it is to be sampled.
+     *
+     * @return the mark of the new trace, or NOT_SAMPLED
+     */
+    public long begin() {
+        if (samplingPeriod <= 0)
+            return NOT_SAMPLED;
+
+        int[] tick = ticks.get();
+        if (++tick[0] < samplingPeriod)
+            return NOT_SAMPLED;
+
+        tick[0] = 0;
+        return now();
+    }
+
+    /**
+     * Records the end of a stage of a trace.
+     *
+     * @param stage
+     *            the stage that ended
+     * @param mark
+     *            the time the stage started
+     * @return the mark for the next stage, or NOT_SAMPLED if the trace is not
+     *         sampled
+     */
+    public long end(S stage, long mark) {
+        if (mark == NOT_SAMPLED)
+            return NOT_SAMPLED;
+
+        long now = now();
+        histograms[stage.ordinal()].record(now - mark);
+        return now;
+    }
+
+    /**
+     * Records a stage duration measured by the caller, for a sampled trace.
+     */
+    public void record(S stage, long mark, long durationNanos) {
+        if (mark != NOT_SAMPLED)
+            histograms[stage.ordinal()].record(durationNanos);
+    }
+
+    /**
+     * @return the histogram of the given stage
+     */
+    public LongHistogram histogram(S stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Returns a one line summary with the count, median, 99th percentile and
+     * maximum (in milliseconds) of every stage with samples.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(name);
+        for (S s : stages) {
+            HistogramSnapshot snapshot = histograms[s.ordinal()].snapshot();
+            if (snapshot.getTotalCount() == 0)
+                continue;
+            sb.append(String.format(" %s[n=%d p50=%.2f p99=%.2f max=%.2f]", s.name().toLowerCase(),
+                    snapshot.getTotalCount(), snapshot.getValueAtPercentile(50) / 1e6,
+                    snapshot.getValueAtPercentile(99) / 1e6, snapshot.getMax() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    private static long now() {
+        long res = System.nanoTime();
+        return res == NOT_SAMPLED ? 1L : res;
+    }
+}
@@ -34,6 +34,7 @@ import sys.stats.sliced.SlicedStatistics;
 public abstract class GenericStatisticsOverTime<V extends SlicedStatistics<V>> {
 
     private List<Pair<Long, V>> statisticsOverTime;
+    private volatile Pair<Long, V> lastSlice;
     private long sliceMillis;
     protected long T0;
 
@@ -43,28 +44,40 @@ public abstract class GenericStatisticsOverTime<V extends SlicedStatistics<V>> {
         this.T0 = System.currentTimeMillis();
         Pair<Long, V> newSlice = new Pair<Long, V>(0L, initialValue);
         statisticsOverTime.add(newSlice);
+        lastSlice = newSlice;
     }
 
-    protected synchronized V getCurrentSlice() {
+    /**
+     * Returns the slice for the current time. The common case, when the current
+     * slice is still open, takes no lock.
+     */
+    protected V getCurrentSlice() {
         long currentTimeMillis = System.currentTimeMillis() - T0;
-        // System.out.println("T"+currentTimeMillis);
-        Pair<Long, V> lastSlice = statisticsOverTime.get(statisticsOverTime.size() - 1);
-        long lastTimeInterval = lastSlice.getFirst();
+        Pair<Long, V> slice = lastSlice;
+        if (currentTimeMillis < slice.getFirst())
+            return slice.getSecond();
+
+        return openNewSlice(currentTimeMillis);
+    }
+
+    private synchronized V openNewSlice(long currentTimeMillis) {
+        Pair<Long, V> slice = statisticsOverTime.get(statisticsOverTime.size() - 1);
+        long lastTimeInterval = slice.getFirst();
         if (currentTimeMillis >= lastTimeInterval) {
             long newSliceStart = (currentTimeMillis / sliceMillis) * sliceMillis + sliceMillis;
-            V newSliceValue = lastSlice.getSecond().createNew();
+            V newSliceValue = slice.getSecond().createNew();
             Pair<Long, V> newSlice = new Pair<Long, V>(newSliceStart, newSliceValue);
             statisticsOverTime.add(newSlice);
+            lastSlice = newSlice;
         }
         return statisticsOverTime.get(statisticsOverTime.size() - 1).getSecond();
-
     }
 
     public void mergePreviousSlices(int limit) {
         // TODO
     }
 
-    public int getSliceCount() {
+    public synchronized int getSliceCount() {
         return statisticsOverTime.size();
     }
 
@@ -74,15 +87,18 @@ public abstract class GenericStatisticsOverTime<V extends SlicedStatistics<V>> {
 
     public abstract PlotValues getPlotValues();
 
-    protected List<Pair<Long, V>> getAllSlices() {
-        return statisticsOverTime;
+    /**
+     * @return a copy of the slices collected so far
+     */
+    protected synchronized List<Pair<Long, V>> getAllSlices() {
+        return new ArrayList<Pair<Long, V>>(statisticsOverTime);
     }
 
     protected synchronized V addSliceAndReturn() {
-        Pair<Long, V> lastSlice = statisticsOverTime.get(statisticsOverTime.size() - 1);
-        this.statisticsOverTime.add(new Pair<Long, V>(System.currentTimeMillis() - T0, lastSlice.getSecond()
-                .createNew()));
-        return statisticsOverTime.get(statisticsOverTime.size() - 1).getSecond();
+        Pair<Long, V> slice = statisticsOverTime.get(statisticsOverTime.size() - 1);
+        lastSlice = new Pair<Long, V>(System.currentTimeMillis() - T0, slice.getSecond().createNew());
+        this.statisticsOverTime.add(lastSlice);
+        return lastSlice.getSecond();
 
     }
 
@@ -17,10 +17,12 @@
 package sys.stats.overtime;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import swift.utils.Pair;
 import sys.stats.StatsConstants;
 import sys.stats.common.PlotValues;
+import sys.stats.metrics.LongHistogram;
 import sys.stats.output.HistogramOutput;
 import sys.stats.sliced.slices.histogram.CommDistributionImpl;
 import sys.stats.sliced.slices.histogram.Histogram;
@@ -30,31 +32,41 @@ public class HistogramOverTime extends GenericStatisticsOverTime<CommDistributio
         HistogramOutput {
 
     private double[] commValues;
-    private double max;
+    private final AtomicLong max;
+    private final LongHistogram durations;
 
     public HistogramOverTime(long timeSlice, double[] commValues, String sourceName) {
         super(timeSlice, new CommDistributionImpl(sourceName, commValues));
         this.commValues = commValues;
         // TODO: Fix in case commValues = { Double.MAX_VALUE} is passed
-        this.max = commValues[commValues.length - 1];
+        this.max = new AtomicLong(Double.doubleToLongBits(commValues[commValues.length - 1]));
+        this.durations = new LongHistogram(sourceName);
     }
 
     @Override
     public void setValue(double value) {
-        if (value > max)
-            max = value;
+        for (;;) {
+            long prev = max.get();
+            if (value <= Double.longBitsToDouble(prev) || max.compareAndSet(prev, Double.doubleToLongBits(value)))
+                break;
+        }
         CommDistributionImpl slice = getCurrentSlice();
         slice.addValue(value);
     }
 
+    /**
+     * Measures durations with the nanosecond clock. Durations are recorded in
+     * the bins in milliseconds, and with full precision in
+     * {@link #getDurationsHistogram()}.
+     */
     @Override
     public Stopper createEventDurationSignal() {
-        final long TS = System.currentTimeMillis();
+        final long TS = System.nanoTime();
         Stopper stopper = new Stopper() {
             public void stop() {
-                long TE = System.currentTimeMillis();
-                long duration = TE - TS;
-                setValue(duration);
+                long duration = System.nanoTime() - TS;
+                durations.record(duration);
+                setValue(duration * 1e-6);
             }
 
         };
@@ -62,6 +74,14 @@ public class HistogramOverTime extends GenericStatisticsOverTime<CommDistributio
 
     }
 
+    /**
+     * @return the nanosecond histogram of the durations measured with
+     *         {@link #createEventDurationSignal()}
+     */
+    public LongHistogram getDurationsHistogram() {
+        return durations;
+    }
+
     @Override
     public PlotValues<Long, Histogram> getPlotValues() {
         List<Pair<Long, CommDistributionImpl>> slices = getAllSlices();
@@ -75,6 +95,7 @@ public class HistogramOverTime extends GenericStatisticsOverTime<CommDistributio
     @Override
     public String getHistogramBinValues() {
         char ds = StatsConstants.VS;
+        double max = Double.longBitsToDouble(this.max.get());
         String header = "TIME" + ds + "OCURRENCES_VALUE_-INF_TO_" + (int) (commValues.length == 1 ? max : commValues[0]);
         for (int i = 1; i < commValues.length; i++) {
             header += ds + "VALUE_" + (int) commValues[i - 1] + "_TO_"
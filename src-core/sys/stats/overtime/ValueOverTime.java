@@ -37,12 +37,10 @@ public class ValueOverTime extends GenericStatisticsOverTime<ValueImpl> implemen
 
     @Override
     public Stopper createEventDurationSignal() {
-        final long TS = System.currentTimeMillis();
+        final long TS = System.nanoTime();
         Stopper stopper = new Stopper() {
             public void stop() {
-                long TE = System.currentTimeMillis();
-                long duration = TE - TS;
-                setValue(duration);
+                setValue((System.nanoTime() - TS) / 1000000);
             }
 
         };
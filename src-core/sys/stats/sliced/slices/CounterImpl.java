@@ -16,24 +16,28 @@
  *****************************************************************************/
 package sys.stats.sliced.slices;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import sys.stats.sliced.SlicedStatistics;
 
+/**
+ * Counter slice backed by a striped adder, so that concurrent increments do
+ * not contend on a single memory location.
+ */
 public class CounterImpl implements SlicedStatistics<CounterImpl> {
 
-    AtomicInteger counter;
+    final LongAdder counter;
 
     public CounterImpl() {
-        counter = new AtomicInteger();
+        counter = new LongAdder();
     }
 
     public void incCounter() {
-        counter.incrementAndGet();
+        counter.increment();
     }
 
     public int getTotalOperations() {
-        return counter.get();
+        return counter.intValue();
     }
 
     public CounterImpl createNew() {
@@ -41,7 +45,7 @@ public class CounterImpl implements SlicedStatistics<CounterImpl> {
     }
 
     public void decCounter() {
-        counter.decrementAndGet();
+        counter.decrement();
 
     }
 
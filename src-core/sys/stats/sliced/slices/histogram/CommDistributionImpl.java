@@ -17,60 +17,77 @@
 package sys.stats.sliced.slices.histogram;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-import swift.utils.Pair;
 import sys.stats.StatsConstants;
 import sys.stats.common.PlotValues;
 import sys.stats.sliced.SlicedStatistics;
 
+/**
+ * Counts the values falling in each of a fixed set of bins. Bins are striped
+ * counters, so concurrent writers do not contend on a single bin; the bin of a
+ * value is found by binary search over the bin upper bounds.
+ */
 public class CommDistributionImpl implements Histogram, SlicedStatistics<CommDistributionImpl> {
 
-    private List<Pair<Double, Integer>> countLessThan;
-    private String sourceName;
-    private double max;
+    private final double[] bounds;
+    private final LongAdder[] counts;
+    private final String sourceName;
+    private final AtomicLong max;
 
     public CommDistributionImpl(String sourceName, double[] values) {
         this.sourceName = sourceName;
-        this.countLessThan = new ArrayList<Pair<Double, Integer>>();
+        List<Double> tmp = new ArrayList<Double>();
         double last = Double.MIN_VALUE;
         for (double d : values) {
             if (d > last)
-                countLessThan.add(new Pair<Double, Integer>(d, 0));
+                tmp.add(d);
         }
         if (Double.MAX_VALUE > values[values.length - 1])
-            countLessThan.add(new Pair<Double, Integer>(Double.MAX_VALUE, 0));
-        this.max = countLessThan.size() >= 2 ? countLessThan.get(countLessThan.size() - 2).getFirst()
-                : Double.MIN_VALUE;
+            tmp.add(Double.MAX_VALUE);
+
+        this.bounds = new double[tmp.size()];
+        this.counts = new LongAdder[tmp.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = tmp.get(i);
+            counts[i] = new LongAdder();
+        }
+        this.max = new AtomicLong(Double.doubleToLongBits(bounds.length >= 2 ? bounds[bounds.length - 2]
+                : Double.MIN_VALUE));
     }
 
     public void addValue(double value) {
-        for (Pair<Double, Integer> p : countLessThan) {
-            if (p.getFirst() >= value) {
-                p.setSecond(p.getSecond() + 1);
-                if (value > max)
-                    max = value;
+        int i = Arrays.binarySearch(bounds, value);
+        if (i < 0)
+            i = -i - 1;
+        if (i >= bounds.length)
+            return;
+
+        // bounds may repeat; the value goes into the first matching bin
+        while (i > 0 && bounds[i - 1] >= value)
+            i--;
+
+        counts[i].increment();
+        for (;;) {
+            long prev = max.get();
+            if (value <= Double.longBitsToDouble(prev)
+                    || max.compareAndSet(prev, Double.doubleToLongBits(value)))
                 break;
-            }
         }
     }
 
     @Override
     public CommDistributionImpl createNew() {
-        double[] values = new double[countLessThan.size()];
-        int i = 0;
-        for (Pair<Double, Integer> v : countLessThan) {
-            values[i] = v.getFirst();
-            i++;
-        }
-
-        return new CommDistributionImpl(this.sourceName, values);
+        return new CommDistributionImpl(this.sourceName, bounds.clone());
     }
 
     public PlotValues<Double, Integer> getValuesDistribution() {
         PlotValues<Double, Integer> values = new PlotValues<Double, Integer>();
-        for (Pair<Double, Integer> cl : countLessThan) {
-            values.addValue(cl.getFirst(), cl.getSecond());
+        for (int i = 0; i < bounds.length; i++) {
+            values.addValue(bounds[i], counts[i].intValue());
         }
         return values;
     }
@@ -78,12 +95,11 @@ public class CommDistributionImpl implements Histogram, SlicedStatistics<CommDis
     @Override
     public PlotValues<Double, Integer> getHistogram() {
         PlotValues<Double, Integer> results = new PlotValues<Double, Integer>();
-        for (int i = 0; i < countLessThan.size(); i++) {
-            Pair<Double, Integer> v = countLessThan.get(i);
-            if (i < countLessThan.size() - 1) {
-                results.addValue(v.getFirst(), v.getSecond());
+        for (int i = 0; i < bounds.length; i++) {
+            if (i < bounds.length - 1) {
+                results.addValue(bounds[i], counts[i].intValue());
             } else {
-                results.addValue(max, v.getSecond());
+                results.addValue(Double.longBitsToDouble(max.get()), counts[i].intValue());
             }
         }
         return results;
@@ -91,12 +107,11 @@ public class CommDistributionImpl implements Histogram, SlicedStatistics<CommDis
 
     public String toString() {
         StringBuilder out = new StringBuilder();
-        for (int i = 0; i < countLessThan.size(); i++) {
-            Pair<Double, Integer> v = countLessThan.get(i);
-            if (i < countLessThan.size() - 1) {
-                out.append(v.getSecond() + StatsConstants.VS);
+        for (int i = 0; i < bounds.length; i++) {
+            if (i < bounds.length - 1) {
+                out.append(counts[i].intValue() + StatsConstants.VS);
             } else {
-                out.append(v.getSecond());
+                out.append(counts[i].intValue());
             }
         }
 